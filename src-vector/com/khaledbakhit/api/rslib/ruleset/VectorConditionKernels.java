@@ -0,0 +1,223 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorConditionKernels evaluates numeric Conditions over whole 64 case words
+ * with the Java Vector API. Each vector compare yields a lane mask selecting 
+ * the bits of its cases from a vector of bit weights, the selections are ORed
+ * lane-wise and reduced to a word once all <code>64 / lanes</code> compares are done.<br/>
+ * 
+ * This class requires Java 16 or later and the <code>jdk.incubator.vector</code> module, 
+ * both to compile and to run (<code>--add-modules jdk.incubator.vector</code>), so it
+ * is built apart from the library sources, against the compiled library. It is 
+ * only loaded reflectively by {@link ConditionKernels}, which keeps its scalar loops
+ * when this class or the module is absent.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+final class VectorConditionKernels implements ConditionKernels.WordKernel
+{
+    /**
+     * Widest vector shape supported by the platform.
+     */
+    private static final VectorSpecies<Double> SPECIES= DoubleVector.SPECIES_PREFERRED;
+    /**
+     * Number of cases compared at a time.
+     */
+    private static final int LANES= SPECIES.length();
+    /**
+     * Vector shape of bit weights, with as many lanes as {@link #SPECIES}.
+     */
+    private static final VectorSpecies<Long> BITS= VectorSpecies.of(long.class, SPECIES.vectorShape());
+    /**
+     * Bit weights of the cases of each compare of a word.
+     */
+    private static final LongVector[] WEIGHTS= weights();
+    
+    @Override
+    public void compare(Condition.Operator op, double[] column, int from, int to, double v, long[] bits)
+    {
+        switch(op)
+        {
+            case EQUAL:
+                equal(column, from, to, v, bits);
+                break;
+            case NOT_EQUAL:
+                notEqual(column, from, to, v, bits);
+                break;
+            case LESS:
+                less(column, from, to, v, bits);
+                break;
+            case LESS_EQUAL:
+                lessEqual(column, from, to, v, bits);
+                break;
+            case GREATER:
+                greater(column, from, to, v, bits);
+                break;
+            default:
+                greaterEqual(column, from, to, v, bits);
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] == v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void equal(double[] column, int from, int to, double v, long[] bits)
+    {
+        LongVector zero= LongVector.zero(BITS);
+        for(int base= from; base< to; base+= 64)
+        {
+            LongVector word= zero;
+            for(int t=0, j=0; j< 64; t++, j+= LANES)
+                word= word.or(zero.blend(WEIGHTS[t], DoubleVector.fromArray(SPECIES, column, base+j).compare(VectorOperators.EQ, v).cast(BITS)));
+            bits[(base - from) >>> 6]= word.reduceLanes(VectorOperators.OR);
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] != v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void notEqual(double[] column, int from, int to, double v, long[] bits)
+    {
+        LongVector zero= LongVector.zero(BITS);
+        for(int base= from; base< to; base+= 64)
+        {
+            LongVector word= zero;
+            for(int t=0, j=0; j< 64; t++, j+= LANES)
+                word= word.or(zero.blend(WEIGHTS[t], DoubleVector.fromArray(SPECIES, column, base+j).compare(VectorOperators.NE, v).cast(BITS)));
+            bits[(base - from) >>> 6]= word.reduceLanes(VectorOperators.OR);
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] < v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void less(double[] column, int from, int to, double v, long[] bits)
+    {
+        LongVector zero= LongVector.zero(BITS);
+        for(int base= from; base< to; base+= 64)
+        {
+            LongVector word= zero;
+            for(int t=0, j=0; j< 64; t++, j+= LANES)
+                word= word.or(zero.blend(WEIGHTS[t], DoubleVector.fromArray(SPECIES, column, base+j).compare(VectorOperators.LT, v).cast(BITS)));
+            bits[(base - from) >>> 6]= word.reduceLanes(VectorOperators.OR);
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] <= v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void lessEqual(double[] column, int from, int to, double v, long[] bits)
+    {
+        LongVector zero= LongVector.zero(BITS);
+        for(int base= from; base< to; base+= 64)
+        {
+            LongVector word= zero;
+            for(int t=0, j=0; j< 64; t++, j+= LANES)
+                word= word.or(zero.blend(WEIGHTS[t], DoubleVector.fromArray(SPECIES, column, base+j).compare(VectorOperators.LE, v).cast(BITS)));
+            bits[(base - from) >>> 6]= word.reduceLanes(VectorOperators.OR);
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] > v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void greater(double[] column, int from, int to, double v, long[] bits)
+    {
+        LongVector zero= LongVector.zero(BITS);
+        for(int base= from; base< to; base+= 64)
+        {
+            LongVector word= zero;
+            for(int t=0, j=0; j< 64; t++, j+= LANES)
+                word= word.or(zero.blend(WEIGHTS[t], DoubleVector.fromArray(SPECIES, column, base+j).compare(VectorOperators.GT, v).cast(BITS)));
+            bits[(base - from) >>> 6]= word.reduceLanes(VectorOperators.OR);
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] >= v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void greaterEqual(double[] column, int from, int to, double v, long[] bits)
+    {
+        LongVector zero= LongVector.zero(BITS);
+        for(int base= from; base< to; base+= 64)
+        {
+            LongVector word= zero;
+            for(int t=0, j=0; j< 64; t++, j+= LANES)
+                word= word.or(zero.blend(WEIGHTS[t], DoubleVector.fromArray(SPECIES, column, base+j).compare(VectorOperators.GE, v).cast(BITS)));
+            bits[(base - from) >>> 6]= word.reduceLanes(VectorOperators.OR);
+        }
+    }
+    
+    /**
+     * Build the bit weights of the cases of each compare of a word.
+     * @return Bit weights, one vector per compare.
+     */
+    private static LongVector[] weights()
+    {
+        LongVector[] weights= new LongVector[64 / LANES];
+        long[] lane= new long[LANES];
+        for(int t=0; t< weights.length; t++)
+        {
+            for(int i=0; i< LANES; i++)
+                lane[i]= 1L << (t * LANES + i);
+            weights[t]= LongVector.fromArray(BITS, lane, 0);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,548 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * ColumnarDataSet is a DataSet that stores its cases column by column in
+ * primitive arrays: one <code>double[]</code> per metric and one <code>int[]</code>
+ * of classification indexes. It has a much smaller foot print in memory than
+ * the default DataSet and allows RuleSets to be tested without parsing values.<br/>
+ * 
+ * Only numeric metric values and known classifications can be stored, other
+ * cases are dropped while reading and counted in a single warning per input.
+ * DataSetLine Objects are created on demand.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class ColumnarDataSet extends DataSet
+{
+    private static final long serialVersionUID = 117102026L;
+    /**
+     * Number of cases copied at a time between DataSets not holding metric columns in Java arrays.
+     */
+    static final int BLOCK= 1 << 12;
+    /**
+     * Metric values, one array per metric column.
+     */
+    private double[][] columns;
+    /**
+     * Classification index of each case.
+     */
+    private int[] classes;
+    /**
+     * Number of cases stored.
+     */
+    private int size;
+    /**
+     * List containing classifications, indexed by {@link #classes}.
+     */
+    private List<String> classList;
+    /**
+     * View over stored cases as DataSetLine Objects.
+     */
+    private transient List<DataSetLine> view;
+    
+    /**
+     * ColumnarDataSet constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    public ColumnarDataSet(LaunchSetup sp) throws InvalidInputException
+    {
+        this(StartUp.getMetricList(sp).size(), StartUp.getClassList(sp));
+    }
+    /**
+     * ColumnarDataSet constructor.
+     * @param metricCount Number of metric columns.
+     * @param classList List containing classifications.
+     */
+    public ColumnarDataSet(int metricCount, List<String> classList)
+    {
+        this.classList= classList;
+        columns= new double[metricCount][16];
+        classes= new int[16];
+        size= 0;
+    }
+    /**
+     * ColumnarDataSet constructor. It will extract cases automatically.
+     * @param datasetFile File containing the DataSet cases.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @throws FileNotFoundException Unable to locate DataSet file.
+     * @throws IOException Unable to read DataSet file.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     * @see LaunchSetup#dataset_reader
+     */
+    public ColumnarDataSet(File datasetFile, LaunchSetup sp) throws FileNotFoundException, IOException, InvalidInputException
+    {
+        this(sp);
+        if(sp.dataset_reader==null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        extract(datasetFile, (DataSetReader) sp.dataset_reader.newInstance());
+    }
+    
+    /**
+     * Add a case into this DataSet.
+     * @param metrics Metric values in metrics file order.
+     * @param classIndex Index of the case classification.
+     */
+    public void addCase(double[] metrics, int classIndex)
+    {
+        clearSortedIndex();
+        append(metrics, classIndex);
+    }
+    
+    /**
+     * Append a case into this DataSet without discarding the sorted index.
+     * @param metrics Metric values in metrics file order.
+     * @param classIndex Index of the case classification.
+     */
+    private void append(double[] metrics, int classIndex)
+    {
+        ensureCapacity(size+1);
+        for(int i=0; i<metrics.length; i++)
+            setValue(size, i, metrics[i]);
+        classes[size++]= classIndex;
+    }
+    
+    @Override
+    public void addDataSetLine(DataSetLine line)
+    {
+        String[] values= line.getMetrics();
+        int classIndex= classList.indexOf(line.getClassification());
+        if(values.length!= getMetricCount() || classIndex== -1)
+        {
+            Debugger.printlnWarning(line + " is an invalid DataSet line.");
+            return;
+        }
+        double[] metrics= new double[values.length];
+        try
+        {
+            for(int i=0; i<metrics.length; i++)
+                metrics[i]= Double.parseDouble(values[i]);
+        }
+        catch(NumberFormatException e)
+        {
+            Debugger.printlnWarning(line + " contains non-numeric metric values.");
+            return;
+        }
+        addCase(metrics, classIndex);
+    }
+    
+    @Override
+    public int size()
+    {
+        return size;
+    }
+    /**
+     * Get the number of metric columns.
+     * @return Number of metric columns.
+     */
+    public int getMetricCount()
+    {
+        return columns.length;
+    }
+    /**
+     * Check whether metric columns are held in Java arrays returned by {@link #getColumn(int)}.
+     * @return True if metric columns are Java arrays, false otherwise.
+     * @since 4.1
+     */
+    public boolean isHeapColumns()
+    {
+        return true;
+    }
+    /**
+     * Get the values of a metric column. The returned array is the backing
+     * array and may be longer than {@link #size()}.
+     * @param column Index of metric column.
+     * @return Values of metric column.
+     * @throws UnsupportedOperationException Metric columns are not held in Java arrays.
+     * @see #isHeapColumns()
+     */
+    public double[] getColumn(int column)
+    {
+        return columns[column];
+    }
+    /**
+     * Copy a range of values of a metric column.
+     * @param column Index of metric column.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param values Array receiving the values from index 0.
+     * @since 4.1
+     */
+    public void getValues(int column, int from, int to, double[] values)
+    {
+        System.arraycopy(columns[column], from, values, 0, to - from);
+    }
+    /**
+     * Get a metric value.
+     * @param row Index of case.
+     * @param column Index of metric column.
+     * @return Metric value.
+     */
+    public double getValue(int row, int column)
+    {
+        return columns[column][row];
+    }
+    /**
+     * Set a metric value. The case must be within the capacity of this DataSet.
+     * @param row Index of case.
+     * @param column Index of metric column.
+     * @param value Metric value.
+     * @since 4.1
+     */
+    protected void setValue(int row, int column, double value)
+    {
+        columns[column][row]= value;
+    }
+    /**
+     * Copy values into a metric column. The cases must be within the capacity of this DataSet.
+     * @param column Index of metric column.
+     * @param row Index of the first case to set.
+     * @param values Buffer holding the values, all of its remaining values are copied.
+     * @since 4.1
+     */
+    protected void putValues(int column, int row, DoubleBuffer values)
+    {
+        values.get(columns[column], row, values.remaining());
+    }
+    /**
+     * Get classification indexes of all cases. The returned array is the backing
+     * array and may be longer than {@link #size()}.
+     * @return Classification indexes.
+     */
+    public int[] getClassIndexes()
+    {
+        return classes;
+    }
+    /**
+     * Get the classification index of a case.
+     * @param row Index of case.
+     * @return Index of classification in classifications list.
+     */
+    public int getClassIndex(int row)
+    {
+        return classes[row];
+    }
+    /**
+     * Get the classification of a case.
+     * @param row Index of case.
+     * @return Classification of case.
+     */
+    public String getClassification(int row)
+    {
+        return classList.get(classes[row]);
+    }
+    /**
+     * Get the list of classifications indexed by this DataSet.
+     * @return List containing classifications.
+     */
+    public List<String> getClassList()
+    {
+        return classList;
+    }
+    /**
+     * Create a DataSetLine Object for a case.
+     * @param row Index of case.
+     * @return DataSetLine Object holding the case values.
+     */
+    public DataSetLine getDataSetLine(int row)
+    {
+        String[] metrics= new String[getMetricCount()];
+        for(int i=0; i<metrics.length; i++)
+            metrics[i]= format(getValue(row, i));
+        DataSetLine line= new DataSetLine(getClassification(row), metrics);
+        line.setClassIndex(classes[row]);
+        return line;
+    }
+    
+    /**
+     * Get a List view over all cases. DataSetLine Objects are created on demand,
+     * adding a DataSetLine or clearing the List modifies this DataSet.
+     * @return List view containing all DataSetLine Objects.
+     */
+    @Override
+    public List<DataSetLine> getDataSetLines()
+    {
+        if(view==null)
+        {
+            view= new AbstractList<DataSetLine>()
+            {
+                @Override
+                public DataSetLine get(int index) 
+                {
+                    if(index<0 || index>= size)
+                        throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+                    return getDataSetLine(index);
+                }
+
+                @Override
+                public int size() 
+                {
+                    return size;
+                }
+                
+                @Override
+                public void add(int index, DataSetLine line)
+                {
+                    if(index!= size)
+                        throw new UnsupportedOperationException("DataSetLines can only be appended.");
+                    addDataSetLine(line);
+                }
+                
+                @Override
+                public boolean addAll(Collection<? extends DataSetLine> lines)
+                {
+                    ensureCapacity(size + lines.size());
+                    return super.addAll(lines);
+                }
+                
+                @Override
+                public void clear()
+                {
+                    ColumnarDataSet.this.clear();
+                }
+            };
+        }
+        return view;
+    }
+    
+    @Override
+    public Iterator<DataSetLine> getDataSetLinesIterator()
+    {
+        return getDataSetLines().iterator();
+    }
+    
+    @Override
+    public void addDataSet(DataSet dataset)
+    {
+        if(!(dataset instanceof ColumnarDataSet) || !((ColumnarDataSet) dataset).isCompatible(this))
+        {
+            for(DataSetLine line: dataset.getDataSetLines())
+                addDataSetLine(line);
+            return;
+        }
+        ColumnarDataSet other= (ColumnarDataSet) dataset;
+        clearSortedIndex();
+        int count= other.size;
+        ensureCapacity(size + count);
+        if(other.isHeapColumns())
+        {
+            for(int i=0; i<getMetricCount(); i++)
+                putValues(i, size, DoubleBuffer.wrap(other.getColumn(i), 0, count));
+        }
+        else
+        {
+            double[] block= new double[Math.min(count, BLOCK)];
+            for(int i=0; i<getMetricCount(); i++)
+            {
+                for(int from=0; from<count; from+= BLOCK)
+                {
+                    int length= Math.min(BLOCK, count - from);
+                    other.getValues(i, from, from + length, block);
+                    putValues(i, size + from, DoubleBuffer.wrap(block, 0, length));
+                }
+            }
+        }
+        System.arraycopy(other.classes, 0, classes, size, count);
+        size+= count;
+    }
+    
+    /**
+     * Replace the cases of this DataSet with cases stored by column in chunks.
+     * Metric chunks are used in place if {@link #mapColumns(DoubleBuffer[][], int)}
+     * accepts them, copied otherwise.
+     * @param values Metric values, chunks of consecutive cases per metric column.
+     * @param classIndexes Classification indexes, chunks of consecutive cases.
+     * @param count Number of cases.
+     * @since 4.1
+     */
+    void load(DoubleBuffer[][] values, IntBuffer[] classIndexes, int count)
+    {
+        clearSortedIndex();
+        size= 0;
+        if(mapColumns(values, count))
+            classes= new int[count];
+        else
+        {
+            resize(count);
+            for(int i=0; i<values.length; i++)
+            {
+                int row= 0;
+                for(DoubleBuffer chunk: values[i])
+                {
+                    int length= chunk.remaining();
+                    putValues(i, row, chunk);
+                    row+= length;
+                }
+            }
+        }
+        int row= 0;
+        for(IntBuffer chunk: classIndexes)
+        {
+            int length= chunk.remaining();
+            chunk.get(classes, row, length);
+            row+= length;
+        }
+        size= count;
+        trimToSize();
+    }
+    /**
+     * Use chunks of metric values as the storage of metric columns, without copying them.
+     * @param values Metric values, chunks of consecutive cases per metric column.
+     * @param count Number of cases.
+     * @return True if chunks are used as they are, false if they must be copied.
+     * @since 4.1
+     */
+    protected boolean mapColumns(DoubleBuffer[][] values, int count)
+    {
+        return false;
+    }
+    
+    /**
+     * Check whether cases of this DataSet can be copied as they are into another one.
+     * @param other ColumnarDataSet to copy cases into.
+     * @return True if both have the same metric columns and classifications, false otherwise.
+     */
+    private boolean isCompatible(ColumnarDataSet other)
+    {
+        return getMetricCount()== other.getMetricCount() && 
+                (classList== other.classList || classList.equals(other.classList));
+    }
+    
+    @Override
+    protected void extract(File datasetFile, InputStream input, DataSetReader reader) throws IOException
+    {
+        setFile(datasetFile);
+        clearSortedIndex();
+        size= 0;
+        double[] metrics= new double[getMetricCount()];
+        int classIndex, skipped= 0;
+        reader.open(input);
+        while(reader.hasNext())
+        {
+            classIndex= reader.getNext(metrics);
+            if(classIndex!= -1)
+                append(metrics, classIndex);
+            else
+                skipped++;
+        }
+        reader.close();
+        trimToSize();
+        if(skipped> 0)
+            Debugger.printlnWarning(skipped+" lines of "+datasetFile.getName()
+                    +" are empty, invalid, non-numeric or of unknown classification and were not stored.");
+    }
+    
+    /**
+     * Create the sorted index over the metric columns, without copying them.
+     * @return SortedIndex Object over the cases of this DataSet.
+     * @throws UnsupportedOperationException Metric columns are not held in Java arrays.
+     * @see #isHeapColumns()
+     */
+    @Override
+    protected SortedIndex createSortedIndex()
+    {
+        if(!isHeapColumns())
+            throw new UnsupportedOperationException("sorted index requires metric columns on the Java heap");
+        return new SortedIndex(columns, size);
+    }
+    
+    /**
+     * Remove all cases of this DataSet, keeping its capacity.
+     * @since 4.1
+     */
+    public void clear()
+    {
+        clearSortedIndex();
+        size= 0;
+    }
+
+    /**
+     * Trim the capacity of this DataSet to its current size.
+     */
+    public void trimToSize()
+    {
+        if(size < classes.length)
+            resize(size);
+    }
+    
+    /**
+     * Increase the capacity of this DataSet if needed.
+     * @param capacity Minimum number of cases to hold.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if(capacity > classes.length)
+            resize(Math.max(capacity, Math.max(classes.length*2, 16)));
+    }
+    
+    /**
+     * Resize the backing arrays.
+     * @param capacity New capacity.
+     */
+    private void resize(int capacity)
+    {
+        resizeColumns(capacity);
+        classes= Arrays.copyOf(classes, capacity);
+    }
+    
+    /**
+     * Resize the storage of metric columns.
+     * @param capacity New capacity, never less than {@link #size()}.
+     * @since 4.1
+     */
+    protected void resizeColumns(int capacity)
+    {
+        for(int i=0; i<columns.length; i++)
+            columns[i]= Arrays.copyOf(columns[i], capacity);
+    }
+    
+    /**
+     * Format a metric value as String, omitting the fraction of whole numbers.
+     * @param value Metric value.
+     * @return String representation of value.
+     */
+    public static String format(double value)
+    {
+        if(value== Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        return Double.toString(value);
+    }
+}
@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -53,6 +54,11 @@ public class DataSet implements Serializable
      * LinkedList Object containing DataSetLine Objects extracted from DataSet File.
      */
     private LinkedList<DataSetLine> lines;
+    /**
+     * Sorted per-metric index of the cases or null if not built.
+     * @since 4.1
+     */
+    private transient volatile SortedIndex sortedIndex;
     
     /**
      * DataSet constructor.
@@ -84,16 +90,27 @@ public class DataSet implements Serializable
      */
     public void addDataSetLine(DataSetLine line)
     {
+        clearSortedIndex();
         lines.add(line);
     }
     /**
      * Get List containing all DataSetLine Objects that make up this DataSet.
+     * Call {@link #clearSortedIndex()} after modifying the List.
      * @return List containing all DataSetLine Objects.
      */
     public List<DataSetLine> getDataSetLines()
     {
         return lines;
     }
+    /**
+     * Get the number of cases in this DataSet.
+     * @return Number of cases.
+     * @since 4.1
+     */
+    public int size()
+    {
+        return lines.size();
+    }
     /**
      * Get iterator over all DataSetLine Objects that make up this DataSet.
      * @return Iterator containing all DataSetLine Objects.
@@ -138,13 +155,126 @@ public class DataSet implements Serializable
      * @throws FileNotFoundException Unable to locate DataSet File.
      * @throws IOException Unable to read from DataSet File.
      */
-    public final void extract(File datasetFile, DataSetReader reader) throws FileNotFoundException, IOException
+    public void extract(File datasetFile, DataSetReader reader) throws FileNotFoundException, IOException
+    {
+        extract(datasetFile, new FileInputStream(datasetFile), reader);
+    }
+    /**
+     * Extract the DataSetLines of a range of a DataSet File only.
+     * @param range DataSetRange of the DataSet File containing whole lines.
+     * @param reader DataSetReader Object to read the range.
+     * @throws FileNotFoundException Unable to locate DataSet File.
+     * @throws IOException Unable to read from DataSet File.
+     * @see #addDataSet(DataSet) 
+     * @since 4.1
+     */
+    public void extract(DataSetRange range, DataSetReader reader) throws FileNotFoundException, IOException
+    {
+        extract(range.getFile(), range.open(), reader);
+    }
+    /**
+     * Extract all DataSetLines from an input of a DataSet File.
+     * @param datasetFile File containing DataSet cases.
+     * @param input InputStream reading DataSet cases from the File.
+     * @param reader DataSetReader Object to read the input.
+     * @throws IOException Unable to read from DataSet File.
+     * @since 4.1
+     */
+    protected void extract(File datasetFile, InputStream input, DataSetReader reader) throws IOException
     {
         this.datasetFile= datasetFile;
+        clearSortedIndex();
         lines.clear();
-        reader.open(new FileInputStream(datasetFile));
+        reader.open(input);
+        DataSetLine line, buffer= null;
         while(reader.hasNext())
-            lines.add(reader.getNext());
+        {
+            //Lines are kept, a new buffer is only needed once the last one was used.
+            if(buffer== null)
+                buffer= new DataSetLine();
+            line= reader.getNext(buffer);
+            lines.add(line);
+            if(line!= null)
+                buffer= null;
+        }
         reader.close();
     }
-}
\ No newline at end of file
+    /**
+     * Append all cases of another DataSet into this DataSet Object, such as 
+     * the cases extracted from the next range of the same DataSet File.
+     * @param dataset DataSet Object containing cases to append.
+     * @since 4.1
+     */
+    public void addDataSet(DataSet dataset)
+    {
+        clearSortedIndex();
+        lines.addAll(dataset.getDataSetLines());
+    }
+    /**
+     * Get the sorted per-metric index of the cases, building it if needed.
+     * The index is reused until this DataSet is modified.
+     * @return SortedIndex of this DataSet.
+     * @since 4.1
+     */
+    public SortedIndex getSortedIndex()
+    {
+        SortedIndex index= sortedIndex;
+        if(index== null)
+        {
+            synchronized(this)
+            {
+                index= sortedIndex;
+                if(index== null)
+                    sortedIndex= index= createSortedIndex();
+            }
+        }
+        return index;
+    }
+    /**
+     * Check whether the sorted per-metric index of the cases is built.
+     * @return True if index is built, false otherwise.
+     * @since 4.1
+     */
+    public boolean hasSortedIndex()
+    {
+        return sortedIndex!= null;
+    }
+    /**
+     * Discard the sorted per-metric index of the cases.
+     * @since 4.1
+     */
+    public void clearSortedIndex()
+    {
+        if(sortedIndex!= null)
+            sortedIndex= null;
+    }
+    /**
+     * Create the sorted per-metric index of the cases. Non-numeric metric values 
+     * are indexed as NaN.
+     * @return New SortedIndex Object.
+     * @since 4.1
+     */
+    protected SortedIndex createSortedIndex()
+    {
+        int metricCount= lines.isEmpty()? 0: lines.getFirst().getMetrics().length;
+        double[][] columns= new double[metricCount][lines.size()];
+        int row= 0;
+        for(DataSetLine line: lines)
+        {
+            String[] metrics= line.getMetrics();
+            for(int i=0; i< metricCount; i++)
+            {
+                try
+                {
+                    columns[i][row]= Double.parseDouble(metrics[i]);
+                }
+                catch(Exception e)
+                {
+                    columns[i][row]= Double.NaN;
+                }
+            }
+            row++;
+        }
+        return new SortedIndex(columns, row);
+    }
+}
@@ -0,0 +1,418 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * DataSetCache stores ColumnarDataSets in a binary columnar form, in sidecar
+ * files of a cache directory. Loading a DataSet from its sidecar maps the file
+ * instead of parsing the DataSet File again: an {@link OffHeapDataSet} reads its
+ * metric columns from the mapped regions in place, other DataSets copy them.<br/>
+ * 
+ * Metric columns are always stored as 64-bit floating point values, whatever
+ * representation the DataSet held them in. An {@link EncodedDataSet} encodes its
+ * columns again once loaded. Sidecars are mapped in regions of at most a
+ * chunk of OffHeapDataSet cases, so they may exceed 2 GB.<br/>
+ * 
+ * A sidecar records the length and modification time of its DataSet File and a
+ * hash of the metrics, the classifications and the DataSetReader used. It is 
+ * ignored when any of them changed, and rebuilt on next store.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class DataSetCache 
+{
+    /**
+     * Magic number at the start of sidecar files.
+     */
+    private static final int MAGIC= 0x52534443;
+    /**
+     * Version of the sidecar format.
+     */
+    private static final int VERSION= 1;
+    /**
+     * Type of a column stored as 64-bit floating point values.
+     */
+    private static final byte DOUBLE= 1;
+    /**
+     * Length of the fixed part of the header.
+     */
+    private static final int HEADER= 44;
+    /**
+     * Bytes written at a time.
+     */
+    private static final int CHUNK= 1 << 20;
+    /**
+     * File extension of sidecar files.
+     */
+    public static final String EXTENSION= ".rsdc";
+    
+    /**
+     * LaunchSetup Object containing input configuration.
+     */
+    private LaunchSetup sp;
+    /**
+     * Directory holding sidecar files.
+     */
+    private File dir;
+    
+    /**
+     * DataSetCache constructor. Sidecar files are held in the DataSetCache 
+     * directory of the program data directory.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @see LaunchSetup#program_data_dir
+     */
+    public DataSetCache(LaunchSetup sp)
+    {
+        this(new File(sp.program_data_dir, "DataSetCache"), sp);
+    }
+    /**
+     * DataSetCache constructor.
+     * @param dir Directory holding sidecar files.
+     * @param sp LaunchSetup Object containing input configuration.
+     */
+    public DataSetCache(File dir, LaunchSetup sp)
+    {
+        this.dir= dir;
+        this.sp= sp;
+    }
+    /**
+     * Get the directory holding sidecar files.
+     * @return Cache directory.
+     */
+    public File getDirectory()
+    {
+        return dir;
+    }
+    /**
+     * Get the sidecar file of a DataSet File.
+     * @param datasetFile DataSet File.
+     * @return Sidecar file, which may not exist.
+     */
+    public File getCacheFile(File datasetFile)
+    {
+        String path= datasetFile.getAbsolutePath();
+        return new File(dir, datasetFile.getName()+"-"+Integer.toHexString(path.hashCode())+EXTENSION);
+    }
+    
+    /**
+     * Check whether the sidecar of a DataSet File exists and is current.
+     * @param datasetFile DataSet File.
+     * @return True if DataSet can be loaded from its sidecar, false otherwise.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    public boolean isCurrent(File datasetFile) throws InvalidInputException
+    {
+        File cacheFile= getCacheFile(datasetFile);
+        if(!cacheFile.isFile())
+            return false;
+        try
+        {
+            RandomAccessFile raf= new RandomAccessFile(cacheFile, "r");
+            try
+            {
+                return header(raf.getChannel(), datasetFile)!= null;
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        catch(IOException ex)
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * Load a DataSet from the sidecar of its DataSet File.
+     * @param datasetFile DataSet File.
+     * @return ColumnarDataSet holding the cases of DataSet File or null if 
+     * there is no current sidecar.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    public ColumnarDataSet load(File datasetFile) throws InvalidInputException
+    {
+        ColumnarDataSet dataset= new ColumnarDataSet(sp);
+        return load(datasetFile, dataset)? dataset: null;
+    }
+    
+    /**
+     * Load the cases of a DataSet File from its sidecar into a ColumnarDataSet,
+     * replacing the cases it holds.
+     * @param datasetFile DataSet File.
+     * @param dataset ColumnarDataSet receiving the cases.
+     * @return True if cases were loaded, false if there is no current sidecar.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     * @since 4.1
+     */
+    public boolean load(File datasetFile, ColumnarDataSet dataset) throws InvalidInputException
+    {
+        File cacheFile= getCacheFile(datasetFile);
+        if(!cacheFile.isFile())
+            return false;
+        try
+        {
+            RandomAccessFile raf= new RandomAccessFile(cacheFile, "r");
+            try
+            {
+                FileChannel channel= raf.getChannel();
+                int[] header= header(channel, datasetFile);
+                if(header== null || header[0]!= dataset.getMetricCount())
+                    return false;
+                int metricCount= header[0], size= header[1];
+                long offset= align(HEADER + metricCount);
+                int chunkCount= (size + OffHeapDataSet.CHUNK_SIZE - 1) / OffHeapDataSet.CHUNK_SIZE;
+                DoubleBuffer[][] columns= new DoubleBuffer[metricCount][chunkCount];
+                IntBuffer[] classes= new IntBuffer[chunkCount];
+                for(int i=0; i<metricCount; i++)
+                {
+                    for(int j=0; j<chunkCount; j++)
+                    {
+                        int length= chunkLength(j, size);
+                        columns[i][j]= map(channel, offset, 8L*length).asDoubleBuffer();
+                        offset+= 8L*length;
+                    }
+                }
+                for(int j=0; j<chunkCount; j++)
+                {
+                    int length= chunkLength(j, size);
+                    classes[j]= map(channel, offset, 4L*length).asIntBuffer();
+                    offset+= 4L*length;
+                }
+                dataset.load(columns, classes, size);
+                dataset.setFile(datasetFile);
+                return true;
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        catch(IOException ex)
+        {
+            Debugger.printlnWarning("Unable to read "+cacheFile.getName()+", DataSet will be extracted.");
+            Debugger.printlnWarning(ex.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Read and check the header of a sidecar file.
+     * @param channel FileChannel of sidecar file.
+     * @param datasetFile DataSet File.
+     * @return Number of metric columns and number of cases, or null if sidecar is not current.
+     * @throws IOException Unable to read sidecar file.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    private int[] header(FileChannel channel, File datasetFile) throws IOException, InvalidInputException
+    {
+        if(channel.size() < HEADER)
+            return null;
+        ByteBuffer header= map(channel, 0, HEADER);
+        if(header.getInt()!= MAGIC || header.getInt()!= VERSION || header.getLong()!= schema() 
+                || header.getLong()!= datasetFile.length() || header.getLong()!= datasetFile.lastModified())
+            return null;
+        int metricCount= header.getInt(), classCount= header.getInt(), size= header.getInt();
+        if(metricCount < 0 || size < 0 || classCount!= StartUp.getClassList(sp).size() 
+                || channel.size()!= length(metricCount, size))
+            return null;
+        ByteBuffer types= map(channel, HEADER, metricCount);
+        for(int i=0; i<metricCount; i++)
+            if(types.get(i)!= DOUBLE)
+                return null;
+        return new int[]{metricCount, size};
+    }
+    
+    /**
+     * Store a DataSet in the sidecar of its DataSet File, replacing any former one.
+     * Failing to write the sidecar is reported but does not stop the caller.
+     * @param dataset ColumnarDataSet extracted from its DataSet File.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     * @see DataSet#getFile() 
+     */
+    public void store(ColumnarDataSet dataset) throws InvalidInputException
+    {
+        File datasetFile= dataset.getFile();
+        File cacheFile= getCacheFile(datasetFile);
+        long schema= schema();
+        int metricCount= dataset.getMetricCount(), size= dataset.size();
+        File temp= new File(dir, cacheFile.getName()+".tmp"+Thread.currentThread().getId());
+        try
+        {
+            if(!dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Unable to create "+dir);
+            RandomAccessFile raf= new RandomAccessFile(temp, "rw");
+            try
+            {
+                raf.setLength(0);
+                FileChannel channel= raf.getChannel();
+                ByteBuffer buffer= ByteBuffer.allocate(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(schema)
+                        .putLong(datasetFile.length()).putLong(datasetFile.lastModified())
+                        .putInt(metricCount).putInt(dataset.getClassList().size()).putInt(size);
+                for(int i=0; i<metricCount; i++)
+                    buffer.put(DOUBLE);
+                while(buffer.position() % 8 != 0)
+                    buffer.put((byte) 0);
+                double[] block= new double[Math.min(size, ColumnarDataSet.BLOCK)];
+                for(int i=0; i<metricCount; i++)
+                {
+                    for(int from=0; from<size; from+= block.length)
+                    {
+                        int length= Math.min(block.length, size - from);
+                        dataset.getValues(i, from, from + length, block);
+                        for(int j=0; j<length; j++)
+                        {
+                            if(buffer.remaining() < 8)
+                                flush(channel, buffer);
+                            buffer.putDouble(block[j]);
+                        }
+                    }
+                }
+                int[] classes= dataset.getClassIndexes();
+                for(int row=0; row<size; row++)
+                {
+                    if(buffer.remaining() < 4)
+                        flush(channel, buffer);
+                    buffer.putInt(classes[row]);
+                }
+                flush(channel, buffer);
+            }
+            finally
+            {
+                raf.close();
+            }
+            if(cacheFile.exists() && !cacheFile.delete())
+                throw new IOException("Unable to replace "+cacheFile.getName());
+            if(!temp.renameTo(cacheFile))
+                throw new IOException("Unable to create "+cacheFile.getName());
+        }
+        catch(IOException ex)
+        {
+            temp.delete();
+            Debugger.printlnWarning("Unable to cache "+datasetFile.getName()+".");
+            Debugger.printlnWarning(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Delete all sidecar files of the cache directory.
+     */
+    public void clear()
+    {
+        File[] list= dir.listFiles();
+        if(list== null)
+            return;
+        for(File f: list)
+            if(f.getName().endsWith(EXTENSION))
+                f.delete();
+    }
+    
+    /**
+     * Compute the hash of the metrics, the classifications and the DataSetReader 
+     * type, which sidecars must match.
+     * @return Schema hash.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    private long schema() throws InvalidInputException
+    {
+        long hash= 1125899906842597L;
+        hash= 31*hash + StartUp.getMetricList(sp).hashCode();
+        hash= 31*hash + StartUp.getClassList(sp).hashCode();
+        if(sp.dataset_reader!= null)
+            hash= 31*hash + sp.dataset_reader.getClass().getName().hashCode();
+        return hash;
+    }
+    
+    /**
+     * Get the length of a sidecar file.
+     * @param metricCount Number of metric columns.
+     * @param size Number of cases.
+     * @return Length in bytes.
+     */
+    private static long length(int metricCount, int size)
+    {
+        return align(HEADER + metricCount) + 8L*metricCount*size + 4L*size;
+    }
+    
+    /**
+     * Get the number of cases of a mapped region.
+     * @param index Index of region in its column.
+     * @param size Number of cases.
+     * @return Number of cases of region.
+     */
+    private static int chunkLength(int index, int size)
+    {
+        return (int) Math.min(OffHeapDataSet.CHUNK_SIZE, size - (long) index * OffHeapDataSet.CHUNK_SIZE);
+    }
+    
+    /**
+     * Round an offset up to a multiple of 8.
+     * @param offset Offset in sidecar file.
+     * @return Aligned offset.
+     */
+    private static long align(long offset)
+    {
+        return (offset + 7) & ~7L;
+    }
+    
+    /**
+     * Map a region of a sidecar file.
+     * @param channel FileChannel of sidecar file.
+     * @param offset Offset of region.
+     * @param length Length of region.
+     * @return Little endian ByteBuffer of region.
+     * @throws IOException Unable to map sidecar file.
+     */
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Write buffered bytes.
+     * @param channel FileChannel of sidecar file.
+     * @param buffer Buffer of bytes to write.
+     * @throws IOException Unable to write sidecar file.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
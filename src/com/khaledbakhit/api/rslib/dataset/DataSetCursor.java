@@ -0,0 +1,226 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * DataSetCursor is a reusable view over the current case read from a DataSet 
+ * input. Moving to the next case overwrites the metric values of the previous 
+ * one in place, so cases are read as {@link DataSetReader#getNext(double[])} 
+ * parses them without creating any Object per case.<br/>
+ * 
+ * Cases are only turned into Objects when asked for, with {@link #getDataSetLine()}, 
+ * for callers that keep them. Lines that are invalid or have an unknown 
+ * classification are skipped, as {@link ColumnarDataSet} skips them.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public final class DataSetCursor 
+{
+    /**
+     * DataSetReader Object reading the input.
+     */
+    private final DataSetReader reader;
+    /**
+     * Metric values of current case, in metrics file order.
+     */
+    private final double[] metrics;
+    /**
+     * List containing classifications.
+     */
+    private final List<String> classList;
+    /**
+     * Classification index of current case or -1 if there is no current case.
+     */
+    private int classIndex;
+    
+    /**
+     * DataSetCursor constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     * @see LaunchSetup#dataset_reader
+     */
+    public DataSetCursor(LaunchSetup sp) throws InvalidInputException
+    {
+        this(newReader(sp), StartUp.getMetricList(sp).size(), StartUp.getClassList(sp));
+    }
+    /**
+     * DataSetCursor constructor.
+     * @param reader DataSetReader Object to read the input.
+     * @param metricCount Number of metric columns.
+     * @param classList List containing classifications.
+     */
+    public DataSetCursor(DataSetReader reader, int metricCount, List<String> classList)
+    {
+        this.reader= reader;
+        this.metrics= new double[metricCount];
+        this.classList= classList;
+        this.classIndex= -1;
+    }
+    
+    /**
+     * Open an input to read cases from.
+     * @param input InputStream reading DataSet cases.
+     */
+    public void open(InputStream input)
+    {
+        classIndex= -1;
+        reader.open(input);
+    }
+    
+    /**
+     * Move to the next valid case of the input.
+     * @return True if a case was read, false if input has no more cases.
+     */
+    public boolean next()
+    {
+        while(reader.hasNext())
+        {
+            classIndex= reader.getNext(metrics);
+            if(classIndex!= -1)
+                return true;
+        }
+        classIndex= -1;
+        return false;
+    }
+    
+    /**
+     * Replace the cases of a ColumnarDataSet with the next cases of the input.
+     * The ColumnarDataSet keeps its capacity, so it can be reused as a buffer.
+     * @param dataset ColumnarDataSet to store cases into.
+     * @param count Maximum number of cases to read.
+     * @return Number of cases read, 0 if input has no more cases.
+     */
+    public int fill(ColumnarDataSet dataset, int count)
+    {
+        dataset.clear();
+        int read= 0;
+        while(read < count && next())
+        {
+            dataset.addCase(metrics, classIndex);
+            read++;
+        }
+        return read;
+    }
+    
+    /**
+     * Get a metric value of current case.
+     * @param column Index of metric column.
+     * @return Metric value.
+     */
+    public double getValue(int column)
+    {
+        return metrics[column];
+    }
+    
+    /**
+     * Get the metric values of current case. The array is overwritten when
+     * moving to the next case.
+     * @return Metric values in metrics file order.
+     */
+    public double[] getMetrics()
+    {
+        return metrics;
+    }
+    
+    /**
+     * Get the classification index of current case.
+     * @return Index of classification in the classifications list or -1 if there is no current case.
+     */
+    public int getClassIndex()
+    {
+        return classIndex;
+    }
+    
+    /**
+     * Get the classification of current case.
+     * @return Classification of current case.
+     */
+    public String getClassification()
+    {
+        return classList.get(classIndex);
+    }
+    
+    /**
+     * Get the number of metric columns.
+     * @return Number of metric columns.
+     */
+    public int getMetricCount()
+    {
+        return metrics.length;
+    }
+    
+    /**
+     * Get the List containing classifications.
+     * @return List containing classifications.
+     */
+    public List<String> getClassList()
+    {
+        return classList;
+    }
+    
+    /**
+     * Create a DataSetLine Object holding current case, to keep it after moving
+     * to the next case.
+     * @return DataSetLine Object holding the case values.
+     */
+    public DataSetLine getDataSetLine()
+    {
+        String[] values= new String[metrics.length];
+        for(int i=0; i<values.length; i++)
+            values[i]= ColumnarDataSet.format(metrics[i]);
+        DataSetLine line= new DataSetLine(getClassification(), values);
+        line.setClassIndex(classIndex);
+        return line;
+    }
+    
+    /**
+     * Close the input.
+     */
+    public void close()
+    {
+        classIndex= -1;
+        try
+        {
+            reader.close();
+        }
+        catch(Exception e){}
+    }
+    
+    /**
+     * Create the DataSetReader Object of a configuration.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @return New DataSetReader Object.
+     */
+    private static DataSetReader newReader(LaunchSetup sp)
+    {
+        if(sp.dataset_reader==null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        return (DataSetReader) sp.dataset_reader.newInstance();
+    }
+}
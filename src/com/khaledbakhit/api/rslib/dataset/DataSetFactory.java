@@ -22,10 +22,12 @@ package com.khaledbakhit.api.rslib.dataset;
 import com.khaledbakhit.api.rslib.LaunchSetup;
 import com.khaledbakhit.api.rslib.Program;
 import com.khaledbakhit.api.rslib.exceptions.InputParseException;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
 import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -46,6 +48,43 @@ public class DataSetFactory
      * LaunchSetup Object containing input configurations.
      */
     private LaunchSetup sp;
+    /**
+     * Flag indicating whether extracted DataSets are stored in columnar form.
+     * @since 4.1
+     */
+    private boolean columnar;
+    /**
+     * Minimum length in bytes of the ranges DataSet Files are split in when 
+     * extracted in parallel, 0 to extract each File as a whole.
+     * @since 4.1
+     */
+    private long rangeLength;
+    /**
+     * Suggested minimum length in bytes of the ranges DataSet Files are split in,
+     * once splitting is turned on through {@link #setRangeLength(long)}.
+     * @since 4.1
+     */
+    public static final long DEFAULT_RANGE_LENGTH= 1L << 20;
+    /**
+     * DataSetCache Object holding extracted columnar DataSets or null if none.
+     * @since 4.1
+     */
+    private DataSetCache cache;
+    /**
+     * Flag indicating whether columnar DataSets hold metric columns off the Java heap.
+     * @since 4.1
+     */
+    private boolean offHeap;
+    /**
+     * Directory holding scratch files of off-heap DataSets or null to use direct buffers.
+     * @since 4.1
+     */
+    private File scratchDir;
+    /**
+     * Flag indicating whether columnar DataSets encode their metric columns.
+     * @since 4.1
+     */
+    private boolean encoded;
   
     /**
      * DataSetFactory constructor. Uses the default LaunchSetup Object.
@@ -64,6 +103,189 @@ public class DataSetFactory
     {
         this.sp= sp;
     }
+    /**
+     * Set whether extracted DataSets are stored in columnar form.
+     * @param columnar True to extract {@link ColumnarDataSet} Objects, false otherwise.
+     * @since 4.1
+     */
+    public void setColumnar(boolean columnar)
+    {
+        this.columnar= columnar;
+    }
+    /**
+     * Check whether extracted DataSets are stored in columnar form.
+     * @return True if {@link ColumnarDataSet} Objects are extracted, false otherwise.
+     * @since 4.1
+     */
+    public boolean isColumnar()
+    {
+        return columnar;
+    }
+    /**
+     * Set the minimum length in bytes of the ranges DataSet Files are split in
+     * by {@link #fastExtractDataSets(java.io.File, java.util.concurrent.ExecutorService)}. 
+     * Ranges of a File are extracted in parallel and appended in File order.
+     * @param rangeLength Minimum range length, 0 or less (default) to extract each File as a whole.
+     * @since 4.1
+     */
+    public void setRangeLength(long rangeLength)
+    {
+        this.rangeLength= rangeLength;
+    }
+    /**
+     * Get the minimum length in bytes of the ranges DataSet Files are split in.
+     * @return Minimum range length, 0 or less if Files are extracted as a whole.
+     * @since 4.1
+     */
+    public long getRangeLength()
+    {
+        return rangeLength;
+    }
+    /**
+     * Set the cache of columnar DataSets. DataSets are loaded from the cache when
+     * their sidecar is current, and stored in it once extracted otherwise.
+     * Requires columnar form.
+     * @param cache DataSetCache Object or null to always extract DataSets.
+     * @see #setColumnar(boolean) 
+     * @since 4.1
+     */
+    public void setCache(DataSetCache cache)
+    {
+        this.cache= cache;
+    }
+    /**
+     * Get the cache of columnar DataSets.
+     * @return DataSetCache Object or null if DataSets are always extracted.
+     * @since 4.1
+     */
+    public DataSetCache getCache()
+    {
+        return cache;
+    }
+    /**
+     * Set whether columnar DataSets hold their metric columns off the Java heap.
+     * Requires columnar form.
+     * @param offHeap True to extract {@link OffHeapDataSet} Objects, false otherwise.
+     * @see #setColumnar(boolean) 
+     * @since 4.1
+     */
+    public void setOffHeap(boolean offHeap)
+    {
+        this.offHeap= offHeap;
+    }
+    /**
+     * Check whether columnar DataSets hold their metric columns off the Java heap.
+     * @return True if {@link OffHeapDataSet} Objects are extracted, false otherwise.
+     * @since 4.1
+     */
+    public boolean isOffHeap()
+    {
+        return offHeap;
+    }
+    /**
+     * Set the directory holding the scratch files off-heap DataSets are mapped from.
+     * @param scratchDir Scratch directory or null to use direct buffers.
+     * @see #setOffHeap(boolean) 
+     * @since 4.1
+     */
+    public void setScratchDirectory(File scratchDir)
+    {
+        this.scratchDir= scratchDir;
+    }
+    /**
+     * Get the directory holding the scratch files off-heap DataSets are mapped from.
+     * @return Scratch directory or null if direct buffers are used.
+     * @since 4.1
+     */
+    public File getScratchDirectory()
+    {
+        return scratchDir;
+    }
+    /**
+     * Set whether columnar DataSets encode each metric column in the smallest
+     * representation holding its values. Ignored when metric columns are held 
+     * off the Java heap.
+     * @param encoded True to extract {@link EncodedDataSet} Objects, false otherwise.
+     * @see #setColumnar(boolean) 
+     * @since 4.1
+     */
+    public void setEncoded(boolean encoded)
+    {
+        this.encoded= encoded;
+    }
+    /**
+     * Check whether columnar DataSets encode their metric columns.
+     * @return True if {@link EncodedDataSet} Objects are extracted, false otherwise.
+     * @since 4.1
+     */
+    public boolean isEncoded()
+    {
+        return encoded;
+    }
+    /**
+     * Extract a DataSet from the given DataSet File.
+     * @param datasetFile File containing the DataSet cases.
+     * @return Extracted DataSet Object.
+     * @throws FileNotFoundException Unable to locate Input File.
+     * @throws InputParseException DataSet input is not supported.
+     * @throws IOException Unable to read DataSet File.
+     * @since 4.1
+     */
+    public DataSet extractDataSet(File datasetFile) throws FileNotFoundException, InputParseException, IOException
+    {
+        if(!columnar)
+            return new DataSet(datasetFile, sp);
+        if(sp.dataset_reader==null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        try
+        {
+            ColumnarDataSet dataset= createColumnarDataSet();
+            if(cache!= null && cache.load(datasetFile, dataset))
+                return dataset;
+            dataset.extract(datasetFile, (DataSetReader) sp.dataset_reader.newInstance());
+            if(cache!= null)
+                cache.store(dataset);
+            return dataset;
+        }
+        catch(InputParseException e)
+        {
+            throw e;
+        }
+        catch(InvalidInputException e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+    }
+    /**
+     * Extract a DataSet from a range of a DataSet File.
+     * @param range DataSetRange of the DataSet File containing whole lines.
+     * @return Extracted DataSet Object holding the cases of the range only.
+     * @throws FileNotFoundException Unable to locate Input File.
+     * @throws InputParseException DataSet input is not supported.
+     * @throws IOException Unable to read DataSet File.
+     * @see DataSet#addDataSet(DataSet) 
+     * @since 4.1
+     */
+    public DataSet extractDataSet(DataSetRange range) throws FileNotFoundException, InputParseException, IOException
+    {
+        if(sp.dataset_reader==null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        DataSet dataset;
+        try
+        {
+            dataset= columnar? createColumnarDataSet(): new DataSet();
+        }
+        catch(InputParseException e)
+        {
+            throw e;
+        }
+        catch(InvalidInputException e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+        dataset.extract(range, (DataSetReader) sp.dataset_reader.newInstance());
+        return dataset;
+    }
     /**
      * Extract all DataSets from the default directory. 
      * @return List Object containing DataSet Objects.
@@ -156,13 +378,14 @@ public class DataSetFactory
        
         LinkedList<DataSet> mainList= new LinkedList<DataSet>();  
         for(int i=start; i<list.length; i+=forward)
-            mainList.add(new DataSet(list[i], sp));
+            mainList.add(extractDataSet(list[i]));
           
         return mainList;
     }
     
     /**
-     * Extract DataSets from input directory.
+     * Extract DataSets from input directory. DataSet Files longer than the range
+     * length are split in ranges aligned on new lines and extracted in parallel.
      * @param dir Directory containing all the RuleSets.
      * @param executor ExecutorService Object to execute function in parallel. If null, creates a default one.
      * @return List Object containing DataSet objects.
@@ -171,44 +394,141 @@ public class DataSetFactory
      * @throws InterruptedException Execution interrupted.
      * @throws ExecutionException Error occurred during execution.
      * @throws IOException Unable to read DataSet Files.
+     * @see #setRangeLength(long) 
      */
     public List<DataSet> fastExtractDataSets(File dir, ExecutorService executor) throws InterruptedException, ExecutionException, FileNotFoundException, InputParseException, IOException
     {
         if(!dir.exists())
             throw new FileNotFoundException(dir.getName()+" doesn't exist.");
      
-        if(!dir.isDirectory())
-            return extractDataSets(dir);
-           
-        final File[] list= dir.listFiles();
-        
+        final File[] list= dir.isDirectory()? dir.listFiles(): new File[]{dir};
         
+        int threads= Runtime.getRuntime().availableProcessors();
+        //Number of ranges extracted for each File.
+        int[] counts= new int[list.length];
         List<Callable<DataSet>> partitions= new LinkedList<Callable<DataSet>>();
  
          for(int i=0; i<list.length; i++)
          {
              final File dsFile= list[i];
-             partitions.add(new Callable<DataSet>()
+             List<DataSetRange> ranges= null;
+             if(rangeLength > 0 && dsFile.length() > rangeLength && !isCached(dsFile))
+                 ranges= DataSetRange.split(dsFile, rangeLength, threads * 4);
+             if(ranges== null || ranges.size()== 1)
+             {
+                 counts[i]= 1;
+                 partitions.add(new Callable<DataSet>()
+                 {
+                     @Override
+                     public DataSet call() throws FileNotFoundException, IOException, InputParseException 
+                     {
+                         return extractDataSet(dsFile);
+                     } 
+                 });
+                 continue;
+             }
+             counts[i]= ranges.size();
+             for(final DataSetRange range: ranges)
              {
-                 @Override
-                 public DataSet call() throws FileNotFoundException, IOException, InputParseException 
+                 partitions.add(new Callable<DataSet>()
                  {
-                     return new DataSet(dsFile, sp);
-                 } 
-             });
+                     @Override
+                     public DataSet call() throws FileNotFoundException, IOException, InputParseException 
+                     {
+                         return extractDataSet(range);
+                     } 
+                 });
+             }
          }  
          boolean shutdown= executor==null;
          if(shutdown)
-            executor= Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            executor= Executors.newFixedThreadPool(threads);
            
          List<Future<DataSet>> results= executor.invokeAll(partitions);
          if(shutdown)
              executor.shutdown();
          LinkedList<DataSet> mainList= new LinkedList<DataSet>();
          
-         for(Future<DataSet> result: results)
-            mainList.add(result.get());
-    
+         Iterator<Future<DataSet>> result= results.iterator();
+         for(int i=0; i<list.length; i++)
+         {
+             DataSet dataset= result.next().get();
+             for(int j=1; j<counts[i]; j++)
+             {
+                 DataSet part= result.next().get();
+                 dataset.addDataSet(part);
+                 if(part instanceof OffHeapDataSet)
+                     ((OffHeapDataSet) part).release();
+             }
+             if(counts[i] > 1 && dataset instanceof ColumnarDataSet)
+             {
+                 ((ColumnarDataSet) dataset).trimToSize();
+                 store((ColumnarDataSet) dataset);
+             }
+             mainList.add(dataset);
+         }
          return mainList;
-    }   
-}
\ No newline at end of file
+    }
+    
+    /**
+     * Create an empty columnar DataSet.
+     * @return OffHeapDataSet if metric columns are held off the Java heap, 
+     * EncodedDataSet if they are encoded, ColumnarDataSet otherwise.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    private ColumnarDataSet createColumnarDataSet() throws InvalidInputException
+    {
+        if(offHeap)
+            return new OffHeapDataSet(sp, scratchDir);
+        if(encoded)
+            return new EncodedDataSet(sp);
+        return new ColumnarDataSet(sp);
+    }
+    
+    /**
+     * Check whether a DataSet File can be loaded from the cache.
+     * @param datasetFile DataSet File.
+     * @return True if columnar DataSet has a current sidecar, false otherwise.
+     * @throws InputParseException DataSet input is not supported.
+     */
+    private boolean isCached(File datasetFile) throws InputParseException
+    {
+        if(!columnar || cache== null)
+            return false;
+        try
+        {
+            return cache.isCurrent(datasetFile);
+        }
+        catch(InputParseException e)
+        {
+            throw e;
+        }
+        catch(InvalidInputException e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+    }
+    
+    /**
+     * Store a DataSet extracted in ranges in the cache, if any.
+     * @param dataset ColumnarDataSet extracted.
+     * @throws InputParseException DataSet input is not supported.
+     */
+    private void store(ColumnarDataSet dataset) throws InputParseException
+    {
+        if(cache== null)
+            return;
+        try
+        {
+            cache.store(dataset);
+        }
+        catch(InputParseException e)
+        {
+            throw e;
+        }
+        catch(InvalidInputException e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+    }
+}
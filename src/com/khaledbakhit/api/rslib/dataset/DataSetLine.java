@@ -39,6 +39,11 @@ public class DataSetLine implements Serializable
      * Metric values present at this DataSetLine Object.
      */
     private String[] metrics;
+    /**
+     * Index of the classification in the classifications list or -1 if not resolved.
+     * @since 4.1
+     */
+    private int classIndex= -1;
  
     /**
      * DataSetLine constructor.
@@ -78,6 +83,25 @@ public class DataSetLine implements Serializable
     public void setClassification(String classification)
     {
         this.classification= classification;
+        this.classIndex= -1;
+    }
+    /**
+     * Get the index of the classification in the classifications list.
+     * @return Classification index or -1 if not resolved.
+     * @since 4.1
+     */
+    public int getClassIndex()
+    {
+        return classIndex;
+    }
+    /**
+     * Set the index of the classification in the classifications list.
+     * @param classIndex Classification index or -1 if not resolved.
+     * @since 4.1
+     */
+    public void setClassIndex(int classIndex)
+    {
+        this.classIndex= classIndex;
     }
     /**
      * Set Metric values present at this DataSetLine Object.
@@ -0,0 +1,283 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.exceptions.InputParseException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSetPipeline reads ranges of DataSet Files ahead of their evaluation.<br/>
+ * 
+ * Reader threads extract upcoming ranges, in order, into a queue of parsed 
+ * batches which consumers take from. At most depth batches are held at a time:
+ * readers wait for consumers to release the batches they are done with, so 
+ * memory use is bounded by the depth rather than by the size of DataSet Files,
+ * while reading overlaps with evaluation.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class DataSetPipeline 
+{
+    /**
+     * DataSetFactory Object extracting ranges.
+     */
+    private final DataSetFactory factory;
+    /**
+     * Ranges to read, in reading order.
+     */
+    private final List<DataSetRange> ranges;
+    /**
+     * Batches that may still be read before consumers release others.
+     */
+    private final Semaphore permits;
+    /**
+     * Batches read and not taken yet.
+     */
+    private final BlockingQueue<Batch> queue;
+    /**
+     * Index of the next range to read.
+     */
+    private final AtomicInteger next;
+    /**
+     * Reader threads.
+     */
+    private final Thread[] readers;
+    /**
+     * Maximum number of batches held at a time.
+     */
+    private final int depth;
+    /**
+     * Number of batches taken.
+     */
+    private int taken;
+    /**
+     * First error met by readers, or null if none.
+     */
+    private volatile Throwable error;
+    /**
+     * Flag indicating whether the pipeline is closed.
+     */
+    private volatile boolean closed;
+    
+    /**
+     * DataSetPipeline constructor.
+     * @param factory DataSetFactory Object extracting ranges.
+     * @param ranges Ranges to read, in reading order.
+     * @param readers Number of reader threads.
+     * @param depth Maximum number of batches held at a time.
+     */
+    public DataSetPipeline(DataSetFactory factory, List<DataSetRange> ranges, int readers, int depth)
+    {
+        this.factory= factory;
+        this.ranges= ranges;
+        this.depth= Math.max(1, depth);
+        this.permits= new Semaphore(this.depth);
+        this.queue= new LinkedBlockingQueue<Batch>();
+        this.next= new AtomicInteger();
+        this.readers= new Thread[Math.max(1, Math.min(readers, this.depth))];
+    }
+    
+    /**
+     * Get the maximum number of batches held at a time.
+     * @return Depth of the pipeline.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+    
+    /**
+     * Start the reader threads.
+     */
+    public void start()
+    {
+        for(int i=0; i<readers.length; i++)
+        {
+            readers[i]= new Thread(new Runnable()
+            {
+                @Override
+                public void run() 
+                {
+                    read();
+                }
+            }, "DataSetPipeline-"+i);
+            readers[i].setDaemon(true);
+            readers[i].start();
+        }
+    }
+    
+    /**
+     * Read ranges until all are read, the pipeline is closed or an error occurs.
+     */
+    private void read()
+    {
+        try
+        {
+            while(!closed && error== null)
+            {
+                permits.acquire();
+                int index= next.getAndIncrement();
+                if(index>= ranges.size())
+                {
+                    permits.release();
+                    return;
+                }
+                DataSetRange range= ranges.get(index);
+                queue.put(new Batch(index, range, factory.extractDataSet(range)));
+            }
+        }
+        catch(InterruptedException e)
+        {
+            //Closed.
+        }
+        catch(Throwable e)
+        {
+            /*
+             * Errors are kept too: a reader dying silently would leave consumers 
+             * waiting for batches that never come.
+             */
+            if(error== null)
+                error= e;
+        }
+    }
+    
+    /**
+     * Take a batch read, waiting for one if needed. Batches are read in order 
+     * but may be taken out of order when several readers run.
+     * @return Batch read or null if all batches were taken or the pipeline is closed.
+     * @throws InterruptedException Interrupted while waiting.
+     * @throws InputParseException DataSet input is not supported.
+     * @throws IOException Unable to read DataSet File.
+     */
+    public Batch take() throws InterruptedException, InputParseException, IOException
+    {
+        if(taken>= ranges.size())
+            return null;
+        Batch batch= null;
+        while(batch== null && !closed)
+        {
+            Throwable e= error;
+            if(e instanceof InputParseException)
+                throw (InputParseException) e;
+            if(e instanceof IOException)
+                throw (IOException) e;
+            if(e instanceof Error)
+                throw (Error) e;
+            if(e!= null)
+                throw new RuntimeException(e.getMessage(), e);
+            batch= queue.poll(100, TimeUnit.MILLISECONDS);
+        }
+        if(batch!= null)
+            taken++;
+        return batch;
+    }
+    
+    /**
+     * Release a batch once done with it, letting readers read another one.
+     */
+    public void release()
+    {
+        permits.release();
+    }
+    
+    /**
+     * Stop the reader threads and discard batches not taken.
+     */
+    public void close()
+    {
+        closed= true;
+        for(Thread reader: readers)
+            if(reader!= null)
+                reader.interrupt();
+        queue.clear();
+    }
+    
+    /**
+     * Batch holds the cases of a range read by a DataSetPipeline.
+     */
+    public static class Batch
+    {
+        /**
+         * Index of range in reading order.
+         */
+        private final int index;
+        /**
+         * Range read.
+         */
+        private final DataSetRange range;
+        /**
+         * DataSet holding the cases of range.
+         */
+        private DataSet dataset;
+        
+        /**
+         * Batch constructor.
+         * @param index Index of range in reading order.
+         * @param range Range read.
+         * @param dataset DataSet holding the cases of range.
+         */
+        Batch(int index, DataSetRange range, DataSet dataset)
+        {
+            this.index= index;
+            this.range= range;
+            this.dataset= dataset;
+        }
+        /**
+         * Get the index of the range in reading order.
+         * @return Index of range.
+         */
+        public int getIndex()
+        {
+            return index;
+        }
+        /**
+         * Get the range read.
+         * @return DataSetRange Object.
+         */
+        public DataSetRange getRange()
+        {
+            return range;
+        }
+        /**
+         * Get the DataSet holding the cases of the range.
+         * @return DataSet Object or null once cleared.
+         */
+        public DataSet getDataSet()
+        {
+            return dataset;
+        }
+        /**
+         * Drop the reference to the DataSet, so it can be collected while the 
+         * Batch is still referenced.
+         */
+        public void clear()
+        {
+            dataset= null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSetRange is a range of bytes of a DataSet File holding whole lines only.
+ * A large DataSet File is split in ranges aligned on new lines, so each range
+ * can be read by its own DataSetReader in parallel with the others. Reading all
+ * ranges in order reads the same cases as reading the whole File.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public final class DataSetRange 
+{
+    /**
+     * DataSet File containing this range.
+     */
+    private final File file;
+    /**
+     * Offset of the first byte, inclusive.
+     */
+    private final long start;
+    /**
+     * Offset of the last byte, exclusive.
+     */
+    private final long end;
+    
+    /**
+     * DataSetRange constructor.
+     * @param file DataSet File containing this range.
+     * @param start Offset of the first byte, inclusive. Must follow a new line.
+     * @param end Offset of the last byte, exclusive. Must follow a new line or be the File length.
+     */
+    public DataSetRange(File file, long start, long end)
+    {
+        this.file= file;
+        this.start= start;
+        this.end= end;
+    }
+    /**
+     * Get the DataSet File containing this range.
+     * @return DataSet File.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+    /**
+     * Get the offset of the first byte of this range.
+     * @return Offset of the first byte, inclusive.
+     */
+    public long getStart()
+    {
+        return start;
+    }
+    /**
+     * Get the offset of the last byte of this range.
+     * @return Offset of the last byte, exclusive.
+     */
+    public long getEnd()
+    {
+        return end;
+    }
+    /**
+     * Get the number of bytes in this range.
+     * @return Length of this range.
+     */
+    public long length()
+    {
+        return end - start;
+    }
+    /**
+     * Open an InputStream reading the bytes of this range only.
+     * @return InputStream to open a DataSetReader on.
+     * @throws FileNotFoundException Unable to locate DataSet File.
+     * @throws IOException Unable to seek to the start of this range.
+     */
+    public InputStream open() throws FileNotFoundException, IOException
+    {
+        FileInputStream input= new FileInputStream(file);
+        try
+        {
+            input.getChannel().position(start);
+        }
+        catch(IOException e)
+        {
+            input.close();
+            throw e;
+        }
+        return new RangeInputStream(input, length());
+    }
+    
+    @Override
+    public String toString()
+    {
+        return file.getName()+" ["+start+", "+end+")";
+    }
+    
+    /**
+     * Split a DataSet File in ranges aligned on new lines. Each range but the 
+     * last one ends right after a new line, so no line is shared by two ranges.
+     * @param file DataSet File to split.
+     * @param minLength Minimum number of bytes in a range.
+     * @param count Number of ranges wanted, ranges are not made shorter than minLength to reach it.
+     * @return Ranges in File order, at least one.
+     * @throws FileNotFoundException Unable to locate DataSet File.
+     * @throws IOException Unable to read DataSet File.
+     */
+    public static List<DataSetRange> split(File file, long minLength, int count) throws FileNotFoundException, IOException
+    {
+        List<DataSetRange> ranges= new ArrayList<DataSetRange>();
+        RandomAccessFile raf= new RandomAccessFile(file, "r");
+        try
+        {
+            long size= raf.length();
+            count= Math.max(1, count);
+            long length= Math.max(Math.max(1, minLength), (size + count - 1) / count);
+            long start= 0, end;
+            do
+            {
+                end= size - start <= length? size: nextLine(raf, start + length, size);
+                ranges.add(new DataSetRange(file, start, end));
+                start= end;
+            }
+            while(start < size);
+        }
+        finally
+        {
+            raf.close();
+        }
+        return ranges;
+    }
+    
+    /**
+     * Find the first offset at or after given offset that follows a new line.
+     * @param raf RandomAccessFile of DataSet File.
+     * @param offset Offset to start looking at.
+     * @param size Length of DataSet File.
+     * @return Offset following a new line or File length if none found.
+     * @throws IOException Unable to read DataSet File.
+     */
+    private static long nextLine(RandomAccessFile raf, long offset, long size) throws IOException
+    {
+        byte[] buffer= new byte[8192];
+        long position= offset - 1;
+        raf.seek(position);
+        int read;
+        while(position < size && (read= raf.read(buffer)) > 0)
+        {
+            for(int i=0; i<read; i++)
+                if(buffer[i]== '\n')
+                    return position + i + 1;
+            position+= read;
+        }
+        return size;
+    }
+    
+    /**
+     * InputStream reading a limited number of bytes from a DataSet File.
+     */
+    static class RangeInputStream extends FilterInputStream
+    {
+        /**
+         * Number of bytes left to read.
+         */
+        private long remaining;
+        
+        /**
+         * RangeInputStream constructor.
+         * @param input FileInputStream positioned at the start of the range.
+         * @param length Number of bytes in the range.
+         */
+        RangeInputStream(FileInputStream input, long length)
+        {
+            super(input);
+            remaining= length;
+        }
+        
+        /**
+         * Get the FileChannel of the DataSet File, positioned at the next byte to read.
+         * @return FileChannel of DataSet File.
+         */
+        FileChannel getChannel()
+        {
+            return ((FileInputStream) in).getChannel();
+        }
+        
+        /**
+         * Get the number of bytes left to read.
+         * @return Number of bytes left in the range.
+         */
+        long getRemaining()
+        {
+            return remaining;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            if(remaining <= 0)
+                return -1;
+            int b= in.read();
+            if(b!= -1)
+                remaining--;
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if(remaining <= 0)
+                return -1;
+            int read= in.read(b, off, (int) Math.min(len, remaining));
+            if(read > 0)
+                remaining-= read;
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped= in.skip(Math.min(n, remaining));
+            remaining-= skipped;
+            return skipped;
+        }
+        
+        @Override
+        public int available() throws IOException
+        {
+            return (int) Math.min(in.available(), remaining);
+        }
+        
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+    }
+}
@@ -21,6 +21,11 @@ package com.khaledbakhit.api.rslib.dataset;
 
 import com.khaledbakhit.api.rslib.interfaces.Reader;
 import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.util.HashMap;
+import java.util.List;
 /**
  * DataSetReader reads DataSetLine Objects from DataSet files.
  * @author Khaled Bakhit
@@ -33,6 +38,18 @@ public abstract class DataSetReader implements Reader<DataSetLine>
      * LaunchSetup Object containing input configuration.
      */
     protected LaunchSetup sp;
+    /**
+     * DataSetLine buffer reused by {@link #getNext(double[])}.
+     */
+    private DataSetLine buffer;
+    /**
+     * Map from classification to its index in the classifications list.
+     */
+    private HashMap<String, Integer> classIndexes;
+    /**
+     * Flag indicating the classifications list could not be loaded.
+     */
+    private boolean classListMissing;
     
     /**
      * DataSetReader constructor.
@@ -50,6 +67,106 @@ public abstract class DataSetReader implements Reader<DataSetLine>
      */
     public abstract DataSetLine getNext(DataSetLine buffer);
     
+    /**
+     * Read the next case from input directly into a primitive buffer.
+     * Subclasses able to parse input without intermediate Strings should 
+     * override this method.
+     * @param metrics Buffer to store metric values in metrics file order.
+     * @return Index of the case classification in the classifications list or 
+     * -1 if input was invalid.
+     * @since 4.1
+     */
+    public int getNext(double[] metrics)
+    {
+        buffer= getNext(buffer);
+        if(buffer==null)
+            return -1;
+        String[] values= buffer.getMetrics();
+        if(values.length != metrics.length)
+            return -1;
+        try
+        {
+            for(int i=0; i<metrics.length; i++)
+                metrics[i]= Double.parseDouble(values[i]);
+        }
+        catch(NumberFormatException e)
+        {
+            Debugger.printlnWarning(buffer + " contains non-numeric metric values.");
+            return -1;
+        }
+        int classIndex= buffer.getClassIndex();
+        if(classIndex== -1)
+            classIndex= getClassIndex(buffer.getClassification());
+        if(classIndex== -1)
+            Debugger.printlnWarning(buffer + " has an unknown classification.");
+        return classIndex;
+    }
+    
+    /**
+     * Get the index of given classification in the classifications list.
+     * @param classification Classification to look up.
+     * @return Index of classification or -1 if not found.
+     * @since 4.1
+     */
+    protected int getClassIndex(String classification)
+    {
+        try 
+        {
+            return classIndex(classification);
+        } 
+        catch (InvalidInputException ex) 
+        {
+            Debugger.printlnError("Unable to determine classifications!");
+            Debugger.printlnError(ex);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Resolve the classification index of a DataSetLine read, when the 
+     * classifications list is available.
+     * @param line DataSetLine read.
+     * @since 4.1
+     */
+    protected void resolveClassIndex(DataSetLine line)
+    {
+        if(classListMissing)
+            return;
+        try
+        {
+            line.setClassIndex(classIndex(line.getClassification()));
+        }
+        catch(InvalidInputException ex)
+        {
+            classListMissing= true;
+        }
+    }
+    
+    /**
+     * Get the index of given classification in the classifications list.
+     * @param classification Classification to look up.
+     * @return Index of classification or -1 if not found.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    private int classIndex(String classification) throws InvalidInputException
+    {
+        if(classIndexes==null)
+        {
+            List<String> classList= StartUp.getClassList(sp);
+            HashMap<String, Integer> indexes= new HashMap<String, Integer>();
+            int i= 0;
+            for(String c: classList)
+            {
+                if(!indexes.containsKey(c))
+                    indexes.put(c, i);
+                i++;
+            }
+            classIndexes= indexes;
+        }
+        Integer index= classIndexes.get(classification);
+        return index==null? -1 : index;
+    }
+    
     /**
      * Get the default DataSetReader Object.
      * @param sp LaunchSetup Object containing input configuration.
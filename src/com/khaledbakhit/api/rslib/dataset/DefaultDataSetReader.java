@@ -38,6 +38,14 @@ public class DefaultDataSetReader extends DataSetReader
      * Scanner Object to read input dataset files of default format.
      */
     private Scanner scan;
+    /**
+     * Line read by {@link #getNext(double[])}.
+     */
+    private String line;
+    /**
+     * Fields of line read by {@link #getNext(double[])}.
+     */
+    private final FieldParser parser;
     /**
      * DefaultDataSetReader constructor.
      * @param sp LaunchSetup Object containing input configuration.
@@ -45,6 +53,7 @@ public class DefaultDataSetReader extends DataSetReader
     public DefaultDataSetReader(LaunchSetup sp) 
     {
         super(sp);
+        parser= new LineParser(sp);
     }
 
     @Override
@@ -100,6 +109,7 @@ public class DefaultDataSetReader extends DataSetReader
             String classification= split[split.length-1].trim();
             
             buffer.setClassification(classification);
+            resolveClassIndex(buffer);
             buffer.setMetrics(metrics);
             return buffer;
 
@@ -110,11 +120,49 @@ public class DefaultDataSetReader extends DataSetReader
         }
     }
 
+    /**
+     * Read the next case without splitting the line into Strings: fields are
+     * located and numbers are parsed in place, so only the line read is created.
+     * @param metrics Buffer to store metric values in metrics file order.
+     * @return Index of the case classification in the classifications list or 
+     * -1 if input was invalid.
+     * @since 4.1
+     */
+    @Override
+    public int getNext(double[] metrics) {
+        if (scan == null) {
+            throw new NullPointerException("Did not open an input for this DataSetReader.");
+        }
+
+        line = scan.nextLine();
+
+        if (line.length() == 0)
+            return -1; //Empty line
+        
+        parser.split(0, line.length());
+        if (parser.getFieldCount() != metrics.length + 1) {
+            Debugger.printlnWarning(parser.line() + " is an invalid DataSet line.");
+            return -1;
+        }
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = parser.parse(i);
+            if (Double.isNaN(metrics[i]) && !parser.isNaN(i)) {
+                Debugger.printlnWarning(parser.dataSetLine() + " contains non-numeric metric values.");
+                return -1;
+            }
+        }
+        int classIndex = parser.classIndex(metrics.length);
+        if (classIndex == -1)
+            Debugger.printlnWarning(parser.dataSetLine() + " has an unknown classification.");
+        return classIndex;
+    }
+
     @Override
     public void close() {
         if (scan != null) {
             scan.close();
         }
+        line = null;
     }
 
     @Override
@@ -130,4 +178,38 @@ public class DefaultDataSetReader extends DataSetReader
     {
         return getNext(new DataSetLine());
     }
+    
+    /**
+     * FieldParser over the characters of the line read.
+     */
+    private class LineParser extends FieldParser
+    {
+        /**
+         * LineParser constructor.
+         * @param sp LaunchSetup Object containing input configuration.
+         */
+        LineParser(LaunchSetup sp)
+        {
+            super(sp);
+        }
+        
+        @Override
+        protected int charAt(int offset)
+        {
+            return line.charAt(offset);
+        }
+        
+        @Override
+        protected String decode(int start, int stop)
+        {
+            return line.substring(start, stop);
+        }
+        
+        @Override
+        protected boolean matches(int start, int stop, String classification, int index)
+        {
+            int length = stop - start;
+            return classification.length() == length && line.regionMatches(start, classification, 0, length);
+        }
+    }
 }
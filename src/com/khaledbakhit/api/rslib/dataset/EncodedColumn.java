@@ -0,0 +1,585 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * EncodedColumn stores the values of a metric column in the smallest 
+ * representation that holds them without loss: whole numbers in <code>byte</code>, 
+ * <code>short</code> or <code>int</code> arrays, few distinct values as codes 
+ * into a dictionary, other values as <code>float</code> when exact or as 
+ * <code>double</code> otherwise.<br/>
+ * 
+ * Decoded values are identical to the values stored, including negative zero
+ * and NaN values.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public abstract class EncodedColumn implements Serializable
+{
+    private static final long serialVersionUID = 117102026L;
+    /**
+     * Largest number of distinct values of a dictionary column.
+     */
+    public static final int DICTIONARY_SIZE= 256;
+    /**
+     * Bits of negative zero, which is not stored as a whole number.
+     */
+    private static final long NEGATIVE_ZERO= Double.doubleToRawLongBits(-0.0);
+    
+    /**
+     * Representation of column values.
+     */
+    public enum Type
+    {
+        BYTE, SHORT, INT, FLOAT, DICTIONARY, DOUBLE
+    }
+    
+    /**
+     * Get the representation of column values.
+     * @return Type of column.
+     */
+    public abstract Type getType();
+    /**
+     * Get a value.
+     * @param row Index of case.
+     * @return Decoded value.
+     */
+    public abstract double get(int row);
+    /**
+     * Copy a range of decoded values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param values Array receiving the values from index 0.
+     */
+    public void get(int from, int to, double[] values)
+    {
+        for(int row= from; row< to; row++)
+            values[row - from]= get(row);
+    }
+    /**
+     * Set a value if it can be represented by this column.
+     * @param row Index of case, within capacity.
+     * @param value Value to store.
+     * @return True if value was stored, false otherwise.
+     */
+    abstract boolean set(int row, double value);
+    /**
+     * Get the number of cases this column can hold.
+     * @return Capacity of column.
+     */
+    abstract int capacity();
+    /**
+     * Resize the storage of this column.
+     * @param capacity New capacity.
+     */
+    abstract void resize(int capacity);
+    
+    /**
+     * Check whether a value is a whole number stored as is in an <code>int</code>.
+     * @param value Value to check.
+     * @return True if value is a whole number within <code>int</code> range, false otherwise.
+     */
+    static boolean isInteger(double value)
+    {
+        return (int) value== value && Double.doubleToRawLongBits(value)!= NEGATIVE_ZERO;
+    }
+    
+    /**
+     * Encode the first cases of a column in the smallest representation holding
+     * their values. The column is returned as is if its representation does not change.
+     * @param column Column holding the values.
+     * @param size Number of cases to encode, the capacity of the encoded column.
+     * @return Encoded column.
+     */
+    static EncodedColumn encode(EncodedColumn column, int size)
+    {
+        boolean integer= true, single= true;
+        long min= 0, max= 0;
+        double[] block= new double[Math.min(size, 1 << 12)];
+        for(int from=0; from< size && (integer || single); from+= block.length)
+        {
+            int length= Math.min(block.length, size - from);
+            column.get(from, from + length, block);
+            for(int i=0; i< length; i++)
+            {
+                double v= block[i];
+                if(integer && isInteger(v))
+                {
+                    min= Math.min(min, (long) v);
+                    max= Math.max(max, (long) v);
+                }
+                else
+                    integer= false;
+                single&= Double.doubleToRawLongBits((float) v)== Double.doubleToRawLongBits(v);
+            }
+        }
+        Type type;
+        if(integer && min>= Byte.MIN_VALUE && max<= Byte.MAX_VALUE)
+            type= Type.BYTE;
+        else if(column.getType()== Type.DICTIONARY || DictionaryColumn.fits(column, size))
+            type= Type.DICTIONARY;
+        else if(integer && min>= Short.MIN_VALUE && max<= Short.MAX_VALUE)
+            type= Type.SHORT;
+        else if(integer)
+            type= Type.INT;
+        else if(single)
+            type= Type.FLOAT;
+        else
+            type= Type.DOUBLE;
+        if(type== column.getType())
+        {
+            if(column.capacity()!= size)
+                column.resize(size);
+            return column;
+        }
+        EncodedColumn encoded= create(type, size);
+        for(int from=0; from< size; from+= block.length)
+        {
+            int length= Math.min(block.length, size - from);
+            column.get(from, from + length, block);
+            for(int i=0; i< length; i++)
+                encoded.set(from + i, block[i]);
+        }
+        return encoded;
+    }
+    
+    /**
+     * Copy a column into a column holding any value, with the same capacity.
+     * @param column Column holding the values.
+     * @return DoubleColumn holding the values.
+     */
+    static DoubleColumn widen(EncodedColumn column)
+    {
+        DoubleColumn wide= new DoubleColumn(column.capacity());
+        column.get(0, column.capacity(), wide.values);
+        return wide;
+    }
+    
+    /**
+     * Create an empty column.
+     * @param type Representation of column values.
+     * @param capacity Number of cases the column can hold.
+     * @return New column.
+     */
+    static EncodedColumn create(Type type, int capacity)
+    {
+        switch(type)
+        {
+            case BYTE: return new ByteColumn(capacity);
+            case SHORT: return new ShortColumn(capacity);
+            case INT: return new IntColumn(capacity);
+            case FLOAT: return new FloatColumn(capacity);
+            case DICTIONARY: return new DictionaryColumn(capacity);
+            default: return new DoubleColumn(capacity);
+        }
+    }
+    
+    /**
+     * ByteColumn stores whole numbers from -128 to 127.
+     */
+    public static final class ByteColumn extends EncodedColumn
+    {
+        private static final long serialVersionUID = 117102026L;
+        private byte[] values;
+        
+        ByteColumn(int capacity)
+        {
+            values= new byte[capacity];
+        }
+        /**
+         * Get the backing array, which may be longer than the DataSet.
+         * @return Column values.
+         */
+        public byte[] getValues()
+        {
+            return values;
+        }
+        @Override
+        public Type getType()
+        {
+            return Type.BYTE;
+        }
+        @Override
+        public double get(int row)
+        {
+            return values[row];
+        }
+        @Override
+        public void get(int from, int to, double[] dst)
+        {
+            for(int row= from; row< to; row++)
+                dst[row - from]= values[row];
+        }
+        @Override
+        boolean set(int row, double value)
+        {
+            if(!isInteger(value) || (byte) value!= value)
+                return false;
+            values[row]= (byte) value;
+            return true;
+        }
+        @Override
+        int capacity()
+        {
+            return values.length;
+        }
+        @Override
+        void resize(int capacity)
+        {
+            values= Arrays.copyOf(values, capacity);
+        }
+    }
+    
+    /**
+     * ShortColumn stores whole numbers from -32768 to 32767.
+     */
+    public static final class ShortColumn extends EncodedColumn
+    {
+        private static final long serialVersionUID = 117102026L;
+        private short[] values;
+        
+        ShortColumn(int capacity)
+        {
+            values= new short[capacity];
+        }
+        /**
+         * Get the backing array, which may be longer than the DataSet.
+         * @return Column values.
+         */
+        public short[] getValues()
+        {
+            return values;
+        }
+        @Override
+        public Type getType()
+        {
+            return Type.SHORT;
+        }
+        @Override
+        public double get(int row)
+        {
+            return values[row];
+        }
+        @Override
+        public void get(int from, int to, double[] dst)
+        {
+            for(int row= from; row< to; row++)
+                dst[row - from]= values[row];
+        }
+        @Override
+        boolean set(int row, double value)
+        {
+            if(!isInteger(value) || (short) value!= value)
+                return false;
+            values[row]= (short) value;
+            return true;
+        }
+        @Override
+        int capacity()
+        {
+            return values.length;
+        }
+        @Override
+        void resize(int capacity)
+        {
+            values= Arrays.copyOf(values, capacity);
+        }
+    }
+    
+    /**
+     * IntColumn stores whole numbers within <code>int</code> range.
+     */
+    public static final class IntColumn extends EncodedColumn
+    {
+        private static final long serialVersionUID = 117102026L;
+        private int[] values;
+        
+        IntColumn(int capacity)
+        {
+            values= new int[capacity];
+        }
+        /**
+         * Get the backing array, which may be longer than the DataSet.
+         * @return Column values.
+         */
+        public int[] getValues()
+        {
+            return values;
+        }
+        @Override
+        public Type getType()
+        {
+            return Type.INT;
+        }
+        @Override
+        public double get(int row)
+        {
+            return values[row];
+        }
+        @Override
+        public void get(int from, int to, double[] dst)
+        {
+            for(int row= from; row< to; row++)
+                dst[row - from]= values[row];
+        }
+        @Override
+        boolean set(int row, double value)
+        {
+            if(!isInteger(value))
+                return false;
+            values[row]= (int) value;
+            return true;
+        }
+        @Override
+        int capacity()
+        {
+            return values.length;
+        }
+        @Override
+        void resize(int capacity)
+        {
+            values= Arrays.copyOf(values, capacity);
+        }
+    }
+    
+    /**
+     * FloatColumn stores values that are exact in single precision.
+     */
+    public static final class FloatColumn extends EncodedColumn
+    {
+        private static final long serialVersionUID = 117102026L;
+        private float[] values;
+        
+        FloatColumn(int capacity)
+        {
+            values= new float[capacity];
+        }
+        @Override
+        public Type getType()
+        {
+            return Type.FLOAT;
+        }
+        @Override
+        public double get(int row)
+        {
+            return values[row];
+        }
+        @Override
+        public void get(int from, int to, double[] dst)
+        {
+            for(int row= from; row< to; row++)
+                dst[row - from]= values[row];
+        }
+        @Override
+        boolean set(int row, double value)
+        {
+            float f= (float) value;
+            if(Double.doubleToRawLongBits(f)!= Double.doubleToRawLongBits(value))
+                return false;
+            values[row]= f;
+            return true;
+        }
+        @Override
+        int capacity()
+        {
+            return values.length;
+        }
+        @Override
+        void resize(int capacity)
+        {
+            values= Arrays.copyOf(values, capacity);
+        }
+    }
+    
+    /**
+     * DoubleColumn stores any value.
+     */
+    public static final class DoubleColumn extends EncodedColumn
+    {
+        private static final long serialVersionUID = 117102026L;
+        private double[] values;
+        
+        DoubleColumn(int capacity)
+        {
+            values= new double[capacity];
+        }
+        @Override
+        public Type getType()
+        {
+            return Type.DOUBLE;
+        }
+        @Override
+        public double get(int row)
+        {
+            return values[row];
+        }
+        @Override
+        public void get(int from, int to, double[] dst)
+        {
+            System.arraycopy(values, from, dst, 0, to - from);
+        }
+        @Override
+        boolean set(int row, double value)
+        {
+            values[row]= value;
+            return true;
+        }
+        @Override
+        int capacity()
+        {
+            return values.length;
+        }
+        @Override
+        void resize(int capacity)
+        {
+            values= Arrays.copyOf(values, capacity);
+        }
+    }
+    
+    /**
+     * DictionaryColumn stores up to {@link #DICTIONARY_SIZE} distinct values, 
+     * each case holding the code of its value in the dictionary.
+     */
+    public static final class DictionaryColumn extends EncodedColumn
+    {
+        private static final long serialVersionUID = 117102026L;
+        /**
+         * Length of the hash table of dictionary values, a power of two.
+         */
+        private static final int TABLE_SIZE= DICTIONARY_SIZE * 2;
+        private byte[] codes;
+        private double[] dictionary;
+        private int count;
+        /**
+         * Hash table of dictionary values, holding code + 1 or 0 for empty slots.
+         */
+        private short[] table;
+        
+        DictionaryColumn(int capacity)
+        {
+            codes= new byte[capacity];
+            dictionary= new double[DICTIONARY_SIZE];
+            table= new short[TABLE_SIZE];
+        }
+        /**
+         * Get the code of each case, to be read as unsigned. The backing array 
+         * may be longer than the DataSet.
+         * @return Codes of case values.
+         */
+        public byte[] getCodes()
+        {
+            return codes;
+        }
+        /**
+         * Get the dictionary values, indexed by code.
+         * @return Dictionary holding at least {@link #getDictionarySize()} values.
+         */
+        public double[] getDictionary()
+        {
+            return dictionary;
+        }
+        /**
+         * Get the number of distinct values.
+         * @return Number of dictionary values.
+         */
+        public int getDictionarySize()
+        {
+            return count;
+        }
+        @Override
+        public Type getType()
+        {
+            return Type.DICTIONARY;
+        }
+        @Override
+        public double get(int row)
+        {
+            return dictionary[codes[row] & 0xff];
+        }
+        @Override
+        public void get(int from, int to, double[] dst)
+        {
+            for(int row= from; row< to; row++)
+                dst[row - from]= dictionary[codes[row] & 0xff];
+        }
+        @Override
+        boolean set(int row, double value)
+        {
+            int code= code(value);
+            if(code== -1)
+                return false;
+            codes[row]= (byte) code;
+            return true;
+        }
+        @Override
+        int capacity()
+        {
+            return codes.length;
+        }
+        @Override
+        void resize(int capacity)
+        {
+            codes= Arrays.copyOf(codes, capacity);
+        }
+        
+        /**
+         * Get the code of a value, adding it to the dictionary if needed.
+         * @param value Value to look up.
+         * @return Code of value or -1 if dictionary is full.
+         */
+        private int code(double value)
+        {
+            long bits= Double.doubleToRawLongBits(value);
+            int slot= (int) (bits ^ (bits >>> 32)) * 0x9E3779B9 >>> 23;
+            while(table[slot]!= 0)
+            {
+                int code= table[slot] - 1;
+                if(Double.doubleToRawLongBits(dictionary[code])== bits)
+                    return code;
+                slot= (slot + 1) & (TABLE_SIZE - 1);
+            }
+            if(count== DICTIONARY_SIZE)
+                return -1;
+            dictionary[count]= value;
+            table[slot]= (short) ++count;
+            return count - 1;
+        }
+        
+        /**
+         * Check whether the first cases of a column hold few enough distinct values.
+         * @param column Column holding the values.
+         * @param size Number of cases to check.
+         * @return True if a DictionaryColumn can hold the values, false otherwise.
+         */
+        static boolean fits(EncodedColumn column, int size)
+        {
+            DictionaryColumn dictionary= new DictionaryColumn(0);
+            for(int row=0; row< size; row++)
+                if(dictionary.code(column.get(row))== -1)
+                    return false;
+            return true;
+        }
+    }
+}
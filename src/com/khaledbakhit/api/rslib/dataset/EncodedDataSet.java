@@ -0,0 +1,154 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * EncodedDataSet is a ColumnarDataSet that stores each metric column in the 
+ * smallest representation holding its values without loss, such as small whole 
+ * numbers in <code>byte</code> arrays or few distinct values as dictionary codes.<br/>
+ * 
+ * Columns are profiled and encoded whenever the DataSet is trimmed, which is
+ * done once cases are extracted or loaded. Values added afterwards that a column
+ * cannot represent turn that column back to <code>double</code> values until 
+ * the next trim. Decoded values are identical to the values added.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ * @see EncodedColumn
+ */
+public class EncodedDataSet extends ColumnarDataSet
+{
+    private static final long serialVersionUID = 117102026L;
+    /**
+     * Encoded metric columns.
+     */
+    private EncodedColumn[] columns;
+    
+    /**
+     * EncodedDataSet constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    public EncodedDataSet(LaunchSetup sp) throws InvalidInputException
+    {
+        this(StartUp.getMetricList(sp).size(), StartUp.getClassList(sp));
+    }
+    /**
+     * EncodedDataSet constructor.
+     * @param metricCount Number of metric columns.
+     * @param classList List containing classifications.
+     */
+    public EncodedDataSet(int metricCount, List<String> classList)
+    {
+        super(metricCount, classList);
+        int capacity= getClassIndexes().length;
+        columns= new EncodedColumn[metricCount];
+        for(int i=0; i<metricCount; i++)
+            columns[i]= new EncodedColumn.DoubleColumn(capacity);
+    }
+    
+    /**
+     * Get an encoded metric column.
+     * @param column Index of metric column.
+     * @return EncodedColumn holding the values of metric column.
+     */
+    public EncodedColumn getEncodedColumn(int column)
+    {
+        return columns[column];
+    }
+    
+    /**
+     * Profile the metric columns and encode each in the smallest representation
+     * holding its values.
+     */
+    public void encode()
+    {
+        int size= size();
+        for(int i=0; i<columns.length; i++)
+            columns[i]= EncodedColumn.encode(columns[i], size);
+    }
+    
+    /**
+     * Trim the capacity of this DataSet to its current size and encode its metric columns.
+     * @see #encode() 
+     */
+    @Override
+    public void trimToSize()
+    {
+        super.trimToSize();
+        encode();
+    }
+    
+    @Override
+    public boolean isHeapColumns()
+    {
+        return false;
+    }
+    
+    @Override
+    public double[] getColumn(int column)
+    {
+        throw new UnsupportedOperationException("Metric columns are encoded.");
+    }
+    
+    @Override
+    public void getValues(int column, int from, int to, double[] values)
+    {
+        columns[column].get(from, to, values);
+    }
+    
+    @Override
+    public double getValue(int row, int column)
+    {
+        return columns[column].get(row);
+    }
+    
+    @Override
+    protected void setValue(int row, int column, double value)
+    {
+        EncodedColumn encoded= columns[column];
+        if(!encoded.set(row, value))
+        {
+            encoded= columns[column]= EncodedColumn.widen(encoded);
+            encoded.set(row, value);
+        }
+    }
+    
+    @Override
+    protected void putValues(int column, int row, DoubleBuffer values)
+    {
+        while(values.hasRemaining())
+            setValue(row++, column, values.get());
+    }
+    
+    @Override
+    protected void resizeColumns(int capacity)
+    {
+        for(int i=0; i<columns.length; i++)
+            columns[i].resize(capacity);
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FieldParser locates the fields of DataSet lines and parses them in place, 
+ * without creating Strings, for DataSetReaders reading lines of default format.
+ * Subclasses give access to the characters of the line read.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+abstract class FieldParser 
+{
+    /**
+     * Powers of ten represented exactly as double.
+     */
+    private static final double[] POWERS= new double[23];
+    
+    static
+    {
+        POWERS[0]= 1;
+        for(int i=1; i<POWERS.length; i++)
+            POWERS[i]= POWERS[i-1] * 10;
+    }
+    
+    /**
+     * LaunchSetup Object containing input configuration.
+     */
+    private final LaunchSetup sp;
+    /**
+     * Offset of the first character of each field of current line.
+     */
+    private int[] starts;
+    /**
+     * Offset of the last character of each field of current line, exclusive.
+     */
+    private int[] ends;
+    /**
+     * Number of fields of current line.
+     */
+    private int fields;
+    /**
+     * Offset of the first character of current line after trimming.
+     */
+    private int lineStart;
+    /**
+     * Offset of the last character of current line after trimming, exclusive.
+     */
+    private int lineEnd;
+    /**
+     * Classifications list, in classifications list order.
+     */
+    private String[] classes;
+    
+    /**
+     * FieldParser constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     */
+    FieldParser(LaunchSetup sp)
+    {
+        this.sp= sp;
+        starts= new int[16];
+        ends= new int[16];
+    }
+    
+    /**
+     * Get a character of current line.
+     * @param offset Offset of character.
+     * @return Character, or byte value read as unsigned.
+     */
+    protected abstract int charAt(int offset);
+    
+    /**
+     * Decode characters of current line.
+     * @param start Offset of the first character.
+     * @param stop Offset of the last character, exclusive.
+     * @return Characters as String.
+     */
+    protected abstract String decode(int start, int stop);
+    
+    /**
+     * Check whether characters of current line hold a classification.
+     * @param start Offset of the first character.
+     * @param stop Offset of the last character, exclusive.
+     * @param classification Classification to compare with.
+     * @param index Index of classification in the classifications list.
+     * @return True if equal, false otherwise.
+     */
+    protected abstract boolean matches(int start, int stop, String classification, int index);
+    
+    /**
+     * Locate the fields of current line, trimming the line and each field.
+     * Trailing empty fields are dropped, as String#split(String) does.
+     * @param from Offset of the first character of line.
+     * @param to Offset of the last character of line, exclusive.
+     */
+    void split(int from, int to)
+    {
+        while(from < to && charAt(from) <= ' ')
+            from++;
+        while(to > from && charAt(to-1) <= ' ')
+            to--;
+        lineStart= from;
+        lineEnd= to;
+        fields= 0;
+        int start= from;
+        for(int i=from; i<to; i++)
+        {
+            if(charAt(i)== ',')
+            {
+                field(start, i);
+                start= i+1;
+            }
+        }
+        field(start, to);
+        while(fields > 0 && starts[fields-1]== ends[fields-1])
+            fields--;
+        for(int i=0; i<fields; i++)
+        {
+            while(starts[i] < ends[i] && charAt(starts[i]) <= ' ')
+                starts[i]++;
+            while(ends[i] > starts[i] && charAt(ends[i]-1) <= ' ')
+                ends[i]--;
+        }
+    }
+    
+    /**
+     * Add a field to current line.
+     * @param start Offset of the first character of field.
+     * @param stop Offset of the last character of field, exclusive.
+     */
+    private void field(int start, int stop)
+    {
+        if(fields== starts.length)
+        {
+            starts= Arrays.copyOf(starts, fields*2);
+            ends= Arrays.copyOf(ends, fields*2);
+        }
+        starts[fields]= start;
+        ends[fields++]= stop;
+    }
+    
+    /**
+     * Get the number of fields of current line.
+     * @return Number of fields.
+     */
+    int getFieldCount()
+    {
+        return fields;
+    }
+    
+    /**
+     * Parse a field of current line as a number. Plain decimal numbers of up
+     * to 15 digits are computed from their digits, others are parsed by 
+     * {@link Double#parseDouble(java.lang.String)}. Both give the same value.
+     * @param field Index of field.
+     * @return Value of field, NaN if not a number.
+     */
+    double parse(int field)
+    {
+        int i= starts[field], stop= ends[field];
+        boolean negative= false;
+        if(i < stop && (charAt(i)== '-' || charAt(i)== '+'))
+            negative= charAt(i++)== '-';
+        long mantissa= 0;
+        int count= 0, digits= 0, fraction= -1;
+        for(; i<stop; i++)
+        {
+            int c= charAt(i);
+            if(c >= '0' && c <= '9')
+            {
+                mantissa= mantissa*10 + (c - '0');
+                count++;
+                if(mantissa!= 0)
+                    digits++;
+                if(fraction!= -1)
+                    fraction++;
+            }
+            else if(c== '.' && fraction== -1)
+                fraction= 0;
+            else
+                break;
+        }
+        if(i== stop && count > 0 && digits <= 15 && fraction < POWERS.length)
+        {
+            double value= fraction > 0? mantissa / POWERS[fraction]: mantissa;
+            return negative? -value: value;
+        }
+        try
+        {
+            return Double.parseDouble(decode(field));
+        }
+        catch(NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Check whether a field of current line reads NaN as a number.
+     * @param field Index of field.
+     * @return True if field is a NaN value, false otherwise.
+     */
+    boolean isNaN(int field)
+    {
+        try
+        {
+            return Double.isNaN(Double.parseDouble(decode(field)));
+        }
+        catch(NumberFormatException e)
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * Get the index of the classification in a field of current line.
+     * @param field Index of field.
+     * @return Index of classification in the classifications list or -1 if not found.
+     */
+    int classIndex(int field)
+    {
+        if(classes== null)
+        {
+            try
+            {
+                List<String> classList= StartUp.getClassList(sp);
+                classes= classList.toArray(new String[classList.size()]);
+            }
+            catch(InvalidInputException ex)
+            {
+                Debugger.printlnError("Unable to determine classifications!");
+                Debugger.printlnError(ex);
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+        for(int c=0; c<classes.length; c++)
+            if(matches(starts[field], ends[field], classes[c], c))
+                return c;
+        return -1;
+    }
+    
+    /**
+     * Decode a field of current line.
+     * @param field Index of field.
+     * @return Field as String.
+     */
+    String decode(int field)
+    {
+        return decode(starts[field], ends[field]);
+    }
+    
+    /**
+     * Get current line after trimming.
+     * @return Current line.
+     */
+    String line()
+    {
+        return decode(lineStart, lineEnd);
+    }
+    
+    /**
+     * Get current line as a DataSetLine, used to report invalid cases.
+     * @return DataSetLine of current line.
+     */
+    DataSetLine dataSetLine()
+    {
+        String[] metrics= new String[fields-1];
+        for(int i=0; i<metrics.length; i++)
+            metrics[i]= decode(i);
+        return new DataSetLine(decode(fields-1), metrics);
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * DataSetReader reading DataSet files of default format from memory-mapped 
+ * windows of the File. Lines are split and numbers are parsed directly over 
+ * the bytes, so {@link #getNext(double[])} does not create any Object per case.<br/>
+ * 
+ * Cases are read as {@link DefaultDataSetReader} reads them, so it can replace
+ * it as {@link LaunchSetup#dataset_reader}. Inputs that are not DataSet Files 
+ * are copied in memory first.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class MappedDataSetReader extends DataSetReader 
+{
+    /**
+     * Number of bytes of DataSet File mapped at a time.
+     */
+    private static final int WINDOW= 1 << 26;
+    
+    /**
+     * InputStream opened.
+     */
+    private InputStream input;
+    /**
+     * FileChannel of DataSet File or null if input is held in memory.
+     */
+    private FileChannel channel;
+    /**
+     * Mapped window of DataSet File or whole input held in memory.
+     */
+    private ByteBuffer window;
+    /**
+     * Offset of the first byte of window in DataSet File.
+     */
+    private long windowStart;
+    /**
+     * Offset of the next line in DataSet File.
+     */
+    private long position;
+    /**
+     * Offset of the end of input in DataSet File, exclusive.
+     */
+    private long end;
+    /**
+     * Fields of current line.
+     */
+    private final FieldParser parser;
+    /**
+     * Buffer to decode Strings from.
+     */
+    private byte[] chars;
+    /**
+     * Number of metrics or -1 if not known yet.
+     */
+    private int metricCount;
+    /**
+     * Classifications encoded as bytes, by index in the classifications list.
+     */
+    private byte[][] classes;
+    /**
+     * Charset of DataSet files.
+     */
+    private final Charset charset;
+    
+    /**
+     * MappedDataSetReader constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     */
+    public MappedDataSetReader(LaunchSetup sp) 
+    {
+        super(sp);
+        parser= new WindowParser(sp);
+        chars= new byte[64];
+        metricCount= -1;
+        charset= Charset.defaultCharset();
+    }
+
+    @Override
+    public void open(InputStream inputStream) 
+    {
+        close();
+        input= inputStream;
+        try
+        {
+            if(inputStream instanceof DataSetRange.RangeInputStream)
+            {
+                DataSetRange.RangeInputStream range= (DataSetRange.RangeInputStream) inputStream;
+                channel= range.getChannel();
+                position= channel.position();
+                end= position + range.getRemaining();
+            }
+            else if(inputStream instanceof FileInputStream)
+            {
+                channel= ((FileInputStream) inputStream).getChannel();
+                position= channel.position();
+                end= channel.size();
+            }
+            else
+            {
+                ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+                byte[] buffer= new byte[8192];
+                int read;
+                while((read= inputStream.read(buffer)) > 0)
+                    bytes.write(buffer, 0, read);
+                window= ByteBuffer.wrap(bytes.toByteArray());
+                windowStart= position= 0;
+                end= window.limit();
+            }
+        }
+        catch(IOException ex)
+        {
+            Debugger.printlnError("Unable to read DataSet input!");
+            Debugger.printlnError(ex);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public boolean hasNext() 
+    {
+        return input != null && position < end;
+    }
+
+    @Override
+    public DataSetLine getNext(DataSetLine buffer) 
+    {
+        if(input == null)
+            throw new NullPointerException("Did not open an input for this DataSetReader.");
+        int length= nextLine();
+        if(length== 0)
+            return null; //Empty line
+        
+        if(buffer == null) 
+            buffer= new DataSetLine();
+        String[] metrics= buffer.getMetrics();
+        if(metrics == null)
+            metrics= new String[getMetricCount()];
+        
+        if(parser.getFieldCount() != metrics.length + 1)
+        {//DataSetLine must be invalid--> return line
+            Debugger.printlnWarning(parser.line() + " is an invalid DataSet line.");
+            return null;
+        }
+        for(int i=0; i< metrics.length; i++)
+            metrics[i]= parser.decode(i);
+        buffer.setClassification(parser.decode(metrics.length));
+        resolveClassIndex(buffer);
+        buffer.setMetrics(metrics);
+        return buffer;
+    }
+    
+    @Override
+    public int getNext(double[] metrics)
+    {
+        if(input == null)
+            throw new NullPointerException("Did not open an input for this DataSetReader.");
+        int length= nextLine();
+        if(length== 0)
+            return -1; //Empty line
+        if(parser.getFieldCount() != metrics.length + 1)
+        {
+            Debugger.printlnWarning(parser.line() + " is an invalid DataSet line.");
+            return -1;
+        }
+        for(int i=0; i<metrics.length; i++)
+        {
+            metrics[i]= parser.parse(i);
+            if(Double.isNaN(metrics[i]) && !parser.isNaN(i))
+            {
+                Debugger.printlnWarning(parser.dataSetLine() + " contains non-numeric metric values.");
+                return -1;
+            }
+        }
+        int classIndex= parser.classIndex(metrics.length);
+        if(classIndex== -1)
+            Debugger.printlnWarning(parser.dataSetLine() + " has an unknown classification.");
+        return classIndex;
+    }
+
+    @Override
+    public void close() 
+    {
+        if(input != null)
+        {
+            try
+            {
+                input.close();
+            }
+            catch(IOException e){}
+        }
+        input= null;
+        channel= null;
+        window= null;
+        position= end= 0;
+    }
+
+    @Override
+    public DataSetReader newInstance() 
+    {
+        return new MappedDataSetReader(sp);
+    }
+    
+    /**
+     * Get next DataSetLine Object.
+     * @return Next DataSetLine Object or null if not found.
+     */
+    public DataSetLine getNext() 
+    {
+        return getNext(new DataSetLine());
+    }
+    
+    /**
+     * Read the next line and split its fields.
+     * @return Number of bytes of the line before trimming, 0 if line is empty.
+     */
+    private int nextLine()
+    {
+        int from= map(position), to, limit;
+        while(true)
+        {
+            limit= window.limit();
+            to= from;
+            byte b;
+            while(to < limit && (b= window.get(to))!= '\n' && b!= '\r')
+                to++;
+            if(windowStart + limit >= end || (to < limit && (window.get(to)== '\n' || to+1 < limit)))
+                break;
+            //Line or its terminator goes past mapped window.
+            from= remap(position, Math.max(WINDOW, 2L * (limit - from)));
+        }
+        int next= to;
+        if(to < limit)
+        {
+            next++;
+            if(window.get(to)== '\r' && next < limit && window.get(next)== '\n')
+                next++;
+        }
+        position= windowStart + next;
+        
+        parser.split(from, to);
+        return to - from;
+    }
+    
+    /**
+     * Get the offset in window of given offset in DataSet File, mapping a new
+     * window if needed.
+     * @param offset Offset in DataSet File.
+     * @return Offset in window.
+     */
+    private int map(long offset)
+    {
+        if(window!= null && offset >= windowStart && offset < windowStart + window.limit())
+            return (int) (offset - windowStart);
+        return remap(offset, WINDOW);
+    }
+    
+    /**
+     * Map a new window of DataSet File.
+     * @param offset Offset in DataSet File of the first byte of window.
+     * @param size Number of bytes wanted in window.
+     * @return Offset in window of given offset.
+     */
+    private int remap(long offset, long size)
+    {
+        if(channel== null)
+            return (int) (offset - windowStart);
+        try
+        {
+            window= channel.map(FileChannel.MapMode.READ_ONLY, offset, 
+                    Math.min(Math.min(size, Integer.MAX_VALUE), end - offset));
+            windowStart= offset;
+            return 0;
+        }
+        catch(IOException ex)
+        {
+            Debugger.printlnError("Unable to read DataSet input!");
+            Debugger.printlnError(ex);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Decode bytes of window.
+     * @param start Offset in window of the first byte.
+     * @param stop Offset in window of the last byte, exclusive.
+     * @return Bytes as String.
+     */
+    private String decode(int start, int stop)
+    {
+        int length= stop - start;
+        if(chars.length < length)
+            chars= new byte[Math.max(length, chars.length*2)];
+        for(int i=0; i<length; i++)
+            chars[i]= window.get(start + i);
+        return new String(chars, 0, length, charset);
+    }
+    
+    /**
+     * Get the number of metrics.
+     * @return Number of metrics.
+     */
+    private int getMetricCount()
+    {
+        if(metricCount== -1)
+        {
+            try 
+            {
+                metricCount= StartUp.getMetricList(sp).size();
+            } 
+            catch (InvalidInputException ex) 
+            {
+                Debugger.printlnError("Unable to determine number of attributes!");
+                Debugger.printlnError(ex);
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+        return metricCount;
+    }
+    
+    /**
+     * FieldParser over the bytes of the mapped window.
+     */
+    private class WindowParser extends FieldParser
+    {
+        /**
+         * WindowParser constructor.
+         * @param sp LaunchSetup Object containing input configuration.
+         */
+        WindowParser(LaunchSetup sp)
+        {
+            super(sp);
+        }
+        
+        @Override
+        protected int charAt(int offset)
+        {
+            return window.get(offset) & 0xff;
+        }
+        
+        @Override
+        protected String decode(int start, int stop)
+        {
+            return MappedDataSetReader.this.decode(start, stop);
+        }
+        
+        @Override
+        protected boolean matches(int start, int stop, String classification, int index)
+        {
+            if(classes== null || classes.length<= index)
+                classes= classes== null? new byte[index+1][]: Arrays.copyOf(classes, index+1);
+            if(classes[index]== null)
+                classes[index]= classification.getBytes(charset);
+            byte[] encoded= classes[index];
+            int length= stop - start;
+            if(encoded.length!= length)
+                return false;
+            int i= 0;
+            while(i < length && encoded[i]== window.get(start + i))
+                i++;
+            return i== length;
+        }
+    }
+}
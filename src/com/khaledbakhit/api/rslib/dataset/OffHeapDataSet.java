@@ -0,0 +1,377 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * OffHeapDataSet is a ColumnarDataSet that stores its metric columns outside of
+ * the Java heap, so that DataSets larger than the heap can be held in memory.<br/>
+ * 
+ * Each metric column is stored in chunks of direct buffers. When a scratch 
+ * directory is given, chunks are mapped from a scratch file instead, which lets
+ * the operating system page them out to disk. Direct buffers are limited by
+ * <code>-XX:MaxDirectMemorySize</code>, mapped chunks are not.<br/>
+ * 
+ * Classification indexes are kept on the Java heap. Metric columns are not
+ * Java arrays, so {@link #getColumn(int)} and the sorted index are not supported.
+ * An OffHeapDataSet is serialized
+ * as a ColumnarDataSet.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class OffHeapDataSet extends ColumnarDataSet
+{
+    private static final long serialVersionUID = 117102026L;
+    /**
+     * Number of cases of a whole chunk, as a power of two.
+     */
+    private static final int CHUNK_SHIFT= 20;
+    /**
+     * Number of cases of a whole chunk.
+     */
+    static final int CHUNK_SIZE= 1 << CHUNK_SHIFT;
+    /**
+     * Mask giving the index of a case within its chunk.
+     */
+    private static final int CHUNK_MASK= CHUNK_SIZE - 1;
+    /**
+     * Chunks of metric values, indexed by metric column then chunk. Only the 
+     * last chunk of a column may hold less than {@link #CHUNK_SIZE} cases.
+     */
+    private transient DoubleBuffer[][] chunks;
+    /**
+     * Directory holding the scratch file or null to use direct buffers.
+     */
+    private final File scratchDir;
+    /**
+     * Scratch file mapped chunks are read from, or null if none is open.
+     */
+    private transient RandomAccessFile scratch;
+    /**
+     * Flag indicating whether chunks are read-only regions mapped from a 
+     * {@link DataSetCache} sidecar file, copied before they are modified.
+     */
+    private transient boolean mapped;
+    
+    /**
+     * OffHeapDataSet constructor. Metric columns are stored in direct buffers.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    public OffHeapDataSet(LaunchSetup sp) throws InvalidInputException
+    {
+        this(sp, null);
+    }
+    /**
+     * OffHeapDataSet constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @param scratchDir Directory holding the scratch file or null to use direct buffers.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    public OffHeapDataSet(LaunchSetup sp, File scratchDir) throws InvalidInputException
+    {
+        this(StartUp.getMetricList(sp).size(), StartUp.getClassList(sp), scratchDir);
+    }
+    /**
+     * OffHeapDataSet constructor. Metric columns are stored in direct buffers.
+     * @param metricCount Number of metric columns.
+     * @param classList List containing classifications.
+     */
+    public OffHeapDataSet(int metricCount, List<String> classList)
+    {
+        this(metricCount, classList, null);
+    }
+    /**
+     * OffHeapDataSet constructor.
+     * @param metricCount Number of metric columns.
+     * @param classList List containing classifications.
+     * @param scratchDir Directory holding the scratch file or null to use direct buffers.
+     */
+    public OffHeapDataSet(int metricCount, List<String> classList, File scratchDir)
+    {
+        super(metricCount, classList);
+        this.scratchDir= scratchDir;
+        chunks= new DoubleBuffer[metricCount][0];
+        resizeColumns(getClassIndexes().length);
+    }
+    
+    /**
+     * Get the directory holding the scratch file.
+     * @return Scratch directory or null if direct buffers are used.
+     */
+    public File getScratchDirectory()
+    {
+        return scratchDir;
+    }
+    
+    @Override
+    public boolean isHeapColumns()
+    {
+        return false;
+    }
+    
+    @Override
+    public double[] getColumn(int column)
+    {
+        throw new UnsupportedOperationException("Metric columns are stored off the Java heap.");
+    }
+    
+    @Override
+    public void getValues(int column, int from, int to, double[] values)
+    {
+        DoubleBuffer[] list= chunks[column];
+        for(int offset=0; from< to; )
+        {
+            int start= from & CHUNK_MASK;
+            int length= Math.min(to - from, CHUNK_SIZE - start);
+            DoubleBuffer chunk= list[from >>> CHUNK_SHIFT].duplicate();
+            chunk.position(start);
+            chunk.get(values, offset, length);
+            offset+= length;
+            from+= length;
+        }
+    }
+    
+    @Override
+    public double getValue(int row, int column)
+    {
+        return chunks[column][row >>> CHUNK_SHIFT].get(row & CHUNK_MASK);
+    }
+    
+    @Override
+    protected void setValue(int row, int column, double value)
+    {
+        if(mapped)
+            detach(getClassIndexes().length);
+        chunks[column][row >>> CHUNK_SHIFT].put(row & CHUNK_MASK, value);
+    }
+    
+    @Override
+    protected void putValues(int column, int row, DoubleBuffer values)
+    {
+        if(mapped)
+            detach(getClassIndexes().length);
+        DoubleBuffer[] list= chunks[column];
+        while(values.hasRemaining())
+        {
+            DoubleBuffer chunk= list[row >>> CHUNK_SHIFT].duplicate();
+            int start= row & CHUNK_MASK;
+            int length= Math.min(values.remaining(), chunk.capacity() - start);
+            DoubleBuffer source= values.duplicate();
+            source.limit(source.position() + length);
+            chunk.position(start);
+            chunk.put(source);
+            values.position(values.position() + length);
+            row+= length;
+        }
+    }
+    
+    @Override
+    protected void resizeColumns(int capacity)
+    {
+        if(mapped)
+        {
+            detach(capacity);
+            return;
+        }
+        int count= (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        for(int i=0; i<chunks.length; i++)
+        {
+            DoubleBuffer[] list= new DoubleBuffer[count];
+            for(int j=0; j<count; j++)
+            {
+                int length= Math.min(CHUNK_SIZE, capacity - (j << CHUNK_SHIFT));
+                DoubleBuffer chunk= j< chunks[i].length? chunks[i][j]: null;
+                if(chunk== null || chunk.capacity()!= length)
+                {
+                    DoubleBuffer next= allocate(i, j, length);
+                    //Mapped chunks are views of the same scratch file region.
+                    if(chunk!= null && scratch== null)
+                    {
+                        chunk= chunk.duplicate();
+                        chunk.limit(Math.min(length, chunk.capacity()));
+                        next.put(chunk);
+                        next.clear();
+                    }
+                    chunk= next;
+                }
+                list[j]= chunk;
+            }
+            chunks[i]= list;
+        }
+        if(count== 0)
+            closeScratch();
+    }
+    
+    /**
+     * Use chunks mapped from a sidecar file as metric columns when they are laid 
+     * out as the chunks of this DataSet, releasing its former storage.
+     * @param values Metric values, chunks of consecutive cases per metric column.
+     * @param count Number of cases.
+     * @return True if chunks are used as they are, false if they must be copied.
+     */
+    @Override
+    protected boolean mapColumns(DoubleBuffer[][] values, int count)
+    {
+        int chunkCount= (count + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if(values.length!= chunks.length)
+            return false;
+        for(DoubleBuffer[] list: values)
+        {
+            if(list.length!= chunkCount)
+                return false;
+            for(int j=0; j<chunkCount; j++)
+                if(list[j].position()!= 0 || list[j].capacity()!= Math.min(CHUNK_SIZE, count - (j << CHUNK_SHIFT)))
+                    return false;
+        }
+        chunks= values;
+        mapped= true;
+        closeScratch();
+        return true;
+    }
+    
+    /**
+     * Copy chunks mapped from a sidecar file into storage of this DataSet.
+     * @param capacity Number of cases of the new storage.
+     */
+    private void detach(int capacity)
+    {
+        DoubleBuffer[][] source= chunks;
+        int count= (capacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        chunks= new DoubleBuffer[source.length][count];
+        mapped= false;
+        for(int i=0; i<chunks.length; i++)
+        {
+            for(int j=0; j<count; j++)
+            {
+                DoubleBuffer chunk= allocate(i, j, Math.min(CHUNK_SIZE, capacity - (j << CHUNK_SHIFT)));
+                if(j< source[i].length)
+                {
+                    DoubleBuffer values= source[i][j].duplicate();
+                    values.limit(Math.min(values.capacity(), chunk.capacity()));
+                    chunk.put(values);
+                    chunk.clear();
+                }
+                chunks[i][j]= chunk;
+            }
+        }
+    }
+    
+    /**
+     * Allocate the storage of a chunk.
+     * @param column Index of metric column.
+     * @param index Index of chunk in column.
+     * @param length Number of cases held by chunk.
+     * @return DoubleBuffer holding the chunk values.
+     */
+    private DoubleBuffer allocate(int column, int index, int length)
+    {
+        if(scratchDir== null)
+            return ByteBuffer.allocateDirect(length << 3).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        try
+        {
+            if(scratch== null)
+                scratch= openScratch();
+            long slot= (long) index * chunks.length + column;
+            return scratch.getChannel().map(FileChannel.MapMode.READ_WRITE, (slot << CHUNK_SHIFT) << 3, (long) length << 3)
+                    .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        catch(IOException ex)
+        {
+            Debugger.printlnError("Unable to map DataSet scratch file!");
+            Debugger.printlnError(ex);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Create and open a scratch file. The file is deleted right away where the 
+     * platform allows it, or when the virtual machine exits otherwise.
+     * @return RandomAccessFile of scratch file.
+     * @throws IOException Unable to create scratch file.
+     */
+    private RandomAccessFile openScratch() throws IOException
+    {
+        if(!scratchDir.isDirectory() && !scratchDir.mkdirs())
+            throw new IOException("Unable to create "+scratchDir);
+        File file= File.createTempFile("dataset", ".scratch", scratchDir);
+        RandomAccessFile raf= new RandomAccessFile(file, "rw");
+        if(!file.delete())
+            file.deleteOnExit();
+        return raf;
+    }
+    
+    /**
+     * Close the scratch file, if any. Mapped chunks remain valid until collected.
+     */
+    private void closeScratch()
+    {
+        if(scratch== null)
+            return;
+        try
+        {
+            scratch.close();
+        }
+        catch(IOException ex)
+        {
+            Debugger.printlnWarning(ex.getMessage());
+        }
+        scratch= null;
+    }
+    
+    /**
+     * Remove all cases and release the off-heap storage of this DataSet. 
+     * Storage is allocated again if cases are added afterwards.
+     */
+    public void release()
+    {
+        getDataSetLines().clear();
+        trimToSize();
+    }
+    
+    /**
+     * Replace this DataSet with a ColumnarDataSet holding its cases when serialized.
+     * @return ColumnarDataSet holding the cases of this DataSet.
+     * @throws ObjectStreamException Unable to replace this DataSet.
+     */
+    private Object writeReplace() throws ObjectStreamException
+    {
+        ColumnarDataSet dataset= new ColumnarDataSet(getMetricCount(), getClassList());
+        dataset.addDataSet(this);
+        dataset.trimToSize();
+        dataset.setFile(getFile());
+        return dataset;
+    }
+}
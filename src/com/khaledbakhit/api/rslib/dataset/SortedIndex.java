@@ -0,0 +1,232 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.dataset;
+
+/**
+ * SortedIndex holds, for each metric column of a DataSet, the case indexes
+ * sorted by metric value. A threshold such as <code>CUB &gt; 22</code> then resolves 
+ * to a contiguous slice of the sorted cases found by binary search.<br/>
+ * 
+ * Columns are sorted on first use. Non-numeric values are indexed as NaN and sorted 
+ * last: they are never part of a slice. Instances are safe for concurrent use.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ * @see DataSet#getSortedIndex() 
+ */
+public class SortedIndex 
+{
+    /**
+     * Metric values, one array per metric column.
+     */
+    private final double[][] columns;
+    /**
+     * Number of cases indexed.
+     */
+    private final int size;
+    /**
+     * Case indexes sorted by value, per metric column.
+     */
+    private final int[][] rows;
+    /**
+     * Sorted values, per metric column.
+     */
+    private final double[][] values;
+    /**
+     * Number of numeric values, per metric column.
+     */
+    private final int[] numeric;
+    
+    /**
+     * Create a new SortedIndex instance.
+     * @param columns Metric values, one array per metric column. Arrays are not copied.
+     * @param size Number of cases to index.
+     */
+    public SortedIndex(double[][] columns, int size)
+    {
+        this.columns= columns;
+        this.size= size;
+        this.rows= new int[columns.length][];
+        this.values= new double[columns.length][];
+        this.numeric= new int[columns.length];
+    }
+    
+    /**
+     * Get the number of cases indexed.
+     * @return Number of cases.
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Get the number of metric columns indexed.
+     * @return Number of metric columns.
+     */
+    public int getMetricCount()
+    {
+        return columns.length;
+    }
+    
+    /**
+     * Get the case indexes of a column sorted by value. The returned array must not be modified.
+     * @param column Metric column.
+     * @return Sorted case indexes.
+     */
+    public int[] getSortedRows(int column)
+    {
+        sort(column);
+        return rows[column];
+    }
+    
+    /**
+     * Get the values of a column in ascending order. The returned array must not be modified.
+     * @param column Metric column.
+     * @return Sorted values.
+     */
+    public double[] getSortedValues(int column)
+    {
+        sort(column);
+        return values[column];
+    }
+    
+    /**
+     * Get the number of numeric values of a column. Sorted positions from this 
+     * number onwards hold NaN values.
+     * @param column Metric column.
+     * @return Number of numeric values.
+     */
+    public int getNumericCount(int column)
+    {
+        sort(column);
+        return numeric[column];
+    }
+    
+    /**
+     * Get the first sorted position of a column holding a value not less than the given value.
+     * @param column Metric column.
+     * @param value Value to search.
+     * @return Sorted position, {@link #getNumericCount(int)} if none.
+     */
+    public int lowerBound(int column, double value)
+    {
+        double[] sorted= getSortedValues(column);
+        int low= 0, high= numeric[column];
+        while(low< high)
+        {
+            int mid= (low + high) >>> 1;
+            if(sorted[mid]< value)
+                low= mid + 1;
+            else
+                high= mid;
+        }
+        return low;
+    }
+    
+    /**
+     * Get the first sorted position of a column holding a value greater than the given value.
+     * @param column Metric column.
+     * @param value Value to search.
+     * @return Sorted position, {@link #getNumericCount(int)} if none.
+     */
+    public int upperBound(int column, double value)
+    {
+        double[] sorted= getSortedValues(column);
+        int low= 0, high= numeric[column];
+        while(low< high)
+        {
+            int mid= (low + high) >>> 1;
+            if(sorted[mid]<= value)
+                low= mid + 1;
+            else
+                high= mid;
+        }
+        return low;
+    }
+    
+    /**
+     * Sort a column if not sorted yet.
+     * @param column Metric column.
+     */
+    private synchronized void sort(int column)
+    {
+        if(rows[column]!= null)
+            return;
+        double[] col= columns[column];
+        int[] sortedRows= new int[size];
+        for(int i=0; i< size; i++)
+            sortedRows[i]= i;
+        mergeSort(col, sortedRows, new int[size], 0, size);
+        
+        double[] sortedValues= new double[size];
+        int count= 0;
+        for(int i=0; i< size; i++)
+        {
+            sortedValues[i]= col[sortedRows[i]];
+            if(!Double.isNaN(sortedValues[i]))
+                count++;
+        }
+        values[column]= sortedValues;
+        numeric[column]= count;
+        rows[column]= sortedRows;
+    }
+    
+    /**
+     * Stable sort of case indexes by value.
+     * @param col Metric values.
+     * @param a Case indexes to sort.
+     * @param temp Work array.
+     * @param from First position, inclusive.
+     * @param to Last position, exclusive.
+     */
+    private static void mergeSort(double[] col, int[] a, int[] temp, int from, int to)
+    {
+        if(to - from < 16)
+        {
+            for(int i= from + 1; i< to; i++)
+            {
+                int row= a[i];
+                int j= i - 1;
+                while(j>= from && Double.compare(col[a[j]], col[row])> 0)
+                {
+                    a[j + 1]= a[j];
+                    j--;
+                }
+                a[j + 1]= row;
+            }
+            return;
+        }
+        int mid= (from + to) >>> 1;
+        mergeSort(col, a, temp, from, mid);
+        mergeSort(col, a, temp, mid, to);
+        if(Double.compare(col[a[mid - 1]], col[a[mid]])<= 0)
+            return;
+        System.arraycopy(a, from, temp, from, to - from);
+        for(int i= from, l= from, r= mid; i< to; i++)
+        {
+            if(r>= to || (l< mid && Double.compare(col[temp[l]], col[temp[r]])<= 0))
+                a[i]= temp[l++];
+            else
+                a[i]= temp[r++];
+        }
+    }
+}
@@ -21,26 +21,53 @@ package com.khaledbakhit.api.rslib.engines;
 
 import com.khaledbakhit.api.rslib.LaunchSetup;
 import com.khaledbakhit.api.rslib.analyzer.StateAnalyzer2;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
 import com.khaledbakhit.api.rslib.dataset.DataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSetCache;
 import com.khaledbakhit.api.rslib.dataset.DataSetCleaner;
+import com.khaledbakhit.api.rslib.dataset.DataSetCursor;
 import com.khaledbakhit.api.rslib.dataset.DataSetFactory;
+import com.khaledbakhit.api.rslib.dataset.DataSetLine;
 import com.khaledbakhit.api.rslib.dataset.DataSetOrganizer;
+import com.khaledbakhit.api.rslib.dataset.DataSetPipeline;
+import com.khaledbakhit.api.rslib.dataset.DataSetRange;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
 import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
+import com.khaledbakhit.api.rslib.ruleset.BitSetEvaluator;
+import com.khaledbakhit.api.rslib.ruleset.EvaluationContext;
+import com.khaledbakhit.api.rslib.ruleset.EvaluationResult;
 import com.khaledbakhit.api.rslib.ruleset.RuleSet;
 import com.khaledbakhit.api.rslib.ruleset.RuleSetFactory;
+import com.khaledbakhit.api.rslib.ruleset.RuleSetSource;
 import com.khaledbakhit.api.rslib.schedule.RunSetting;
+import com.khaledbakhit.api.rslib.utils.Debugger;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * DefaultEngine runs experiments using Multi-threading approach maximizing
- * speed and CPU utilization.
+ * speed and CPU utilization.<br/>
+ * 
+ * Each RuleSet is tested on each DataSet by separate tasks, and DataSets are
+ * split further into ranges of cases, or ranges of lines of DataSet Files when
+ * they are not held in memory. With shared scan on, each range of a DataSet
+ * File is read once by a single task that tests it on all RuleSets. Tasks run 
+ * on a ForkJoinPool where idle threads steal queued tasks, and their results 
+ * are merged in DataSet order into the measurements of each RuleSet.
  * @author Khaled Bakhit
  * @since 4.0
  * @version 25/08/2013
@@ -56,9 +83,40 @@ public class DefaultEngine implements Engine
      */
     private RunSetting rn;
     /**
-     * ExecutorService Object to run tasks in parallel.
+     * Minimum number of DataSet cases tested by one task.
+     * @since 4.1
+     */
+    private static final int MIN_TASK_CASES= 4096;
+    /**
+     * Minimum number of DataSet File bytes read by one task.
+     * @since 4.1
+     */
+    private static final long MIN_TASK_BYTES= 1L << 18;
+    /**
+     * Maximum number of DataSet File bytes held by one batch of the pipeline.
+     * @since 4.1
+     */
+    private static final long MAX_BATCH_BYTES= 1L << 22;
+    /**
+     * ForkJoinPool Object to run tasks in parallel.
      */
-    private ExecutorService executor;
+    private ForkJoinPool executor;
+    /**
+     * Context of RuleSet evaluations.
+     * @since 4.1
+     */
+    private EvaluationContext context;
+    /**
+     * RuleSets tested by the run, in the order of their results in shared scans.
+     * @since 4.1
+     */
+    private List<RuleSet> rulesets;
+    /**
+     * Tasks reading each DataSet File once for all RuleSets, or null if DataSet
+     * Files are read by each RuleSet.
+     * @since 4.1
+     */
+    private Map<Object, List<ScanTask>> scans;
     /**
      * EnginerListener Object listening to Engine's events.
      */
@@ -101,7 +159,7 @@ public class DefaultEngine implements Engine
         if(executor!=null)
             executor.shutdownNow();
         
-        executor= Executors.newFixedThreadPool(
+        executor= new ForkJoinPool(
                 (rn.auto_detectCPU || rn.number_of_threads<=0)?
                         Runtime.getRuntime().availableProcessors():
                                 rn.number_of_threads);
@@ -124,7 +182,19 @@ public class DefaultEngine implements Engine
             }
             List<DataSet> ds= null; //store in memory, faster but more memory usage.
             if(rn.store_dataset_in_memory)
-                ds= new DataSetFactory().fastExtractDataSets(executor);
+            {
+                DataSetFactory factory= new DataSetFactory(sp);
+                factory.setColumnar(rn.store_dataset_columnar);
+                if(rn.dataset_split_files)
+                    factory.setRangeLength(MIN_TASK_BYTES);
+                if(rn.store_dataset_columnar && rn.dataset_cache)
+                    factory.setCache(new DataSetCache(sp));
+                factory.setOffHeap(rn.store_dataset_columnar && rn.store_dataset_offheap);
+                factory.setEncoded(rn.store_dataset_columnar && rn.store_dataset_encoded);
+                if(rn.store_dataset_offheap && rn.store_dataset_mapped)
+                    factory.setScratchDirectory(new File(sp.program_data_dir, "Scratch"));
+                ds= factory.fastExtractDataSets(executor);
+            }
                
             if(stop)
             {
@@ -164,10 +234,22 @@ public class DefaultEngine implements Engine
                 return;
             }
             
-            List<RuleSet> rs= new RuleSetFactory(sp).fastExtractRuleSets(executor);
+            //RuleSets read in batches tested and released one at a time, or all at once.
+            RuleSetSource source= null;
+            List<RuleSet> rs;
+            if(rn.ruleset_batch_size > 0)
+            {
+                source= new RuleSetSource(sp);
+                source.setExecutor(executor);
+                rs= source.next(rn.ruleset_batch_size);
+            }
+            else
+                rs= new RuleSetFactory(sp).fastExtractRuleSets(executor);
             
             if(stop)
             {
+                if(source!= null)
+                    source.close();
                 terminate();
                 return;
             }
@@ -177,23 +259,22 @@ public class DefaultEngine implements Engine
                 if(sp.ruleset_verifier == null)
                     SetupNotConfiguredException.occur("ruleset_verifier");
                 sp.ruleset_verifier.setAutoCorrect(rn.ruleset_autoCorrect);
-                sp.ruleset_verifier.fastVerify(rs, executor);
             }
                
-            RuleSet.setTestingMode(rn.testingMode);
-            if(rn.is_matching_within_range)
-                RuleSet.activateMatchingWithinRange(rn.matching_range);
-            else
-                RuleSet.deactivateMatchingWithinRange();
-            RuleSet.setNeedRuleFiredInfo(rn.rule_track);
+            context= new EvaluationContext(rn.testingMode, rn.evaluationStrategy,
+                    rn.is_matching_within_range, rn.matching_range, rn.rule_track);
            
 
             if(stop)
             {
+                if(source!= null)
+                    source.close();
                 terminate();
                 return;
             }
-            List<Callable<Void>> partitions= new LinkedList<Callable<Void>>();
+            //DataSet Files read ahead by a pipeline and tested on all RuleSets at once.
+            //Rule fired information is written as cases are tested, which needs them tested in order.
+            boolean pipelined= ds==null && rn.dataset_pipeline && !context.needRuleFiredInfo();
        
             final List generics= new LinkedList();
             if(ds!=null)
@@ -201,67 +282,114 @@ public class DefaultEngine implements Engine
             else
                 generics.addAll(Arrays.asList(new File(sp.input_dataset_dir).listFiles()));
             
-            max_progress_val= rs.size() * generics.size();
-      
-            for(RuleSet rule_set: rs)
+            //Condition evaluations shared by all RuleSets, per DataSet.
+            final Map<DataSet, BitSetEvaluator> evaluators= new IdentityHashMap<DataSet, BitSetEvaluator>();
+            if(ds!=null && context.getEvaluationStrategy()== RuleSet.EvaluationStrategy.BITSET)
             {
-                final RuleSet RULESET = rule_set;
-          
-                partitions.add(new Callable<Void>() 
+                long memory= rn.condition_cache_memory * 1024L * 1024L / Math.max(1, ds.size());
+                for(DataSet d: ds)
+                    if(d instanceof ColumnarDataSet)
+                    {
+                        //Only read by BitSetEvaluator, for columnar DataSets held on the Java heap.
+                        if(rn.dataset_sorted_index && ((ColumnarDataSet) d).isHeapColumns())
+                            d.getSortedIndex();
+                        else if(rn.dataset_sorted_index)
+                            Debugger.printlnWarning("DataSet "+d.getFile()+" is not held on the Java heap, testing it without sorted index");
+                        evaluators.put(d, new BitSetEvaluator((ColumnarDataSet) d, memory));
+                    }
+            }
+            //Cases of DataSets not stored by column and DataSet Files, split in ranges shared by all RuleSets.
+            final Map<Object, List<?>> ranges= new IdentityHashMap<Object, List<?>>();
+            if(ds!=null)
+            {
+                for(DataSet d: ds)
+                    if(!(d instanceof ColumnarDataSet))
+                        ranges.put(d, split(d));
+            }
+            else if(!pipelined)
+            {
+                for(Object o: generics)
+                    ranges.put(o, DataSetRange.split((File) o, MIN_TASK_BYTES, executor.getParallelism() * 4));
+            }
+            int tested= 0;
+            try
+            {
+                while(rs!= null && !stop)
                 {
-                    
-                    @Override              
-                    public Void call() throws Exception 
-                    { 
-                        if(rn.ruleset_indiresult)
-                            RULESET.startRecording();
-                        String name;
-                        for(Object o : generics)
+                    if(rn.ruleset_verify)
+                        sp.ruleset_verifier.fastVerify(rs, executor);
+                    max_progress_val= (tested + rs.size()) * generics.size();
+                    rulesets= rs;
+                    scans= (ds==null && rn.dataset_shared_scan && !pipelined && !context.needRuleFiredInfo())? new IdentityHashMap<Object, List<ScanTask>>(): null;
+      
+                    if(pipelined)
+                        pipeline(generics);
+                    else
+                    {
+                        List<Callable<Void>> partitions= new LinkedList<Callable<Void>>();
+                        for(RuleSet rule_set: rs)
                         {
-                            if(stop)
-                                return null;
-                            RULESET.setOutputType(rn.ruleset_resultType);
-                            if(rn.store_dataset_in_memory)
-                            {
-                                RULESET.test((DataSet) o);
-                                name= ((DataSet)o).getFile().getName();
-                            }
-                            else
+                            final RuleSet RULESET = rule_set;
+                            final int INDEX= partitions.size();
+          
+                            partitions.add(new Callable<Void>() 
                             {
-                                RULESET.test((File) o);
-                                name= ((File)o).getName();
-                            }
+                    
+                                @Override              
+                                public Void call() throws Exception 
+                                { 
+                                    begin(RULESET);
+                                    //Rule fired information is written as cases are tested, fork one DataSet at a time then.
+                                    List<List<EvaluationTask>> forked= new LinkedList<List<EvaluationTask>>();
+                                    if(!context.needRuleFiredInfo())
+                                        for(Object o : generics)
+                                        {
+                                            if(scans!= null)
+                                                scan(o, ranges.get(o));
+                                            else
+                                                forked.add(fork(RULESET, o, evaluators.get(o), ranges.get(o)));
+                                        }
+                                    Iterator<List<EvaluationTask>> pending= forked.iterator();
+                                    String name;
+                                    for(Object o : generics)
+                                    {
+                                        if(stop)
+                                            return null;
+                                        if(scans!= null)
+                                            RULESET.merge(join(RULESET, INDEX, scan(o, ranges.get(o))));
+                                        else
+                                            RULESET.merge(join(RULESET, pending.hasNext()? pending.next(): 
+                                                    fork(RULESET, o, evaluators.get(o), ranges.get(o))));
+                                        if(rn.store_dataset_in_memory)
+                                            name= ((DataSet)o).getFile().getName();
+                                        else
+                                            name= ((File)o).getName();
                             
-                            RULESET.record(name);
-                            RULESET.setOutputType(rn.ruleset_matrixType);
-                            if(rn.ruleset_indimatrix)
-                                RULESET.produceIndiMatrix( name ); 
-                      
-                            RULESET.indiReset();
-                            updateProgress();
-                        }
-                        if(stop)    
-                            return null;
+                                        record(RULESET, name);
+                                    }
+                                    if(stop)    
+                                        return null;
                         
-                        if(rn.ruleset_indiresult)
-                            RULESET.stopRecording();
-                  
-                        RULESET.stopRecordingRuleSetFireInfo();
-                        RULESET.setOutputType(rn.ruleset_matrixType);
-                  
-                        if(rn.ruleset_matrix)
-                            RULESET.produceMatrix();
-                        if(rn.ruleset_definition)
-                            RULESET.produceDefinition();
-                  
-                        return null;
+                                    finish(RULESET);
+                                    return null;
+                                }
+                            });
+                        }
+                        invokeAll(partitions);
                     }
-                });
+                    tested+= rs.size();
+                    //Release the batch tested before reading the next one.
+                    rulesets= rs= null;
+                    if(source!= null && !stop)
+                        rs= source.next(rn.ruleset_batch_size);
+                }
+            }
+            finally
+            {
+                if(source!= null)
+                    source.close();
             }
-            List<Future<Void>> results= executor.invokeAll(partitions);
             executor.shutdown();
-            for(Future<Void> re: results)
-                re.get();
             if(stop)
             {
                    if(listener!= null)
@@ -310,8 +438,397 @@ public class DefaultEngine implements Engine
             listener.updateProgress(getProgress(), this);
     }
     
+    /**
+     * Prepare a RuleSet for testing.
+     * @param ruleset RuleSet to test.
+     * @throws IOException Unable to start recording results.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @since 4.1
+     */
+    private void begin(RuleSet ruleset) throws IOException, InvalidInputException
+    {
+        if(rn.ruleset_indiresult)
+            ruleset.startRecording();
+        if(context.getEvaluationStrategy()== RuleSet.EvaluationStrategy.DAG)
+            ruleset.getDecisionDag();
+        else if(context.getEvaluationStrategy()== RuleSet.EvaluationStrategy.COMPILED)
+            ruleset.getCompiledRuleSet();
+    }
+    
+    /**
+     * Record the results of a RuleSet tested on a DataSet.
+     * @param ruleset RuleSet tested.
+     * @param name Name of DataSet File.
+     * @throws Exception Unable to produce results.
+     * @since 4.1
+     */
+    private void record(RuleSet ruleset, String name) throws Exception
+    {
+        ruleset.setOutputType(rn.ruleset_resultType);
+        ruleset.record(name);
+        ruleset.setOutputType(rn.ruleset_matrixType);
+        if(rn.ruleset_indimatrix)
+            ruleset.produceIndiMatrix( name ); 
+
+        ruleset.indiReset();
+        updateProgress();
+    }
+    
+    /**
+     * Produce the outputs of a RuleSet tested on all DataSets.
+     * @param ruleset RuleSet tested.
+     * @throws Exception Unable to produce outputs.
+     * @since 4.1
+     */
+    private void finish(RuleSet ruleset) throws Exception
+    {
+        if(rn.ruleset_indiresult)
+            ruleset.stopRecording();
+
+        ruleset.stopRecordingRuleSetFireInfo();
+        ruleset.setOutputType(rn.ruleset_matrixType);
+
+        if(rn.ruleset_matrix)
+            ruleset.produceMatrix();
+        if(rn.ruleset_definition)
+            ruleset.produceDefinition();
+    }
+    
+    /**
+     * Run tasks on the executor and wait for all of them.
+     * @param tasks Tasks to run.
+     * @throws Exception A task failed.
+     * @since 4.1
+     */
+    private void invokeAll(List<Callable<Void>> tasks) throws Exception
+    {
+        for(Future<Void> re: executor.invokeAll(tasks))
+            re.get();
+    }
+    
+    /**
+     * Test all RuleSets on DataSet Files read ahead by a DataSetPipeline.<br/>
+     * 
+     * Files are split in batches of lines that reader threads extract in order,
+     * at most the pipeline depth at a time. Each batch is tested on all RuleSets 
+     * by a task and released once tested. Results of a DataSet File are recorded
+     * as soon as all of its batches and those of former Files are tested.
+     * @param files DataSet Files to test.
+     * @throws Exception Unable to read DataSet Files or test RuleSets.
+     * @since 4.1
+     */
+    private void pipeline(List<File> files) throws Exception
+    {
+        int threads= executor.getParallelism();
+        //Batches of each DataSet File, index of the first batch of each File.
+        List<DataSetRange> batches= new ArrayList<DataSetRange>();
+        int[] first= new int[files.size() + 1];
+        for(int i=0; i<files.size(); i++)
+        {
+            File file= files.get(i);
+            long length= Math.min(MAX_BATCH_BYTES, Math.max(MIN_TASK_BYTES, file.length() / (threads * 4)));
+            first[i]= batches.size();
+            batches.addAll(DataSetRange.split(file, length, (int) Math.min(Integer.MAX_VALUE, file.length() / length + 1)));
+        }
+        first[files.size()]= batches.size();
+        
+        DataSetFactory factory= new DataSetFactory(sp);
+        factory.setColumnar(rn.store_dataset_columnar);
+        factory.setEncoded(rn.store_dataset_columnar && rn.store_dataset_encoded);
+        int depth= rn.dataset_pipeline_depth > 0? rn.dataset_pipeline_depth: threads * 2;
+        int readers= rn.dataset_pipeline_readers > 0? rn.dataset_pipeline_readers: Math.max(1, threads / 4);
+        DataSetPipeline pipeline= new DataSetPipeline(factory, batches, readers, depth);
+        long memory= rn.condition_cache_memory * 1024L * 1024L / pipeline.getDepth();
+        
+        invokeAll(steps(Step.BEGIN, null, null));
+        BatchTask[] tasks= new BatchTask[batches.size()];
+        pipeline.start();
+        try
+        {
+            int recorded= 0;
+            DataSetPipeline.Batch batch;
+            while(!stop && (batch= pipeline.take())!= null)
+            {
+                tasks[batch.getIndex()]= new BatchTask(batch, pipeline, memory);
+                executor.execute(tasks[batch.getIndex()]);
+                while(recorded< files.size() && isDone(tasks, first[recorded], first[recorded+1]))
+                    recordFile(files.get(recorded), tasks, first[recorded], first[++recorded]);
+            }
+            while(!stop && recorded< files.size())
+                recordFile(files.get(recorded), tasks, first[recorded], first[++recorded]);
+        }
+        finally
+        {
+            pipeline.close();
+        }
+        if(!stop)
+            invokeAll(steps(Step.FINISH, null, null));
+    }
+    
+    /**
+     * Check whether the batches of a DataSet File are all tested.
+     * @param tasks Tasks testing batches, null for batches not read yet.
+     * @param from Index of first batch, inclusive.
+     * @param to Index of last batch, exclusive.
+     * @return True if all tasks are done, false otherwise.
+     * @since 4.1
+     */
+    private static boolean isDone(BatchTask[] tasks, int from, int to)
+    {
+        for(int i=from; i<to; i++)
+            if(tasks[i]== null || !tasks[i].isDone())
+                return false;
+        return true;
+    }
+    
+    /**
+     * Merge and record the results of all RuleSets tested on a DataSet File.
+     * @param file DataSet File tested.
+     * @param tasks Tasks testing batches.
+     * @param from Index of first batch of DataSet File, inclusive.
+     * @param to Index of last batch of DataSet File, exclusive.
+     * @throws Exception A task failed or unable to produce results.
+     * @since 4.1
+     */
+    private void recordFile(File file, BatchTask[] tasks, int from, int to) throws Exception
+    {
+        List<BatchTask> batches= Arrays.asList(tasks).subList(from, to);
+        invokeAll(steps(Step.RECORD, file.getName(), batches));
+        Arrays.fill(tasks, from, to, null);
+    }
+    
+    /**
+     * Create one task per RuleSet for a step of the pipeline.
+     * @param step Step to run.
+     * @param name Name of DataSet File to record, or null.
+     * @param batches Tasks testing the batches of DataSet File to record, or null.
+     * @return Tasks, one per RuleSet.
+     * @since 4.1
+     */
+    private List<Callable<Void>> steps(final Step step, final String name, final List<BatchTask> batches)
+    {
+        List<Callable<Void>> tasks= new ArrayList<Callable<Void>>(rulesets.size());
+        for(int i=0; i<rulesets.size(); i++)
+        {
+            final RuleSet RULESET= rulesets.get(i);
+            final int INDEX= i;
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call() throws Exception 
+                {
+                    switch(step)
+                    {
+                        case BEGIN:
+                            begin(RULESET);
+                            break;
+                        case RECORD:
+                            RULESET.merge(join(RULESET, INDEX, batches));
+                            record(RULESET, name);
+                            break;
+                        default:
+                            finish(RULESET);
+                    }
+                    return null;
+                }
+            });
+        }
+        return tasks;
+    }
+    
+    /**
+     * Steps of the pipeline run for each RuleSet.
+     * @since 4.1
+     */
+    private enum Step
+    {
+        BEGIN, RECORD, FINISH
+    }
+    
    
     
+    /**
+     * Split the cases of a DataSet in ranges tested by separate tasks.
+     * @param dataset DataSet to split.
+     * @return Ranges of DataSet lines.
+     * @since 4.1
+     */
+    private List<List<DataSetLine>> split(DataSet dataset)
+    {
+        int length= rangeLength(dataset.size());
+        List<List<DataSetLine>> ranges= new ArrayList<List<DataSetLine>>();
+        List<DataSetLine> range= null;
+        Iterator<DataSetLine> it= dataset.getDataSetLinesIterator();
+        while(it.hasNext())
+        {
+            if(range== null)
+                ranges.add(range= new ArrayList<DataSetLine>(length));
+            range.add(it.next());
+            if(range.size()== length)
+                range= null;
+        }
+        return ranges;
+    }
+    
+    /**
+     * Get the number of cases tested by one task, so each DataSet is split 
+     * in a few ranges per thread.
+     * @param size Number of DataSet cases.
+     * @return Number of cases per task.
+     * @since 4.1
+     */
+    private int rangeLength(int size)
+    {
+        int tasks= executor.getParallelism() * 4;
+        return Math.max(MIN_TASK_CASES, (size + tasks - 1) / tasks);
+    }
+    
+    /**
+     * Fork the tasks testing a RuleSet on a DataSet.
+     * @param ruleset RuleSet to test.
+     * @param o DataSet Object or DataSet File to test.
+     * @param evaluator BitSetEvaluator of DataSet or null if none.
+     * @param ranges Ranges of DataSet lines, DataSetRanges of DataSet File or null if not split.
+     * @return Tasks forked, in DataSet order. A single task if Rule fired information is needed.
+     * @since 4.1
+     */
+    private List<EvaluationTask> fork(RuleSet ruleset, Object o, BitSetEvaluator evaluator, List<?> ranges)
+    {
+        List<EvaluationTask> tasks= new ArrayList<EvaluationTask>();
+        if(evaluator!= null && !context.needRuleFiredInfo())
+        {
+            //BitSetEvaluator ranges are whole bitset words.
+            int size= evaluator.getDataSet().size(), length= (rangeLength(size) + 63) & ~63;
+            for(int from=0; from<size; from+= length)
+                tasks.add(new EvaluationTask(ruleset, evaluator, from, Math.min(size, from+length)));
+        }
+        else if(evaluator!= null)
+            tasks.add(new EvaluationTask(ruleset, evaluator, 0, evaluator.getDataSet().size()));
+        else if(context.needRuleFiredInfo())
+            tasks.add(new EvaluationTask(ruleset, o, 0, o instanceof ColumnarDataSet? ((ColumnarDataSet) o).size(): 0));
+        else if(ranges!= null)
+            for(Object range: ranges)
+                tasks.add(new EvaluationTask(ruleset, range, 0, 0));
+        else if(o instanceof ColumnarDataSet)
+        {
+            int size= ((ColumnarDataSet) o).size(), length= rangeLength(size);
+            for(int from=0; from<size; from+= length)
+                tasks.add(new EvaluationTask(ruleset, o, from, Math.min(size, from+length)));
+        }
+        else
+            tasks.add(new EvaluationTask(ruleset, o, 0, 0));
+        for(EvaluationTask task: tasks)
+            task.fork();
+        return tasks;
+    }
+    
+    /**
+     * Wait for the tasks testing a RuleSet on a DataSet and merge their results.
+     * @param ruleset RuleSet tested.
+     * @param tasks Tasks forked, in DataSet order.
+     * @return Measurements of the test.
+     * @throws Exception Task failed.
+     * @since 4.1
+     */
+    private EvaluationResult join(RuleSet ruleset, List<EvaluationTask> tasks) throws Exception
+    {
+        await(tasks);
+        EvaluationResult result= new EvaluationResult(ruleset, context);
+        for(EvaluationTask task: tasks)
+            result.merge(task.getRawResult());
+        return result;
+    }
+    
+    /**
+     * Wait for tasks to complete, so results are only merged once all of them succeeded.
+     * @param tasks Tasks forked.
+     * @throws Exception First failure of tasks, unwrapped from the unchecked 
+     * exception it was rethrown in.
+     * @since 4.1
+     */
+    private static void await(List<? extends ForkJoinTask<?>> tasks) throws Exception
+    {
+        for(ForkJoinTask<?> task: tasks)
+            task.quietlyJoin();
+        for(ForkJoinTask<?> task: tasks)
+        {
+            if(!task.isCompletedAbnormally())
+                continue;
+            Throwable failure= task.getException();
+            while(failure.getClass()== RuntimeException.class && failure.getCause()!= null)
+                failure= failure.getCause();
+            if(failure instanceof Exception)
+                throw (Exception) failure;
+            throw new ExecutionException(failure);
+        }
+    }
+    
+    /**
+     * Fork the tasks reading a DataSet File once for all RuleSets, unless 
+     * another RuleSet forked them already.
+     * @param o DataSet File to test.
+     * @param ranges DataSetRanges of DataSet File.
+     * @return Tasks forked, in DataSet File order.
+     * @since 4.1
+     */
+    private List<ScanTask> scan(Object o, List<?> ranges)
+    {
+        synchronized(scans)
+        {
+            List<ScanTask> tasks= scans.get(o);
+            if(tasks== null)
+            {
+                tasks= new ArrayList<ScanTask>();
+                for(Object range: ranges)
+                    tasks.add(new ScanTask((DataSetRange) range));
+                for(ScanTask task: tasks)
+                    task.fork();
+                scans.put(o, tasks);
+            }
+            return tasks;
+        }
+    }
+    
+    /**
+     * Open a DataSetCursor on a DataSet File or a range of its lines.
+     * @param input DataSetRange or DataSet File to read.
+     * @return DataSetCursor opened on the input.
+     * @throws Exception Unable to read the input.
+     * @since 4.1
+     */
+    private DataSetCursor cursor(Object input) throws Exception
+    {
+        DataSetCursor cursor= new DataSetCursor(sp);
+        if(input instanceof DataSetRange)
+            cursor.open(((DataSetRange) input).open());
+        else
+            cursor.open(new FileInputStream((File) input));
+        return cursor;
+    }
+    
+    /**
+     * Wait for the tasks reading a DataSet File for all RuleSets and merge the 
+     * results of a RuleSet. Results are released once merged.
+     * @param ruleset RuleSet tested.
+     * @param index Index of RuleSet in tested RuleSets.
+     * @param tasks Tasks forked, in DataSet File order.
+     * @return Measurements of the test.
+     * @throws Exception Task failed.
+     * @since 4.1
+     */
+    private EvaluationResult join(RuleSet ruleset, int index, List<? extends RecursiveTask<EvaluationResult[]>> tasks) throws Exception
+    {
+        await(tasks);
+        EvaluationResult result= new EvaluationResult(ruleset, context);
+        for(RecursiveTask<EvaluationResult[]> task: tasks)
+        {
+            EvaluationResult[] results= task.getRawResult();
+            result.merge(results[index]);
+            results[index]= null;
+        }
+        return result;
+    }
+    
     private void terminate()
     {
         executor.shutdownNow();
@@ -330,6 +847,215 @@ public class DefaultEngine implements Engine
     {
         return listener;
     }
-
     
+    /**
+     * Task testing a RuleSet on a DataSet, a range of its cases, a DataSet File or a range of its lines.
+     * @since 4.1
+     */
+    private class EvaluationTask extends RecursiveTask<EvaluationResult>
+    {
+        private static final long serialVersionUID = 117102026L;
+        /**
+         * RuleSet to test.
+         */
+        private final RuleSet ruleset;
+        /**
+         * BitSetEvaluator, ColumnarDataSet, range of DataSet lines, DataSet Object, DataSetRange or DataSet File to test.
+         */
+        private final Object input;
+        /**
+         * Index of first case, inclusive.
+         */
+        private final int from;
+        /**
+         * Index of last case, exclusive.
+         */
+        private final int to;
+        
+        /**
+         * EvaluationTask constructor.
+         * @param ruleset RuleSet to test.
+         * @param input BitSetEvaluator, ColumnarDataSet, range of DataSet lines, DataSet Object, DataSetRange or DataSet File to test.
+         * @param from Index of first case of a ColumnarDataSet or BitSetEvaluator, inclusive.
+         * @param to Index of last case of a ColumnarDataSet or BitSetEvaluator, exclusive.
+         */
+        EvaluationTask(RuleSet ruleset, Object input, int from, int to)
+        {
+            this.ruleset= ruleset;
+            this.input= input;
+            this.from= from;
+            this.to= to;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        protected EvaluationResult compute()
+        {
+            EvaluationResult result= new EvaluationResult(ruleset, context);
+            if(stop)
+                return result;
+            try
+            {
+                if(input instanceof BitSetEvaluator)
+                    ruleset.evaluate((BitSetEvaluator) input, from, to, result);
+                else if(input instanceof ColumnarDataSet)
+                    ruleset.evaluate((ColumnarDataSet) input, from, to, result);
+                else if(input instanceof List)
+                    ruleset.evaluate(((List<DataSetLine>) input).iterator(), result);
+                else if(input instanceof DataSet)
+                    ruleset.evaluate((DataSet) input, result);
+                else if(rn.dataset_cursor)
+                {
+                    DataSetCursor cursor= cursor(input);
+                    try
+                    {
+                        ruleset.evaluate(cursor, result);
+                    }
+                    finally
+                    {
+                        cursor.close();
+                    }
+                }
+                else if(input instanceof DataSetRange)
+                    ruleset.evaluate((DataSetRange) input, result);
+                else
+                    ruleset.evaluate((File) input, result);
+            }
+            catch(Exception e)
+            {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Task reading a range of a DataSet File once and testing it on all RuleSets.
+     * @since 4.1
+     */
+    private class ScanTask extends RecursiveTask<EvaluationResult[]>
+    {
+        private static final long serialVersionUID = 117102026L;
+        /**
+         * Range of DataSet File to test.
+         */
+        private final DataSetRange range;
+        
+        /**
+         * ScanTask constructor.
+         * @param range Range of DataSet File to test.
+         */
+        ScanTask(DataSetRange range)
+        {
+            this.range= range;
+        }
+        
+        @Override
+        protected EvaluationResult[] compute()
+        {
+            List<EvaluationResult> results= new ArrayList<EvaluationResult>(rulesets.size());
+            for(RuleSet ruleset: rulesets)
+                results.add(new EvaluationResult(ruleset, context));
+            try
+            {
+                if(stop)
+                    return results.toArray(new EvaluationResult[results.size()]);
+                if(rn.dataset_cursor)
+                {
+                    DataSetCursor cursor= cursor(range);
+                    try
+                    {
+                        RuleSet.evaluate(cursor, results);
+                    }
+                    finally
+                    {
+                        cursor.close();
+                    }
+                }
+                else
+                    RuleSet.evaluate(range, results);
+            }
+            catch(Exception e)
+            {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+            return results.toArray(new EvaluationResult[results.size()]);
+        }
+    }
+    
+    /**
+     * Task testing a batch read by the pipeline on all RuleSets.
+     * @since 4.1
+     */
+    private class BatchTask extends RecursiveTask<EvaluationResult[]>
+    {
+        private static final long serialVersionUID = 117102026L;
+        /**
+         * Batch to test, released once tested.
+         */
+        private final DataSetPipeline.Batch batch;
+        /**
+         * DataSetPipeline Object the batch was read by.
+         */
+        private final DataSetPipeline pipeline;
+        /**
+         * Memory in bytes used to share Condition evaluations among RuleSets.
+         */
+        private final long memory;
+        
+        /**
+         * BatchTask constructor.
+         * @param batch Batch to test.
+         * @param pipeline DataSetPipeline Object the batch was read by.
+         * @param memory Memory in bytes used to share Condition evaluations among RuleSets.
+         */
+        BatchTask(DataSetPipeline.Batch batch, DataSetPipeline pipeline, long memory)
+        {
+            this.batch= batch;
+            this.pipeline= pipeline;
+            this.memory= memory;
+        }
+        
+        @Override
+        protected EvaluationResult[] compute()
+        {
+            EvaluationResult[] results= new EvaluationResult[rulesets.size()];
+            for(int i=0; i<results.length; i++)
+                results[i]= new EvaluationResult(rulesets.get(i), context);
+            try
+            {
+                DataSet dataset= batch.getDataSet();
+                if(stop)
+                    return results;
+                if(dataset instanceof ColumnarDataSet)
+                {
+                    ColumnarDataSet columnar= (ColumnarDataSet) dataset;
+                    BitSetEvaluator evaluator= context.getEvaluationStrategy()== RuleSet.EvaluationStrategy.BITSET?
+                            new BitSetEvaluator(columnar, memory): null;
+                    for(EvaluationResult result: results)
+                    {
+                        if(evaluator!= null)
+                            result.getRuleSet().evaluate(evaluator, result);
+                        else
+                            result.getRuleSet().evaluate(columnar, 0, columnar.size(), result);
+                    }
+                }
+                else
+                {
+                    for(EvaluationResult result: results)
+                        result.getRuleSet().evaluate(dataset, result);
+                }
+            }
+            catch(Exception e)
+            {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+            finally
+            {
+                batch.clear();
+                pipeline.release();
+            }
+            return results;
+        }
+    }
 }
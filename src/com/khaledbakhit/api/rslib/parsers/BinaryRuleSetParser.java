@@ -0,0 +1,299 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.parsers;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.exceptions.InputParseException;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.exceptions.UnsupportedRuleSetFormatException;
+import com.khaledbakhit.api.rslib.interfaces.Parser;
+import com.khaledbakhit.api.rslib.ruleset.BinaryRuleSetWriter;
+import com.khaledbakhit.api.rslib.ruleset.Rule;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+
+/**
+ * BinaryRuleSetParser parses RuleSets written by a {@link BinaryRuleSetWriter}
+ * class instance.<br/>
+ * 
+ * Files are memory-mapped and only the String table and the offsets of RuleSets
+ * are read when opened, so RuleSets can be decoded one at a time with 
+ * {@link #getRuleSet(int)}. {@link #parse(InputStream)} decodes all of them.
+ * Inputs only hold RuleSet definitions, classifiers are compiled from the
+ * RuleSets decoded with {@link com.khaledbakhit.api.rslib.ruleset.CompiledRuleSet#compile(RuleSet)}.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class BinaryRuleSetParser extends RuleSetParser
+{
+    /**
+     * First and last bytes of binary RuleSet inputs.
+     */
+    public static final int MAGIC= 0x52534231;
+    /**
+     * Version of binary RuleSet format.
+     */
+    public static final short VERSION= 1;
+    /**
+     * Code of a numeric value, written as a double.
+     */
+    public static final int NUMBER= 0;
+    /**
+     * Code of an operator or value written as an index in the String table.
+     */
+    public static final int STRING= 0xff;
+    /**
+     * Charset of Strings in String table.
+     */
+    public static final Charset CHARSET= Charset.forName("UTF-8");
+    /**
+     * Operators written as codes, indexed by their code.
+     */
+    private static final String[] OPERATORS= {"=", "==", "!=", "<", "<=", "=<", ">", ">=", "=>"};
+    /**
+     * Number of bytes following the offsets of RuleSets.
+     */
+    private static final int TRAILER= 24;
+    
+    /**
+     * InputStream parsed.
+     */
+    private InputStream input;
+    /**
+     * Bytes of input.
+     */
+    private ByteBuffer bytes;
+    /**
+     * String table of input.
+     */
+    private String[] strings;
+    /**
+     * Offset of the section of each RuleSet.
+     */
+    private int[] offsets;
+    /**
+     * List containing parsed data.
+     */
+    private LinkedList<RuleSet> parsedData;
+    
+    /**
+     * BinaryRuleSetParser constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     */
+    public BinaryRuleSetParser(LaunchSetup sp)
+    {
+        super(sp);
+    }
+    
+    /**
+     * Get the code of an operator.
+     * @param operator String operator.
+     * @return Code of operator or {@link #STRING} if it has no code.
+     */
+    public static int operatorCode(String operator)
+    {
+        for(int i=0; i<OPERATORS.length; i++)
+            if(OPERATORS[i].equals(operator))
+                return i;
+        return STRING;
+    }
+
+    @Override
+    public void parse(InputStream inputstream) throws InputParseException 
+    {
+        open(inputstream);
+        if(parsedData== null)
+            parsedData= new LinkedList<RuleSet>();
+        else
+            parsedData.clear();
+        try
+        {
+            for(int i=0; i<offsets.length; i++)
+                parsedData.add(getRuleSet(i));
+        }
+        catch(Exception e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+    }
+    
+    /**
+     * Open an input, reading its String table and the offsets of its RuleSets only.
+     * @param inputstream InputStream to read.
+     * @throws InputParseException Input is not a binary RuleSet input.
+     * @see #getRuleSet(int) 
+     */
+    @Override
+    public void open(InputStream inputstream) throws InputParseException
+    {
+        input= inputstream;
+        try
+        {
+            bytes= read(inputstream);
+            int limit= bytes.limit();
+            if(limit < 6 + TRAILER || bytes.getInt(0)!= MAGIC || bytes.getInt(limit-4)!= MAGIC)
+                throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
+            if(bytes.getShort(4)!= VERSION)
+                throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format version "+bytes.getShort(4)+".");
+            int pos= (int) bytes.getLong(limit - TRAILER);
+            int index= (int) bytes.getLong(limit - TRAILER + 8);
+            offsets= new int[bytes.getInt(limit - 8)];
+            
+            strings= new String[bytes.getInt(pos)];
+            pos+= 4;
+            byte[] chars= new byte[64];
+            int length;
+            for(int i=0; i<strings.length; i++)
+            {
+                length= bytes.getInt(pos);
+                pos+= 4;
+                if(chars.length < length)
+                    chars= new byte[Math.max(length, chars.length*2)];
+                for(int k=0; k<length; k++)
+                    chars[k]= bytes.get(pos++);
+                strings[i]= new String(chars, 0, length, CHARSET);
+            }
+            for(int i=0; i<offsets.length; i++)
+                offsets[i]= (int) bytes.getLong(index + 8*i);
+        }
+        catch(Exception e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+    }
+    
+    /**
+     * Get the number of RuleSets of the input opened.
+     * @return Number of RuleSets.
+     */
+    @Override
+    public int getRuleSetCount()
+    {
+        return offsets== null? 0: offsets.length;
+    }
+    
+    /**
+     * Decode a RuleSet of the input opened. RuleSets are decoded from the input
+     * at each call, and can be decoded from several threads.
+     * @param index Index of RuleSet in input.
+     * @return RuleSet decoded.
+     * @throws InvalidInputException Metrics or classifications input is invalid.
+     */
+    @Override
+    public RuleSet getRuleSet(int index) throws InvalidInputException
+    {
+        int pos= offsets[index];
+        RuleSet rs= new RuleSet(null, sp);
+        rs.setDefaultCond(strings[bytes.getInt(pos)]);
+        int rules= bytes.getInt(pos + 4), conditions, code;
+        pos+= 8;
+        Rule rule;
+        String metric, operator, value;
+        for(int r=0; r<rules; r++)
+        {
+            rule= new Rule(strings[bytes.getInt(pos)], sp);
+            conditions= bytes.getInt(pos + 4);
+            pos+= 8;
+            for(int c=0; c<conditions; c++)
+            {
+                metric= strings[bytes.getInt(pos)];
+                code= bytes.get(pos + 4) & 0xff;
+                pos+= 5;
+                if(code== STRING)
+                {
+                    operator= strings[bytes.getInt(pos)];
+                    pos+= 4;
+                }
+                else
+                    operator= OPERATORS[code];
+                code= bytes.get(pos++) & 0xff;
+                if(code== NUMBER)
+                {
+                    value= ColumnarDataSet.format(bytes.getDouble(pos));
+                    pos+= 8;
+                }
+                else
+                {
+                    value= strings[bytes.getInt(pos)];
+                    pos+= 4;
+                }
+                rule.addCondition(metric, operator, value);
+            }
+            rs.addRule(rule);
+        }
+        return rs;
+    }
+    
+    /**
+     * Read all bytes of an input. Files are memory-mapped from their current position.
+     * @param inputstream InputStream to read.
+     * @return ByteBuffer holding the bytes of input.
+     * @throws IOException Unable to read input.
+     */
+    private static ByteBuffer read(InputStream inputstream) throws IOException
+    {
+        if(inputstream instanceof FileInputStream)
+        {
+            FileChannel channel= ((FileInputStream) inputstream).getChannel();
+            long position= channel.position(), size= channel.size() - position;
+            if(size <= Integer.MAX_VALUE)
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+        ByteArrayOutputStream out= new ByteArrayOutputStream();
+        byte[] buffer= new byte[8192];
+        int read;
+        while((read= inputstream.read(buffer)) > 0)
+            out.write(buffer, 0, read);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    @Override
+    public LinkedList<RuleSet> getParsedData() 
+    {
+        return parsedData;
+    }
+
+    @Override
+    public Parser<LinkedList<RuleSet>> newInstance() 
+    {
+        return new BinaryRuleSetParser(sp);
+    }
+    
+    @Override
+    public void close() throws IOException 
+    {
+        if(input!= null)
+            input.close();
+        input= null;
+        bytes= null;
+        strings= null;
+        offsets= null;
+    }
+}
@@ -22,33 +22,81 @@ package com.khaledbakhit.api.rslib.parsers;
 import com.khaledbakhit.api.rslib.interfaces.Parser;
 import com.khaledbakhit.api.rslib.LaunchSetup;
 import com.khaledbakhit.api.rslib.exceptions.InputParseException;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
 import com.khaledbakhit.api.rslib.exceptions.UnsupportedRuleSetFormatException;
 import com.khaledbakhit.api.rslib.ruleset.DefaultRuleSetWriter;
 import com.khaledbakhit.api.rslib.ruleset.Rule;
 import com.khaledbakhit.api.rslib.ruleset.RuleSet;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Default library's implementation of the RuleSetParser abstract class.<br/>
  * 
  * It can parse outputs generated by {@link DefaultRuleSetWriter} class instance.
+ * Input is read in a single pass over its bytes, memory-mapped for files, and
+ * split into RuleSet blocks on the RuleSets delimiter. When an executor is set, 
+ * inputs holding many RuleSets are parsed block by block in parallel. Opened
+ * inputs are only split, each block is parsed by {@link #getRuleSet(int)}.
  * @author Khaled Bakhit
  * @since 4.0
- * @version 18/08/2013
+ * @version 17/10/2026
  */
 public class DefaultRuleSetParser extends RuleSetParser
 {
-     /**
-     * Scanner Object to read input classification file.
+    /**
+     * Delimiter between two RuleSets.
+     */
+    private static final String RULESETS_DELIMITER= "------------------";
+    /**
+     * Keyword preceding the default classification of a RuleSet.
+     */
+    private static final byte[] DEFAULT_CLASS= "Default class:".getBytes();
+    /**
+     * Keyword starting each Rule of a RuleSet.
+     */
+    private static final byte[] RULE= "Rule".getBytes();
+    /**
+     * Keyword separating the Conditions of a Rule from its classification.
+     */
+    private static final byte[] ARROW= "->".getBytes();
+    /**
+     * Number of RuleSet blocks parsed by a single task.
+     */
+    private static final int BLOCKS_PER_TASK= 64;
+    /**
+     * InputStream parsed.
+     */
+    private InputStream input;
+    /**
+     * Bytes of input.
+     */
+    private ByteBuffer bytes;
+    /**
+     * Number of RuleSet blocks of input, followed by offsets of each block.
      */
-    private Scanner scan;
+    private int[] blocks;
     /**
      * List containing parsed data.
      */
     private LinkedList<RuleSet> parsedData;
+    /**
+     * Charset of RuleSet files.
+     */
+    private final Charset charset;
 
     /**
      * DefaultRuleSetParser constructor.
@@ -57,6 +105,7 @@ public class DefaultRuleSetParser extends RuleSetParser
     public DefaultRuleSetParser(LaunchSetup sp)
     {
         super(sp);
+        charset= Charset.defaultCharset();
     }
     @Override
     public void parse(InputStream inputstream) throws InputParseException {
@@ -66,20 +115,21 @@ public class DefaultRuleSetParser extends RuleSetParser
             } else {
                 parsedData.clear();
             }
-
-            final String RULESETS_DELIMITER = "------------------";
-            scan = new Scanner(inputstream);
-            scan.useDelimiter(RULESETS_DELIMITER);
-
-            String RuleSet_Block;
-            while (scan.hasNext())
-            {
-                RuleSet_Block = scan.next().trim();
-                if (RuleSet_Block.length() == 0)
-                    continue;
-                
-                parsedData.add(extractRuleSet(RuleSet_Block));
+            open(inputstream);
+            int count = blocks[0];
+            
+            ForkJoinPool executor = getExecutor();
+            if (executor == null || count <= BLOCKS_PER_TASK) {
+                for (int i = 0; i < count; i++)
+                    parsedData.add(extractRuleSet(bytes, blocks[2*i+1], blocks[2*i+2]));
+                return;
             }
+            AtomicReference<Exception> error = new AtomicReference<Exception>();
+            BlockTask task = new BlockTask(bytes, blocks, 0, count, error);
+            List<RuleSet> parsed = ForkJoinTask.inForkJoinPool() ? task.invoke() : executor.invoke(task);
+            if (error.get() != null)
+                throw error.get();
+            parsedData.addAll(parsed);
         } 
         catch (Exception e) 
         {
@@ -92,70 +142,139 @@ public class DefaultRuleSetParser extends RuleSetParser
     public LinkedList<RuleSet> getParsedData() {
         return parsedData;
     }
+    
+    /**
+     * Open an input, splitting it into RuleSet blocks only.
+     * @param inputstream InputStream to read.
+     * @throws InputParseException Unable to read input.
+     * @see #getRuleSet(int) 
+     */
+    @Override
+    public void open(InputStream inputstream) throws InputParseException
+    {
+        input= inputstream;
+        try
+        {
+            bytes= read(inputstream);
+            blocks= split(bytes);
+        }
+        catch(IOException e)
+        {
+            throw new InputParseException(e.getMessage());
+        }
+    }
+    
+    @Override
+    public int getRuleSetCount()
+    {
+        return blocks== null? 0: blocks[0];
+    }
+    
+    /**
+     * Parse a RuleSet block of the input opened. Blocks are parsed from the input
+     * at each call, and can be parsed from several threads.
+     * @param index Index of RuleSet in input.
+     * @return RuleSet parsed.
+     * @throws InvalidInputException RuleSet format is unsupported.
+     */
+    @Override
+    public RuleSet getRuleSet(int index) throws InvalidInputException
+    {
+        return extractRuleSet(bytes, blocks[2*index+1], blocks[2*index+2]);
+    }
+    
+    /**
+     * Read all bytes of an input. Files are memory-mapped from their current position.
+     * @param inputstream InputStream to read.
+     * @return ByteBuffer holding the bytes of input.
+     * @throws IOException Unable to read input.
+     */
+    private static ByteBuffer read(InputStream inputstream) throws IOException
+    {
+        if(inputstream instanceof FileInputStream)
+        {
+            FileChannel channel= ((FileInputStream) inputstream).getChannel();
+            long position= channel.position(), size= channel.size() - position;
+            if(size <= Integer.MAX_VALUE)
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+        ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+        byte[] buffer= new byte[8192];
+        int read;
+        while((read= inputstream.read(buffer)) > 0)
+            bytes.write(buffer, 0, read);
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+    
+    /**
+     * Split bytes into RuleSet blocks on the RuleSets delimiter, trimming each 
+     * block and dropping empty ones.
+     * @param bytes Bytes of input.
+     * @return Number of blocks, followed by offsets of the first and last byte,
+     * exclusive, of each block.
+     */
+    private static int[] split(ByteBuffer bytes)
+    {
+        int[] blocks= new int[33];
+        int count= 0, start= 0, run= 0, limit= bytes.limit();
+        for(int i=0; i<=limit; i++)
+        {
+            if(i < limit && bytes.get(i)== '-')
+            {
+                run++;
+                continue;
+            }
+            if(run >= RULESETS_DELIMITER.length() || i== limit)
+            {
+                int from= start, to= run >= RULESETS_DELIMITER.length()? i - run: i;
+                while(from < to && (bytes.get(from) & 0xff) <= ' ')
+                    from++;
+                while(to > from && (bytes.get(to-1) & 0xff) <= ' ')
+                    to--;
+                if(from < to)
+                {
+                    if(2*count + 2 >= blocks.length)
+                        blocks= Arrays.copyOf(blocks, blocks.length*2);
+                    blocks[2*count+1]= from;
+                    blocks[2*count+2]= to;
+                    count++;
+                }
+                start= i;
+            }
+            run= 0;
+        }
+        blocks[0]= count;
+        return blocks;
+    }
 
     /**
      * Extract RuleSet from a given body paragraph.
      *
-     * @param paragraph String containing definition for a RuleSet.
+     * @param bytes Bytes of input.
+     * @param from Offset of the first byte of the paragraph.
+     * @param to Offset of the last byte of the paragraph, exclusive.
      * @return RuleSet object.
      * @throws UnsupportedRuleSetFormatException RuleSet paragraph format is
      * unsupported.
      */
-    private RuleSet extractRuleSet(String paragraph) throws UnsupportedRuleSetFormatException {
+    private RuleSet extractRuleSet(ByteBuffer bytes, int from, int to) throws UnsupportedRuleSetFormatException {
         try 
         {
             RuleSet rs = new RuleSet(null, sp);
-            Rule rule;
-            String temp, temp2, temp3, Class, Default;
-
-            Scanner default_search = new Scanner(paragraph);
-            default_search.useDelimiter("Default class:");
-
-            Scanner s = new Scanner(default_search.next());
-
-            Default = default_search.next();
-            rs.setDefaultCond(Default.trim());
-            default_search.close();
+            int defaultStart = indexOf(bytes, DEFAULT_CLASS, from, to);
+            if (defaultStart == -1)
+                throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
+            int defaultEnd = indexOf(bytes, DEFAULT_CLASS, defaultStart + DEFAULT_CLASS.length, to);
+            rs.setDefaultCond(decode(bytes, defaultStart + DEFAULT_CLASS.length, defaultEnd == -1 ? to : defaultEnd));
             
-            Scanner dscan, slscan, spscan, scan2;
-            s.useDelimiter("Rule");
-            s.next();        // Skipping Intro.
-
-            while (s.hasNext()) 
+            //Skipping Intro.
+            int start = indexOf(bytes, RULE, from, defaultStart), next;
+            while (start != -1) 
             {
-                temp = s.next();
-                dscan = new Scanner(temp);
-                dscan.useDelimiter(":");
-                dscan.next();
-                temp = dscan.next();
-                dscan.close();
-                slscan = new Scanner(temp);
-                slscan.useDelimiter("->");
-                temp2 = slscan.next();  // body containing conditions!
-                Class = slscan.next();  // part containg class if body true!
-                slscan.close();
-                
-                scan2 = new Scanner(Class);
-                scan2.useDelimiter(" ");
-                scan2.next();
-                scan2.next();
-                rule = new Rule(scan2.next().trim(), sp);  //added classification
-                scan2.close();
-                
-                scan2 = new Scanner(temp2.trim());
-
-                while (scan2.hasNextLine()) //!
-                {
-                    temp3 = scan2.nextLine().trim();  //!
-                    spscan = new Scanner(temp3);
-                    spscan.useDelimiter(" ");
-                    rule.addCondition(spscan.next(), spscan.next(), spscan.next());
-                    spscan.close();
-                }
-                scan2.close();
-                rs.addRule(rule);
+                next = indexOf(bytes, RULE, start + RULE.length, defaultStart);
+                rs.addRule(extractRule(bytes, start + RULE.length, next == -1 ? defaultStart : next));
+                start = next;
             }
-            s.close();
             return rs;
         } 
         catch (Exception e) 
@@ -163,6 +282,140 @@ public class DefaultRuleSetParser extends RuleSetParser
             throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
         }
     }
+    
+    /**
+     * Extract a Rule from the bytes following its Rule keyword.
+     * @param bytes Bytes of input.
+     * @param from Offset of the first byte after the Rule keyword.
+     * @param to Offset of the next Rule keyword or of the default classification.
+     * @return Rule object.
+     * @throws InvalidInputException Rule format is unsupported.
+     */
+    private Rule extractRule(ByteBuffer bytes, int from, int to) throws InvalidInputException
+    {
+        int start = indexOf(bytes, (byte) ':', from, to) + 1;
+        if (start == 0)
+            throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
+        int stop = indexOf(bytes, (byte) ':', start, to);
+        if (stop == -1)
+            stop = to;
+        int arrow = indexOf(bytes, ARROW, start, stop);
+        if (arrow == -1)
+            throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
+        
+        // part containg class if body true: "class" keyword then classification.
+        int i = skipWord(bytes, skipSpace(bytes, arrow + ARROW.length, stop), stop);
+        i = skipSpace(bytes, i, stop);
+        int j = skipWord(bytes, i, stop);
+        if (i == j)
+            throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
+        Rule rule = new Rule(decode(bytes, i, j), sp);  //added classification
+        
+        // body containing conditions, one per line!
+        String[] tokens = new String[3];
+        int line = start, end, count;
+        while (line < arrow)
+        {
+            end = line;
+            while (end < arrow && bytes.get(end) != '\n' && bytes.get(end) != '\r')
+                end++;
+            count = 0;
+            i = skipSpace(bytes, line, end);
+            while (count < tokens.length && i < end)
+            {
+                j = skipWord(bytes, i, end);
+                tokens[count++] = decode(bytes, i, j);
+                i = skipSpace(bytes, j, end);
+            }
+            if (count == tokens.length)
+                rule.addCondition(tokens[0], tokens[1], tokens[2]);
+            else if (count > 0)
+                throw new UnsupportedRuleSetFormatException("Unsupported RuleSet format.");
+            line = end + 1;
+        }
+        return rule;
+    }
+    
+    /**
+     * Find the first occurrence of a byte.
+     * @param bytes Bytes of input.
+     * @param b Byte to find.
+     * @param from Offset to search from.
+     * @param to Offset to search to, exclusive.
+     * @return Offset of byte or -1 if not found.
+     */
+    private static int indexOf(ByteBuffer bytes, byte b, int from, int to)
+    {
+        for(int i=from; i<to; i++)
+            if(bytes.get(i)== b)
+                return i;
+        return -1;
+    }
+    
+    /**
+     * Find the first occurrence of a keyword.
+     * @param bytes Bytes of input.
+     * @param keyword Keyword to find.
+     * @param from Offset to search from.
+     * @param to Offset to search to, exclusive.
+     * @return Offset of keyword or -1 if not found.
+     */
+    private static int indexOf(ByteBuffer bytes, byte[] keyword, int from, int to)
+    {
+        int last= to - keyword.length, k;
+        for(int i= from; i<=last; i++)
+        {
+            if(bytes.get(i)!= keyword[0])
+                continue;
+            for(k=1; k<keyword.length && bytes.get(i+k)== keyword[k]; k++);
+            if(k== keyword.length)
+                return i;
+        }
+        return -1;
+    }
+    
+    /**
+     * Skip white spaces.
+     * @param bytes Bytes of input.
+     * @param from Offset to skip from.
+     * @param to Offset to skip to, exclusive.
+     * @return Offset of the first byte that is not a white space.
+     */
+    private static int skipSpace(ByteBuffer bytes, int from, int to)
+    {
+        while(from < to && (bytes.get(from) & 0xff) <= ' ')
+            from++;
+        return from;
+    }
+    
+    /**
+     * Skip a word up to the next white space.
+     * @param bytes Bytes of input.
+     * @param from Offset to skip from.
+     * @param to Offset to skip to, exclusive.
+     * @return Offset of the first white space after the word.
+     */
+    private static int skipWord(ByteBuffer bytes, int from, int to)
+    {
+        while(from < to && (bytes.get(from) & 0xff) > ' ')
+            from++;
+        return from;
+    }
+    
+    /**
+     * Decode bytes of input.
+     * @param bytes Bytes of input.
+     * @param from Offset of the first byte.
+     * @param to Offset of the last byte, exclusive.
+     * @return Bytes as String.
+     */
+    private String decode(ByteBuffer bytes, int from, int to)
+    {
+        byte[] chars= new byte[to - from];
+        for(int i=0; i<chars.length; i++)
+            chars[i]= bytes.get(from + i);
+        return new String(chars, charset);
+    }
 
     @Override
     public Parser<LinkedList<RuleSet>> newInstance() 
@@ -172,7 +425,83 @@ public class DefaultRuleSetParser extends RuleSetParser
     @Override
     public void close() throws IOException 
     {
-        if(scan!=null)
-            scan.close();
+        if(input!=null)
+            input.close();
+        input= null;
+        bytes= null;
+        blocks= null;
+    }
+    
+    /**
+     * Task extracting a range of RuleSet blocks, splitting it among sub-tasks 
+     * when it holds more than {@link #BLOCKS_PER_TASK} blocks.
+     * @since 4.1
+     */
+    private class BlockTask extends RecursiveTask<List<RuleSet>>
+    {
+        private static final long serialVersionUID = 117102026L;
+        /**
+         * Bytes of input.
+         */
+        private final ByteBuffer bytes;
+        /**
+         * Number of blocks followed by offsets of each block.
+         */
+        private final int[] blocks;
+        /**
+         * Index of first block, inclusive.
+         */
+        private final int from;
+        /**
+         * Index of last block, exclusive.
+         */
+        private final int to;
+        /**
+         * First error of all tasks.
+         */
+        private final AtomicReference<Exception> error;
+        
+        /**
+         * BlockTask constructor.
+         * @param bytes Bytes of input.
+         * @param blocks Number of blocks followed by offsets of each block.
+         * @param from Index of first block, inclusive.
+         * @param to Index of last block, exclusive.
+         * @param error First error of all tasks.
+         */
+        BlockTask(ByteBuffer bytes, int[] blocks, int from, int to, AtomicReference<Exception> error)
+        {
+            this.bytes= bytes;
+            this.blocks= blocks;
+            this.from= from;
+            this.to= to;
+            this.error= error;
+        }
+        
+        @Override
+        protected List<RuleSet> compute()
+        {
+            List<RuleSet> parsed= new ArrayList<RuleSet>(to - from);
+            if(to - from > BLOCKS_PER_TASK)
+            {
+                int middle= (from + to) >>> 1;
+                BlockTask left= new BlockTask(bytes, blocks, from, middle, error);
+                left.fork();
+                List<RuleSet> right= new BlockTask(bytes, blocks, middle, to, error).compute();
+                parsed.addAll(left.join());
+                parsed.addAll(right);
+                return parsed;
+            }
+            try
+            {
+                for(int i=from; i<to && error.get()== null; i++)
+                    parsed.add(extractRuleSet(bytes, blocks[2*i+1], blocks[2*i+2]));
+            }
+            catch(Exception e)
+            {
+                error.compareAndSet(null, e);
+            }
+            return parsed;
+        }
     }
 }
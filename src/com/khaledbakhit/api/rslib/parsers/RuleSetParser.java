@@ -21,8 +21,14 @@ package com.khaledbakhit.api.rslib.parsers;
 
 import com.khaledbakhit.api.rslib.interfaces.Parser;
 import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.exceptions.InputParseException;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
 import com.khaledbakhit.api.rslib.ruleset.RuleSet;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * RuleSetParser parses input RuleSet files.
@@ -40,6 +46,14 @@ public abstract class RuleSetParser implements Parser<LinkedList<RuleSet>>
      * The default RuleSet parser defined by library.
      */
     private static RuleSetParser DEFAULT_PARSER;
+    /**
+     * ForkJoinPool Object to parse parts of an input in parallel, or null to parse sequentially.
+     */
+    private ForkJoinPool executor;
+    /**
+     * RuleSets of the input opened, when parsed as a whole.
+     */
+    private List<RuleSet> opened;
     /**
      * RuleSetParser constructor.
      * @param sp LaunchSetup Object containing input configuration.
@@ -49,6 +63,63 @@ public abstract class RuleSetParser implements Parser<LinkedList<RuleSet>>
         this.sp= sp;
     }
     
+    /**
+     * Set the ForkJoinPool Object used to parse parts of an input in parallel.
+     * Parsers unable to split their input ignore it.
+     * @param executor ForkJoinPool Object or null to parse sequentially.
+     * @since 4.1
+     */
+    public void setExecutor(ForkJoinPool executor)
+    {
+        this.executor= executor;
+    }
+    /**
+     * Get the ForkJoinPool Object used to parse parts of an input in parallel.
+     * @return ForkJoinPool Object or null to parse sequentially.
+     * @since 4.1
+     */
+    public ForkJoinPool getExecutor()
+    {
+        return executor;
+    }
+    
+    /**
+     * Open an input to get its RuleSets one at a time with {@link #getRuleSet(int)}.
+     * The default implementation parses the whole input, parsers able to locate 
+     * RuleSets without decoding them override it to keep memory bounded.
+     * @param inputstream InputStream to read.
+     * @throws InputParseException Input is not supported.
+     * @since 4.1
+     */
+    public void open(InputStream inputstream) throws InputParseException
+    {
+        opened= null;
+        parse(inputstream);
+        opened= new ArrayList<RuleSet>(getParsedData());
+    }
+    
+    /**
+     * Get the number of RuleSets of the input opened.
+     * @return Number of RuleSets.
+     * @since 4.1
+     */
+    public int getRuleSetCount()
+    {
+        return opened== null? 0: opened.size();
+    }
+    
+    /**
+     * Get a RuleSet of the input opened.
+     * @param index Index of RuleSet in input.
+     * @return RuleSet Object.
+     * @throws InvalidInputException RuleSet input is invalid.
+     * @since 4.1
+     */
+    public RuleSet getRuleSet(int index) throws InvalidInputException
+    {
+        return opened.get(index);
+    }
+    
     /**
      * Get the default RuleSetParser defined by the library.
      * @param sp LaunchSetup Object containing input configuration.
@@ -0,0 +1,231 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
+import com.khaledbakhit.api.rslib.interfaces.Writer;
+import com.khaledbakhit.api.rslib.parsers.BinaryRuleSetParser;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * BinaryRuleSetWriter outputs RuleSets in a compact binary form that can be 
+ * parsed by a {@link BinaryRuleSetParser} class instance.<br/>
+ * 
+ * Each RuleSet is written as a section of Rules, Conditions and default 
+ * classification. Operators are written as codes and numeric values as 
+ * doubles, while metrics, classifications and other Strings are written once
+ * in a String table shared by all sections. The String table and the offset 
+ * of each section follow the sections, so RuleSets are written as they come
+ * and can be decoded one at a time.<br/>
+ * 
+ * Once {@link #open(OutputStream)} is called, all RuleSets written go into the
+ * same output until {@link #close()}. Otherwise each RuleSet is written into 
+ * its own definition file, as {@link DefaultRuleSetWriter} does.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class BinaryRuleSetWriter extends RuleSetWriter 
+{
+    /**
+     * Output receiving RuleSets.
+     */
+    private DataOutputStream out;
+    /**
+     * Flag indicating whether output is the definition file of a single RuleSet.
+     */
+    private boolean single;
+    /**
+     * Number of bytes written into output.
+     */
+    private long position;
+    /**
+     * Offset of the section of each RuleSet written.
+     */
+    private long[] offsets;
+    /**
+     * Number of RuleSets written.
+     */
+    private int count;
+    /**
+     * Strings written, in String table order.
+     */
+    private List<String> strings;
+    /**
+     * Index of each String in the String table.
+     */
+    private HashMap<String, Integer> stringIndexes;
+    /**
+     * Buffer holding the section of the RuleSet being written.
+     */
+    private ByteArrayOutputStream buffer;
+    
+    /**
+     * BinaryRuleSetWriter constructor.
+     * @param sp LaunchSetup Object contains input configuration.
+     */
+    public BinaryRuleSetWriter(LaunchSetup sp)
+    {
+        super(sp);
+        buffer= new ByteArrayOutputStream();
+    }
+    
+    /**
+     * Open an output receiving all RuleSets written until {@link #close()}.
+     * @param output OutputStream to write into.
+     * @throws IOException Unable to write into output.
+     */
+    public void open(OutputStream output) throws IOException
+    {
+        close();
+        out= new DataOutputStream(new BufferedOutputStream(output));
+        single= false;
+        position= 0;
+        count= 0;
+        offsets= new long[16];
+        strings= new ArrayList<String>();
+        stringIndexes= new HashMap<String, Integer>();
+        out.writeInt(BinaryRuleSetParser.MAGIC);
+        out.writeShort(BinaryRuleSetParser.VERSION);
+        position+= 6;
+    }
+
+    @Override
+    public void write(RuleSet rs) throws IOException 
+    {
+        if(out== null || single)
+        {
+            if(sp.ruleset_output_definition_dir==null)
+                SetupNotConfiguredException.occur("ruleset_output_definition_dir");
+            open(new FileOutputStream(sp.ruleset_output_definition_dir+"/"+rs.getParent().getName()));
+            single= true;
+        }
+        buffer.reset();
+        DataOutputStream section= new DataOutputStream(buffer);
+        section.writeInt(string(rs.getDefaultStringCond()));
+        List<Rule> rules= rs.getRules();
+        section.writeInt(rules.size());
+        for(Rule r: rules)
+        {
+            section.writeInt(string(r.getStringClassification()));
+            List<Condition> conditions= r.conditions();
+            section.writeInt(conditions.size());
+            for(Condition cond: conditions)
+            {
+                section.writeInt(string(cond.metric));
+                int op= BinaryRuleSetParser.operatorCode(cond.operator);
+                section.writeByte(op);
+                if(op== BinaryRuleSetParser.STRING)
+                    section.writeInt(string(cond.operator));
+                if(cond.isNumeric && ColumnarDataSet.format(cond.numeric_value).equals(cond.value))
+                {
+                    section.writeByte(BinaryRuleSetParser.NUMBER);
+                    section.writeDouble(cond.numeric_value);
+                }
+                else
+                {
+                    section.writeByte(BinaryRuleSetParser.STRING);
+                    section.writeInt(string(cond.value));
+                }
+            }
+        }
+        section.flush();
+        
+        if(count== offsets.length)
+            offsets= Arrays.copyOf(offsets, count*2);
+        offsets[count++]= position;
+        buffer.writeTo(out);
+        position+= buffer.size();
+    }
+    
+    /**
+     * Get the index of a String in the String table, adding it if needed.
+     * @param value String to look up.
+     * @return Index of String.
+     */
+    private int string(String value)
+    {
+        Integer index= stringIndexes.get(value);
+        if(index== null)
+        {
+            index= strings.size();
+            strings.add(value);
+            stringIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    @Override
+    public Writer<RuleSet> newInstance() 
+    {
+       return new BinaryRuleSetWriter(sp);
+    }
+    
+    /**
+     * Write the String table and the offsets of RuleSets, then close the output.
+     * @throws IOException Unable to write into output.
+     */
+    @Override
+    public void close() throws IOException 
+    {
+        if(out== null)
+            return;
+        try
+        {
+            long table= position;
+            out.writeInt(strings.size());
+            byte[] bytes;
+            for(String value: strings)
+            {
+                bytes= value.getBytes(BinaryRuleSetParser.CHARSET);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                position+= 4 + bytes.length;
+            }
+            position+= 4;
+            long index= position;
+            for(int i=0; i<count; i++)
+                out.writeLong(offsets[i]);
+            out.writeLong(table);
+            out.writeLong(index);
+            out.writeInt(count);
+            out.writeInt(BinaryRuleSetParser.MAGIC);
+        }
+        finally
+        {
+            out.close();
+            out= null;
+            strings= null;
+            stringIndexes= null;
+        }
+    } 
+}
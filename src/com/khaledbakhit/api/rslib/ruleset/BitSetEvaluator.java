@@ -0,0 +1,678 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.dataset.EncodedDataSet;
+import com.khaledbakhit.api.rslib.dataset.SortedIndex;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.exceptions.UncleanDataSetException;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * BitSetEvaluator tests RuleSets on a ColumnarDataSet one metric column at a time.<br/>
+ * 
+ * Each Condition is evaluated over its whole column into a bitset holding one bit
+ * per case, and a Rule matches the cases in the AND of its Condition bitsets.
+ * In {@link TestingMode#SEQUENTIAL} mode each Rule only claims the cases left 
+ * unclaimed by the Rules before it, and confusion matrices as well as Rule 
+ * measurements are updated from per classification bit counts.
+ * In {@link TestingMode#VOTING} mode votes are tallied per case from the Rule bitsets,
+ * a block of cases at a time, into bounded vote counters reused by later tests.<br/>
+ * 
+ * Results are identical to testing the DataSet case by case.
+ * Rule fired information is not available since cases are not visited in order.<br/>
+ * 
+ * A BitSetEvaluator can keep the bitsets of the distinct Conditions it evaluated,
+ * keyed by metric column, operator and value, within a memory budget. Sharing one 
+ * instance per DataSet among all RuleSets of a run evaluates each distinct
+ * Condition only once per DataSet. Instances are safe for concurrent use.<br/>
+ * 
+ * If the DataSet has a {@link SortedIndex} built, selective threshold Conditions
+ * are resolved from a slice of the sorted cases instead of scanning the column.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class BitSetEvaluator 
+{
+    /**
+     * Number of cases scanned at a time from columns stored off the Java heap, 
+     * and whose votes are tallied at a time, a multiple of 64.
+     */
+    private static final int BLOCK= 1 << 12;
+    /**
+     * ColumnarDataSet to evaluate.
+     */
+    private final ColumnarDataSet dataset;
+    /**
+     * Number of cases in the DataSet.
+     */
+    private final int size;
+    /**
+     * Number of 64 bit words in a bitset.
+     */
+    private final int words;
+    /**
+     * Bitset of the cases of each classification, by DataSet classification index.
+     */
+    private final long[][] classMasks;
+    /**
+     * Classification of each DataSet classification index.
+     */
+    private final String[] classLabels;
+    /**
+     * Numeric value of each DataSet classification index or -1 if not numeric.
+     */
+    private final int[] lineClasses;
+    /**
+     * Bitsets of evaluated Conditions or null if caching is disabled.
+     */
+    private final ConcurrentHashMap<ConditionKey, long[]> cache;
+    /**
+     * Maximum number of Condition bitsets cached.
+     */
+    private final int cacheLimit;
+    /**
+     * Sorted index of the DataSet or null if not built.
+     */
+    private final SortedIndex index;
+    /**
+     * Vote counters released by {@link TestingMode#VOTING} tests, one per test
+     * running at a time, each holding the votes of a block of cases per classification 
+     * followed by the last vote of each case of the block.
+     */
+    private final ConcurrentLinkedQueue<int[]> voteBuffers;
+    /**
+     * Work buffers released by Condition scans of off-heap columns, one per scan 
+     * running at a time, without temporary bitset.
+     */
+    private final ConcurrentLinkedQueue<Scratch> scanBuffers;
+    
+    /**
+     * Create a new BitSetEvaluator instance that does not cache Condition bitsets.
+     * @param dataset ColumnarDataSet to evaluate.
+     * @throws UncleanDataSetException A case has an unknown classification.
+     */
+    public BitSetEvaluator(ColumnarDataSet dataset) throws UncleanDataSetException
+    {
+        this(dataset, 0);
+    }
+    
+    /**
+     * Create a new BitSetEvaluator instance.
+     * @param dataset ColumnarDataSet to evaluate.
+     * @param cacheMemory Memory in bytes available to cache Condition bitsets, 0 to disable caching.
+     * @throws UncleanDataSetException A case has an unknown classification.
+     */
+    public BitSetEvaluator(ColumnarDataSet dataset, long cacheMemory) throws UncleanDataSetException
+    {
+        this.dataset= dataset;
+        this.size= dataset.size();
+        this.words= (size + 63) >>> 6;
+        this.cacheLimit= (int) Math.min(Integer.MAX_VALUE, cacheMemory / (8L * Math.max(1, words)));
+        this.cache= cacheLimit> 0? new ConcurrentHashMap<ConditionKey, long[]>(): null;
+        SortedIndex sorted= dataset.hasSortedIndex()? dataset.getSortedIndex(): null;
+        this.index= sorted!= null && sorted.size()== size? sorted: null;
+        this.voteBuffers= new ConcurrentLinkedQueue<int[]>();
+        this.scanBuffers= new ConcurrentLinkedQueue<Scratch>();
+        
+        List<String> classList= dataset.getClassList();
+        classLabels= classList.toArray(new String[classList.size()]);
+        classMasks= new long[classLabels.length][words];
+        lineClasses= new int[classLabels.length];
+        for(int c=0; c< classLabels.length; c++)
+            lineClasses[c]= RuleSet.parseClass(classLabels[c]);
+        int[] classes= dataset.getClassIndexes();
+        for(int row=0; row< size; row++)
+        {
+            int c= classes[row];
+            if(c< 0 || c>= classLabels.length)
+                throw new UncleanDataSetException(dataset.getDataSetLine(row)+" is not a valid DataSet line.");
+            classMasks[c][row >>> 6]|= 1L << row;
+        }
+    }
+    
+    /**
+     * Get the ColumnarDataSet evaluated.
+     * @return ColumnarDataSet Object.
+     */
+    public ColumnarDataSet getDataSet()
+    {
+        return dataset;
+    }
+    
+    /**
+     * Get the number of 64 bit words in a bitset of this evaluator.
+     * @return Bitset length.
+     */
+    public int getBitSetLength()
+    {
+        return words;
+    }
+    
+    /**
+     * Get the number of distinct Conditions cached.
+     * @return Number of Condition bitsets cached.
+     */
+    public int getCachedConditions()
+    {
+        return cache== null? 0: cache.size();
+    }
+    
+    /**
+     * Evaluate a bound Condition over its metric column.
+     * @param cond Condition bound to a metric column.
+     * @param bits Bitset receiving one bit per matching case.
+     * @throws UncleanDataSetException Condition column does not exist in the DataSet.
+     */
+    public void evaluate(Condition cond, long[] bits) throws UncleanDataSetException
+    {
+        int c= cond.getColumn();
+        if(c< 0 || c>= dataset.getMetricCount())
+            throw new UncleanDataSetException("DataSet has no values for metric "+cond.metric+".");
+        if(cond.isNumeric && index!= null && evaluateSlice(c, cond.getOperator(), cond.numeric_value, bits))
+            return;
+        if(dataset.isHeapColumns())
+        {
+            ConditionKernels.scan(cond, dataset.getColumn(c), 0, size, bits);
+            return;
+        }
+        if(cond.isNumeric && dataset instanceof EncodedDataSet && ConditionKernels.compare(cond.getOperator(), 
+                ((EncodedDataSet) dataset).getEncodedColumn(c), size, cond.numeric_value, bits))
+            return;
+        //Other columns are decoded and scanned a block at a time.
+        Scratch scratch= scanBuffers.poll();
+        if(scratch== null)
+            scratch= new Scratch(0);
+        try
+        {
+            scan(cond, 0, size, bits, scratch);
+        }
+        finally
+        {
+            scanBuffers.offer(scratch);
+        }
+    }
+    
+    /**
+     * Evaluate a bound Condition over a range of cases.
+     * @param cond Condition bound to a metric column.
+     * @param bits Bitset receiving one bit per matching case of the range, indexed from <code>fromWord</code>.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     * @param scratch Work buffers.
+     * @throws UncleanDataSetException Condition column does not exist in the DataSet.
+     */
+    private void evaluate(Condition cond, long[] bits, int fromWord, int toWord, Scratch scratch) throws UncleanDataSetException
+    {
+        if(fromWord== 0 && toWord== words)
+        {
+            evaluate(cond, bits);
+            return;
+        }
+        int c= cond.getColumn();
+        if(c< 0 || c>= dataset.getMetricCount())
+            throw new UncleanDataSetException("DataSet has no values for metric "+cond.metric+".");
+        scan(cond, fromWord << 6, Math.min(size, toWord << 6), bits, scratch);
+    }
+    
+    /**
+     * Scan a range of cases of the column of a Condition a block at a time.
+     * @param cond Condition bound to a metric column of the DataSet.
+     * @param from First case, inclusive, a multiple of 64.
+     * @param to Last case, exclusive.
+     * @param bits Bitset receiving one bit per matching case, indexed from <code>from</code>.
+     * @param scratch Work buffers.
+     */
+    private void scan(Condition cond, int from, int to, long[] bits, Scratch scratch)
+    {
+        int c= cond.getColumn();
+        double[] column= dataset.isHeapColumns()? dataset.getColumn(c): null;
+        for(int start= from; start< to; start+= BLOCK)
+        {
+            int length= Math.min(BLOCK, to - start);
+            if(column== null)
+            {
+                dataset.getValues(c, start, start + length, scratch.values);
+                ConditionKernels.scan(cond, scratch.values, 0, length, scratch.blockBits);
+            }
+            else
+                ConditionKernels.scan(cond, column, start, start + length, scratch.blockBits);
+            System.arraycopy(scratch.blockBits, 0, bits, (start - from) >>> 6, (length + 63) >>> 6);
+        }
+    }
+    
+    /**
+     * Evaluate a numeric threshold Condition from a slice of the sorted index.
+     * Only done when the slice is small compared to the DataSet.
+     * @param column Metric column.
+     * @param op Comparison operator.
+     * @param v Numeric value compared against.
+     * @param bits Bitset receiving one bit per matching case.
+     * @return True if evaluated, false if the column must be scanned.
+     */
+    private boolean evaluateSlice(int column, Condition.Operator op, double v, long[] bits)
+    {
+        if(Double.isNaN(v))
+            return false;
+        int from, to;
+        switch(op)
+        {
+            case LESS:
+                from= 0;
+                to= index.lowerBound(column, v);
+                break;
+            case LESS_EQUAL:
+                from= 0;
+                to= index.upperBound(column, v);
+                break;
+            case GREATER:
+                from= index.upperBound(column, v);
+                to= index.getNumericCount(column);
+                break;
+            case GREATER_EQUAL:
+                from= index.lowerBound(column, v);
+                to= index.getNumericCount(column);
+                break;
+            case EQUAL:
+                from= index.lowerBound(column, v);
+                to= index.upperBound(column, v);
+                break;
+            default:
+                return false;
+        }
+        if(to - from> (size >>> 3))
+            return false;
+        Arrays.fill(bits, 0L);
+        int[] rows= index.getSortedRows(column);
+        for(int i= from; i< to; i++)
+            bits[rows[i] >>> 6]|= 1L << rows[i];
+        return true;
+    }
+    
+    /**
+     * Evaluate a Rule: the cases matched by all its bound Conditions.
+     * @param r Rule to evaluate.
+     * @param bits Bitset receiving one bit per matching case.
+     * @throws UncleanDataSetException Rule references a metric missing from the DataSet.
+     */
+    public void evaluate(Rule r, long[] bits) throws UncleanDataSetException
+    {
+        evaluate(r, bits, 0, words, new Scratch(words));
+    }
+    
+    /**
+     * Evaluate a Rule over a range of cases: the cases matched by all its bound Conditions.
+     * @param r Rule to evaluate.
+     * @param bits Bitset receiving one bit per matching case of the range, indexed from <code>fromWord</code>.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     * @param scratch Work buffers, its temporary bitset is used for Conditions that are not cached.
+     * @throws UncleanDataSetException Rule references a metric missing from the DataSet.
+     */
+    private void evaluate(Rule r, long[] bits, int fromWord, int toWord, Scratch scratch) throws UncleanDataSetException
+    {
+        int length= toWord - fromWord;
+        fill(bits, fromWord, toWord);
+        for(Condition cond: r.getBoundConditions())
+        {
+            long[] condBits= cached(cond);
+            int offset= fromWord;
+            if(condBits== null)
+            {
+                condBits= scratch.temp;
+                offset= 0;
+                evaluate(cond, condBits, fromWord, toWord, scratch);
+            }
+            boolean any= false;
+            for(int w=0; w< length; w++)
+            {
+                bits[w]&= condBits[offset + w];
+                any|= bits[w]!= 0L;
+            }
+            if(!any)
+                return;
+        }
+    }
+    
+    /**
+     * Get the bitset of a Condition from the cache, evaluating it over its whole
+     * column and caching it if there is room left.
+     * @param cond Condition bound to a metric column.
+     * @return Bitset of the Condition or null if it is not cached. Must not be modified.
+     * @throws UncleanDataSetException Condition column does not exist in the DataSet.
+     */
+    private long[] cached(Condition cond) throws UncleanDataSetException
+    {
+        if(cache== null)
+            return null;
+        ConditionKey key= new ConditionKey(cond);
+        long[] bits= cache.get(key);
+        if(bits!= null || cache.size()>= cacheLimit)
+            return bits;
+        bits= new long[words];
+        evaluate(cond, bits);
+        long[] previous= cache.putIfAbsent(key, bits);
+        return previous== null? bits: previous;
+    }
+    
+    /**
+     * Test a RuleSet on the DataSet of this evaluator.
+     * @param rs RuleSet to test.
+     * @param mode Testing mode to perform.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    public void test(RuleSet rs, TestingMode mode) throws InvalidInputException
+    {
+        EvaluationResult result= new EvaluationResult(rs, EvaluationContext.current().withTestingMode(mode));
+        try
+        {
+            test(rs, result);
+        }
+        finally
+        {
+            rs.merge(result);
+        }
+    }
+    
+    /**
+     * Test a RuleSet on the DataSet of this evaluator and add measurements to a result.
+     * The testing mode of the result context is performed.
+     * @param rs RuleSet to test.
+     * @param result EvaluationResult of RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void test(RuleSet rs, EvaluationResult result) throws InvalidInputException
+    {
+        test(rs, result, 0, size);
+    }
+    
+    /**
+     * Test a RuleSet on a range of cases of the DataSet of this evaluator and add 
+     * measurements to a result. The testing mode of the result context is performed.
+     * Ranges are aligned on bitset words, so tests of adjacent ranges may run concurrently.
+     * @param rs RuleSet to test.
+     * @param result EvaluationResult of RuleSet to add measurements to.
+     * @param from Index of first case, inclusive, a multiple of 64.
+     * @param to Index of last case, exclusive, a multiple of 64 unless it is the DataSet size.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void test(RuleSet rs, EvaluationResult result, int from, int to) throws InvalidInputException
+    {
+        if(from< 0 || to> size || (from & 63)!= 0 || ((to & 63)!= 0 && to!= size))
+            throw new IllegalArgumentException("Cases "+from+" to "+to+" are not a range of whole bitset words.");
+        int fromWord= from >>> 6, toWord= (to + 63) >>> 6;
+        if(fromWord>= toWord)
+            return;
+        if(result.getContext().getTestingMode()== TestingMode.SEQUENTIAL)
+            sequentialTest(rs, result, fromWord, toWord);
+        else
+            votingTest(rs, result, fromWord, toWord);
+    }
+    
+    /**
+     * Test a RuleSet on a range of cases using {@link TestingMode#SEQUENTIAL} mode.
+     * @param rs RuleSet to test.
+     * @param result EvaluationResult to add measurements to.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private void sequentialTest(RuleSet rs, EvaluationResult result, int fromWord, int toWord) throws InvalidInputException
+    {
+        int length= toWord - fromWord;
+        long[] unclaimed= new long[length];
+        long[] match= new long[length];
+        Scratch scratch= new Scratch(length);
+        fill(unclaimed, fromWord, toWord);
+        int remaining= Math.min(size, toWord << 6) - (fromWord << 6);
+        
+        Rule[] rules= result.getRules();
+        for(int r=0; r<rules.length; r++)
+        {
+            if(remaining== 0)
+                break;
+            evaluate(rules[r], match, fromWord, toWord, scratch);
+            int matched= 0;
+            for(int w=0; w< length; w++)
+            {
+                match[w]&= unclaimed[w];
+                unclaimed[w]&= ~match[w];
+                matched+= Long.bitCount(match[w]);
+            }
+            result.addFailed(r, remaining - matched);
+            remaining-= matched;
+            if(matched== 0)
+                continue;
+            for(int c=0; c< classLabels.length; c++)
+            {
+                int count= count(match, classMasks[c], fromWord, toWord);
+                if(count> 0)
+                {
+                    classify(result, r, classLabels[c], count);
+                    rs.record(r, c, lineClasses[c], count, result);
+                }
+            }
+        }
+        for(int c=0; c< classLabels.length && remaining> 0; c++)
+        {
+            int count= count(unclaimed, classMasks[c], fromWord, toWord);
+            if(count> 0)
+            {
+                rs.record(-1, c, lineClasses[c], count, result);
+                remaining-= count;
+            }
+        }
+    }
+    
+    /**
+     * Test a RuleSet on a range of cases using {@link TestingMode#VOTING} mode.
+     * @param rs RuleSet to test.
+     * @param result EvaluationResult to add measurements to.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private void votingTest(RuleSet rs, EvaluationResult result, int fromWord, int toWord) throws InvalidInputException
+    {
+        int k= classLabels.length;
+        int defaultVote= checkVote(rs.classIndex(rs.getDefaultStringCond()), rs.getDefaultStringCond());
+        int[] votes= voteBuffers.poll();
+        if(votes== null)
+            votes= new int[Math.min(size, BLOCK) * (k + 1)];
+        try
+        {
+            votingTest(result, votes, defaultVote, fromWord, toWord);
+        }
+        finally
+        {
+            voteBuffers.offer(votes);
+        }
+    }
+    
+    /**
+     * Test a RuleSet on a range of cases using {@link TestingMode#VOTING} mode 
+     * with given vote counters, a block of cases at a time.
+     * @param result EvaluationResult to add measurements to.
+     * @param votes Vote counters of a block of cases per classification, followed by
+     * the last vote of each case of the block.
+     * @param defaultVote Index of default classification of RuleSet.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private void votingTest(EvaluationResult result, int[] votes, int defaultVote, int fromWord, int toWord) throws InvalidInputException
+    {
+        int k= classLabels.length, blockWords= BLOCK >>> 6;
+        long[] match= new long[Math.min(blockWords, toWord - fromWord)];
+        Scratch scratch= new Scratch(match.length);
+        int[] classVotes= new int[k];
+        int[] voting= new int[k];
+        int[] classes= dataset.getClassIndexes();
+        Rule[] rules= result.getRules();
+        for(int blockFrom= fromWord; blockFrom< toWord; blockFrom+= blockWords)
+        {
+            int blockTo= Math.min(toWord, blockFrom + blockWords);
+            int from= blockFrom << 6, length= Math.min(size, blockTo << 6) - from, last= length * k;
+            Arrays.fill(votes, 0, last, 0);
+            Arrays.fill(votes, last, last + length, defaultVote);
+            for(int row=0; row< length; row++)
+                votes[row * k + defaultVote]++;
+            
+            for(int i=0; i<rules.length; i++)
+            {
+                Rule r= rules[i];
+                evaluate(r, match, blockFrom, blockTo, scratch);
+                int matched= 0;
+                for(int c=0; c< k; c++)
+                {
+                    int count= count(match, classMasks[c], blockFrom, blockTo);
+                    if(count> 0)
+                    {
+                        classify(result, i, classLabels[c], count);
+                        classVotes[c]= checkVote(result.vote(r, c, lineClasses[c]), r.getStringClassification());
+                        matched+= count;
+                    }
+                }
+                result.addFailed(i, length - matched);
+                if(matched== 0)
+                    continue;
+                for(int w=0; w< blockTo - blockFrom; w++)
+                {
+                    long word= match[w];
+                    while(word!= 0L)
+                    {
+                        int row= (w << 6) + Long.numberOfTrailingZeros(word);
+                        int vote= classVotes[classes[from + row]];
+                        votes[row * k + vote]++;
+                        votes[last + row]= vote;
+                        word&= word - 1;
+                    }
+                }
+            }
+            
+            for(int row=0; row< length; row++)
+            {
+                System.arraycopy(votes, row * k, voting, 0, k);
+                int c= classes[from + row];
+                result.votingRecord(voting, c, lineClasses[c], votes[last + row]);
+            }
+        }
+    }
+    
+    /**
+     * Record classifications made by a Rule on matched cases.
+     * @param result EvaluationResult to add measurements to.
+     * @param r Index of Rule that matched the cases.
+     * @param lineClassification Actual classification of the cases.
+     * @param count Number of cases matched.
+     * @throws UncleanDataSetException Classifications cannot be compared.
+     */
+    private void classify(EvaluationResult result, int r, String lineClassification, int count) throws UncleanDataSetException
+    {
+        try
+        {
+            result.addClassified(r, lineClassification, count);
+        }
+        catch(Exception e)
+        {
+            throw new UncleanDataSetException(lineClassification+" is not a valid DataSet classification.");
+        }
+    }
+    
+    /**
+     * Check the classification index voted for.
+     * @param index Index of classification in the classifications list.
+     * @param classification Classification voted for.
+     * @return Index of classification.
+     * @throws UncleanDataSetException Classification is unknown.
+     */
+    private static int checkVote(int index, String classification) throws UncleanDataSetException
+    {
+        if(index== -1)
+            throw new UncleanDataSetException(classification+" is not a known classification.");
+        return index;
+    }
+    
+    /**
+     * Set the bits of all cases of a range in a bitset.
+     * @param bits Bitset of the range, indexed from <code>fromWord</code>.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     */
+    private void fill(long[] bits, int fromWord, int toWord)
+    {
+        Arrays.fill(bits, 0, toWord - fromWord, -1L);
+        if((size & 63)!= 0 && toWord== words)
+            bits[toWord - fromWord - 1]= (1L << size) - 1;
+    }
+    
+    /**
+     * Count the cases of a range set in both a bitset of the range and a bitset of all cases.
+     * @param bits Bitset of the range, indexed from <code>fromWord</code>.
+     * @param mask Bitset of all cases.
+     * @param fromWord First word of cases, inclusive.
+     * @param toWord Last word of cases, exclusive.
+     * @return Number of common cases.
+     */
+    private static int count(long[] bits, long[] mask, int fromWord, int toWord)
+    {
+        int count= 0;
+        for(int w=fromWord; w< toWord; w++)
+            count+= Long.bitCount(bits[w - fromWord] & mask[w]);
+        return count;
+    }
+    
+    /**
+     * Work buffers of a test.
+     */
+    private class Scratch
+    {
+        /**
+         * Bitset of Conditions that are not cached.
+         */
+        final long[] temp;
+        /**
+         * Values of a block of cases decoded from a column stored off the Java heap.
+         */
+        final double[] values= new double[Math.min(size, BLOCK)];
+        /**
+         * Bits of a block of cases.
+         */
+        final long[] blockBits= new long[(Math.min(size, BLOCK) + 63) >>> 6];
+        
+        /**
+         * Scratch constructor.
+         * @param length Number of words of the temporary bitset.
+         */
+        Scratch(int length)
+        {
+            temp= new long[length];
+        }
+    }
+}
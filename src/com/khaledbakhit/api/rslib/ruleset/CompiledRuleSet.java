@@ -0,0 +1,683 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.dataset.DataSetLine;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.ruleset.Condition.Operator;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * CompiledRuleSet is a RuleSet classifier compiled into a generated class.<br/>
+ * 
+ * Each Rule becomes an <code>if</code> statement over a <code>double[]</code> row
+ * holding metric values in metrics file order, as read by 
+ * {@link com.khaledbakhit.api.rslib.dataset.DataSetReader#getNext(double[])}.
+ * The generated source is compiled in memory through <code>javax.tools</code>, 
+ * so the JIT compiler can inline the whole RuleSet. If no Java compiler is 
+ * available the Rules are interpreted instead.<br/>
+ * 
+ * A CompiledRuleSet predicts the same classifications as 
+ * {@link RuleSet#test(DataSetLine, TestingMode)} without recording any measurement.
+ * It is a snapshot: Rules modified after compiling are not reflected.
+ * RuleSets evaluated with {@link RuleSet.EvaluationStrategy#COMPILED} record
+ * their measurements from the Rules it finds matching each line.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public abstract class CompiledRuleSet 
+{
+    /**
+     * Package of generated classes.
+     */
+    private static final String PACKAGE= "com.khaledbakhit.api.rslib.ruleset.generated";
+    /**
+     * Number of Rules per generated method, keeps methods small enough for the JIT compiler.
+     */
+    private static final int RULES_PER_METHOD= 32;
+    /**
+     * Number of classes generated.
+     */
+    private static int generatedCount= 0;
+    /**
+     * Non-numeric Conditions, tested by generated classes through {@link Condition#test(double)}.
+     */
+    protected Condition[] conditions;
+    /**
+     * Rules compiled, in RuleSet order.
+     */
+    private Rule[] rules;
+    /**
+     * Snapshots of the Rules compiled, in RuleSet order.
+     */
+    private RuleSnapshot[] snapshots;
+    /**
+     * Classification of each Rule.
+     */
+    private String[] labels;
+    /**
+     * Numeric classification of each Rule, -1 if not numeric.
+     */
+    private int[] numbers;
+    /**
+     * Index of the classification of each Rule in the classifications list.
+     */
+    private int[] classIndexes;
+    /**
+     * Default classification.
+     */
+    private String defaultLabel;
+    /**
+     * Index of default classification in the classifications list.
+     */
+    private int defaultIndex;
+    /**
+     * Metric columns referenced by Rules.
+     */
+    private int[] columns;
+    /**
+     * Minimum length of a row.
+     */
+    private int width;
+    /**
+     * Flag indicating whether all Conditions are numeric.
+     */
+    private boolean numericOnly;
+    /**
+     * Flag indicating whether Rules are compiled into a generated class.
+     */
+    private boolean generated;
+    
+    /**
+     * CompiledRuleSet constructor, used by generated classes.
+     */
+    protected CompiledRuleSet()
+    {
+    }
+    
+    /**
+     * Compile the Rules of a RuleSet.
+     * @param rs RuleSet to compile.
+     * @return CompiledRuleSet of RuleSet.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    public static CompiledRuleSet compile(RuleSet rs) throws InvalidInputException
+    {
+        List<Rule> list= rs.getRules();
+        Rule[] rules= list.toArray(new Rule[list.size()]);
+        List<Condition> nonNumeric= new java.util.LinkedList<Condition>();
+        String name;
+        synchronized(CompiledRuleSet.class)
+        {
+            name= "GeneratedRuleSet"+ generatedCount++;
+        }
+        String source= generateSource(name, rules, nonNumeric);
+        CompiledRuleSet compiled= null;
+        try
+        {
+            compiled= generate(PACKAGE+"."+name, source);
+        }
+        catch(Exception e)
+        {
+            Debugger.printlnWarning("failed to generate RuleSet classifier: "+e.getMessage());
+        }
+        if(compiled== null)
+            compiled= new InterpretedRuleSet(rules);
+        else
+            compiled.generated= true;
+        compiled.init(rs, rules, nonNumeric.toArray(new Condition[nonNumeric.size()]));
+        return compiled;
+    }
+    
+    /**
+     * Initialize the classifications and metric columns of compiled Rules.
+     * @param rs RuleSet compiled.
+     * @param rules Rules of RuleSet.
+     * @param nonNumeric Non-numeric Conditions referenced by generated class.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    private void init(RuleSet rs, Rule[] rules, Condition[] nonNumeric) throws InvalidInputException
+    {
+        this.rules= rules;
+        this.conditions= nonNumeric;
+        snapshots= new RuleSnapshot[rules.length];
+        labels= new String[rules.length];
+        numbers= new int[rules.length];
+        classIndexes= new int[rules.length];
+        boolean[] referenced= new boolean[0];
+        numericOnly= true;
+        for(int r=0; r<rules.length; r++)
+        {
+            snapshots[r]= new RuleSnapshot(rules[r]);
+            labels[r]= rules[r].getStringClassification();
+            numbers[r]= rules[r].getClassification();
+            classIndexes[r]= rules[r].getClassIndex();
+            for(int col: rules[r].getBoundColumns())
+            {
+                if(col >= referenced.length)
+                    referenced= Arrays.copyOf(referenced, col+1);
+                referenced[col]= true;
+            }
+            for(Condition cond: rules[r].getBoundConditions())
+                numericOnly&= cond.isNumeric;
+        }
+        int n= 0;
+        for(boolean b: referenced)
+            if(b)
+                n++;
+        columns= new int[n];
+        for(int col=0, k=0; col<referenced.length; col++)
+            if(referenced[col])
+                columns[k++]= col;
+        width= referenced.length;
+        defaultLabel= rs.getDefaultStringCond();
+        defaultIndex= rs.classIndex(defaultLabel);
+    }
+    
+    /**
+     * Find the first Rule matching a row.
+     * @param row Metric values in metrics file order.
+     * @return Index of first Rule matching or -1 if none.
+     */
+    public abstract int match(double[] row);
+    
+    /**
+     * Find the last Rule matching a row.
+     * @param row Metric values in metrics file order.
+     * @return Index of last Rule matching or -1 if none.
+     */
+    public abstract int lastMatch(double[] row);
+    
+    /**
+     * Find all Rules matching a row.
+     * @param row Metric values in metrics file order.
+     * @param matched Array receiving the indexes of Rules matching in RuleSet order,
+     * at least as long as the number of Rules.
+     * @return Number of Rules matching.
+     */
+    public abstract int matchAll(double[] row, int[] matched);
+    
+    /**
+     * Classify a row using {@link TestingMode#SEQUENTIAL} mode.
+     * @param row Metric values in metrics file order.
+     * @return Index of predicted classification in the classifications list or -1 if not listed.
+     */
+    public int classify(double[] row)
+    {
+        int m= match(row);
+        return m== -1? defaultIndex: classIndexes[m];
+    }
+    
+    /**
+     * Test a DataSet line. No measurement is recorded.
+     * @param line DataSet single line to test.
+     * @param mode Testing mode to perform.
+     * @return Classification predicted or null if line is invalid.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     * @see RuleSet#test(DataSetLine, TestingMode) 
+     * @see EvaluationContext#current() 
+     */
+    public String test(DataSetLine line, TestingMode mode) throws InvalidInputException
+    {
+        return test(line, EvaluationContext.current().withTestingMode(mode));
+    }
+    
+    /**
+     * Test a DataSet line. No measurement is recorded.
+     * @param line DataSet single line to test.
+     * @param context Context of evaluation.
+     * @return Classification predicted or null if line is invalid.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+    public String test(DataSetLine line, EvaluationContext context) throws InvalidInputException
+    {
+        if(line== null)
+            return null;
+        if(context.getTestingMode()== TestingMode.SEQUENTIAL)
+        {
+            int m= match(line, true);
+            return m== -1? defaultLabel: labels[m];
+        }
+        /*
+         * A RuleSet tested in VOTING mode returns the classification of the last vote.
+         */
+        int m= match(line, false);
+        if(m== -1)
+            return defaultLabel;
+        if(context.isMatchingWithinRange())
+        {
+            int lineClass= RuleSet.parseClass(line.getClassification());
+            int classification= numbers[m];
+            if(classification!= -1 && lineClass!= -1 && classification!= lineClass
+                    && context.recorded(classification, lineClass)== lineClass)
+                return line.getClassification();
+        }
+        return labels[m];
+    }
+    
+    /**
+     * Find the first or last Rule matching a DataSet line. Lines with non-numeric
+     * values are tested Rule by Rule.
+     * @param line DataSet single line to test.
+     * @param first true for first Rule matching, false for last.
+     * @return Index of Rule matching or -1 if none.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+    int match(DataSetLine line, boolean first) throws InvalidInputException
+    {
+        double[] row= row(line);
+        if(row!= null)
+            return first? match(row): lastMatch(row);
+        int m= -1;
+        for(int r=0; r<rules.length; r++)
+            if(rules[r].matches(line))
+            {
+                m= r;
+                if(first)
+                    break;
+            }
+        return m;
+    }
+    
+    /**
+     * Find all Rules matching a DataSet line. Lines with non-numeric values are tested Rule by Rule.
+     * @param line DataSet single line to test.
+     * @param matched Array receiving the indexes of Rules matching in RuleSet order,
+     * at least as long as the number of Rules.
+     * @return Number of Rules matching.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+    int matchAll(DataSetLine line, int[] matched) throws InvalidInputException
+    {
+        double[] row= row(line);
+        if(row!= null)
+            return matchAll(row, matched);
+        int n= 0;
+        for(int r=0; r<rules.length; r++)
+            if(rules[r].matches(line))
+                matched[n++]= r;
+        return n;
+    }
+    
+    /**
+     * Parse the metric values of a DataSet line referenced by the Rules.
+     * @param line DataSet single line.
+     * @return Metric values in metrics file order or null if the line must be tested Rule by Rule.
+     */
+    private double[] row(DataSetLine line)
+    {
+        String[] metrics= line.getMetrics();
+        if(!numericOnly || metrics== null || metrics.length< width)
+            return null;
+        double[] row= new double[width];
+        try
+        {
+            for(int col: columns)
+                row[col]= Double.parseDouble(metrics[col]);
+            return row;
+        }
+        catch(NumberFormatException e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Check if the Rules compiled are still those of a RuleSet, in the same order and unchanged.
+     * @param list Rules of RuleSet.
+     * @return true if same Rules, false otherwise.
+     */
+    boolean isCurrent(List<Rule> list)
+    {
+        if(list.size()!= rules.length)
+            return false;
+        int r= 0;
+        for(Rule rule: list)
+            if(rule!= rules[r] || !snapshots[r++].isCurrent())
+                return false;
+        return true;
+    }
+    
+    /**
+     * Get the Rules compiled.
+     * @return Rules in RuleSet order. Must not be modified.
+     */
+    Rule[] getRules()
+    {
+        return rules;
+    }
+    
+    /**
+     * Check if Rules are compiled into a generated class.
+     * @return true if generated, false if Rules are interpreted.
+     */
+    public boolean isGenerated()
+    {
+        return generated;
+    }
+    /**
+     * Get the number of Rules compiled.
+     * @return Number of Rules.
+     */
+    public int getNumberofRules()
+    {
+        return rules.length;
+    }
+    
+    /**
+     * Generate the source of a class classifying rows with the given Rules.
+     * @param name Simple name of class.
+     * @param rules Rules to compile.
+     * @param nonNumeric List to collect non-numeric Conditions into.
+     * @return Java source.
+     */
+    private static String generateSource(String name, Rule[] rules, List<Condition> nonNumeric)
+    {
+        String[] tests= new String[rules.length];
+        for(int r=0; r<rules.length; r++)
+        {
+            int[] cols= rules[r].getBoundColumns();
+            Condition[] conds= rules[r].getBoundConditions();
+            StringBuilder test= new StringBuilder();
+            for(int k=0; k<conds.length; k++)
+            {
+                if(k> 0)
+                    test.append(" && ");
+                if(conds[k].isNumeric)
+                    test.append("m[").append(cols[k]).append("] ").append(symbol(conds[k].getOperator()))
+                            .append(' ').append(literal(conds[k].numeric_value));
+                else
+                {
+                    test.append("conditions[").append(nonNumeric.size()).append("].test(m[").append(cols[k]).append("])");
+                    nonNumeric.add(conds[k]);
+                }
+            }
+            tests[r]= test.toString();
+        }
+        
+        StringBuilder src= new StringBuilder();
+        src.append("package ").append(PACKAGE).append(";\n\n");
+        src.append("public final class ").append(name).append(" extends ").append(CompiledRuleSet.class.getName()).append("\n{\n");
+        int methods= (rules.length + RULES_PER_METHOD - 1)/ RULES_PER_METHOD;
+        generateDispatch(src, "match", methods, true);
+        generateDispatch(src, "lastMatch", methods, false);
+        src.append("    @Override\n    public int matchAll(double[] m, int[] matched)\n    {\n");
+        src.append("        int n= 0;\n");
+        for(int i=0; i<methods; i++)
+            src.append("        n= matchAll").append(i).append("(m, matched, n);\n");
+        src.append("        return n;\n    }\n");
+        for(int i=0; i<methods; i++)
+        {
+            int from= i*RULES_PER_METHOD, to= Math.min(from+RULES_PER_METHOD, rules.length);
+            src.append("    private int match").append(i).append("(double[] m)\n    {\n");
+            int r;
+            for(r= from; r<to && tests[r].length()> 0; r++)
+                src.append("        if(").append(tests[r]).append(")\n            return ").append(r).append(";\n");
+            src.append("        return ").append(r<to? r: -1).append(";\n    }\n");
+            
+            src.append("    private int lastMatch").append(i).append("(double[] m)\n    {\n");
+            for(r= to-1; r>=from && tests[r].length()> 0; r--)
+                src.append("        if(").append(tests[r]).append(")\n            return ").append(r).append(";\n");
+            src.append("        return ").append(r>=from? r: -1).append(";\n    }\n");
+            
+            src.append("    private int matchAll").append(i).append("(double[] m, int[] matched, int n)\n    {\n");
+            for(r= from; r<to; r++)
+                if(tests[r].length()> 0)
+                    src.append("        if(").append(tests[r]).append(")\n            matched[n++]= ").append(r).append(";\n");
+                else
+                    src.append("        matched[n++]= ").append(r).append(";\n");
+            src.append("        return n;\n    }\n");
+        }
+        src.append("}\n");
+        return src.toString();
+    }
+    
+    /**
+     * Generate a method trying the Rules of each generated method in turn.
+     * @param src Source to append to.
+     * @param method Name of method.
+     * @param methods Number of generated methods.
+     * @param forward true to try Rules in RuleSet order, false for reverse order.
+     */
+    private static void generateDispatch(StringBuilder src, String method, int methods, boolean forward)
+    {
+        src.append("    @Override\n    public int ").append(method).append("(double[] m)\n    {\n");
+        src.append("        int r;\n");
+        for(int i=0; i<methods; i++)
+        {
+            int k= forward? i: methods-1-i;
+            src.append("        if((r= ").append(method).append(k).append("(m))!= -1)\n            return r;\n");
+        }
+        src.append("        return -1;\n    }\n");
+    }
+    
+    /**
+     * Get the Java symbol of an operator.
+     * @param op Operator.
+     * @return Java comparison operator.
+     */
+    private static String symbol(Operator op)
+    {
+        switch(op)
+        {
+            case EQUAL: return "==";
+            case NOT_EQUAL: return "!=";
+            case LESS: return "<";
+            case LESS_EQUAL: return "<=";
+            case GREATER: return ">";
+            default: return ">=";
+        }
+    }
+    
+    /**
+     * Get the Java literal of a number.
+     * @param value Number.
+     * @return Java literal representing number exactly.
+     */
+    private static String literal(double value)
+    {
+        if(Double.isNaN(value))
+            return "Double.NaN";
+        if(Double.isInfinite(value))
+            return value > 0? "Double.POSITIVE_INFINITY": "Double.NEGATIVE_INFINITY";
+        return "("+Double.toString(value)+")";
+    }
+    
+    /**
+     * Compile a generated source in memory and instantiate its class.
+     * @param className Fully qualified name of class.
+     * @param source Java source of class.
+     * @return Instance of class or null if no Java compiler is available.
+     * @throws Exception Unable to compile or load class.
+     */
+    private static CompiledRuleSet generate(String className, final String source) throws Exception
+    {
+        JavaCompiler compiler= ToolProvider.getSystemJavaCompiler();
+        if(compiler== null)
+            return null;
+        final Map<String, ByteArrayOutputStream> classes= new HashMap<String, ByteArrayOutputStream>();
+        StandardJavaFileManager standard= compiler.getStandardFileManager(null, null, null);
+        JavaFileManager manager= new ForwardingJavaFileManager<StandardJavaFileManager>(standard)
+        {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, final String name, JavaFileObject.Kind kind, FileObject sibling)
+            {
+                return new SimpleJavaFileObject(URI.create("mem:///"+name.replace('.', '/')+kind.extension), kind)
+                {
+                    @Override
+                    public OutputStream openOutputStream()
+                    {
+                        ByteArrayOutputStream out= new ByteArrayOutputStream();
+                        classes.put(name, out);
+                        return out;
+                    }
+                };
+            }
+        };
+        JavaFileObject file= new SimpleJavaFileObject(URI.create("string:///"+className.replace('.', '/')+".java"), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return source;
+            }
+        };
+        StringWriter log= new StringWriter();
+        List<String> options= Arrays.asList("-classpath", classPath(), "-g:none", "-nowarn");
+        boolean compiled;
+        try
+        {
+            compiled= compiler.getTask(log, manager, null, options, null, Arrays.asList(file)).call();
+        }
+        finally
+        {
+            manager.close();
+        }
+        if(!compiled)
+            throw new IOException(log.toString());
+        
+        ClassLoader loader= new ClassLoader(CompiledRuleSet.class.getClassLoader())
+        {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException
+            {
+                ByteArrayOutputStream out= classes.get(name);
+                if(out== null)
+                    throw new ClassNotFoundException(name);
+                byte[] bytes= out.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        return (CompiledRuleSet) loader.loadClass(className).getDeclaredConstructor().newInstance();
+    }
+    
+    /**
+     * Get the class path to compile generated classes with.
+     * @return Class path containing this library.
+     */
+    private static String classPath()
+    {
+        String path= System.getProperty("java.class.path");
+        try
+        {
+            File library= new File(CompiledRuleSet.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return library.getPath() + File.pathSeparator + path;
+        }
+        catch(Exception e)
+        {
+            return path;
+        }
+    }
+    
+    /**
+     * CompiledRuleSet interpreting Rules, used when no Java compiler is available.
+     */
+    private static class InterpretedRuleSet extends CompiledRuleSet
+    {
+        /**
+         * Metric columns of each Rule.
+         */
+        private final int[][] ruleColumns;
+        /**
+         * Conditions of each Rule.
+         */
+        private final Condition[][] ruleConditions;
+        
+        /**
+         * InterpretedRuleSet constructor.
+         * @param rules Rules to interpret.
+         */
+        InterpretedRuleSet(Rule[] rules)
+        {
+            ruleColumns= new int[rules.length][];
+            ruleConditions= new Condition[rules.length][];
+            for(int r=0; r<rules.length; r++)
+            {
+                ruleColumns[r]= rules[r].getBoundColumns();
+                ruleConditions[r]= rules[r].getBoundConditions();
+            }
+        }
+        
+        @Override
+        public int match(double[] row)
+        {
+            for(int r=0; r<ruleColumns.length; r++)
+                if(matches(r, row))
+                    return r;
+            return -1;
+        }
+        
+        @Override
+        public int lastMatch(double[] row)
+        {
+            for(int r=ruleColumns.length-1; r>=0; r--)
+                if(matches(r, row))
+                    return r;
+            return -1;
+        }
+        
+        @Override
+        public int matchAll(double[] row, int[] matched)
+        {
+            int n= 0;
+            for(int r=0; r<ruleColumns.length; r++)
+                if(matches(r, row))
+                    matched[n++]= r;
+            return n;
+        }
+        
+        /**
+         * Check whether a row matches a Rule.
+         * @param r Index of Rule.
+         * @param row Metric values in metrics file order.
+         * @return true if match, false otherwise.
+         */
+        private boolean matches(int r, double[] row)
+        {
+            int[] cols= ruleColumns[r];
+            Condition[] conds= ruleConditions[r];
+            for(int k=0; k<cols.length; k++)
+                if(!conds[k].test(row[cols[k]]))
+                    return false;
+            return true;
+        }
+    }
+}
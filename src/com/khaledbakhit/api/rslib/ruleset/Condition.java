@@ -21,7 +21,9 @@ package com.khaledbakhit.api.rslib.ruleset;
 
 import com.khaledbakhit.api.rslib.Program;
 import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Condition class can either represent a classification or a metrics formula (Rule condition).
@@ -70,6 +72,16 @@ public class Condition implements java.io.Serializable, Comparable<Condition>
      * @since 4.0
      */
     public boolean isNumeric;
+    /**
+     * Compiled form of the operator of this Condition.
+     * @since 4.1
+     */
+    private Operator op;
+    /**
+     * Index of the metric column this Condition is bound to, -1 if unbound.
+     * @since 4.1
+     */
+    private int column= -1;
 
     /**
      * Condition constructor.
@@ -84,16 +96,7 @@ public class Condition implements java.io.Serializable, Comparable<Condition>
         this.metric = metric;
         this.operator = operator;
         this.value = value;
-        try
-        {
-            numeric_value= Double.parseDouble(value);
-            isNumeric= true;
-        }
-        catch(Exception e)
-        {
-            isNumeric= false;
-            numeric_value= -1.0;
-        }
+        compile();
     }
 
     /**
@@ -125,6 +128,91 @@ public class Condition implements java.io.Serializable, Comparable<Condition>
         return parent;
     }
     
+    /**
+     * Compile the operator and value of this Condition into their primitive form.
+     * Must be called again if {@link #operator} or {@link #value} are modified directly.
+     * @since 4.1
+     */
+    public final void compile()
+    {
+        if(isClassification)
+            return;
+        op= Operator.parse(operator);
+        try
+        {
+            numeric_value= Double.parseDouble(value);
+            isNumeric= true;
+        }
+        catch(Exception e)
+        {
+            isNumeric= false;
+            numeric_value= -1.0;
+        }
+    }
+    /**
+     * Bind this Condition to the column of its metric.
+     * Must be called again if {@link #metric} is modified directly.
+     * @param metricList List containing metrics in DataSet column order.
+     * @since 4.1
+     */
+    public void bind(List<String> metricList)
+    {
+        column= isClassification? -1 : metricList.indexOf(metric);
+    }
+    /**
+     * Get the index of the metric column this Condition is bound to.
+     * @return Column index or -1 if unbound.
+     * @see #bind(java.util.List) 
+     * @since 4.1
+     */
+    public int getColumn()
+    {
+        return column;
+    }
+    /**
+     * Get the compiled operator of this Condition.
+     * @return Compiled operator or null if this Condition is a classification.
+     * @since 4.1
+     */
+    public Operator getOperator()
+    {
+        return op;
+    }
+    /**
+     * Test a DataSet value against this Condition.
+     * Values are compared numerically if both are numeric, lexicographically otherwise.
+     * @param dsVal Value at the metric column in DataSet.
+     * @return true if value satisfies this Condition, false otherwise.
+     * @since 4.1
+     */
+    public boolean test(String dsVal)
+    {
+        if(isNumeric)
+        {
+            try
+            {
+                return op.test(Double.parseDouble(dsVal), numeric_value);
+            }
+            catch(NumberFormatException e)
+            {}
+        }
+        return op.test(dsVal.compareTo(value));
+    }
+    /**
+     * Test a numeric DataSet value against this Condition.
+     * Non-numeric Conditions compare the value as formatted by {@link ColumnarDataSet#format(double)},
+     * so cases of a ColumnarDataSet are decided as {@link #test(String)} decides its DataSetLines.
+     * @param dsVal Value at the metric column in DataSet.
+     * @return true if value satisfies this Condition, false otherwise.
+     * @since 4.1
+     */
+    public boolean test(double dsVal)
+    {
+        if(!isNumeric)
+            return op.test(ColumnarDataSet.format(dsVal).compareTo(value));
+        return op.test(dsVal, numeric_value);
+    }
+    
     @Override
     public int compareTo(Condition o) 
     {
@@ -262,6 +350,7 @@ public class Condition implements java.io.Serializable, Comparable<Condition>
                     value = new_value;
                 }
             }
+            compile();
         }
 
     }
@@ -352,4 +441,72 @@ public class Condition implements java.io.Serializable, Comparable<Condition>
                 && operator.equals(cond.operator)
                 && value.equals(cond.value);
     }
+    
+    /**
+     * Compiled Condition operators.
+     * @since 4.1
+     */
+    public enum Operator
+    {
+        EQUAL, NOT_EQUAL, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL;
+        
+        /**
+         * Parse the given String operator. Unknown operators are treated as 
+         * {@link #GREATER_EQUAL}.
+         * @param operator String operator: =, ==, <, <=, =<, >, >=, =>, !=.
+         * @return Compiled operator.
+         */
+        public static Operator parse(String operator)
+        {
+            if(operator.equals("=") || operator.equals("=="))
+                return EQUAL;
+            else if(operator.equals("<"))
+                return LESS;
+            else if(operator.equals("<=") || operator.equals("=<"))
+                return LESS_EQUAL;
+            else if(operator.equals(">"))
+                return GREATER;
+            else if(operator.equals("!="))
+                return NOT_EQUAL;
+            else
+                return GREATER_EQUAL;
+        }
+        
+        /**
+         * Apply this operator on two numbers.
+         * @param number Left hand side value.
+         * @param val Right hand side value.
+         * @return Result of the comparison.
+         */
+        public boolean test(double number, double val)
+        {
+            switch(this)
+            {
+                case EQUAL: return number==val;
+                case NOT_EQUAL: return number!=val;
+                case LESS: return number<val;
+                case LESS_EQUAL: return number<=val;
+                case GREATER: return number>val;
+                default: return number>=val;
+            }
+        }
+        
+        /**
+         * Apply this operator on the result of a comparison.
+         * @param compared Result of a <code>compareTo</code> call.
+         * @return Result of the comparison.
+         */
+        public boolean test(int compared)
+        {
+            switch(this)
+            {
+                case EQUAL: return compared==0;
+                case NOT_EQUAL: return compared!=0;
+                case LESS: return compared<0;
+                case LESS_EQUAL: return compared<=0;
+                case GREATER: return compared>0;
+                default: return compared>=0;
+            }
+        }
+    }
 }
\ No newline at end of file
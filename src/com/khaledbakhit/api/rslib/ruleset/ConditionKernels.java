@@ -0,0 +1,509 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.dataset.EncodedColumn;
+
+/**
+ * ConditionKernels contains the comparison loops that evaluate a numeric Condition
+ * over a metric column into a bitset holding one bit per case.<br/>
+ * 
+ * There is one loop per operator so that the comparison is resolved once per 
+ * column rather than once per case. Whole 64 case words are processed with a 
+ * fixed trip count and a branch-free compare, which lets the JIT unroll the loop
+ * and keeps its speed independent of how many cases match. The remaining cases 
+ * of a partial last word are processed separately.<br/>
+ * 
+ * Whole words of numeric columns can instead be compared with the Java Vector API
+ * by <code>VectorConditionKernels</code>. It is kept out of this source tree, in 
+ * <code>src-vector</code>, since it needs Java 16 or later and the
+ * <code>jdk.incubator.vector</code> module to compile. If it is on the class path 
+ * and the module is added, it is loaded reflectively once and only used if it 
+ * agrees with the scalar loops on a probe column. The scalar loops are kept otherwise.<br/>
+ * 
+ * Encoded columns are evaluated in the domain of their representation: whole
+ * number columns against the range of whole numbers matching the comparison,
+ * dictionary columns by looking codes up in the set of matching codes.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class ConditionKernels 
+{
+    /**
+     * Bound of whole number ranges, beyond any <code>int</code> value.
+     */
+    private static final long WHOLE= 1L << 40;
+    /**
+     * Name of the class comparing whole words with the Java Vector API.
+     */
+    private static final String VECTOR_KERNELS= "com.khaledbakhit.api.rslib.ruleset.VectorConditionKernels";
+    /**
+     * Vector API comparison loops or null if not available.
+     */
+    private static final WordKernel VECTOR= loadVector();
+    
+    /**
+     * Comparison loops evaluating a numeric Condition over whole 64 case words.
+     * @since 4.1
+     */
+    interface WordKernel
+    {
+        /**
+         * Evaluate a numeric comparison over whole words.
+         * @param op Comparison operator.
+         * @param column Metric values.
+         * @param from First case, inclusive.
+         * @param to Last case, exclusive. Must be a multiple of 64 from <code>from</code>.
+         * @param v Value compared against.
+         * @param bits Bitset receiving one bit per matching case, indexed from <code>from</code>.
+         */
+        void compare(Condition.Operator op, double[] column, int from, int to, double v, long[] bits);
+    }
+    
+    /**
+     * Check whether whole words of numeric columns are compared with the Java Vector API.
+     * @return True if the <code>jdk.incubator.vector</code> module is used, false otherwise.
+     */
+    public static boolean isVectorized()
+    {
+        return VECTOR!= null;
+    }
+    
+    /**
+     * Evaluate a numeric comparison over a range of cases of a column.
+     * @param op Comparison operator.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving one bit per matching case, indexed from <code>from</code>.
+     */
+    public static void compare(Condition.Operator op, double[] column, int from, int to, double v, long[] bits)
+    {
+        int fullTo= from + ((to - from) & ~63);
+        if(VECTOR!= null)
+            VECTOR.compare(op, column, from, fullTo, v, bits);
+        else
+            scalar(op, column, from, fullTo, v, bits);
+        if(fullTo< to)
+        {
+            long word= 0L;
+            for(int row= fullTo; row< to; row++)
+                word|= (op.test(column[row], v)? 1L: 0L) << (row - fullTo);
+            bits[(fullTo - from) >>> 6]= word;
+        }
+    }
+    
+    /**
+     * Evaluate a numeric comparison over whole words with the scalar loops.
+     * @param op Comparison operator.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive. Must be a multiple of 64 from <code>from</code>.
+     * @param v Value compared against.
+     * @param bits Bitset receiving one bit per matching case, indexed from <code>from</code>.
+     */
+    private static void scalar(Condition.Operator op, double[] column, int from, int to, double v, long[] bits)
+    {
+        switch(op)
+        {
+            case EQUAL:
+                equal(column, from, to, v, bits);
+                break;
+            case NOT_EQUAL:
+                notEqual(column, from, to, v, bits);
+                break;
+            case LESS:
+                less(column, from, to, v, bits);
+                break;
+            case LESS_EQUAL:
+                lessEqual(column, from, to, v, bits);
+                break;
+            case GREATER:
+                greater(column, from, to, v, bits);
+                break;
+            default:
+                greaterEqual(column, from, to, v, bits);
+        }
+    }
+    
+    /**
+     * Evaluate a bound Condition over a range of cases of a column.
+     * @param cond Condition bound to a metric column.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param bits Bitset receiving one bit per matching case, indexed from <code>from</code>.
+     * @since 4.1
+     */
+    public static void scan(Condition cond, double[] column, int from, int to, long[] bits)
+    {
+        if(cond.isNumeric)
+        {
+            compare(cond.getOperator(), column, from, to, cond.numeric_value, bits);
+            return;
+        }
+        for(int w=0, base=from; base< to; w++, base+= 64)
+        {
+            int end= Math.min(64, to - base);
+            long word= 0L;
+            for(int j=0; j< end; j++)
+                if(cond.test(column[base+j]))
+                    word|= 1L << j;
+            bits[w]= word;
+        }
+    }
+    
+    /**
+     * Load the Vector API comparison loops.
+     * @return Vector API comparison loops or null if not available or not agreeing with the scalar loops.
+     */
+    private static WordKernel loadVector()
+    {
+        try
+        {
+            WordKernel kernel= (WordKernel) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+            double[] probe= new double[128];
+            for(int row=0; row< probe.length; row++)
+                probe[row]= row % 7== 0? Double.NaN: (row % 5) - 2;
+            long[] expected= new long[2], bits= new long[2];
+            for(Condition.Operator op: Condition.Operator.values())
+                for(double v: new double[]{ -1, 0, 0.5, Double.NaN })
+                {
+                    scalar(op, probe, 0, probe.length, v, expected);
+                    kernel.compare(op, probe, 0, probe.length, v, bits);
+                    if(expected[0]!= bits[0] || expected[1]!= bits[1])
+                        return null;
+                }
+            return kernel;
+        }
+        catch(Exception e)
+        {
+            return null;
+        }
+        catch(LinkageError e)
+        {
+            //VectorConditionKernels or jdk.incubator.vector module not available.
+            return null;
+        }
+    }
+    
+    /**
+     * Evaluate a numeric comparison over the first cases of an encoded column
+     * without decoding its values.
+     * @param op Comparison operator.
+     * @param column Encoded metric values.
+     * @param size Number of cases.
+     * @param v Value compared against.
+     * @param bits Bitset receiving one bit per matching case, indexed by case.
+     * @return True if evaluated, false if the column must be decoded.
+     * @since 4.1
+     */
+    public static boolean compare(Condition.Operator op, EncodedColumn column, int size, double v, long[] bits)
+    {
+        boolean negate= op== Condition.Operator.NOT_EQUAL;
+        switch(column.getType())
+        {
+            case BYTE:
+            {
+                long[] r= range(op, v);
+                range(((EncodedColumn.ByteColumn) column).getValues(), size, r[0], r[1] - r[0], negate, bits);
+                return true;
+            }
+            case SHORT:
+            {
+                long[] r= range(op, v);
+                range(((EncodedColumn.ShortColumn) column).getValues(), size, r[0], r[1] - r[0], negate, bits);
+                return true;
+            }
+            case INT:
+            {
+                long[] r= range(op, v);
+                range(((EncodedColumn.IntColumn) column).getValues(), size, r[0], r[1] - r[0], negate, bits);
+                return true;
+            }
+            case DICTIONARY:
+            {
+                EncodedColumn.DictionaryColumn dictionary= (EncodedColumn.DictionaryColumn) column;
+                double[] values= dictionary.getDictionary();
+                long[] codes= new long[EncodedColumn.DICTIONARY_SIZE >>> 6];
+                for(int code=0; code< dictionary.getDictionarySize(); code++)
+                    if(op.test(values[code], v))
+                        codes[code >>> 6]|= 1L << code;
+                lookup(dictionary.getCodes(), size, codes, bits);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Get the range of whole numbers matching a comparison, bounded by 
+     * <code>&plusmn;2<sup>40</sup></code> which is beyond any <code>int</code>.
+     * {@link Condition.Operator#NOT_EQUAL} gives the range not matching it.
+     * @param op Comparison operator.
+     * @param v Value compared against.
+     * @return Lowest and highest matching numbers, the lowest is greater if none match.
+     */
+    private static long[] range(Condition.Operator op, double v)
+    {
+        if(v!= v)
+            return new long[]{1, 0};
+        double c= Math.max(-WHOLE, Math.min(WHOLE, v));
+        switch(op)
+        {
+            case EQUAL:
+            case NOT_EQUAL:
+                return c== Math.rint(c)? new long[]{(long) c, (long) c}: new long[]{1, 0};
+            case LESS:
+                return new long[]{-WHOLE, (long) Math.ceil(c) - 1};
+            case LESS_EQUAL:
+                return new long[]{-WHOLE, (long) Math.floor(c)};
+            case GREATER:
+                return new long[]{(long) Math.floor(c) + 1, WHOLE};
+            default:
+                return new long[]{(long) Math.ceil(c), WHOLE};
+        }
+    }
+    
+    /**
+     * Evaluate <code>lo &lt;= column[row] &lt;= lo + span</code> over a column.
+     * @param column Whole number values.
+     * @param size Number of cases.
+     * @param lo Lowest matching number.
+     * @param span Highest matching number minus lowest, negative if none match.
+     * @param negate True to keep cases out of range instead.
+     * @param bits Bitset receiving matches.
+     */
+    private static void range(byte[] column, int size, long lo, long span, boolean negate, long[] bits)
+    {
+        long flip= negate? -1L: 0L;
+        for(int w=0, base=0; base< size; w++, base+= 64)
+        {
+            int end= Math.min(64, size - base);
+            long word= 0L;
+            for(int j=0; j< end; j++)
+            {
+                long d= column[base+j] - lo;
+                word|= (~(d | (span - d)) >>> 63) << j;
+            }
+            bits[w]= (word ^ flip) & mask(end);
+        }
+    }
+    
+    /**
+     * Evaluate <code>lo &lt;= column[row] &lt;= lo + span</code> over a column.
+     * @param column Whole number values.
+     * @param size Number of cases.
+     * @param lo Lowest matching number.
+     * @param span Highest matching number minus lowest, negative if none match.
+     * @param negate True to keep cases out of range instead.
+     * @param bits Bitset receiving matches.
+     */
+    private static void range(short[] column, int size, long lo, long span, boolean negate, long[] bits)
+    {
+        long flip= negate? -1L: 0L;
+        for(int w=0, base=0; base< size; w++, base+= 64)
+        {
+            int end= Math.min(64, size - base);
+            long word= 0L;
+            for(int j=0; j< end; j++)
+            {
+                long d= column[base+j] - lo;
+                word|= (~(d | (span - d)) >>> 63) << j;
+            }
+            bits[w]= (word ^ flip) & mask(end);
+        }
+    }
+    
+    /**
+     * Evaluate <code>lo &lt;= column[row] &lt;= lo + span</code> over a column.
+     * @param column Whole number values.
+     * @param size Number of cases.
+     * @param lo Lowest matching number.
+     * @param span Highest matching number minus lowest, negative if none match.
+     * @param negate True to keep cases out of range instead.
+     * @param bits Bitset receiving matches.
+     */
+    private static void range(int[] column, int size, long lo, long span, boolean negate, long[] bits)
+    {
+        long flip= negate? -1L: 0L;
+        for(int w=0, base=0; base< size; w++, base+= 64)
+        {
+            int end= Math.min(64, size - base);
+            long word= 0L;
+            for(int j=0; j< end; j++)
+            {
+                long d= column[base+j] - lo;
+                word|= (~(d | (span - d)) >>> 63) << j;
+            }
+            bits[w]= (word ^ flip) & mask(end);
+        }
+    }
+    
+    /**
+     * Evaluate <code>codes[row]</code> being in a set of codes over a column.
+     * @param column Dictionary codes, read as unsigned.
+     * @param size Number of cases.
+     * @param codes Bitset of matching codes.
+     * @param bits Bitset receiving matches.
+     */
+    private static void lookup(byte[] column, int size, long[] codes, long[] bits)
+    {
+        for(int w=0, base=0; base< size; w++, base+= 64)
+        {
+            int end= Math.min(64, size - base);
+            long word= 0L;
+            for(int j=0; j< end; j++)
+            {
+                int code= column[base+j] & 0xff;
+                word|= (codes[code >>> 6] >>> code & 1L) << j;
+            }
+            bits[w]= word;
+        }
+    }
+    
+    /**
+     * Get the mask of the first bits of a word.
+     * @param count Number of bits, from 1 to 64.
+     * @return Mask of count bits.
+     */
+    private static long mask(int count)
+    {
+        return count== 64? -1L: (1L << count) - 1;
+    }
+    
+    /**
+     * Evaluate <code>column[row] == v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void equal(double[] column, int from, int to, double v, long[] bits)
+    {
+        for(int base= from; base< to; base+= 64)
+        {
+            long word= 0L;
+            for(int j=0; j< 64; j++)
+                word|= (column[base+j]== v? 1L: 0L) << j;
+            bits[(base - from) >>> 6]= word;
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] != v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void notEqual(double[] column, int from, int to, double v, long[] bits)
+    {
+        for(int base= from; base< to; base+= 64)
+        {
+            long word= 0L;
+            for(int j=0; j< 64; j++)
+                word|= (column[base+j]!= v? 1L: 0L) << j;
+            bits[(base - from) >>> 6]= word;
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] &lt; v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void less(double[] column, int from, int to, double v, long[] bits)
+    {
+        for(int base= from; base< to; base+= 64)
+        {
+            long word= 0L;
+            for(int j=0; j< 64; j++)
+                word|= (column[base+j]< v? 1L: 0L) << j;
+            bits[(base - from) >>> 6]= word;
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] &lt;= v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void lessEqual(double[] column, int from, int to, double v, long[] bits)
+    {
+        for(int base= from; base< to; base+= 64)
+        {
+            long word= 0L;
+            for(int j=0; j< 64; j++)
+                word|= (column[base+j]<= v? 1L: 0L) << j;
+            bits[(base - from) >>> 6]= word;
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] &gt; v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void greater(double[] column, int from, int to, double v, long[] bits)
+    {
+        for(int base= from; base< to; base+= 64)
+        {
+            long word= 0L;
+            for(int j=0; j< 64; j++)
+                word|= (column[base+j]> v? 1L: 0L) << j;
+            bits[(base - from) >>> 6]= word;
+        }
+    }
+    
+    /**
+     * Evaluate <code>column[row] &gt;= v</code> over whole words.
+     * @param column Metric values.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param v Value compared against.
+     * @param bits Bitset receiving matches.
+     */
+    private static void greaterEqual(double[] column, int from, int to, double v, long[] bits)
+    {
+        for(int base= from; base< to; base+= 64)
+        {
+            long word= 0L;
+            for(int j=0; j< 64; j++)
+                word|= (column[base+j]>= v? 1L: 0L) << j;
+            bits[(base - from) >>> 6]= word;
+        }
+    }
+}
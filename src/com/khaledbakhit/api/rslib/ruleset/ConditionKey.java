@@ -0,0 +1,77 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+/**
+ * ConditionKey is the canonical form of a bound Condition: Conditions with 
+ * equal keys match the same cases.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+final class ConditionKey 
+{
+    /**
+     * Metric column.
+     */
+    private final int column;
+    /**
+     * Comparison operator.
+     */
+    private final Condition.Operator op;
+    /**
+     * Numeric value or null if value is not numeric.
+     */
+    private final Double number;
+    /**
+     * String value, used if value is not numeric.
+     */
+    private final String value;
+
+    /**
+     * Create the key of a Condition.
+     * @param cond Condition bound to a metric column.
+     */
+    ConditionKey(Condition cond)
+    {
+        this.column= cond.getColumn();
+        this.op= cond.getOperator();
+        this.number= cond.isNumeric? Double.valueOf(cond.numeric_value): null;
+        this.value= cond.isNumeric? null: cond.value;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(!(o instanceof ConditionKey))
+            return false;
+        ConditionKey k= (ConditionKey) o;
+        return column== k.column && op== k.op
+                && (number== null? k.number== null && value.equals(k.value): number.equals(k.number));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash= 31 * column + op.hashCode();
+        return 31 * hash + (number== null? value.hashCode(): number.hashCode());
+    }
+}
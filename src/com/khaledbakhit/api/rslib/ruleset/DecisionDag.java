@@ -0,0 +1,704 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSetLine;
+import com.khaledbakhit.api.rslib.exceptions.UncleanDataSetException;
+import com.khaledbakhit.api.rslib.ruleset.Condition.Operator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * DecisionDag is a decision graph compiled from the Rules of a RuleSet which 
+ * preserves {@link RuleSet.TestingMode#SEQUENTIAL} first match semantics.<br/>
+ * 
+ * Rules produced by tree learners share the Conditions of their path prefixes.
+ * Each node of the graph tests one Condition, and the outcome of every test is 
+ * remembered as an interval per metric column. Rules contradicting what is known 
+ * are skipped and Conditions implied by it are not tested again, so a case is 
+ * classified in about as many comparisons as the depth of the original tree.
+ * Equal sub graphs are shared.<br/>
+ * 
+ * Cases holding NaN or non-numeric values on a tested metric are left 
+ * {@link #UNDECIDED} and must be tested Rule by Rule. A graph exceeding 
+ * {@link #MAX_NODES} nodes or {@link #MAX_WORK} units of work to build is not 
+ * built and leaves every case undecided.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class DecisionDag 
+{
+    /**
+     * Match result when no Rule matches and the default classification applies.
+     */
+    public static final int NO_MATCH= -1;
+    /**
+     * Match result when the case must be tested Rule by Rule.
+     */
+    public static final int UNDECIDED= -2;
+    /**
+     * Maximum number of nodes of a graph.
+     */
+    public static final int MAX_NODES= 1 << 16;
+    /**
+     * Maximum work spent building a graph, in Conditions evaluated and key characters produced.
+     */
+    public static final long MAX_WORK= 1L << 22;
+    /**
+     * Rules compiled, in RuleSet order.
+     */
+    private final Rule[] rules;
+    /**
+     * Conditions of the compiled Rules.
+     */
+    private final RuleSnapshot[] snapshots;
+    /**
+     * Metric column tested by each node.
+     */
+    private int[] column;
+    /**
+     * Condition tested by each node.
+     */
+    private Condition[] condition;
+    /**
+     * Child of each node if Condition is satisfied.
+     */
+    private int[] onTrue;
+    /**
+     * Child of each node if Condition is not satisfied.
+     */
+    private int[] onFalse;
+    /**
+     * Number of nodes.
+     */
+    private int size;
+    /**
+     * Root of the graph.
+     * Children and root are node indexes if positive, <code>-(rule+3)</code> 
+     * for a Rule leaf and {@link #NO_MATCH} for the default leaf.
+     */
+    private final int root;
+    /**
+     * Sub graphs built, keyed by Rules left to try and knowledge on their metrics.
+     */
+    private transient HashMap<String, Integer> built;
+    /**
+     * Work spent building the graph so far.
+     */
+    private transient long work;
+    
+    /**
+     * DecisionDag constructor.
+     * @param list List containing the Rules to compile, in RuleSet order.
+     */
+    public DecisionDag(List<Rule> list)
+    {
+        int count= list.size();
+        rules= list.toArray(new Rule[count]);
+        snapshots= new RuleSnapshot[count];
+        boolean compilable= true;
+        for(int r=0; r<count; r++)
+        {
+            snapshots[r]= new RuleSnapshot(rules[r]);
+            compilable&= snapshots[r].conditions.length <= 64;
+        }
+        column= new int[16];
+        condition= new Condition[16];
+        onTrue= new int[16];
+        onFalse= new int[16];
+        int start= UNDECIDED;
+        if(compilable)
+        {
+            int[] candidates= new int[count];
+            long[] remaining= new long[count];
+            for(int r=0; r<count; r++)
+            {
+                candidates[r]= r;
+                remaining[r]= snapshots[r].conditions.length== 64? -1L: (1L << snapshots[r].conditions.length) - 1;
+            }
+            built= new HashMap<String, Integer>();
+            try
+            {
+                start= build(candidates, remaining, count, new Knowledge(maxColumn()+1));
+            }
+            catch(GraphTooLargeException e)
+            {
+                start= UNDECIDED;
+                size= 0;
+            }
+            built= null;
+        }
+        root= start;
+        trim();
+    }
+    
+    /**
+     * Check if this DecisionDag is built.
+     * @return true if built, false if the graph was too large.
+     */
+    public boolean isBuilt()
+    {
+        return root!= UNDECIDED;
+    }
+    /**
+     * Get the number of nodes of this DecisionDag.
+     * @return Number of nodes.
+     */
+    public int getNodeCount()
+    {
+        return size;
+    }
+    /**
+     * Get the Rules compiled.
+     * @return Rules in RuleSet order.
+     */
+    public Rule[] getRules()
+    {
+        return rules.clone();
+    }
+    
+    /**
+     * Check if this DecisionDag still reflects the given Rules and their Conditions.
+     * @param list List containing Rules in RuleSet order.
+     * @return true if up to date, false otherwise.
+     */
+    public boolean isCurrent(List<Rule> list)
+    {
+        if(list.size()!= rules.length)
+            return false;
+        int r= 0;
+        for(Rule rule: list)
+            if(rule!= rules[r] || !snapshots[r++].isCurrent())
+                return false;
+        return true;
+    }
+    
+    /**
+     * Find the first Rule matching a case of a ColumnarDataSet.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @return Index of the first Rule matching, {@link #NO_MATCH} or {@link #UNDECIDED}.
+     */
+    public int match(ColumnarDataSet dataset, int row)
+    {
+        try
+        {
+            int n= root;
+            double val;
+            while(n>= 0)
+            {
+                val= dataset.getValue(row, column[n]);
+                if(Double.isNaN(val))
+                    return UNDECIDED;
+                n= condition[n].test(val)? onTrue[n]: onFalse[n];
+            }
+            return n== NO_MATCH || n== UNDECIDED? n: -n-3;
+        }
+        catch(RuntimeException e)
+        {
+            return UNDECIDED;
+        }
+    }
+    
+    /**
+     * Find the first Rule matching a DataSet line.
+     * @param line DataSetLine to check.
+     * @return Index of the first Rule matching, {@link #NO_MATCH} or {@link #UNDECIDED}.
+     */
+    public int match(DataSetLine line)
+    {
+        try
+        {
+            String[] metrics= line.getMetrics();
+            int n= root;
+            Condition cond;
+            boolean match;
+            double val;
+            while(n>= 0)
+            {
+                cond= condition[n];
+                if(cond.isNumeric)
+                {
+                    val= Double.parseDouble(metrics[column[n]]);
+                    if(Double.isNaN(val))
+                        return UNDECIDED;
+                    match= cond.getOperator().test(val, cond.numeric_value);
+                }
+                else
+                    match= cond.test(metrics[column[n]]);
+                n= match? onTrue[n]: onFalse[n];
+            }
+            return n== NO_MATCH || n== UNDECIDED? n: -n-3;
+        }
+        catch(RuntimeException e)
+        {
+            return UNDECIDED;
+        }
+    }
+    
+    /**
+     * Check this DecisionDag against testing the Rules one by one on every case of a DataSet.
+     * Rule measurements are not modified.
+     * @param dataset DataSet to check.
+     * @return Number of cases where the first Rule matching differs.
+     * @throws UncleanDataSetException Invalid DataSet line detected.
+     */
+    public int crossCheck(DataSet dataset) throws UncleanDataSetException
+    {
+        int mismatches= 0;
+        if(dataset instanceof ColumnarDataSet)
+        {
+            ColumnarDataSet columnar= (ColumnarDataSet) dataset;
+            for(int row=0; row<columnar.size(); row++)
+            {
+                int m= match(columnar, row);
+                if(m!= UNDECIDED && m!= linearMatch(columnar, row))
+                    mismatches++;
+            }
+            return mismatches;
+        }
+        Iterator<DataSetLine> it= dataset.getDataSetLinesIterator();
+        DataSetLine line;
+        while(it.hasNext())
+        {
+            line= it.next();
+            int m= match(line);
+            if(m!= UNDECIDED && m!= linearMatch(line))
+                mismatches++;
+        }
+        return mismatches;
+    }
+    
+    /**
+     * Find the first Rule matching a case by testing the Rules one by one.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @return Index of the first Rule matching or {@link #NO_MATCH}.
+     * @throws UncleanDataSetException Invalid DataSet case detected.
+     */
+    private int linearMatch(ColumnarDataSet dataset, int row) throws UncleanDataSetException
+    {
+        for(int r=0; r<rules.length; r++)
+            if(rules[r].matches(dataset, row))
+                return r;
+        return NO_MATCH;
+    }
+    
+    /**
+     * Find the first Rule matching a DataSet line by testing the Rules one by one.
+     * @param line DataSetLine to check.
+     * @return Index of the first Rule matching or {@link #NO_MATCH}.
+     * @throws UncleanDataSetException Invalid DataSet line detected.
+     */
+    private int linearMatch(DataSetLine line) throws UncleanDataSetException
+    {
+        for(int r=0; r<rules.length; r++)
+            if(rules[r].matches(line))
+                return r;
+        return NO_MATCH;
+    }
+    
+    /**
+     * Build the sub graph trying the given Rules in order.
+     * @param candidates Indexes of Rules left to try.
+     * @param remaining Bit mask of the Conditions left to test per Rule.
+     * @param count Number of Rules left to try.
+     * @param known Knowledge gathered by the tests leading to the sub graph.
+     * @return Node index or leaf.
+     * @throws GraphTooLargeException Graph exceeds {@link #MAX_NODES} nodes or {@link #MAX_WORK} work.
+     */
+    private int build(int[] candidates, long[] remaining, int count, Knowledge known) throws GraphTooLargeException
+    {
+        /*
+         * Drop Rules contradicting knowledge, skip Conditions implied by it.
+         */
+        int[] cand= new int[count];
+        long[] rem= new long[count];
+        int n= 0, k, outcome;
+        long mask;
+        RuleSnapshot rule;
+        for(int i=0; i<count; i++)
+        {
+            rule= snapshots[candidates[i]];
+            mask= remaining[i];
+            work+= rule.conditions.length;
+            for(k=0; k<rule.conditions.length; k++)
+                if((mask & (1L << k))!= 0)
+                {
+                    outcome= known.evaluate(rule.columns[k], rule.conditions[k], rule.operators[k], rule.numbers[k]);
+                    if(outcome== 0)
+                        break;
+                    if(outcome== 1)
+                        mask&= ~(1L << k);
+                }
+            if(k== rule.conditions.length)
+            {
+                cand[n]= candidates[i];
+                rem[n++]= mask;
+            }
+        }
+        if(n== 0)
+            return NO_MATCH;
+        if(rem[0]== 0)
+            return -cand[0]-3;
+        
+        String key= key(cand, rem, n, known);
+        work+= key.length();
+        Integer node= built.get(key);
+        if(node!= null)
+            return node;
+        if(size>= MAX_NODES || work> MAX_WORK)
+            throw new GraphTooLargeException();
+        
+        rule= snapshots[cand[0]];
+        k= Long.numberOfTrailingZeros(rem[0]);
+        int col= rule.columns[k];
+        Condition cond= rule.conditions[k];
+        Knowledge whenTrue= known.copy();
+        whenTrue.learn(col, cond, rule.operators[k], rule.numbers[k], true);
+        int t= build(cand, rem, n, whenTrue);
+        Knowledge whenFalse= known.copy();
+        whenFalse.learn(col, cond, rule.operators[k], rule.numbers[k], false);
+        int f= build(cand, rem, n, whenFalse);
+        
+        if(size== MAX_NODES)
+            throw new GraphTooLargeException();
+        if(size== column.length)
+        {
+            int capacity= Math.min(size*2, MAX_NODES);
+            column= Arrays.copyOf(column, capacity);
+            condition= Arrays.copyOf(condition, capacity);
+            onTrue= Arrays.copyOf(onTrue, capacity);
+            onFalse= Arrays.copyOf(onFalse, capacity);
+        }
+        column[size]= col;
+        condition[size]= cond;
+        onTrue[size]= t;
+        onFalse[size]= f;
+        built.put(key, size);
+        return size++;
+    }
+    
+    /**
+     * Get the key identifying a sub graph.
+     * @param cand Indexes of Rules left to try.
+     * @param rem Bit mask of the Conditions left to test per Rule.
+     * @param n Number of Rules left to try.
+     * @param known Knowledge gathered by the tests leading to the sub graph.
+     * @return Key of sub graph.
+     */
+    private String key(int[] cand, long[] rem, int n, Knowledge known)
+    {
+        StringBuilder key= new StringBuilder();
+        boolean[] relevant= new boolean[known.lo.length];
+        for(int i=0; i<n; i++)
+        {
+            key.append(cand[i]).append(':').append(rem[i]).append(',');
+            int[] columns= snapshots[cand[i]].columns;
+            for(int k=0; k<columns.length; k++)
+                if((rem[i] & (1L << k))!= 0)
+                    relevant[columns[k]]= true;
+        }
+        for(int col=0; col<relevant.length; col++)
+            if(relevant[col])
+                known.append(key, col);
+        return key.toString();
+    }
+    
+    /**
+     * Get the highest metric column referenced by the compiled Rules.
+     * @return Highest metric column or -1 if none.
+     */
+    private int maxColumn()
+    {
+        int max= -1;
+        for(RuleSnapshot rule: snapshots)
+            for(int col: rule.columns)
+                max= Math.max(max, col);
+        return max;
+    }
+    
+    /**
+     * Release unused node capacity.
+     */
+    private void trim()
+    {
+        column= Arrays.copyOf(column, size);
+        condition= Arrays.copyOf(condition, size);
+        onTrue= Arrays.copyOf(onTrue, size);
+        onFalse= Arrays.copyOf(onFalse, size);
+    }
+    
+    /**
+     * Knowledge about the metric values of the cases reaching a node: an interval
+     * and excluded values per metric column, and the outcome of non-numeric Conditions.
+     * Nothing is known about a metric column before a numeric Condition on it is tested,
+     * since the value may be NaN, which fails every comparison but <code>!=</code>.
+     * Cases reaching a node through such a test hold no NaN on that column.
+     */
+    private static class Knowledge
+    {
+        /**
+         * Flags indicating whether each metric column was tested by a numeric Condition.
+         */
+        private final boolean[] read;
+        /**
+         * Lower bound of each metric column.
+         */
+        private final double[] lo;
+        /**
+         * Upper bound of each metric column.
+         */
+        private final double[] hi;
+        /**
+         * Flags indicating whether lower bounds are excluded.
+         */
+        private final boolean[] loOpen;
+        /**
+         * Flags indicating whether upper bounds are excluded.
+         */
+        private final boolean[] hiOpen;
+        /**
+         * Values excluded from each metric column, null if none.
+         */
+        private final double[][] excluded;
+        /**
+         * Outcome of non-numeric Conditions tested.
+         */
+        private final HashMap<ConditionKey, Boolean> facts;
+        
+        /**
+         * Create empty knowledge.
+         * @param columns Number of metric columns.
+         */
+        Knowledge(int columns)
+        {
+            read= new boolean[columns];
+            lo= new double[columns];
+            hi= new double[columns];
+            loOpen= new boolean[columns];
+            hiOpen= new boolean[columns];
+            excluded= new double[columns][];
+            facts= new HashMap<ConditionKey, Boolean>();
+            Arrays.fill(lo, Double.NEGATIVE_INFINITY);
+            Arrays.fill(hi, Double.POSITIVE_INFINITY);
+        }
+        
+        /**
+         * Create a copy of knowledge.
+         * @param k Knowledge to copy.
+         */
+        private Knowledge(Knowledge k)
+        {
+            read= k.read.clone();
+            lo= k.lo.clone();
+            hi= k.hi.clone();
+            loOpen= k.loOpen.clone();
+            hiOpen= k.hiOpen.clone();
+            excluded= k.excluded.clone();
+            facts= new HashMap<ConditionKey, Boolean>(k.facts);
+        }
+        
+        /**
+         * Copy this knowledge.
+         * @return Independent copy.
+         */
+        Knowledge copy()
+        {
+            return new Knowledge(this);
+        }
+        
+        /**
+         * Evaluate a Condition from knowledge.
+         * @param col Metric column of Condition.
+         * @param cond Condition to evaluate.
+         * @param op Operator of Condition.
+         * @param v Numeric value of Condition, NaN if not numeric.
+         * @return 1 if Condition holds, 0 if it does not, -1 if unknown.
+         */
+        int evaluate(int col, Condition cond, Operator op, double v)
+        {
+            if(Double.isNaN(v))
+            {
+                Boolean fact= facts.get(new ConditionKey(cond));
+                return fact== null? -1: fact? 1: 0;
+            }
+            if(!read[col])
+                return -1;
+            double l= lo[col], h= hi[col];
+            boolean lOpen= loOpen[col], hOpen= hiOpen[col];
+            switch(op)
+            {
+                case LESS:
+                    if(h < v || (h== v && hOpen))
+                        return 1;
+                    return l >= v? 0: -1;
+                case LESS_EQUAL:
+                    if(h <= v)
+                        return 1;
+                    return l > v || (l== v && lOpen)? 0: -1;
+                case GREATER:
+                    if(l > v || (l== v && lOpen))
+                        return 1;
+                    return h <= v? 0: -1;
+                case GREATER_EQUAL:
+                    if(l >= v)
+                        return 1;
+                    return h < v || (h== v && hOpen)? 0: -1;
+                default:
+                    boolean outside= v < l || v > h || (v== l && lOpen) || (v== h && hOpen) || isExcluded(col, v);
+                    boolean single= l== v && h== v && !lOpen && !hOpen;
+                    if(!outside && !single)
+                        return -1;
+                    return (op== Operator.EQUAL)== single? 1: 0;
+            }
+        }
+        
+        /**
+         * Learn the outcome of a Condition.
+         * @param col Metric column of Condition.
+         * @param cond Condition tested.
+         * @param op Operator of Condition.
+         * @param v Numeric value of Condition, NaN if not numeric.
+         * @param outcome Outcome of the test.
+         */
+        void learn(int col, Condition cond, Operator op, double v, boolean outcome)
+        {
+            if(Double.isNaN(v))
+            {
+                facts.put(new ConditionKey(cond), outcome);
+                return;
+            }
+            read[col]= true;
+            if(!outcome)
+            {
+                switch(op)
+                {
+                    case LESS: op= Operator.GREATER_EQUAL; break;
+                    case LESS_EQUAL: op= Operator.GREATER; break;
+                    case GREATER: op= Operator.LESS_EQUAL; break;
+                    case GREATER_EQUAL: op= Operator.LESS; break;
+                    case EQUAL: op= Operator.NOT_EQUAL; break;
+                    default: op= Operator.EQUAL;
+                }
+            }
+            switch(op)
+            {
+                case LESS: upper(col, v, true); break;
+                case LESS_EQUAL: upper(col, v, false); break;
+                case GREATER: lower(col, v, true); break;
+                case GREATER_EQUAL: lower(col, v, false); break;
+                case EQUAL: 
+                    lower(col, v, false);
+                    upper(col, v, false);
+                    break;
+                default:
+                    double[] values= excluded[col]== null? new double[1]: Arrays.copyOf(excluded[col], excluded[col].length+1);
+                    values[values.length-1]= v;
+                    Arrays.sort(values);
+                    excluded[col]= values;
+            }
+        }
+        
+        /**
+         * Tighten the lower bound of a metric column.
+         * @param col Metric column.
+         * @param v New lower bound.
+         * @param open Flag indicating whether bound is excluded.
+         */
+        private void lower(int col, double v, boolean open)
+        {
+            if(v > lo[col])
+            {
+                lo[col]= v;
+                loOpen[col]= open;
+            }
+            else if(v== lo[col])
+                loOpen[col]|= open;
+        }
+        
+        /**
+         * Tighten the upper bound of a metric column.
+         * @param col Metric column.
+         * @param v New upper bound.
+         * @param open Flag indicating whether bound is excluded.
+         */
+        private void upper(int col, double v, boolean open)
+        {
+            if(v < hi[col])
+            {
+                hi[col]= v;
+                hiOpen[col]= open;
+            }
+            else if(v== hi[col])
+                hiOpen[col]|= open;
+        }
+        
+        /**
+         * Check if a value is excluded from a metric column.
+         * @param col Metric column.
+         * @param v Value to check.
+         * @return true if excluded, false otherwise.
+         */
+        private boolean isExcluded(int col, double v)
+        {
+            if(excluded[col]== null)
+                return false;
+            for(double e: excluded[col])
+                if(e== v)
+                    return true;
+            return false;
+        }
+        
+        /**
+         * Append the knowledge about a metric column to a key.
+         * @param key Key to append to.
+         * @param col Metric column.
+         */
+        void append(StringBuilder key, int col)
+        {
+            if(!read[col])
+            {
+                key.append('|').append(col).append('?');
+                return;
+            }
+            key.append('|').append(col).append(loOpen[col]? '(': '[').append(lo[col])
+                    .append(';').append(hi[col]).append(hiOpen[col]? ')': ']');
+            if(excluded[col]!= null)
+                for(double e: excluded[col])
+                    if(e >= lo[col] && e <= hi[col])
+                        key.append('!').append(e);
+        }
+    }
+    
+    /**
+     * Thrown when a graph exceeds {@link #MAX_NODES} nodes or {@link #MAX_WORK} work.
+     */
+    private static class GraphTooLargeException extends Exception
+    {
+        private static final long serialVersionUID = 117102026L;
+    }
+}
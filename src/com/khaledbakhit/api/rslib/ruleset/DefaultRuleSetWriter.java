@@ -68,7 +68,7 @@ public class DefaultRuleSetWriter extends RuleSetWriter
         {
             i++;
             txt.out.println("Rule " + i + ": ");
-            for(Condition cond: r.getConditions(false))
+            for(Condition cond: r.conditions())
                 txt.out.println(cond.metric + " " + cond.operator + " " + cond.value);
             
             txt.out.println("->  class " + r.getStringClassification() + "  [100.0%]");
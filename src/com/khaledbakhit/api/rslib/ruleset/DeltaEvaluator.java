@@ -0,0 +1,476 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.exceptions.UncleanDataSetException;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * DeltaEvaluator tests a RuleSet on a ColumnarDataSet in {@link TestingMode#SEQUENTIAL}
+ * mode and keeps its measurements up to date as Rules are modified, for instance
+ * by {@link Condition#perturb()}.<br/>
+ * 
+ * The cases matched by each Rule are kept as bitsets, along with the first Rule 
+ * matching each case. After a Rule changes, only the cases it gained or lost are
+ * visited, and confusion matrices as well as Rule measurements are corrected by 
+ * the difference. Measurements are the same as testing the modified RuleSet again
+ * instead of the original.<br/>
+ * 
+ * Measurements are taken under the {@link EvaluationContext} given at construction.
+ * Instances are not safe for concurrent use.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class DeltaEvaluator 
+{
+    /**
+     * RuleSet tested.
+     */
+    private final RuleSet rs;
+    /**
+     * BitSetEvaluator of the DataSet tested.
+     */
+    private final BitSetEvaluator evaluator;
+    /**
+     * ColumnarDataSet tested.
+     */
+    private final ColumnarDataSet dataset;
+    /**
+     * Context of evaluation.
+     */
+    private final EvaluationContext context;
+    /**
+     * Snapshots of the Rules tested, in RuleSet order.
+     */
+    private RuleSnapshot[] rules;
+    /**
+     * Rules tested, in RuleSet order.
+     */
+    private Rule[] tested;
+    /**
+     * Cases matched by each Rule.
+     */
+    private long[][] matches;
+    /**
+     * First Rule matching each case, number of Rules if none.
+     */
+    private int[] owners;
+    /**
+     * Number of cases per first Rule matching and classification, last row for default classification.
+     */
+    private int[][] owned;
+    /**
+     * Classification recorded for each Rule, last entry for default classification.
+     */
+    private String[] labels;
+    /**
+     * Numeric classification recorded for each Rule, last entry for default classification.
+     */
+    private int[] numbers;
+    /**
+     * Classification index recorded for each Rule, last entry for default classification.
+     */
+    private int[] classIndexes;
+    /**
+     * Number of cases visited by last test or update.
+     */
+    private int visited;
+    
+    /**
+     * DeltaEvaluator constructor. The static settings of {@link RuleSet} are used.
+     * @param rs RuleSet to test.
+     * @param evaluator BitSetEvaluator of the DataSet to test, may be shared with other RuleSets.
+     * @see EvaluationContext#current() 
+     */
+    public DeltaEvaluator(RuleSet rs, BitSetEvaluator evaluator)
+    {
+        this(rs, evaluator, EvaluationContext.current());
+    }
+    /**
+     * DeltaEvaluator constructor.
+     * @param rs RuleSet to test.
+     * @param evaluator BitSetEvaluator of the DataSet to test, may be shared with other RuleSets.
+     * @param context Context of evaluation, {@link TestingMode#SEQUENTIAL} mode is always performed.
+     */
+    public DeltaEvaluator(RuleSet rs, BitSetEvaluator evaluator, EvaluationContext context)
+    {
+        this.rs= rs;
+        this.evaluator= evaluator;
+        this.dataset= evaluator.getDataSet();
+        this.context= context.withTestingMode(TestingMode.SEQUENTIAL);
+    }
+    
+    /**
+     * Test the DataSet and record measurements, as {@link RuleSet#test(com.khaledbakhit.api.rslib.dataset.DataSet, TestingMode)}
+     * does in {@link TestingMode#SEQUENTIAL} mode.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    public void test() throws InvalidInputException
+    {
+        List<Rule> list= rs.getRules();
+        int count= list.size(), words= evaluator.getBitSetLength(), size= dataset.size();
+        rules= new RuleSnapshot[count];
+        tested= new Rule[count];
+        matches= new long[count][];
+        owners= new int[size];
+        owned= new int[count+1][dataset.getClassList().size()];
+        labels= new String[count+1];
+        numbers= new int[count+1];
+        classIndexes= new int[count+1];
+        
+        long[] unclaimed= new long[words];
+        for(int i=0; i<words; i++)
+            unclaimed[i]= i== words-1 && (size & 63)!= 0? (1L << size)-1: -1L;
+        int[] ends= new int[count+1];
+        Iterator<Rule> it= list.iterator();
+        for(int r=0; r<count; r++)
+        {
+            Rule rule= it.next();
+            rules[r]= new RuleSnapshot(rule);
+            tested[r]= rule;
+            label(r);
+            matches[r]= evaluate(rule);
+            for(int i=0; i<words; i++)
+            {
+                long claimed= matches[r][i] & unclaimed[i];
+                unclaimed[i]&= ~claimed;
+                for(; claimed!= 0; claimed&= claimed-1)
+                    own(i*64 + Long.numberOfTrailingZeros(claimed), r, ends);
+            }
+        }
+        label(count);
+        for(int i=0; i<words; i++)
+            for(long rest= unclaimed[i]; rest!= 0; rest&= rest-1)
+                own(i*64 + Long.numberOfTrailingZeros(rest), count, ends);
+        visited= size;
+        
+        EvaluationResult result= new EvaluationResult(rs, tested, context);
+        try
+        {
+            for(int o=0; o<=count; o++)
+                for(int c=0; c<owned[o].length; c++)
+                    if(owned[o][c]!= 0)
+                        record(o, c, owned[o][c], result);
+            recordFailed(ends, result);
+        }
+        finally
+        {
+            rs.merge(result);
+        }
+    }
+    
+    /**
+     * Update measurements for every Rule modified since last test or update.
+     * If Rules were added, removed or reordered the DataSet is tested again 
+     * and the measurements of last test are retracted.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    public void update() throws InvalidInputException
+    {
+        if(rules== null)
+        {
+            test();
+            return;
+        }
+        if(!isCurrent())
+        {
+            retract();
+            test();
+            return;
+        }
+        visited= 0;
+        EvaluationResult result= new EvaluationResult(rs, tested, context);
+        try
+        {
+            for(int r=0; r<=rules.length; r++)
+                relabel(r, result);
+            for(int r=0; r<rules.length; r++)
+                if(!rules[r].isCurrent())
+                    rematch(r, result);
+        }
+        finally
+        {
+            rs.merge(result);
+        }
+    }
+    
+    /**
+     * Update measurements after a Rule, or the default classification, was modified.
+     * @param rule Rule modified.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    public void update(Rule rule) throws InvalidInputException
+    {
+        if(rules== null || !isCurrent())
+        {
+            update();
+            return;
+        }
+        visited= 0;
+        EvaluationResult result= new EvaluationResult(rs, tested, context);
+        try
+        {
+            relabel(rules.length, result);
+            for(int r=0; r<rules.length; r++)
+                if(rules[r].rule== rule)
+                {
+                    relabel(r, result);
+                    if(!rules[r].isCurrent())
+                        rematch(r, result);
+                }
+        }
+        finally
+        {
+            rs.merge(result);
+        }
+    }
+    
+    /**
+     * Check if the RuleSet still holds the Rules tested, in the same order.
+     * @return true if same Rules, false otherwise.
+     */
+    private boolean isCurrent()
+    {
+        List<Rule> list= rs.getRules();
+        if(list.size()!= rules.length)
+            return false;
+        int r= 0;
+        for(Rule rule: list)
+            if(rule!= rules[r++].rule)
+                return false;
+        return true;
+    }
+    
+    /**
+     * Get the first Rule matching a case.
+     * @param row Index of case.
+     * @return Index of first Rule matching or -1 if none.
+     */
+    public int getFirstMatch(int row)
+    {
+        return owners[row]== rules.length? -1: owners[row];
+    }
+    
+    /**
+     * Get the number of cases visited by last test or update.
+     * @return Number of cases visited.
+     */
+    public int getVisitedCases()
+    {
+        return visited;
+    }
+    
+    /**
+     * Test a modified Rule again and move the cases it gained or lost to their new first matching Rule.
+     * @param r Index of Rule.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private void rematch(int r, EvaluationResult result) throws InvalidInputException
+    {
+        int count= rules.length;
+        long[] before= matches[r], after= evaluate(rules[r].rule);
+        rules[r]= new RuleSnapshot(rules[r].rule);
+        matches[r]= after;
+        
+        int[][] delta= new int[count+1][owned[0].length];
+        int[] ends= new int[count+1];
+        int row, from, to, c;
+        for(int i=0; i<before.length; i++)
+            for(long changed= before[i] ^ after[i]; changed!= 0; changed&= changed-1)
+            {
+                row= i*64 + Long.numberOfTrailingZeros(changed);
+                visited++;
+                from= owners[row];
+                if((after[i] & (changed & -changed))!= 0)
+                {
+                    if(from < r)
+                        continue;
+                    to= r;
+                }
+                else
+                {
+                    if(from!= r)
+                        continue;
+                    for(to= r+1; to<count && (matches[to][i] & (changed & -changed))== 0; to++);
+                }
+                owners[row]= to;
+                c= dataset.getClassIndex(row);
+                delta[from][c]--;
+                delta[to][c]++;
+                ends[from]--;
+                ends[to]++;
+            }
+        for(int o=0; o<=count; o++)
+            for(c=0; c<delta[o].length; c++)
+                if(delta[o][c]!= 0)
+                {
+                    owned[o][c]+= delta[o][c];
+                    record(o, c, delta[o][c], result);
+                }
+        recordFailed(ends, result);
+    }
+    
+    /**
+     * Evaluate the cases matched by a Rule.
+     * @param rule Rule to evaluate.
+     * @return Bitset of cases matched.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private long[] evaluate(Rule rule) throws InvalidInputException
+    {
+        long[] bits= new long[evaluator.getBitSetLength()];
+        evaluator.evaluate(rule, bits);
+        if((dataset.size() & 63)!= 0)
+            bits[bits.length-1]&= (1L << dataset.size())-1;
+        return bits;
+    }
+    
+    /**
+     * Record the cases of a Rule again if its classification changed.
+     * @param r Index of Rule, number of Rules for default classification.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    private void relabel(int r, EvaluationResult result) throws InvalidInputException
+    {
+        String label= r== rules.length? rs.getDefaultStringCond(): rules[r].rule.getStringClassification();
+        if(label.equals(labels[r]))
+            return;
+        for(int c=0; c<owned[r].length; c++)
+            if(owned[r][c]!= 0)
+                record(r, c, -owned[r][c], result);
+        label(r);
+        for(int c=0; c<owned[r].length; c++)
+            if(owned[r][c]!= 0)
+            {
+                record(r, c, owned[r][c], result);
+                visited+= owned[r][c];
+            }
+    }
+    
+    /**
+     * Retract all measurements of last test.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    private void retract() throws InvalidInputException
+    {
+        int[] ends= new int[rules.length+1];
+        EvaluationResult result= new EvaluationResult(rs, tested, context);
+        try
+        {
+            for(int o=0; o<=rules.length; o++)
+                for(int c=0; c<owned[o].length; c++)
+                    if(owned[o][c]!= 0)
+                    {
+                        record(o, c, -owned[o][c], result);
+                        ends[o]-= owned[o][c];
+                    }
+            recordFailed(ends, result);
+        }
+        finally
+        {
+            rs.merge(result);
+        }
+    }
+    
+    /**
+     * Keep the classification of a Rule.
+     * @param r Index of Rule, number of Rules for default classification.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    private void label(int r) throws InvalidInputException
+    {
+        if(r== rules.length)
+        {
+            labels[r]= rs.getDefaultStringCond();
+            numbers[r]= rs.getDefaultCond();
+            classIndexes[r]= rs.classIndex(labels[r]);
+        }
+        else
+        {
+            Rule rule= rules[r].rule;
+            labels[r]= rule.getStringClassification();
+            numbers[r]= rule.getClassification();
+            classIndexes[r]= rule.getClassIndex();
+        }
+    }
+    
+    /**
+     * Assign a case to its first matching Rule.
+     * @param row Index of case.
+     * @param r Index of Rule, number of Rules if none.
+     * @param ends Number of cases per first matching Rule.
+     */
+    private void own(int row, int r, int[] ends)
+    {
+        owners[row]= r;
+        owned[r][dataset.getClassIndex(row)]++;
+        ends[r]++;
+    }
+    
+    /**
+     * Record cases of a classification classified by a Rule.
+     * @param r Index of Rule, number of Rules for default classification.
+     * @param c Index of actual classification.
+     * @param count Number of cases, negative to retract.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+    private void record(int r, int c, int count, EvaluationResult result) throws InvalidInputException
+    {
+        String lineClassification= dataset.getClassList().get(c);
+        if(r< rules.length)
+        {
+            try
+            {
+                result.addClassified(r, lineClassification, labels[r], count);
+            }
+            catch(Exception e)
+            {
+                throw new UncleanDataSetException(lineClassification+" is not a valid DataSet classification.");
+            }
+        }
+        result.record(numbers[r], classIndexes[r], c, rs.lineClass(c, lineClassification), count);
+    }
+    
+    /**
+     * Record cases the Rules failed to classify. A Rule fails on every case 
+     * first matched by a later Rule or by none.
+     * @param ends Change in number of cases per first matching Rule, last entry for none.
+     * @param result EvaluationResult to add measurements to.
+     */
+    private void recordFailed(int[] ends, EvaluationResult result)
+    {
+        int failed= 0;
+        for(int r=rules.length-1; r>=0; r--)
+        {
+            failed+= ends[r+1];
+            if(failed!= 0)
+                result.addFailed(r, failed);
+        }
+    }
+}
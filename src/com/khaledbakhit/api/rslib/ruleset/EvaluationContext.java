@@ -0,0 +1,194 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.EvaluationStrategy;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+
+/**
+ * EvaluationContext holds the settings used to test RuleSets on DataSets:
+ * testing mode, evaluation strategy, matching within range and Rule fired 
+ * information tracking.<br/>
+ * 
+ * EvaluationContext Objects are immutable. Several contexts can be used at 
+ * the same time, for instance by engines with different settings running in 
+ * the same JVM. The static settings of {@link RuleSet} act as default context.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ * @see RuleSet#evaluate(com.khaledbakhit.api.rslib.dataset.DataSet, EvaluationContext)
+ */
+public final class EvaluationContext 
+{
+    /**
+     * Testing mode to perform.
+     */
+    private final TestingMode mode;
+    /**
+     * Evaluation strategy to use.
+     */
+    private final EvaluationStrategy strategy;
+    /**
+     * Flag to indicate whether Rules match classifications within a range { a-Range, a, a+Range }.
+     */
+    private final boolean matchWithinRange;
+    /**
+     * Classification acceptable error range. Requires <code>{@link #matchWithinRange}= true</code>
+     */
+    private final double range;
+    /**
+     * Flag to enable information about which Rule fired during DataSet testing.
+     */
+    private final boolean needRuleFiredInfo;
+    
+    /**
+     * EvaluationContext constructor. Rule fired information is not available 
+     * in {@link TestingMode#VOTING} mode.
+     * @param mode Testing mode to perform.
+     * @param strategy Evaluation strategy to use, null for {@link EvaluationStrategy#ROW}.
+     * @param matchWithinRange True if Rules match classifications within range, false otherwise.
+     * @param range Classification acceptable error range { a-Range, a, a+Range }.
+     * @param needRuleFiredInfo True if information about which Rule fired is needed, false otherwise.
+     */
+    public EvaluationContext(TestingMode mode, EvaluationStrategy strategy, 
+            boolean matchWithinRange, double range, boolean needRuleFiredInfo)
+    {
+        this.mode= mode== null? TestingMode.SEQUENTIAL: mode;
+        this.strategy= strategy== null? EvaluationStrategy.ROW: strategy;
+        this.matchWithinRange= matchWithinRange;
+        this.range= range;
+        this.needRuleFiredInfo= needRuleFiredInfo && this.mode!= TestingMode.VOTING;
+    }
+    
+    /**
+     * Get the context defined by the static settings of {@link RuleSet}.
+     * @return EvaluationContext holding current static settings.
+     */
+    public static EvaluationContext current()
+    {
+        return new EvaluationContext(RuleSet.getTestingMode(), RuleSet.getEvaluationStrategy(),
+                RuleSet.isMatchingWithinRange(), RuleSet.getRange(), RuleSet.needRuleFiredInfo());
+    }
+    
+    /**
+     * Get a copy of this context using another testing mode.
+     * @param mode Testing mode to perform.
+     * @return EvaluationContext using given testing mode.
+     */
+    public EvaluationContext withTestingMode(TestingMode mode)
+    {
+        if(mode== this.mode)
+            return this;
+        return new EvaluationContext(mode, strategy, matchWithinRange, range, needRuleFiredInfo);
+    }
+    
+    /**
+     * Get the testing mode to perform.
+     * @return TestingMode to perform.
+     */
+    public TestingMode getTestingMode()
+    {
+        return mode;
+    }
+    /**
+     * Get the evaluation strategy to use.
+     * @return EvaluationStrategy to use.
+     */
+    public EvaluationStrategy getEvaluationStrategy()
+    {
+        return strategy;
+    }
+    /**
+     * Check if Rules match classifications within a range { a-Range, a, a+Range }.
+     * @return True if matching is done within range, false otherwise.
+     */
+    public boolean isMatchingWithinRange()
+    {
+        return matchWithinRange;
+    }
+    /**
+     * Get classification acceptable error range.
+     * @return Classification acceptable error range.
+     */
+    public double getRange()
+    {
+        return range;
+    }
+    /**
+     * Check whether information about which Rule fired during DataSet testing is needed.
+     * @return True if needed, false otherwise.
+     */
+    public boolean needRuleFiredInfo()
+    {
+        return needRuleFiredInfo;
+    }
+    
+    /**
+     * Get the numeric classification recorded for a prediction. A prediction 
+     * within range of the actual classification counts as the actual classification.
+     * @param classification Numeric classification predicted.
+     * @param lineClass Numeric actual classification.
+     * @return Numeric classification to record.
+     */
+    int recorded(int classification, int lineClass)
+    {
+        if(matchWithinRange && classification!= lineClass 
+                && classification >= lineClass - range && classification <= lineClass + range)
+            return lineClass;
+        return classification;
+    }
+    
+    /**
+     * Check whether a Rule classification is correct.
+     * @param lineClassification Actual classification of the DataSet case.
+     * @param compare_classification Classification predicted.
+     * @return True if correct, false otherwise.
+     * @throws RuntimeException Matching within range is applied on non-numeric classifications.
+     */
+    boolean isCorrect(String lineClassification, String compare_classification)
+    {
+        if(lineClassification.equals(compare_classification))
+            return true;
+        if(!matchWithinRange)
+            return false;
+        int lineClass,c;
+        try 
+        {
+            lineClass= Integer.parseInt(lineClassification);  
+            c= Integer.parseInt(compare_classification);    
+        }
+        catch(Exception e)   
+        {
+            throw new RuntimeException("Matching within range cannot be applied on non-numeric classes!");    
+        }
+        double upper= lineClass + range;
+        double lower= lineClass + range;
+        return c>= lower && c <= upper;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "EvaluationContext: "+mode+", "+strategy
+                +(matchWithinRange? ", range "+range: "")
+                +(needRuleFiredInfo? ", Rule fired information": "");
+    }
+}
@@ -0,0 +1,336 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+
+/**
+ * EvaluationResult accumulates the measurements of testing a RuleSet under an 
+ * {@link EvaluationContext}: a confusion matrix and the correct, wrong and failed 
+ * classifications of each Rule. Rule fired information, if needed, is not held 
+ * but written by the RuleSet as each case is tested.<br/>
+ * 
+ * RuleSets and Rules are not modified while results are accumulated, so a 
+ * RuleSet can be tested by several threads at once, each on its own result. 
+ * Results of the same RuleSet are combined with {@link #merge(EvaluationResult)} 
+ * and added to the RuleSet measurements with {@link RuleSet#merge(EvaluationResult)}.
+ * Instances are not safe for concurrent use.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class EvaluationResult 
+{
+    /**
+     * RuleSet tested.
+     */
+    private final RuleSet rs;
+    /**
+     * Context of evaluation.
+     */
+    private final EvaluationContext context;
+    /**
+     * Rules tested, in RuleSet order.
+     */
+    private final Rule[] rules;
+    /**
+     * Confusion matrix.
+     */
+    private final int[][] matrix;
+    /**
+     * Correct classifications of each Rule.
+     */
+    private final int[] correct;
+    /**
+     * Wrong classifications of each Rule.
+     */
+    private final int[] wrong;
+    /**
+     * Cases each Rule failed to classify.
+     */
+    private final int[] failed;
+    
+    /**
+     * EvaluationResult constructor.
+     * @param rs RuleSet to test.
+     * @param context Context of evaluation.
+     */
+    public EvaluationResult(RuleSet rs, EvaluationContext context)
+    {
+        this(rs, rs.getRules().toArray(new Rule[rs.getNumberofRules()]), context);
+    }
+    /**
+     * EvaluationResult constructor.
+     * @param rs RuleSet to test.
+     * @param rules Rules tested, in RuleSet order.
+     * @param context Context of evaluation.
+     */
+    EvaluationResult(RuleSet rs, Rule[] rules, EvaluationContext context)
+    {
+        this.rs= rs;
+        this.rules= rules;
+        this.context= context;
+        int size= rs.getMatrixSize();
+        matrix= new int[size][size];
+        correct= new int[rules.length];
+        wrong= new int[rules.length];
+        failed= new int[rules.length];
+    }
+    
+    /**
+     * Get the RuleSet tested.
+     * @return RuleSet tested.
+     */
+    public RuleSet getRuleSet()
+    {
+        return rs;
+    }
+    /**
+     * Get the context of evaluation.
+     * @return EvaluationContext used.
+     */
+    public EvaluationContext getContext()
+    {
+        return context;
+    }
+    /**
+     * Get the confusion matrix accumulated.
+     * @return Confusion matrix.
+     */
+    public int[][] getMatrix()
+    {
+        return matrix;
+    }
+    /**
+     * Get the number of Rules tested.
+     * @return Number of Rules.
+     */
+    public int getNumberofRules()
+    {
+        return rules.length;
+    }
+    /**
+     * Get amount of correct classifications of a Rule.
+     * @param rule Index of Rule in RuleSet order.
+     * @return Amount of correct classifications.
+     */
+    public int getCorrect(int rule)
+    {
+        return correct[rule];
+    }
+    /**
+     * Get amount of wrong classifications of a Rule.
+     * @param rule Index of Rule in RuleSet order.
+     * @return Amount of wrong classifications.
+     */
+    public int getWrong(int rule)
+    {
+        return wrong[rule];
+    }
+    /**
+     * Get amount of cases a Rule failed to classify.
+     * @param rule Index of Rule in RuleSet order.
+     * @return Amount of failed classifications.
+     */
+    public int getFailed(int rule)
+    {
+        return failed[rule];
+    }
+    
+    /**
+     * Add the measurements of another result of the same RuleSet and Rules.
+     * @param result EvaluationResult to add.
+     * @throws InvalidInputException Result belongs to other RuleSet or Rules.
+     */
+    public void merge(EvaluationResult result) throws InvalidInputException
+    {
+        check(result.rs, result.rules);
+        for(int i=0; i<matrix.length; i++)
+            for(int j=0; j<matrix[i].length; j++)
+                matrix[i][j]+= result.matrix[i][j];
+        for(int r=0; r<rules.length; r++)
+        {
+            correct[r]+= result.correct[r];
+            wrong[r]+= result.wrong[r];
+            failed[r]+= result.failed[r];
+        }
+    }
+    
+    /**
+     * Check that measurements belong to the RuleSet and Rules of this result.
+     * @param rs RuleSet tested.
+     * @param rules Rules tested.
+     * @throws InvalidInputException Measurements belong to other RuleSet or Rules.
+     */
+    void check(RuleSet rs, Rule[] rules) throws InvalidInputException
+    {
+        if(rs!= this.rs || rules.length!= this.rules.length)
+            throw new InvalidInputException("EvaluationResult belongs to another RuleSet.");
+        for(int r=0; r<rules.length; r++)
+            if(rules[r]!= this.rules[r])
+                throw new InvalidInputException("EvaluationResult belongs to other Rules.");
+    }
+    
+    /**
+     * Get the Rules tested.
+     * @return Rules tested, in RuleSet order.
+     */
+    Rule[] getRules()
+    {
+        return rules;
+    }
+    /**
+     * Record cases a Rule failed to classify.
+     * @param rule Index of Rule.
+     * @param count Number of cases not matched.
+     */
+    void addFailed(int rule, int count)
+    {
+        failed[rule]+= count;
+    }
+    
+    /**
+     * Record classifications made by a Rule.
+     * @param rule Index of Rule.
+     * @param lineClassification Actual classification of the DataSet cases.
+     * @param count Number of cases matched.
+     * @throws RuntimeException Matching within range is applied on non-numeric classifications.
+     */
+    void addClassified(int rule, String lineClassification, int count)
+    {
+        addClassified(rule, lineClassification, rules[rule].getStringClassification(), count);
+    }
+    
+    /**
+     * Record classifications made by a Rule as the given classification.
+     * @param rule Index of Rule.
+     * @param lineClassification Actual classification of the DataSet cases.
+     * @param compare_classification Classification predicted.
+     * @param count Number of cases matched, negative to retract.
+     * @throws RuntimeException Matching within range is applied on non-numeric classifications.
+     */
+    void addClassified(int rule, String lineClassification, String compare_classification, int count)
+    {
+        if(context.isCorrect(lineClassification, compare_classification))
+            correct[rule]+= count;
+        else
+            wrong[rule]+= count;
+    }
+    
+    /**
+     * Record {@link TestingMode#SEQUENTIAL} predictions of a classification in the confusion matrix.
+     * A numeric classification is used directly as matrix index, other 
+     * classifications by their index in the classifications list.
+     * @param classification Numeric classification predicted or -1 if not numeric.
+     * @param thisClass Index of classification predicted in the classifications list.
+     * @param lineIndex Index of the actual classification in the classifications list or -1 if unknown.
+     * @param lineClass Numeric actual classification or -1 if not numeric.
+     * @param count Number of cases, negative to retract.
+     */
+    void record(int classification, int thisClass, int lineIndex, int lineClass, int count)
+    {
+        int row= lineIndex, column= thisClass;
+        if (classification != -1 && lineClass != -1) 
+        {
+            classification= context.recorded(classification, lineClass);
+            if(lineClass >= 0 && lineClass < matrix.length 
+                    && classification >= 0 && classification < matrix.length)
+            {
+                row= lineClass;
+                column= classification;
+            }
+        }
+        add(row, column, count);
+    }
+    
+    /**
+     * Add cases to a cell of the confusion matrix.
+     * @param row Index of the actual classification.
+     * @param column Index of the classification predicted.
+     * @param count Number of cases, negative to retract.
+     */
+    void add(int row, int column, int count)
+    {
+        matrix[row][column]+= count;
+    }
+    
+    /**
+     * Get the classification a matching Rule votes for.
+     * @param r Rule that matched the case.
+     * @param lineIndex Index of the actual classification in the classifications list or -1 if unknown.
+     * @param lineClass Numeric classification of the case or -1 if not numeric.
+     * @return Index of the classification voted for in the classifications list.
+     */
+    int vote(Rule r, int lineIndex, int lineClass)
+    {
+        if (context.isMatchingWithinRange()) 
+        {
+            int classification= r.getClassification();
+            if(classification==-1 || lineClass== -1)
+                Debugger.printlnSensitive("Matching within Range does not work with non-numeric classifications!");
+            else if(context.recorded(classification, lineClass)!= classification)
+                return lineIndex;
+        }
+        return r.getClassIndex();
+    }
+    
+    /**
+     * Record the outcome of a {@link TestingMode#VOTING} test in the confusion matrix.
+     * @param voting Votes per classification.
+     * @param lineIndex Index of the actual classification in the classifications list or -1 if unknown.
+     * @param lineClass Numeric classification of the case or -1 if not numeric.
+     * @param voted Index of the last classification voted for.
+     */
+    void votingRecord(int[] voting, int lineIndex, int lineClass, int voted)
+    {
+        /*
+         * Get the winning classification by vote
+         */
+        int winner_index = -1, winner_val = -1;
+        for (int i = 0; i < voting.length; i++) 
+        {
+            if (winner_index == -1 || (winner_val < voting[i])) {
+                winner_index = i;
+                winner_val = voting[i];
+            }
+        }
+
+        if (winner_index != -1 && lineClass >= 0 && lineClass < matrix.length) 
+            add(lineClass, winner_index, 1);
+        else 
+            add(lineIndex, voted, 1);
+    }
+    
+    /**
+     * Record which Rule fired on a case. The information is written right away 
+     * by the RuleSet, cases must then be tested in order.
+     * @param ruleName Name of Rule that fired a match/prediction.
+     * @param ruleClass Classification determined by the Rule.
+     * @param dsClass Classification set by DataSet line.
+     */
+    void fired(String ruleName, String ruleClass, String dsClass)
+    {
+        if(context.needRuleFiredInfo())
+            rs.fired(ruleName, ruleClass, dsClass, context);
+    }
+}
@@ -22,6 +22,7 @@ package com.khaledbakhit.api.rslib.ruleset;
 import com.khaledbakhit.api.rslib.LaunchSetup;
 import com.khaledbakhit.api.rslib.StartUp;
 import com.khaledbakhit.api.rslib.calc.Mathematics;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
 import com.khaledbakhit.api.rslib.dataset.DataSet;
 import com.khaledbakhit.api.rslib.dataset.DataSetLine;
 import com.khaledbakhit.api.rslib.dataset.DataSetReader;
@@ -87,6 +88,11 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      * @since 3.0
      */
     private String stringclassification;
+    /**
+     * Index of {@link #stringclassification} in the classifications list or -1 if not found.
+     * @since 4.1
+     */
+    private int classIndex;
     /**
      * List Object containing metrics.
      */
@@ -95,6 +101,16 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      * List Object containing conditions.
      */
     private List<Condition> conditions;
+    /**
+     * Metric columns referenced by this Rule, in metrics file order.
+     * @since 4.1
+     */
+    private int[] boundColumns;
+    /**
+     * Conditions evaluated on {@link #boundColumns}, one per referenced metric.
+     * @since 4.1
+     */
+    private Condition[] boundConditions;
     /**
      * Pointer to the parent RuleSet.
      */
@@ -104,6 +120,11 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      * @since 4.0
      */
     private LaunchSetup sp;
+    /**
+     * Flag indicating whether {@link #conditions} may be shared with a copy of this Rule.
+     * @since 4.1
+     */
+    private boolean shared= false;
     /**
      * Rule constructor.
      * @param stringclassification default classification of this Rule.
@@ -116,6 +137,7 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
         this.stringclassification= stringclassification;
         this.metricList= StartUp.getMetricList(sp);
         conditions= new LinkedList<Condition>();
+        bind();
         try
         {
             classification= Integer.parseInt(stringclassification);
@@ -124,6 +146,92 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
         {
             classification= -1; 
         }
+        internClassification();
+    }
+    
+    /**
+     * Copy constructor. The copy shares the Conditions of the given Rule until 
+     * either Rule accesses them for modification.
+     * @param rule Rule to copy.
+     * @since 4.1
+     */
+    private Rule(Rule rule)
+    {
+        this.sp= rule.sp;
+        this.quality= rule.quality;
+        this.old_classified_correct= rule.old_classified_correct;
+        this.old_classified_wrong= rule.old_classified_wrong;
+        this.old_classified_failed= rule.old_classified_failed;
+        this.classified_correct= rule.classified_correct;
+        this.classified_wrong= rule.classified_wrong;
+        this.classified_failed= rule.classified_failed;
+        this.classification= rule.classification;
+        this.stringclassification= rule.stringclassification;
+        this.classIndex= rule.classIndex;
+        this.metricList= rule.metricList;
+        this.conditions= rule.conditions;
+        this.boundColumns= rule.boundColumns;
+        this.boundConditions= rule.boundConditions;
+        this.shared= rule.shared= true;
+    }
+    
+    /**
+     * Create a copy of this Rule, measurements included. Conditions are shared
+     * and only copied by a Rule once accessed for modification, through
+     * {@link #getCondition(String)}, {@link #getConditions(boolean)}, 
+     * {@link #addCondition(Condition)} or {@link #updateCondition(Condition)}.
+     * The copy has no parent.
+     * @return Copy of this Rule.
+     * @since 4.1
+     */
+    public Rule copy()
+    {
+        return new Rule(this);
+    }
+    
+    /**
+     * Copy the Conditions of this Rule if they may be shared with a copy.
+     * @since 4.1
+     */
+    private void own()
+    {
+        if(!shared)
+            return;
+        List<Condition> conds= new LinkedList<Condition>();
+        Condition copy;
+        for(Condition cond: conditions)
+        {
+            copy= cond.clone();
+            copy.quality= cond.quality;
+            copy.setParent(this);
+            copy.bind(metricList);
+            conds.add(copy);
+        }
+        conditions= conds;
+        shared= false;
+        bind();
+    }
+    
+    /**
+     * Get the Conditions of this Rule for reading only. Conditions may be shared with copies.
+     * @return List containing Conditions.
+     * @since 4.1
+     */
+    List<Condition> conditions()
+    {
+        return conditions;
+    }
+    
+    /**
+     * Get the Condition of a metric for reading only. Conditions may be shared with copies.
+     * @param metricName Metric name to search Condition for.
+     * @return Condition for given metric or null if not found.
+     * @since 4.1
+     */
+    Condition conditionOf(String metricName)
+    {
+        int index= getConditionIndex(metricName);
+        return index== -1? null: conditions.get(index);
     }
     
     /**
@@ -305,7 +413,10 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
     {
         if(condition.isClassification)
             throw new InvalidInputException("Classification Condition is not allowed here.");
+        own();
+        condition.bind(metricList);
         conditions.add(condition);
+        bind();
     }
     /**
      * Add a condition to this Rule Object
@@ -315,7 +426,11 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      */
     public void addCondition(String column, String operation, String value)
     {
-       conditions.add(new Condition(column.trim(), operation.trim(), value.trim()));
+       Condition cond= new Condition(column.trim(), operation.trim(), value.trim());
+       own();
+       cond.bind(metricList);
+       conditions.add(cond);
+       bind();
     }
   
     /**
@@ -328,6 +443,75 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
     {
         addCondition(column, operation,value+"");
     }
+    
+    /**
+     * Compile all Conditions of this Rule and bind them to their metric columns.
+     * Required after Conditions are modified directly.
+     * @see Condition#compile() 
+     * @see Condition#bind(java.util.List) 
+     * @since 4.1
+     */
+    public void compile()
+    {
+        for(Condition cond: conditions)
+        {
+            cond.compile();
+            cond.bind(metricList);
+        }
+        bind();
+    }
+    
+    /**
+     * Index the Conditions of this Rule by metric column. Only the first
+     * Condition of each metric is evaluated.
+     * @since 4.1
+     */
+    private void bind()
+    {
+        int count= metricList.size();
+        Condition[] byColumn= new Condition[count];
+        int n= 0, column;
+        for(Condition cond: conditions)
+        {
+            column= cond.getColumn();
+            if(column!= -1 && byColumn[column]==null)
+            {
+                byColumn[column]= cond;
+                n++;
+            }
+        }
+        int[] columns= new int[n];
+        Condition[] conds= new Condition[n];
+        for(int i=0, k=0; i<count; i++)
+            if(byColumn[i]!=null)
+            {
+                columns[k]= i;
+                conds[k++]= byColumn[i];
+            }
+        boundColumns= columns;
+        boundConditions= conds;
+    }
+    /**
+     * Get the metric columns evaluated by this Rule, in metrics file order.
+     * The returned array must not be modified.
+     * @return Metric column indexes.
+     * @see #getBoundConditions() 
+     * @since 4.1
+     */
+    public int[] getBoundColumns()
+    {
+        return boundColumns;
+    }
+    /**
+     * Get the Conditions evaluated by this Rule, parallel to {@link #getBoundColumns()}.
+     * The returned array must not be modified.
+     * @return Conditions evaluated by this Rule.
+     * @since 4.1
+     */
+    public Condition[] getBoundConditions()
+    {
+        return boundConditions;
+    }
 
     /**
      * Get the classification related to this Rule.
@@ -356,6 +540,7 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
     {
         classification= value;
         this.stringclassification= value+"";
+        internClassification();
     }
     /**
      * Set the classification related to this Rule. 
@@ -373,6 +558,32 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
         {
             this.classification= -1;
         }
+        internClassification();
+    }
+    
+    /**
+     * Get the index of the classification related to this Rule in the classifications list.
+     * @return Classification index or -1 if not found.
+     * @since 4.1
+     */
+    public int getClassIndex()
+    {
+        return classIndex;
+    }
+    
+    /**
+     * Look up the index of the classification related to this Rule.
+     */
+    private void internClassification()
+    {
+        try
+        {
+            classIndex= StartUp.getClassList(sp).indexOf(stringclassification);
+        }
+        catch(InvalidInputException e)
+        {
+            classIndex= -1;
+        }
     }
     
     /**
@@ -383,15 +594,8 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      */
     public Condition getCondition(String metricName)
     {
-        java.util.Iterator<Condition> it= conditions.iterator();
-         Condition cond;
-         while(it.hasNext())
-         {
-             cond= it.next();
-             if(cond.metric!=null && cond.metric.equals(metricName))
-                 return cond;
-         }
-         return null;
+        own();
+        return conditionOf(metricName);
     }
     /**
      * Get Condition Index for the given metric.
@@ -432,6 +636,13 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
       */
      public void test(DataSet dataset, Condition cond) throws UncleanDataSetException 
      {
+        if(dataset instanceof ColumnarDataSet)
+        {
+            ColumnarDataSet columnar= (ColumnarDataSet) dataset;
+            for(int row=0; row<columnar.size(); row++)
+                test(columnar, row, cond);
+            return;
+        }
         Iterator<DataSetLine> it= dataset.getDataSetLinesIterator();
         DataSetLine line;
         while(it.hasNext())
@@ -494,121 +705,268 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      * @param cond Condition to try to see any improvements.
      * @return true if match, false otherwise.
      * @throws UncleanDataSetException Invalid DataSet line detected.
+     * @see EvaluationContext#current() 
      * @since 4.0
      */
      public boolean test(DataSetLine line, Condition cond) throws UncleanDataSetException
+    {
+        return test(line, cond, EvaluationContext.current());
+    }
+     
+    /**
+     * Test a line of DataSet on this Rule.
+     * @param line DataSetLine to test.
+     * @param cond Condition to try to see any improvements.
+     * @param context Context of evaluation.
+     * @return true if match, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet line detected.
+     * @since 4.1
+     */
+     public boolean test(DataSetLine line, Condition cond, EvaluationContext context) throws UncleanDataSetException
     {
         try
         {
-            boolean match;
-            java.util.Iterator<String> it= metricList.iterator();
-            Condition rule_cond;
+            int[] columns= boundColumns;
+            Condition[] conds= boundConditions;
+            int condColumn= columnOf(cond);
             String[] metrics= line.getMetrics();
-            String val, metricName;
-            for(int i=0; i< metrics.length; i++)
+            String val;
+            boolean match;
+            for(int k=0; k< columns.length; k++)
             {
-                metricName= it.next(); //Name of attribute column at index i
-                rule_cond= getCondition( metricName );//Rule's condition for given metric
-                if(rule_cond==null)
-                    continue;
-                
-                val= metrics[i]; //Value of metric i in the DataSetLine.
-                if(cond!=null && !cond.isClassification && cond.metric.equals(metricName))
-                    match= analyze(val, cond.operator, cond.value);
+                val= metrics[columns[k]]; //Value of referenced metric in the DataSetLine.
+                if(condColumn==columns[k])
+                    match= cond.test(val);
                 else
-                    match= analyze(val, rule_cond.operator, rule_cond.value);
+                    match= conds[k].test(val);
                 if(!match)
                 {
                     classified_failed++;//no match, thus Rule failed to classify.
                     return false; //match is false
                 }
             }
-            
-            String compare_classification= 
-                    (cond!=null && cond.isClassification)?
-                    cond.classification :  stringclassification;
-            
-            if(line.getClassification().equals(compare_classification))
-                    classified_correct++;
-            else if(RuleSet.isMatchingWithinRange())    
+            classify(line.getClassification(), cond, 1, context);
+            return true;//match is true.
+        }
+        catch(Exception e)
+        {
+            throw new UncleanDataSetException(line+" is not a valid DataSet line.");
+        }
+    }
+     
+    /**
+     * Test a case of a ColumnarDataSet on this Rule.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @return true if match, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet case detected.
+     * @since 4.1
+     */
+     public boolean test(ColumnarDataSet dataset, int row) throws UncleanDataSetException
+    {
+        return test(dataset, row, null);
+    }
+     
+    /**
+     * Test a case of a ColumnarDataSet on this Rule.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @param cond Condition to try to see any improvements.
+     * @return true if match, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet case detected.
+     * @see EvaluationContext#current() 
+     * @since 4.1
+     */
+     public boolean test(ColumnarDataSet dataset, int row, Condition cond) throws UncleanDataSetException
+    {
+        return test(dataset, row, cond, EvaluationContext.current());
+    }
+     
+    /**
+     * Test a case of a ColumnarDataSet on this Rule.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @param cond Condition to try to see any improvements.
+     * @param context Context of evaluation.
+     * @return true if match, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet case detected.
+     * @since 4.1
+     */
+     public boolean test(ColumnarDataSet dataset, int row, Condition cond, EvaluationContext context) throws UncleanDataSetException
+    {
+        try
+        {
+            int[] columns= boundColumns;
+            Condition[] conds= boundConditions;
+            int condColumn= columnOf(cond);
+            double val;
+            boolean match;
+            for(int k=0; k< columns.length; k++)
             {
-                int lineClass,c;
-                try 
-                {
-                    lineClass= Integer.parseInt(line.getClassification());  
-                    c= Integer.parseInt(compare_classification);    
-                }
-                    
-                catch(Exception e)   
+                val= dataset.getValue(row, columns[k]);
+                if(condColumn==columns[k])
+                    match= cond.test(val);
+                else
+                    match= conds[k].test(val);
+                if(!match)
                 {
-                    throw new RuntimeException("Matching within range cannot be applied on non-numeric classes!");    
+                    classified_failed++;//no match, thus Rule failed to classify.
+                    return false; //match is false
                 }
-                double range= RuleSet.getRange();
-                double upper= lineClass + range;
-                double lower= lineClass + range;
-                    
-                if(c>= lower && c <= upper)
-                    classified_correct++;
-                else
-                    classified_wrong++;    
             }
-            else
-                classified_wrong++;        
-           
+            classify(dataset.getClassification(row), cond, 1, context);
             return true;//match is true.
         }
         catch(Exception e)
+        {
+            throw new UncleanDataSetException(dataset.getDataSetLine(row)+" is not a valid DataSet line.");
+        }
+    }
+     
+    /**
+     * Check whether a line of DataSet matches this Rule without recording any measurement.
+     * @param line DataSetLine to check.
+     * @return true if match, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet line detected.
+     * @since 4.1
+     */
+     public boolean matches(DataSetLine line) throws UncleanDataSetException
+    {
+        try
+        {
+            String[] metrics= line.getMetrics();
+            for(int k=0; k< boundColumns.length; k++)
+                if(!boundConditions[k].test(metrics[boundColumns[k]]))
+                    return false;
+            return true;
+        }
+        catch(Exception e)
         {
             throw new UncleanDataSetException(line+" is not a valid DataSet line.");
         }
     }
      
+    /**
+     * Check whether a case of a ColumnarDataSet matches this Rule without recording any measurement.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @return true if match, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet case detected.
+     * @since 4.1
+     */
+     public boolean matches(ColumnarDataSet dataset, int row) throws UncleanDataSetException
+    {
+        try
+        {
+            for(int k=0; k< boundColumns.length; k++)
+                if(!boundConditions[k].test(dataset.getValue(row, boundColumns[k])))
+                    return false;
+            return true;
+        }
+        catch(Exception e)
+        {
+            throw new UncleanDataSetException(dataset.getDataSetLine(row)+" is not a valid DataSet line.");
+        }
+    }
      
     /**
-     * Analyze an equation.
-     * @param dsVal Value at the specific metric in dataset.
-     * @param operation String operation: >, < , >=, <=, ==, !=.
-     * @param value Value at Rule to compare with.
-     * @return true if correct, false otherwise.
+     * Find the cases of a range of a ColumnarDataSet matching this Rule without recording any measurement.
+     * Conditions are evaluated a metric column at a time by {@link ConditionKernels}.
+     * @param dataset ColumnarDataSet containing the cases.
+     * @param from First case, inclusive.
+     * @param to Last case, exclusive.
+     * @param values Buffer receiving metric values not held in Java arrays, at least <code>to - from</code> long.
+     * @param temp Buffer receiving Condition matches, as long as <code>bits</code>.
+     * @param bits Bitset of the cases to check, indexed from <code>from</code>, receiving the cases matching.
+     * @return true if any case matches, false otherwise.
+     * @throws UncleanDataSetException Invalid DataSet case detected.
+     * @since 4.1
      */
-    private boolean analyze(String dsVal, String operation, String value)
+     public boolean matches(ColumnarDataSet dataset, int from, int to, double[] values, long[] temp, long[] bits) throws UncleanDataSetException
     {
+        int size= to - from, words= (size + 63) >>> 6;
+        boolean any= false;
+        for(int w=0; w< words; w++)
+            any|= bits[w]!= 0L;
         try
         {
-           double number= Double.parseDouble(dsVal);
-           double val= Double.parseDouble(value);
-    
-           if(operation.equalsIgnoreCase("=") || operation.equalsIgnoreCase("=="))
-                return (number==val);
-          else  if(operation.equalsIgnoreCase("<"))
-            return (number<val);
-          else  if(operation.equalsIgnoreCase("<=") || operation.equalsIgnoreCase("=<"))
-            return (number<=val);
-          else  if(operation.equalsIgnoreCase(">"))
-            return (number>val);
-          else if(operation.equalsIgnoreCase("!="))
-              return (number!=val);
-        else
-            return (number>=val);
+            for(int k=0; k< boundColumns.length && any; k++)
+            {
+                if(dataset.isHeapColumns())
+                    ConditionKernels.scan(boundConditions[k], dataset.getColumn(boundColumns[k]), from, to, temp);
+                else
+                {
+                    dataset.getValues(boundColumns[k], from, to, values);
+                    ConditionKernels.scan(boundConditions[k], values, 0, size, temp);
+                }
+                any= false;
+                for(int w=0; w< words; w++)
+                    any|= (bits[w]&= temp[w])!= 0L;
+            }
+            return any;
         }
         catch(Exception e)
-        {         
-           int compared= dsVal.compareTo(value); 
-           
-           if(operation.equalsIgnoreCase("=") || operation.equalsIgnoreCase("=="))
-                return (compared==0);
-          else  if(operation.equalsIgnoreCase("<"))
-                return compared<0;
-          else if(operation.equalsIgnoreCase("<=") || operation.equalsIgnoreCase("=<"))
-            return compared<=0;
-          else  if(operation.equalsIgnoreCase(">"))
-            return compared>0;
-          else if(operation.equalsIgnoreCase("!="))
-              return compared!=0;
-        else
-            return compared>=0;
+        {
+            throw new UncleanDataSetException(dataset.getDataSetLine(from)+" is not a valid DataSet line.");
         }
     }
+     
+    /**
+     * Get the metric column of a Condition to try, resolving unbound Conditions by metric name.
+     * @param cond Condition to try or null.
+     * @return Metric column of Condition or -1 if none.
+     */
+     private int columnOf(Condition cond)
+     {
+         if(cond==null || cond.isClassification)
+             return -1;
+         if(cond.getColumn()!= -1)
+             return cond.getColumn();
+         return metricList.indexOf(cond.metric);
+     }
+     
+    /**
+     * Record classifications made by this Rule.
+     * @param lineClassification Actual classification of the DataSet cases.
+     * @param cond Condition to try to see any improvements.
+     * @param count Number of cases matched.
+     * @param context Context of evaluation.
+     */
+     private void classify(String lineClassification, Condition cond, int count, EvaluationContext context)
+     {
+        classify(lineClassification, 
+                (cond!=null && cond.isClassification)?
+                cond.classification :  stringclassification, count, context);
+     }
+     
+    /**
+     * Record classifications made by this Rule.
+     * @param lineClassification Actual classification of the DataSet cases.
+     * @param compare_classification Classification predicted.
+     * @param count Number of cases matched.
+     * @param context Context of evaluation.
+     */
+     private void classify(String lineClassification, String compare_classification, int count, EvaluationContext context)
+     {
+        if(context.isCorrect(lineClassification, compare_classification))
+            classified_correct+= count;
+        else
+            classified_wrong+= count;        
+     }
+     
+    /**
+     * Add measurements collected while this Rule was tested.
+     * @param correct Number of correct classifications.
+     * @param wrong Number of wrong classifications.
+     * @param failed Number of cases not matched.
+     * @since 4.1
+     */
+     void addMeasurements(int correct, int wrong, int failed)
+     {
+         classified_correct+= correct;
+         classified_wrong+= wrong;
+         classified_failed+= failed;
+     }
 
     @Override
      public String toString()
@@ -627,6 +985,7 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      */
      public List<Condition> getConditions(boolean includeClassification)
      {
+         own();
          if(!includeClassification)
             return conditions;
      
@@ -656,15 +1015,19 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
      public void setConditions(List<Condition> conds)
      {
          conditions= new LinkedList<Condition>();
+         shared= false;
          for(Condition cond: conds)
          {
              if(cond.isClassification)
              {
                  this.stringclassification= cond.classification;
+                 internClassification();
                  continue;
              }
+             cond.bind(metricList);
              conditions.add(cond);
          }
+         bind();
      }
      /**
       * Update a condition in this Rule.
@@ -684,11 +1047,15 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
              {
                  this.classification= -1;
              }
+             internClassification();
          }
          else
          { 
+             own();
              int index= getConditionIndex(cond.metric);
+             cond.bind(metricList);
              conditions.set(index, cond);
+             bind();
          }
      }
     
@@ -705,8 +1072,8 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
          if(!this.stringclassification.equals(rule.stringclassification))
              return false;
  
-         List<Condition> cond1= getConditions(false);
-         List<Condition> cond2= rule.getConditions(false);
+         List<Condition> cond1= conditions;
+         List<Condition> cond2= rule.conditions;
          
          for(int i=0; i<cond1.size(); i++)
          {
@@ -727,8 +1094,8 @@ public class Rule implements java.io.Serializable, Comparable<Rule>
              return false;
          if(this.stringclassification.equals(rule.stringclassification))
              return false;
-         List<Condition> cond1= this.getConditions(false);
-         List<Condition> cond2= rule.getConditions(false);
+         List<Condition> cond1= this.conditions;
+         List<Condition> cond2= rule.conditions;
          
          for(int i=0; i<cond1.size(); i++)
          {
@@ -24,15 +24,22 @@ import java.util.LinkedList;
 import  com.khaledbakhit.api.rslib.*;
 import  com.khaledbakhit.api.rslib.calc.Function;
 import  com.khaledbakhit.api.rslib.calc.Mathematics;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
 import com.khaledbakhit.api.rslib.dataset.DataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSetCursor;
 import com.khaledbakhit.api.rslib.dataset.DataSetLine;
+import com.khaledbakhit.api.rslib.dataset.DataSetRange;
 import com.khaledbakhit.api.rslib.dataset.DataSetReader;
 import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
 import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
+import com.khaledbakhit.api.rslib.exceptions.UncleanDataSetException;
 import com.khaledbakhit.api.rslib.utils.Debugger;
 import  com.khaledbakhit.api.rslib.utils.ExcelWriter;
 import com.khaledbakhit.api.rslib.utils.TextWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 /**
@@ -46,6 +53,21 @@ import java.util.List;
 public class RuleSet implements java.io.Serializable
 {
     private static final long serialVersionUID = 224082013L;
+    /**
+     * Number of DataSet cases read before testing them on all RuleSets of a shared scan.
+     * @since 4.1
+     */
+    private static final int SCAN_BATCH= 1024;
+    /**
+     * Number of cases of a ColumnarDataSet matched at a time by {@link TestingMode#SEQUENTIAL} tests, a multiple of 64.
+     * @since 4.1
+     */
+    private static final int MATCH_BLOCK= 1024;
+    /**
+     * Ratio of a block to the cases left below which they are matched one by one.
+     * @since 4.1
+     */
+    private static final int SPARSE_BLOCK= 8;
     /**
      * Default numeric classification. 
      */
@@ -56,14 +78,34 @@ public class RuleSet implements java.io.Serializable
      */
     private String string_default_cond;
     /**
-     * Default confusion matrix. 
+     * Default confusion matrix, allocated on first use. 
      */
     private int[][] Matrix;
     /**
-     * Individual confusion matrix. 
+     * Individual confusion matrix, allocated on first use. 
      * @since 2.0
      */
     private int[][] IndiMatrix;
+    /**
+     * Number of classifications, size of confusion matrices.
+     * @since 4.1
+     */
+    private int matrixSize;
+    /**
+     * Tables of the classifications list, built on first use.
+     * @since 4.1
+     */
+    private transient volatile ClassTables classTables;
+    /**
+     * Decision graph compiled from Rules, rebuilt when Rules change.
+     * @since 4.1
+     */
+    private transient volatile DecisionDag dag;
+    /**
+     * Classifier generated from Rules, generated again when Rules change.
+     * @since 4.1
+     */
+    private transient volatile CompiledRuleSet compiled;
     /**
      * List object containing Rule objects. 
      */
@@ -138,14 +180,45 @@ public class RuleSet implements java.io.Serializable
         string_default_cond= default_cond+"";
         
         list= new LinkedList<Rule>();
-        int Matrix_Size= StartUp.getClassList(sp).size();
-        Matrix= new int[Matrix_Size][Matrix_Size];
-        IndiMatrix= new int[Matrix_Size][Matrix_Size];
+        matrixSize= StartUp.getClassList(sp).size();
       
-        if(RuleSet.needRuleFiredInfo())
-            caseNumber= 0;
         setParent(parent);
     }
+    /**
+     * Copy constructor.
+     * @param rs RuleSet to copy.
+     * @since 4.1
+     */
+    private RuleSet(RuleSet rs)
+    {
+        this.sp= rs.sp;
+        this.default_cond= rs.default_cond;
+        this.string_default_cond= rs.string_default_cond;
+        this.matrixSize= rs.matrixSize;
+        synchronized(rs)
+        {
+            if(rs.Matrix!= null)
+            {
+                this.Matrix= new int[rs.Matrix.length][];
+                this.IndiMatrix= new int[rs.IndiMatrix.length][];
+                for(int i=0; i<Matrix.length; i++)
+                {
+                    Matrix[i]= rs.Matrix[i].clone();
+                    IndiMatrix[i]= rs.IndiMatrix[i].clone();
+                }
+            }
+        }
+        this.classTables= rs.classTables;
+        this.output_type= rs.output_type;
+        this.sep= rs.sep;
+        this.ext= rs.ext;
+        this.caseNumber= rs.caseNumber;
+        this.ID= rs.ID;
+        list= new LinkedList<Rule>();
+        for(Rule r: rs.list)
+            addRule(r.copy());
+        setParent(rs.parent);
+    }
     /**
      * Set the parent file from which this RuleSet was parsed.
      * @param parent Parent file from which this RuleSet was parsed.
@@ -187,8 +260,10 @@ public class RuleSet implements java.io.Serializable
     /**
      * Clear all measurements done.
      */
-    public void clearMeasurements()
+    public synchronized void clearMeasurements()
     {
+        if(Matrix== null)
+            return;
         for(int i=0; i<Matrix.length; i++)
             for(int j=0; j<Matrix[i].length; j++)
             {
@@ -252,15 +327,39 @@ public class RuleSet implements java.io.Serializable
      */
     public void test(DataSet dataset, TestingMode mode) throws InvalidInputException
     {
-        Iterator<DataSetLine> it= dataset.getDataSetLinesIterator();
-        while(it.hasNext())
-            if(mode== TestingMode.SEQUENTIAL)
-                sequentialTest(it.next());
-            else
-                votingTest(it.next());
+        EvaluationResult result= new EvaluationResult(this, EvaluationContext.current().withTestingMode(mode));
+        try
+        {
+            evaluate(dataset, result);
+        }
+        finally
+        {
+            merge(result);
+        }
     }
     
     
+    /**
+     * Test the DataSet of a BitSetEvaluator. The evaluator may be shared with 
+     * other RuleSets to reuse the evaluation of common Conditions.
+     * @param evaluator BitSetEvaluator of the DataSet to test.
+     * @param mode Testing mode to perform.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void test(BitSetEvaluator evaluator, TestingMode mode) throws InvalidInputException
+    {
+        EvaluationResult result= new EvaluationResult(this, EvaluationContext.current().withTestingMode(mode));
+        try
+        {
+            evaluate(evaluator, result);
+        }
+        finally
+        {
+            merge(result);
+        }
+    }
+    
     /**
      * Test given DataSet File.
      * @param dataset DataSet File to test.
@@ -270,26 +369,647 @@ public class RuleSet implements java.io.Serializable
      * @since 2.0
      */
     public void test(File dataset, TestingMode mode) throws InvalidInputException, FileNotFoundException
+    {
+        EvaluationResult result= new EvaluationResult(this, EvaluationContext.current().withTestingMode(mode));
+        try
+        {
+            evaluate(dataset, result);
+        }
+        finally
+        {
+            merge(result);
+        }
+    }    
+    
+    /**
+     * Test given DataSet Object without modifying this RuleSet or its Rules.
+     * @param dataset DataSet Object to test.
+     * @param context Context of evaluation.
+     * @return Measurements of the test.
+     * @throws InvalidInputException DataSet is not clean.
+     * @see #merge(EvaluationResult) 
+     * @since 4.1
+     */
+    public EvaluationResult evaluate(DataSet dataset, EvaluationContext context) throws InvalidInputException
+    {
+        EvaluationResult result= new EvaluationResult(this, context);
+        evaluate(dataset, result);
+        return result;
+    }
+    
+    /**
+     * Test given DataSet Object and add measurements to a result.
+     * @param dataset DataSet Object to test.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void evaluate(DataSet dataset, EvaluationResult result) throws InvalidInputException
+    {
+        if(dataset instanceof ColumnarDataSet)
+        {
+            ColumnarDataSet columnar= (ColumnarDataSet) dataset;
+            EvaluationContext context= result.getContext();
+            if(context.getEvaluationStrategy()== EvaluationStrategy.BITSET && !context.needRuleFiredInfo())
+                new BitSetEvaluator(columnar).test(this, result);
+            else
+                evaluate(columnar, 0, columnar.size(), result);
+            return;
+        }
+        evaluate(dataset.getDataSetLinesIterator(), result);
+    }
+    
+    /**
+     * Test DataSet lines and add measurements to a result.
+     * @param lines Iterator over DataSet lines to test.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void evaluate(Iterator<DataSetLine> lines, EvaluationResult result) throws InvalidInputException
+    {
+        CompiledRuleSet classifier= compiledRuleSet(result);
+        if(classifier!= null)
+        {
+            int[] firstMatches= new int[result.getNumberofRules()+1], matched= new int[result.getNumberofRules()];
+            try
+            {
+                while(lines.hasNext())
+                    compiledTest(classifier, lines.next(), firstMatches, matched, result);
+            }
+            finally
+            {
+                compiledFailed(firstMatches, result);
+            }
+            return;
+        }
+        DecisionDag current= decisionDag(result);
+        if(current== null)
+        {
+            while(lines.hasNext())
+                test(lines.next(), result);
+            return;
+        }
+        int[] firstMatches= new int[result.getNumberofRules()+1];
+        try
+        {
+            while(lines.hasNext())
+                dagTest(current, lines.next(), firstMatches, result);
+        }
+        finally
+        {
+            dagFailed(firstMatches, result);
+        }
+    }
+    
+    /**
+     * Test a range of cases of a ColumnarDataSet and add measurements to a result.
+     * {@link EvaluationStrategy#BITSET} is not applied on ranges. In {@link TestingMode#SEQUENTIAL}
+     * mode Rules are matched a block of cases at a time, unless Rule fired information is needed.
+     * Other cases are tested one by one.
+     * @param dataset ColumnarDataSet to test.
+     * @param from Index of first case, inclusive.
+     * @param to Index of last case, exclusive.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void evaluate(ColumnarDataSet dataset, int from, int to, EvaluationResult result) throws InvalidInputException
+    {
+        DecisionDag current= decisionDag(result);
+        if(current== null)
+        {
+            EvaluationContext context= result.getContext();
+            if(context.getTestingMode()== TestingMode.SEQUENTIAL && !context.needRuleFiredInfo())
+                sequentialTest(dataset, from, to, result);
+            else if(context.getTestingMode()== TestingMode.SEQUENTIAL)
+                for(int row=from; row<to; row++)
+                    sequentialTest(dataset, row, result);
+            else
+                for(int row=from; row<to; row++)
+                    votingTest(dataset, row, result);
+            return;
+        }
+        int[] firstMatches= new int[result.getNumberofRules()+1];
+        try
+        {
+            for(int row=from; row<to; row++)
+                dagTest(current, dataset, row, firstMatches, result);
+        }
+        finally
+        {
+            dagFailed(firstMatches, result);
+        }
+    }
+    
+    /**
+     * Test the DataSet of a BitSetEvaluator without modifying this RuleSet or its Rules.
+     * @param evaluator BitSetEvaluator of the DataSet to test, may be shared with other RuleSets.
+     * @param context Context of evaluation.
+     * @return Measurements of the test.
+     * @throws InvalidInputException DataSet is not clean.
+     * @see #merge(EvaluationResult) 
+     * @since 4.1
+     */
+    public EvaluationResult evaluate(BitSetEvaluator evaluator, EvaluationContext context) throws InvalidInputException
+    {
+        EvaluationResult result= new EvaluationResult(this, context);
+        evaluate(evaluator, result);
+        return result;
+    }
+    
+    /**
+     * Test the DataSet of a BitSetEvaluator and add measurements to a result.
+     * Runs that need Rule fired information are tested case by case.
+     * @param evaluator BitSetEvaluator of the DataSet to test, may be shared with other RuleSets.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void evaluate(BitSetEvaluator evaluator, EvaluationResult result) throws InvalidInputException
+    {
+        evaluate(evaluator, 0, evaluator.getDataSet().size(), result);
+    }
+    
+    /**
+     * Test a range of cases of the DataSet of a BitSetEvaluator and add measurements to a result.
+     * Runs that need Rule fired information are tested case by case.
+     * @param evaluator BitSetEvaluator of the DataSet to test, may be shared with other RuleSets.
+     * @param from Index of first case, inclusive, a multiple of 64.
+     * @param to Index of last case, exclusive, a multiple of 64 unless it is the DataSet size.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @see BitSetEvaluator#test(RuleSet, EvaluationResult, int, int) 
+     * @since 4.1
+     */
+    public void evaluate(BitSetEvaluator evaluator, int from, int to, EvaluationResult result) throws InvalidInputException
+    {
+        if(result.getContext().needRuleFiredInfo())
+        {
+            evaluate(evaluator.getDataSet(), from, to, result);
+            return;
+        }
+        evaluator.test(this, result, from, to);
+    }
+    
+    /**
+     * Test given DataSet File without modifying this RuleSet or its Rules.
+     * @param dataset DataSet File to test.
+     * @param context Context of evaluation.
+     * @return Measurements of the test.
+     * @throws FileNotFoundException Unable to locate input DataSet File.
+     * @throws InvalidInputException DataSet is not clean.
+     * @see #merge(EvaluationResult) 
+     * @since 4.1
+     */
+    public EvaluationResult evaluate(File dataset, EvaluationContext context) throws InvalidInputException, FileNotFoundException
+    {
+        EvaluationResult result= new EvaluationResult(this, context);
+        evaluate(dataset, result);
+        return result;
+    }
+    
+    /**
+     * Test given DataSet File and add measurements to a result.
+     * @param dataset DataSet File to test.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws FileNotFoundException Unable to locate input DataSet File.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void evaluate(File dataset, EvaluationResult result) throws InvalidInputException, FileNotFoundException
     {
         if(sp.dataset_reader == null)
             SetupNotConfiguredException.occur("dataset_reader");
+        evaluate(new FileInputStream(dataset), result);
+    }
+    
+    /**
+     * Test a range of a DataSet File and add measurements to a result. Ranges
+     * of the same File can be tested in parallel into separate results.
+     * @param range DataSetRange of the DataSet File containing whole lines.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws FileNotFoundException Unable to locate input DataSet File.
+     * @throws IOException Unable to read input DataSet File.
+     * @throws InvalidInputException DataSet is not clean.
+     * @see EvaluationResult#merge(EvaluationResult) 
+     * @since 4.1
+     */
+    public void evaluate(DataSetRange range, EvaluationResult result) throws InvalidInputException, FileNotFoundException, IOException
+    {
+        if(sp.dataset_reader == null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        evaluate(range.open(), result);
+    }
+    
+    /**
+     * Test the DataSet cases read from an input and add measurements to a result.
+     * @param input InputStream of DataSet cases.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private void evaluate(InputStream input, EvaluationResult result) throws InvalidInputException
+    {
         DataSetReader reader= (DataSetReader) sp.dataset_reader.newInstance();
-        reader.open(new FileInputStream(dataset));
+        reader.open(input);
         DataSetLine line= null;
+        CompiledRuleSet classifier= compiledRuleSet(result);
+        DecisionDag current= classifier== null? decisionDag(result): null;
+        if(classifier!= null)
+        {
+            int[] firstMatches= new int[result.getNumberofRules()+1], matched= new int[result.getNumberofRules()];
+            try
+            {
+                while(reader.hasNext())
+                    compiledTest(classifier, line= reader.getNext(line), firstMatches, matched, result);
+            }
+            finally
+            {
+                compiledFailed(firstMatches, result);
+            }
+        }
+        else if(current!= null)
+        {
+            int[] firstMatches= new int[result.getNumberofRules()+1];
+            try
+            {
+                while(reader.hasNext())
+                    dagTest(current, line= reader.getNext(line), firstMatches, result);
+            }
+            finally
+            {
+                dagFailed(firstMatches, result);
+            }
+        }
+        else
+        {
+            while(reader.hasNext())
+                test(line= reader.getNext(line), result);
+        }
+        try
+        {
+            reader.close();
+        }
+        catch(Exception e){}
+    }
+    
+    /**
+     * Test the cases read by a DataSetCursor and add measurements to a result.
+     * Cases are read in batches into a ColumnarDataSet reused from batch to 
+     * batch, so no Object is created per case.
+     * @param cursor DataSetCursor opened on the input to test.
+     * @param result EvaluationResult of this RuleSet to add measurements to.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public void evaluate(DataSetCursor cursor, EvaluationResult result) throws InvalidInputException
+    {
+        ColumnarDataSet batch= new ColumnarDataSet(cursor.getMetricCount(), cursor.getClassList());
+        int size;
+        while((size= cursor.fill(batch, SCAN_BATCH)) > 0)
+            evaluate(batch, 0, size, result);
+    }
+    
+    /**
+     * Test given DataSet File on several RuleSets, reading and parsing it once.
+     * @param dataset DataSet File to test.
+     * @param results EvaluationResults to add measurements to, one per RuleSet to test.
+     * @throws FileNotFoundException Unable to locate input DataSet File.
+     * @throws InvalidInputException DataSet is not clean.
+     * @see #evaluate(DataSetRange, List) 
+     * @since 4.1
+     */
+    public static void evaluate(File dataset, List<EvaluationResult> results) throws InvalidInputException, FileNotFoundException
+    {
+        if(results.isEmpty())
+            return;
+        if(results.get(0).getRuleSet().sp.dataset_reader == null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        evaluate(new FileInputStream(dataset), results);
+    }
+    
+    /**
+     * Test a range of a DataSet File on several RuleSets, reading and parsing it once.
+     * Cases are read in batches, and each batch is tested on every RuleSet while 
+     * it is still held in memory.
+     * @param range DataSetRange of the DataSet File containing whole lines.
+     * @param results EvaluationResults to add measurements to, one per RuleSet to test.
+     * @throws FileNotFoundException Unable to locate input DataSet File.
+     * @throws IOException Unable to read input DataSet File.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public static void evaluate(DataSetRange range, List<EvaluationResult> results) throws InvalidInputException, FileNotFoundException, IOException
+    {
+        if(results.isEmpty())
+            return;
+        if(results.get(0).getRuleSet().sp.dataset_reader == null)
+            SetupNotConfiguredException.occur("dataset_reader");
+        evaluate(range.open(), results);
+    }
+    
+    /**
+     * Test the DataSet cases read from an input on several RuleSets, batch by batch.
+     * The DataSetReader of the first RuleSet is used.
+     * @param input InputStream of DataSet cases.
+     * @param results EvaluationResults to add measurements to, one per RuleSet to test.
+     * @throws InvalidInputException DataSet is not clean.
+     */
+    private static void evaluate(InputStream input, List<EvaluationResult> results) throws InvalidInputException
+    {
+        DataSetReader reader= (DataSetReader) results.get(0).getRuleSet().sp.dataset_reader.newInstance();
+        reader.open(input);
+        DataSetLine[] buffers= new DataSetLine[SCAN_BATCH];
+        DataSetLine[] batch= new DataSetLine[SCAN_BATCH];
+        List<DataSetLine> lines= Arrays.asList(batch);
+        int size;
         while(reader.hasNext())
         {
-            line= reader.getNext(line);
-            if(mode== TestingMode.SEQUENTIAL)
-                sequentialTest(line);
-            else
-                votingTest(line);
+            for(size=0; size<SCAN_BATCH && reader.hasNext(); size++)
+            {
+                batch[size]= reader.getNext(buffers[size]);
+                if(batch[size]!= null)
+                    buffers[size]= batch[size];
+            }
+            for(EvaluationResult result: results)
+                result.getRuleSet().evaluate(lines.subList(0, size).iterator(), result);
         }
         try
         {
             reader.close();
         }
         catch(Exception e){}
-    }    
+    }
+    
+    /**
+     * Test the cases read by a DataSetCursor on several RuleSets, reading and
+     * parsing them once. Each batch of cases is tested on every RuleSet while
+     * it is held in a ColumnarDataSet reused from batch to batch.
+     * @param cursor DataSetCursor opened on the input to test.
+     * @param results EvaluationResults to add measurements to, one per RuleSet to test.
+     * @throws InvalidInputException DataSet is not clean.
+     * @since 4.1
+     */
+    public static void evaluate(DataSetCursor cursor, List<EvaluationResult> results) throws InvalidInputException
+    {
+        if(results.isEmpty())
+            return;
+        ColumnarDataSet batch= new ColumnarDataSet(cursor.getMetricCount(), cursor.getClassList());
+        int size;
+        while((size= cursor.fill(batch, SCAN_BATCH)) > 0)
+            for(EvaluationResult result: results)
+                result.getRuleSet().evaluate(batch, 0, size, result);
+    }
+    
+    /**
+     * Add measurements of an evaluation to the confusion matrices of this RuleSet 
+     * and to its Rules.
+     * @param result EvaluationResult of this RuleSet.
+     * @throws InvalidInputException Result belongs to another RuleSet.
+     * @since 4.1
+     */
+    public synchronized void merge(EvaluationResult result) throws InvalidInputException
+    {
+        result.check(this, result.getRules());
+        int[][] matrix= result.getMatrix();
+        matrix();
+        for(int i=0; i<Matrix.length; i++)
+            for(int j=0; j<Matrix[i].length; j++)
+            {
+                Matrix[i][j]+= matrix[i][j];
+                IndiMatrix[i][j]+= matrix[i][j];
+            }
+        Rule[] rules= result.getRules();
+        for(int r=0; r<rules.length; r++)
+            rules[r].addMeasurements(result.getCorrect(r), result.getWrong(r), result.getFailed(r));
+    }
+    
+    /**
+     * Write which Rule fired on the next case tested.
+     * @param ruleName Name of Rule that fired a match/prediction.
+     * @param ruleClass Classification determined by the Rule.
+     * @param dsClass Classification set by DataSet line.
+     * @param context Context of evaluation.
+     * @since 4.1
+     */
+    synchronized void fired(String ruleName, String ruleClass, String dsClass, EvaluationContext context)
+    {
+        if(!context.needRuleFiredInfo() || RFIfailed)
+            return;
+        try 
+        {
+            printRuleFiredInfo(ruleName, ruleClass, dsClass);
+            this.caseNumber++;
+        } 
+        catch (IOException e)
+        {
+            Debugger.printlnWarning("failed to collect information about Rules matching DataSet");
+            RFIfailed= true;
+        }
+    }
+    
+    /**
+     * Get the decision graph to test cases of an evaluation on.
+     * @param result EvaluationResult of this RuleSet.
+     * @return DecisionDag of the Rules tested or null if cases are tested Rule by Rule,
+     * including when the graph was too large to build.
+     * @see EvaluationStrategy#DAG
+     */
+    private DecisionDag decisionDag(EvaluationResult result)
+    {
+        EvaluationContext context= result.getContext();
+        if(context.getEvaluationStrategy()!= EvaluationStrategy.DAG 
+                || context.getTestingMode()!= TestingMode.SEQUENTIAL || context.needRuleFiredInfo())
+            return null;
+        DecisionDag current= getDecisionDag();
+        if(!current.isBuilt())
+            return null;
+        Rule[] rules= result.getRules(), dagRules= current.getRules();
+        if(rules.length!= dagRules.length)
+            return null;
+        for(int r=0; r<rules.length; r++)
+            if(rules[r]!= dagRules[r])
+                return null;
+        return current;
+    }
+    
+    /**
+     * Test a DataSet line on a decision graph, or Rule by Rule if the graph leaves it undecided.
+     * @param current Decision graph of the Rules tested.
+     * @param line DataSet single line to test.
+     * @param firstMatches Cases decided per first matching Rule, last entry for default classification.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+    private void dagTest(DecisionDag current, DataSetLine line, int[] firstMatches, EvaluationResult result) throws InvalidInputException
+    {
+        if(line== null)
+            return;
+        int m= current.match(line);
+        if(m== DecisionDag.UNDECIDED)
+        {
+            sequentialTest(line, result);
+            return;
+        }
+        String lineClassification= line.getClassification();
+        int lineIndex= classIndex(line);
+        firstMatches[m== DecisionDag.NO_MATCH? firstMatches.length-1: m]++;
+        if(m!= DecisionDag.NO_MATCH)
+            classify(m, lineClassification, line, result);
+        record(m, lineIndex, lineClass(lineIndex, lineClassification), 1, result);
+    }
+    
+    /**
+     * Test a case of a ColumnarDataSet on a decision graph, or Rule by Rule if the graph leaves it undecided.
+     * @param current Decision graph of the Rules tested.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @param firstMatches Cases decided per first matching Rule, last entry for default classification.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException Invalid DataSet case detected.
+     */
+    private void dagTest(DecisionDag current, ColumnarDataSet dataset, int row, int[] firstMatches, EvaluationResult result) throws InvalidInputException
+    {
+        int m= current.match(dataset, row);
+        if(m== DecisionDag.UNDECIDED)
+        {
+            sequentialTest(dataset, row, result);
+            return;
+        }
+        String lineClassification= dataset.getClassification(row);
+        int lineIndex= dataset.getClassIndex(row);
+        firstMatches[m== DecisionDag.NO_MATCH? firstMatches.length-1: m]++;
+        if(m!= DecisionDag.NO_MATCH)
+            classify(m, lineClassification, dataset, row, result);
+        record(m, lineIndex, lineClass(lineIndex, lineClassification), 1, result);
+    }
+    
+    /**
+     * Record the cases decided on a decision graph that each Rule failed to classify, 
+     * as if Rules were tested one by one.
+     * @param firstMatches Cases decided per first matching Rule, last entry for default classification.
+     * @param result EvaluationResult to add measurements to.
+     */
+    private void dagFailed(int[] firstMatches, EvaluationResult result)
+    {
+        int remaining= 0;
+        for(int count: firstMatches)
+            remaining+= count;
+        for(int i=0; i<firstMatches.length-1; i++)
+        {
+            remaining-= firstMatches[i];
+            result.addFailed(i, remaining);
+        }
+    }
+    
+    /**
+     * Get the classifier to test DataSet lines of an evaluation on.
+     * @param result EvaluationResult of this RuleSet.
+     * @return CompiledRuleSet of the Rules tested or null if lines are tested Rule by Rule.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @see EvaluationStrategy#COMPILED
+     */
+    private CompiledRuleSet compiledRuleSet(EvaluationResult result) throws InvalidInputException
+    {
+        if(result.getContext().getEvaluationStrategy()!= EvaluationStrategy.COMPILED)
+            return null;
+        CompiledRuleSet current= getCompiledRuleSet();
+        Rule[] rules= result.getRules(), compiledRules= current.getRules();
+        if(rules.length!= compiledRules.length)
+            return null;
+        for(int r=0; r<rules.length; r++)
+            if(rules[r]!= compiledRules[r])
+                return null;
+        return current;
+    }
+    
+    /**
+     * Test a DataSet line on a CompiledRuleSet. The testing mode of the result context is performed.
+     * @param classifier CompiledRuleSet of the Rules tested.
+     * @param line DataSet single line to test.
+     * @param firstMatches Lines tested in {@link TestingMode#SEQUENTIAL} mode per first 
+     * matching Rule, last entry for default classification.
+     * @param matched Buffer receiving the Rules matching the line, one entry per Rule.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+    private void compiledTest(CompiledRuleSet classifier, DataSetLine line, int[] firstMatches, int[] matched, EvaluationResult result) throws InvalidInputException
+    {
+        if(line== null)
+            return;
+        String lineClassification= line.getClassification();
+        int lineIndex= classIndex(line);
+        if(result.getContext().getTestingMode()== TestingMode.SEQUENTIAL)
+        {
+            int m= classifier.match(line, true);
+            firstMatches[m== -1? firstMatches.length-1: m]++;
+            if(m!= -1)
+                classify(m, lineClassification, line, result);
+            sequentialRecord(m, lineClassification, lineIndex, result);
+            return;
+        }
+        
+        int lineClass= lineClass(lineIndex, lineClassification);
+        String[] labels= classTables().labels;
+        int voted = classIndex(this.string_default_cond);
+        int[] voting = new int[labels.length];
+        voting[voted]++;
+        Rule[] rules= result.getRules();
+        int n= classifier.matchAll(line, matched);
+        for(int r=0, k=0; r<rules.length; r++)
+            if(k< n && matched[k]== r)
+            {
+                k++;
+                classify(r, lineClassification, line, result);
+                voting[voted= result.vote(rules[r], lineIndex, lineClass)]++;
+            }
+            else
+                result.addFailed(r, 1);
+        result.votingRecord(voting, lineIndex, lineClass, voted);
+    }
+    
+    /**
+     * Record the lines tested on a CompiledRuleSet in {@link TestingMode#SEQUENTIAL} mode 
+     * that each Rule failed to classify, as if Rules were tested one by one.
+     * Failures of {@link TestingMode#VOTING} mode are recorded as lines are tested.
+     * @param firstMatches Lines tested per first matching Rule, last entry for default classification.
+     * @param result EvaluationResult to add measurements to.
+     */
+    private void compiledFailed(int[] firstMatches, EvaluationResult result)
+    {
+        if(result.getContext().getTestingMode()== TestingMode.SEQUENTIAL)
+            dagFailed(firstMatches, result);
+    }
+    
+    /**
+     * Get the classifier generated from the Rules of this RuleSet.
+     * The classifier is generated again if Rules or their Conditions changed since last call.
+     * @return CompiledRuleSet of this RuleSet.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @see CompiledRuleSet#compile(RuleSet) 
+     * @since 4.1
+     */
+    public CompiledRuleSet getCompiledRuleSet() throws InvalidInputException
+    {
+        CompiledRuleSet current= compiled;
+        if(current== null || !current.isCurrent(list))
+            compiled= current= CompiledRuleSet.compile(this);
+        return current;
+    }
+    
+    /**
+     * Get the decision graph compiled from the Rules of this RuleSet. 
+     * The graph is rebuilt if Rules or their Conditions changed since last call.
+     * @return DecisionDag of this RuleSet.
+     * @since 4.1
+     */
+    public DecisionDag getDecisionDag()
+    {
+        DecisionDag current= dag;
+        if(current== null || !current.isCurrent(list))
+            dag= current= new DecisionDag(list);
+        return current;
+    }
     /**
      * Set the output type.
      * @param type New output type. 
@@ -358,9 +1078,9 @@ public class RuleSet implements java.io.Serializable
      * Stop recording RuleSetFireInfo.
      * @since 3.1
      */
-    public void stopRecordingRuleSetFireInfo()
+    public synchronized void stopRecordingRuleSetFireInfo()
     {
-        if(RuleSet.needRuleFiredInfo())
+        if(RFIfw!= null || RFIfailed)
             this.closeRFI();
     }
 
@@ -409,14 +1129,14 @@ public class RuleSet implements java.io.Serializable
           {
               txt.out.print(datasetName + sep );
               for(int i=0; i<Function.size(); i++)
-                txt.out.print(sep+ Function.getFunction(i,IndiMatrix) ); 
+                txt.out.print(sep+ Function.getFunction(i,indiMatrix()) ); 
               txt.out.println();
           }
           else
           {
               ew.print(datasetName+sep);
               for(int i=0; i<Function.size(); i++)
-                ew.print(sep+""+Function.getFunction(i,this.IndiMatrix)); 
+                ew.print(sep+""+Function.getFunction(i,indiMatrix())); 
               ew.println();
           }
     }
@@ -424,8 +1144,10 @@ public class RuleSet implements java.io.Serializable
       * Reset the individual matrix counter. Important if you're recording.
       * @since 2.0
       */
-     public void indiReset()
+     public synchronized void indiReset()
     {
+        if(IndiMatrix== null)
+            return;
         for(int i=0; i<IndiMatrix.length; i++)
             for(int j=0; j<IndiMatrix[i].length; j++)             
                 IndiMatrix[i][j]= 0;
@@ -515,6 +1237,17 @@ public class RuleSet implements java.io.Serializable
         list.clear();
         list.addAll(rules);
     }
+    /**
+     * Compile the Conditions of all Rules and bind them to their metric columns.
+     * Required after Conditions are modified directly.
+     * @see Rule#compile() 
+     * @since 4.1
+     */
+    public void compile()
+    {
+        for(Rule r: list)
+            r.compile();
+    }
     /**
      * Get the number of Rules in this RuleSet object.
      * @return number of Rules present.
@@ -531,56 +1264,159 @@ public class RuleSet implements java.io.Serializable
      * @throws InvalidInputException Invalid DataSet line detected.
      * @since 4.0
      */
-     public String sequentialTest(DataSetLine line) throws InvalidInputException 
+     public String sequentialTest(DataSetLine line) throws InvalidInputException 
+     {
+        return test(line, TestingMode.SEQUENTIAL);
+    }
+     
+    /**
+     * Test a case of a ColumnarDataSet using {@link TestingMode#SEQUENTIAL} mode.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @return Classification predicted by this RuleSet.
+     * @throws InvalidInputException Invalid DataSet case detected.
+     * @since 4.1
+     */
+     public String sequentialTest(ColumnarDataSet dataset, int row) throws InvalidInputException 
+     {
+        return test(dataset, row, TestingMode.SEQUENTIAL);
+    }
+     
+    /**
+     * Test a DataSet line using {@link TestingMode#SEQUENTIAL} mode and add measurements to a result.
+     * @param line DataSet single line to test.
+     * @param result EvaluationResult to add measurements to.
+     * @return Classification predicted by this RuleSet or null if line invalid.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+     private String sequentialTest(DataSetLine line, EvaluationResult result) throws InvalidInputException 
      {
         if(line==null)
             return null; 
      
-        int classification = this.default_cond;
-        String string_classification = this.string_default_cond;
-        boolean match;
-        int rule_number = -1, counter= -1;
-        
-        for (Rule r: list) 
+        Rule[] rules= result.getRules();
+        int rule_number = -1;
+        for (int r=0; r<rules.length; r++) 
         {
-            counter++;
-            match = r.test(line);
-            if (match) 
+            if (rules[r].matches(line)) 
             {
-                classification = r.getClassification();
-                string_classification = r.getStringClassification();
-                rule_number= counter;
+                rule_number= r;
                 break;
             }
+            result.addFailed(r, 1);
         }
-        try 
+        String lineClassification= line.getClassification();
+        if(rule_number!= -1)
+            classify(rule_number, lineClassification, line, result);
+        return sequentialRecord(rule_number, lineClassification, classIndex(line), result);
+    }
+     
+    /**
+     * Test a case of a ColumnarDataSet using {@link TestingMode#SEQUENTIAL} mode and add measurements to a result.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @param result EvaluationResult to add measurements to.
+     * @return Classification predicted by this RuleSet.
+     * @throws InvalidInputException Invalid DataSet case detected.
+     */
+     private String sequentialTest(ColumnarDataSet dataset, int row, EvaluationResult result) throws InvalidInputException 
+     {
+        Rule[] rules= result.getRules();
+        int rule_number = -1;
+        for (int r=0; r<rules.length; r++) 
         {
-            if (classification == -1) 
-                throw new Exception();
-           
-            int lineClass = Integer.parseInt(line.getClassification());
-            
-            if (RuleSet.isMatchingWithinRange()) 
+            if (rules[r].matches(dataset, row)) 
             {
-                double range= RuleSet.getRange();
-                double upper = lineClass + range;
-                double lower = lineClass - range;
-                if (classification != lineClass && classification >= lower && classification <= upper) 
-                    classification = lineClass;
+                rule_number= r;
+                break;
             }
-            Matrix[lineClass][classification]++;
-            IndiMatrix[lineClass][classification]++;
-
-        } 
-        catch (Exception e) 
+            result.addFailed(r, 1);
+        }
+        String lineClassification= dataset.getClassification(row);
+        if(rule_number!= -1)
+            classify(rule_number, lineClassification, dataset, row, result);
+        return sequentialRecord(rule_number, lineClassification, dataset.getClassIndex(row), result);
+    }
+     
+    /**
+     * Test a range of cases of a ColumnarDataSet using {@link TestingMode#SEQUENTIAL} mode and add measurements to a result.
+     * Cases are matched a block at a time, each Rule on the cases left unmatched by the Rules before it.
+     * Once few cases of a block are left, they are matched one by one.
+     * Rule fired information is not written since cases are not recorded in order.
+     * @param dataset ColumnarDataSet containing the cases.
+     * @param from Index of first case, inclusive.
+     * @param to Index of last case, exclusive.
+     * @param result EvaluationResult to add measurements to.
+     * @throws InvalidInputException Invalid DataSet case detected.
+     */
+     private void sequentialTest(ColumnarDataSet dataset, int from, int to, EvaluationResult result) throws InvalidInputException 
+     {
+        Rule[] rules= result.getRules();
+        int length= Math.max(0, Math.min(to - from, MATCH_BLOCK));
+        double[] values= new double[length];
+        long[] temp= new long[(length + 63) >>> 6], bits= new long[temp.length], remaining= new long[temp.length];
+        for(int start=from; start<to; start+= MATCH_BLOCK)
         {
-            int lineClass = StartUp.getClassList().indexOf(line.getClassification());
-            int thisClass = StartUp.getClassList().indexOf(string_classification);
-            Matrix[lineClass][thisClass]++;
-            IndiMatrix[lineClass][thisClass]++;
+            int end= Math.min(to, start + MATCH_BLOCK), left= end - start, words= (left + 63) >>> 6;
+            Arrays.fill(remaining, 0, words, -1L);
+            if((left & 63)!= 0)
+                remaining[words-1]= (1L << (left & 63)) - 1;
+            for(int r=0; r<rules.length && left> 0; r++)
+            {
+                if(left * SPARSE_BLOCK< end - start)
+                    for(int w=0; w< words; w++)
+                    {
+                        long match= 0L;
+                        for(long word= remaining[w]; word!= 0L; word&= word - 1)
+                            if(rules[r].matches(dataset, start + (w << 6) + Long.numberOfTrailingZeros(word)))
+                                match|= Long.lowestOneBit(word);
+                        bits[w]= match;
+                    }
+                else
+                {
+                    System.arraycopy(remaining, 0, bits, 0, words);
+                    rules[r].matches(dataset, start, end, values, temp, bits);
+                }
+                int matched= 0;
+                for(int w=0; w< words; w++)
+                {
+                    long word= bits[w];
+                    remaining[w]&= ~word;
+                    matched+= Long.bitCount(word);
+                    for(; word!= 0L; word&= word - 1)
+                    {
+                        int row= start + (w << 6) + Long.numberOfTrailingZeros(word);
+                        String lineClassification= dataset.getClassification(row);
+                        classify(r, lineClassification, dataset, row, result);
+                        sequentialRecord(r, lineClassification, dataset.getClassIndex(row), result);
+                    }
+                }
+                result.addFailed(r, left - matched);
+                left-= matched;
+            }
+            for(int w=0; w< words && left> 0; w++)
+                for(long word= remaining[w]; word!= 0L; word&= word - 1)
+                {
+                    int row= start + (w << 6) + Long.numberOfTrailingZeros(word);
+                    sequentialRecord(-1, dataset.getClassification(row), dataset.getClassIndex(row), result);
+                }
         }
+     }
+     
+    /**
+     * Record the outcome of a {@link TestingMode#SEQUENTIAL} test.
+     * @param rule_number Index of matched Rule or -1 if default classification applies.
+     * @param lineClassification Actual classification of the case.
+     * @param lineIndex Index of the actual classification in the classifications list or -1 if unknown.
+     * @param result EvaluationResult to add measurements to.
+     * @return Classification predicted by this RuleSet.
+     * @throws InvalidInputException Classifications input file is invalid.
+     */
+     private String sequentialRecord(int rule_number, String lineClassification, int lineIndex, EvaluationResult result) throws InvalidInputException
+     {
+        String string_classification= record(rule_number, lineIndex, lineClass(lineIndex, lineClassification), 1, result);
 
-        if (RuleSet.needRuleFiredInfo()) 
+        if (result.getContext().needRuleFiredInfo()) 
         {
             String ruleName;
             if (rule_number == -1) 
@@ -589,19 +1425,74 @@ public class RuleSet implements java.io.Serializable
             else 
                 ruleName = "Rule " + rule_number;
             
-            try 
-            {
-                printRuleFiredInfo(ruleName, string_classification, line.getClassification());
-                this.caseNumber++;
-            } 
-            catch (IOException e)
-            {
-                Debugger.printlnWarning("failed to collect information about Rules matching DataSet");
-                RuleSet.setNeedRuleFiredInfo(false);
-            }
+            result.fired(ruleName, string_classification, lineClassification);
         }
         return string_classification;
     }
+    /**
+     * Record {@link TestingMode#SEQUENTIAL} predictions in the confusion matrix of a result.
+     * @param rule_number Index of Rule that matched the cases or -1 if default classification applies.
+     * @param lineIndex Index of the actual classification in the classifications list or -1 if unknown.
+     * @param lineClass Numeric actual classification or -1 if not numeric.
+     * @param count Number of cases.
+     * @param result EvaluationResult to add measurements to.
+     * @return Classification predicted by this RuleSet.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @since 4.1
+     */
+     String record(int rule_number, int lineIndex, int lineClass, int count, EvaluationResult result) throws InvalidInputException
+     {
+        if(rule_number>= 0)
+        {
+            Rule matched= result.getRules()[rule_number];
+            result.record(matched.getClassification(), matched.getClassIndex(), lineIndex, lineClass, count);
+            return matched.getStringClassification();
+        }
+        result.record(this.default_cond, classIndex(this.string_default_cond), lineIndex, lineClass, count);
+        return this.string_default_cond;
+     }
+     
+    /**
+     * Record the classification made by a matching Rule on a DataSet line.
+     * @param rule_number Index of Rule that matched the line.
+     * @param lineClassification Actual classification of the line.
+     * @param line DataSet line matched.
+     * @param result EvaluationResult to add measurements to.
+     * @throws UncleanDataSetException Classifications cannot be compared.
+     */
+     private void classify(int rule_number, String lineClassification, DataSetLine line, EvaluationResult result) throws UncleanDataSetException
+     {
+        try
+        {
+            result.addClassified(rule_number, lineClassification, 1);
+        }
+        catch(RuntimeException e)
+        {
+            throw new UncleanDataSetException(line+" is not a valid DataSet line.");
+        }
+     }
+     
+    /**
+     * Record the classification made by a matching Rule on a case of a ColumnarDataSet.
+     * @param rule_number Index of Rule that matched the case.
+     * @param lineClassification Actual classification of the case.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @param result EvaluationResult to add measurements to.
+     * @throws UncleanDataSetException Classifications cannot be compared.
+     */
+     private void classify(int rule_number, String lineClassification, ColumnarDataSet dataset, int row, EvaluationResult result) throws UncleanDataSetException
+     {
+        try
+        {
+            result.addClassified(rule_number, lineClassification, 1);
+        }
+        catch(RuntimeException e)
+        {
+            throw new UncleanDataSetException(dataset.getDataSetLine(row)+" is not a valid DataSet line.");
+        }
+     }
+     
      /**
       * Test a DataSet line.
       * @param line DataSet single line to test.
@@ -610,12 +1501,125 @@ public class RuleSet implements java.io.Serializable
       * @throws InvalidInputException Invalid DataSet line detected.
       * @since 4.0
       */
-     public String test(DataSetLine line, TestingMode mode)throws InvalidInputException
+     public synchronized String test(DataSetLine line, TestingMode mode)throws InvalidInputException
      {
+         if(line== null)
+             return null;
+         return test(line, lineResult(mode));
+     }
+     
+     /**
+      * Test a DataSet line and add measurements to a result. 
+      * The testing mode of the result context is performed.
+      * @param line DataSet single line to test.
+      * @param result EvaluationResult of this RuleSet to add measurements to.
+      * @return  Classification predicted by this RuleSet or null if line is invalid.
+      * @throws InvalidInputException Invalid DataSet line detected.
+      * @since 4.1
+      */
+     public String test(DataSetLine line, EvaluationResult result)throws InvalidInputException
+     {
+         if(result.getContext().getTestingMode()== TestingMode.SEQUENTIAL)
+             return sequentialTest(line, result);
+         else
+             return votingTest(line, result);
+     }
+     
+     /**
+      * Test a case of a ColumnarDataSet.
+      * @param dataset ColumnarDataSet containing the case.
+      * @param row Index of the case.
+      * @param mode Testing mode to perform.
+      * @return  Classification predicted by this RuleSet.
+      * @throws InvalidInputException Invalid DataSet case detected.
+      */
+     private synchronized String test(ColumnarDataSet dataset, int row, TestingMode mode)throws InvalidInputException
+     {
+         EvaluationResult result= lineResult(mode);
          if(mode== TestingMode.SEQUENTIAL)
-             return sequentialTest(line);
+             return sequentialTest(dataset, row, result);
          else
-             return votingTest(line);
+             return votingTest(dataset, row, result);
+     }
+     
+     /**
+      * Result of cases tested one at a time, reused while the static settings and Rules are unchanged.
+      * @since 4.1
+      */
+     private LineResult lineResult;
+     /**
+      * Get the result to test a single case on.
+      * @param mode Testing mode to perform.
+      * @return EvaluationResult adding measurements to this RuleSet and its Rules directly.
+      */
+     private LineResult lineResult(TestingMode mode)
+     {
+         LineResult result= lineResult;
+         if(result== null || !result.isCurrent(mode))
+             lineResult= result= new LineResult(EvaluationContext.current().withTestingMode(mode));
+         matrix();
+         return result;
+     }
+     
+     /**
+      * EvaluationResult of cases tested one at a time. Measurements are added to 
+      * the confusion matrices of this RuleSet and to its Rules as they are recorded,
+      * so no merge is needed. Callers must hold the lock of this RuleSet.
+      * @since 4.1
+      */
+     private final class LineResult extends EvaluationResult
+     {
+         /**
+          * LineResult constructor.
+          * @param context Context of evaluation.
+          */
+         LineResult(EvaluationContext context)
+         {
+             super(RuleSet.this, list.toArray(new Rule[list.size()]), context);
+         }
+         
+         /**
+          * Check that the static settings and Rules of this RuleSet are unchanged.
+          * @param mode Testing mode to perform.
+          * @return True if this result can be reused, false otherwise.
+          */
+         boolean isCurrent(TestingMode mode)
+         {
+             EvaluationContext context= getContext();
+             if(context.getTestingMode()!= mode || context.isMatchingWithinRange()!= matchWithinRange 
+                     || context.getRange()!= range || context.needRuleFiredInfo()!= (needRuleFiredInfo && mode!= TestingMode.VOTING))
+                 return false;
+             Rule[] rules= getRules();
+             if(list.size()!= rules.length)
+                 return false;
+             int r= 0;
+             for(Rule rule: list)
+                 if(rule!= rules[r++])
+                     return false;
+             return true;
+         }
+         
+         @Override
+         void addFailed(int rule, int count)
+         {
+             getRules()[rule].addMeasurements(0, 0, count);
+         }
+         
+         @Override
+         void addClassified(int rule, String lineClassification, String compare_classification, int count)
+         {
+             if(getContext().isCorrect(lineClassification, compare_classification))
+                 getRules()[rule].addMeasurements(count, 0, 0);
+             else
+                 getRules()[rule].addMeasurements(0, count, 0);
+         }
+         
+         @Override
+         void add(int row, int column, int count)
+         {
+             Matrix[row][column]+= count;
+             IndiMatrix[row][column]+= count;
+         }
      }
 
     /**
@@ -626,91 +1630,215 @@ public class RuleSet implements java.io.Serializable
      * @since 4.0
      */
     public String votingTest(DataSetLine line) throws InvalidInputException
+    {
+        return test(line, TestingMode.VOTING);
+    }
+    
+    /**
+     * Test a case of a ColumnarDataSet using {@link TestingMode#VOTING} mode.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @return Classification predicted by this RuleSet.
+     * @throws InvalidInputException Invalid DataSet case detected.
+     * @since 4.1
+     */
+    public String votingTest(ColumnarDataSet dataset, int row) throws InvalidInputException
+    {
+        return test(dataset, row, TestingMode.VOTING);
+    }
+    
+    /**
+     * Test a DataSet line using {@link TestingMode#VOTING} mode and add measurements to a result.
+     * @param line DataSet single line to test.
+     * @param result EvaluationResult to add measurements to.
+     * @return Classification predicted by this RuleSet or null if line is invalid.
+     * @throws InvalidInputException Invalid DataSet line detected.
+     */
+    private String votingTest(DataSetLine line, EvaluationResult result) throws InvalidInputException
     {
         if(line == null)
             return null;
 
-        int[] voting = new int[StartUp.getClassList().size()];
-
-        int classification, lineClass;
+        String lineClassification= line.getClassification();
+        int lineIndex= classIndex(line);
+        int lineClass= lineClass(lineIndex, lineClassification);
+        String[] labels= classTables().labels;
+        int voted = classIndex(this.string_default_cond);
+        int[] voting = new int[labels.length];
+        voting[voted]++;
+        
+        Rule[] rules= result.getRules();
+        for (int r=0; r<rules.length; r++) 
+            if (rules[r].matches(line)) 
+            {
+                classify(r, lineClassification, line, result);
+                voting[voted= result.vote(rules[r], lineIndex, lineClass)]++;
+            }
+            else
+                result.addFailed(r, 1);
+        
+        result.votingRecord(voting, lineIndex, lineClass, voted);
+        return labels[voted];
+    }
+    
+    /**
+     * Test a case of a ColumnarDataSet using {@link TestingMode#VOTING} mode and add measurements to a result.
+     * @param dataset ColumnarDataSet containing the case.
+     * @param row Index of the case.
+     * @param result EvaluationResult to add measurements to.
+     * @return Classification predicted by this RuleSet.
+     * @throws InvalidInputException Invalid DataSet case detected.
+     */
+    private String votingTest(ColumnarDataSet dataset, int row, EvaluationResult result) throws InvalidInputException
+    {
+        String lineClassification= dataset.getClassification(row);
+        int lineIndex= dataset.getClassIndex(row);
+        int lineClass= lineClass(lineIndex, lineClassification);
+        String[] labels= classTables().labels;
+        int voted = classIndex(this.string_default_cond);
+        int[] voting = new int[labels.length];
+        voting[voted]++;
+        
+        Rule[] rules= result.getRules();
+        for (int r=0; r<rules.length; r++) 
+            if (rules[r].matches(dataset, row)) 
+            {
+                classify(r, lineClassification, dataset, row, result);
+                voting[voted= result.vote(rules[r], lineIndex, lineClass)]++;
+            }
+            else
+                result.addFailed(r, 1);
+        
+        result.votingRecord(voting, lineIndex, lineClass, voted);
+        return labels[voted];
+    }
+    
+    /**
+     * Get numeric value of a classification.
+     * @param classification Classification to parse.
+     * @return Numeric classification or -1 if not numeric.
+     */
+    static int parseClass(String classification)
+    {
         try
         {
-            lineClass= Integer.parseInt(line.getClassification());
+            return Integer.parseInt(classification);
         }
         catch(Exception e)
         {
-           lineClass= -1; 
+           return -1; 
         }
-        String string_classification = this.string_default_cond;
-        voting[StartUp.getClassList().indexOf(string_classification)]++;
-        
-        boolean match;
-        for (Rule r: list) 
+    }
+    
+    /**
+     * Get the index of a classification in the classifications list.
+     * @param classification Classification to look up.
+     * @return Index of classification or -1 if not found.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @since 4.1
+     */
+    int classIndex(String classification) throws InvalidInputException
+    {
+        Integer index= classTables().indexes.get(classification);
+        return index== null? -1: index;
+    }
+    
+    /**
+     * Get the tables of the classifications list, building them on first use.
+     * Threads building them at the same time build equal tables.
+     * @return Tables of the classifications list.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @since 4.1
+     */
+    private ClassTables classTables() throws InvalidInputException
+    {
+        ClassTables tables= classTables;
+        if(tables== null)
+            classTables= tables= new ClassTables(StartUp.getClassList(sp));
+        return tables;
+    }
+    
+    /**
+     * Get the index of the classification of a DataSet line in the classifications list.
+     * @param line DataSet line.
+     * @return Index of classification or -1 if not found.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @since 4.1
+     */
+    private int classIndex(DataSetLine line) throws InvalidInputException
+    {
+        int index= line.getClassIndex();
+        if(index== -1)
         {
-            match = r.test(line);
-            if (match) 
-            {
-                string_classification = r.getStringClassification();
-                 
-                if (RuleSet.isMatchingWithinRange()) 
-                {
-                    try
-                    {
-                        classification= r.getClassification();
-                        if(classification==-1 || lineClass== -1)
-                        {
-                            Debugger.printlnSensitive("Matching within Range does not work with non-numeric classifications!");
-                            throw new Exception();
-                        }
-                        double range= RuleSet.getRange();
-                        double upper = lineClass + range;
-                        double lower = lineClass - range;
-                
-                        if (classification != lineClass && classification >= lower && classification <= upper) 
-                            string_classification= line.getClassification();
-                    }
-                    catch(Exception e){}
-                }
-                voting[StartUp.getClassList().indexOf(string_classification)]++;
-            }
+            index= classIndex(line.getClassification());
+            line.setClassIndex(index);
         }
-        /*
-         * Get the winning classification by vote
+        return index;
+    }
+    
+    /**
+     * Get the numeric value of an actual classification.
+     * @param lineIndex Index of the classification in the classifications list or -1 if unknown.
+     * @param lineClassification Classification.
+     * @return Numeric classification or -1 if not numeric.
+     * @throws InvalidInputException Classifications input file is invalid.
+     * @since 4.1
+     */
+    int lineClass(int lineIndex, String lineClassification) throws InvalidInputException
+    {
+        if(lineIndex== -1)
+            return parseClass(lineClassification);
+        return classTables().numbers[lineIndex];
+    }
+    
+    /**
+     * Tables of a classifications list. Instances are immutable once built, 
+     * so they are safely shared by threads through a volatile field.
+     * @since 4.1
+     */
+    private static final class ClassTables
+    {
+        /**
+         * Index of each classification in the classifications list.
+         */
+        final HashMap<String, Integer> indexes;
+        /**
+         * Classifications list.
+         */
+        final String[] labels;
+        /**
+         * Numeric value of each classification in the classifications list, -1 if not numeric.
          */
-        int winner_index = -1, winner_val = -1;
-        for (int i = 0; i < voting.length; i++) 
+        final int[] numbers;
+        
+        /**
+         * ClassTables constructor.
+         * @param classList Classifications list.
+         */
+        ClassTables(List<String> classList)
         {
-            if (winner_index == -1 || (winner_val < voting[i])) {
-                winner_index = i;
-                winner_val = voting[i];
+            indexes= new HashMap<String, Integer>();
+            labels= classList.toArray(new String[classList.size()]);
+            numbers= new int[labels.length];
+            for(int i=0; i<labels.length; i++)
+            {
+                if(!indexes.containsKey(labels[i]))
+                    indexes.put(labels[i], i);
+                numbers[i]= parseClass(labels[i]);
             }
         }
-
-        classification = winner_index;
-        try 
-        {
-            if (classification == -1)
-                throw new Exception();
-            Matrix[lineClass][classification]++;
-            IndiMatrix[lineClass][classification]++;
-
-        } 
-        catch (Exception e) 
-        {
-            lineClass = StartUp.getClassList().indexOf(line.getClassification());
-            int thisClass = StartUp.getClassList().indexOf(string_classification);
-
-            Matrix[lineClass][thisClass]++;
-            IndiMatrix[lineClass][thisClass]++;
-        }
-        return string_classification;
-
     }
+    
     /**
      * TextWriter Object to write which Rule fired information.
      * @since 3.1
      */
     private TextWriter RFIfw;
+    /**
+     * Flag indicating whether writing Rule fired information failed since recording started.
+     * @since 4.1
+     */
+    private boolean RFIfailed;
     /**
      * Write Rule Fired Information.
      * @param ruleName Name of Rule that fired a match/prediction.
@@ -748,13 +1876,15 @@ public class RuleSet implements java.io.Serializable
     {
         try
         {
-            RFIfw.close();
+            if(RFIfw!= null)
+                RFIfw.close();
         }
         catch(Exception e)
         {
             Debugger.printlnSensitive("Unable to close output stream for recording rule firing info");
         }
         RFIfw= null;
+        RFIfailed= false;
         caseNumber= 0;
     }  
      /**
@@ -763,7 +1893,7 @@ public class RuleSet implements java.io.Serializable
       */
      public int[][] getMatrix()
      {
-         return this.Matrix;
+         return matrix();
      }
      /**
       * Get True Positive (TP) measure. 
@@ -771,7 +1901,7 @@ public class RuleSet implements java.io.Serializable
       */
      public int getTruePositive()
      {
-         return this.Matrix[0][0];
+         return matrix()[0][0];
      }
      /**
       * Get True Positive (TP) measure. 
@@ -787,7 +1917,7 @@ public class RuleSet implements java.io.Serializable
       */
      public int getTrueNegative()
      {
-         return this.Matrix[1][1];
+         return matrix()[1][1];
      }
      /**
       * Get True Negative (TN) measure. 
@@ -811,7 +1941,7 @@ public class RuleSet implements java.io.Serializable
       */
      public int getFalseNegative()
      {
-         return this.Matrix[0][1];
+         return matrix()[0][1];
      }
       
      /**
@@ -829,7 +1959,7 @@ public class RuleSet implements java.io.Serializable
       */
      public int getFalsePositive()
      {
-         return this.Matrix[1][0];
+         return matrix()[1][0];
      }
        
      /**
@@ -839,7 +1969,7 @@ public class RuleSet implements java.io.Serializable
       */ 
      public int getIndiTruePositive()
      {
-         return this.IndiMatrix[0][0];
+         return indiMatrix()[0][0];
      }
       /**
       * Get True Positive (TP) measure for individual dataset. 
@@ -857,7 +1987,7 @@ public class RuleSet implements java.io.Serializable
       */ 
      public int getIndiTrueNegative()
      {
-         return this.IndiMatrix[1][1];
+         return indiMatrix()[1][1];
      } 
      /**
       * Get True Negative (TN) measure for individual dataset. 
@@ -884,7 +2014,7 @@ public class RuleSet implements java.io.Serializable
       */ 
      public int getIndiFalseNegative()
      {
-         return this.IndiMatrix[0][1];
+         return indiMatrix()[0][1];
      }
      /**
       * Get False Positive (FP) measure for individual dataset. 
@@ -902,7 +2032,7 @@ public class RuleSet implements java.io.Serializable
       */ 
      public int getIndiFalsePositive()
      {
-         return this.IndiMatrix[1][0];
+         return indiMatrix()[1][0];
      }
      /**
       * Get the individual confusion matrix of this RuleSet object. 
@@ -911,16 +2041,52 @@ public class RuleSet implements java.io.Serializable
       */
      public int[][] getIndiMatrix()
      {
-         return this.IndiMatrix;
+         return indiMatrix();
      }
      
+    /**
+     * Get the default confusion matrix, allocating both matrices on first use.
+     * @return Default confusion matrix.
+     * @since 4.1
+     */
+    private synchronized int[][] matrix()
+    {
+        if(Matrix== null)
+        {
+            IndiMatrix= new int[matrixSize][matrixSize];
+            Matrix= new int[matrixSize][matrixSize];
+        }
+        return Matrix;
+    }
+    
+    /**
+     * Get the individual confusion matrix, allocating both matrices on first use.
+     * @return Individual confusion matrix.
+     * @since 4.1
+     */
+    private synchronized int[][] indiMatrix()
+    {
+        matrix();
+        return IndiMatrix;
+    }
+    
+    /**
+     * Get the size of the confusion matrices, without allocating them.
+     * @return Number of classifications.
+     * @since 4.1
+     */
+    synchronized int getMatrixSize()
+    {
+        return Matrix== null? matrixSize: Matrix.length;
+    }
+     
     /**
      * Get the correctness of general matrix.
      * @return double correctness.
      */
     public double getCorrectness() 
     {
-        return Mathematics.correctness(Matrix);
+        return Mathematics.correctness(matrix());
     }
 
     /**
@@ -929,7 +2095,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getJindex() 
     {
-        return Mathematics.jindex(Matrix);
+        return Mathematics.jindex(matrix());
     }
 
     /**
@@ -938,7 +2104,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getPrecision() 
     {
-        return Mathematics.precision(Matrix);
+        return Mathematics.precision(matrix());
     }
 
     /**
@@ -947,7 +2113,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getRecall() 
     {
-        return Mathematics.recall(Matrix);
+        return Mathematics.recall(matrix());
     }
 
     /**
@@ -956,7 +2122,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getSensitivity() 
     {
-        return Mathematics.sensitivity(Matrix);
+        return Mathematics.sensitivity(matrix());
     }
 
     /**
@@ -965,7 +2131,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getSpecificity() 
     {
-        return Mathematics.specificity(Matrix);
+        return Mathematics.specificity(matrix());
     }
 
     /**
@@ -975,7 +2141,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getIndiCorrectness() 
     {
-        return Mathematics.correctness(IndiMatrix);
+        return Mathematics.correctness(indiMatrix());
     }
 
     /**
@@ -985,7 +2151,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getIndiJindex() 
     {
-        return Mathematics.jindex(IndiMatrix);
+        return Mathematics.jindex(indiMatrix());
     }
 
     /**
@@ -995,7 +2161,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getIndiPrecision() 
     {
-        return Mathematics.precision(IndiMatrix);
+        return Mathematics.precision(indiMatrix());
     }
 
     /**
@@ -1005,7 +2171,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getIndiRecall() 
     {
-        return Mathematics.recall(IndiMatrix);
+        return Mathematics.recall(indiMatrix());
     }
 
     /**
@@ -1015,7 +2181,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getIndiSensitivity() 
     {
-        return Mathematics.sensitivity(IndiMatrix);
+        return Mathematics.sensitivity(indiMatrix());
     }
 
     /**
@@ -1025,7 +2191,7 @@ public class RuleSet implements java.io.Serializable
      */
     public double getIndiSpecificity() 
     {
-        return Mathematics.specificity(IndiMatrix);
+        return Mathematics.specificity(indiMatrix());
     }
 
     /**
@@ -1058,7 +2224,7 @@ public class RuleSet implements java.io.Serializable
          if(ID!= -1)
             outname+= "("+ID+")";
         outname+= ext;
-        outputMatrix(Matrix, outname);
+        outputMatrix(matrix(), outname);
      }
          
      /**
@@ -1080,7 +2246,7 @@ public class RuleSet implements java.io.Serializable
         if(ID!= -1)
             outname+= "("+ID+")";
         outname+= ext;
-        outputMatrix(IndiMatrix, outname);
+        outputMatrix(indiMatrix(), outname);
      }
      
      private void outputMatrix(int[][] matrix, String filename) throws IOException, InvalidInputException
@@ -1155,34 +2321,44 @@ public class RuleSet implements java.io.Serializable
       */
      protected LinkedList<Double> getCutOffList(String metric)
      {
-        LinkedList<Condition> sameMetricConditions= new LinkedList<Condition>();
+        /*
+         * Conditions may be shared with copies of this RuleSet, so the classification
+         * of each Rule is paired with its Condition here rather than written into it.
+         */
+        final List<Condition> sameMetricConditions= new ArrayList<Condition>();
+        List<String> classifications= new ArrayList<String>();
         Condition cond;
         
         for(Rule rule: this.list)
         {
-            cond= rule.getCondition(metric);
+            cond= rule.conditionOf(metric);
             if(cond!=null)
             {
-                cond.classification= rule.getStringClassification();
                 sameMetricConditions.add(cond);
+                classifications.add(rule.getStringClassification());
             }    
         }
        
-        Condition[] sameMetricArray= new Condition[sameMetricConditions.size()];
-        sameMetricArray= sameMetricConditions.toArray(sameMetricArray);
-        Arrays.sort(sameMetricArray);
+        Integer[] order= new Integer[sameMetricConditions.size()];
+        for(int i=0; i<order.length; i++)
+            order[i]= i;
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer i, Integer j)
+            {
+                return sameMetricConditions.get(i).compareTo(sameMetricConditions.get(j));
+            }
+        });
         
         LinkedList<Double> cutpoints= new LinkedList<Double>();
-        Condition cond1, cond2;
         double v1, v2, cp;
-        for(int i=0; i<sameMetricArray.length-1; i++)
+        for(int i=0; i<order.length-1; i++)
         {
-            cond1= sameMetricArray[i];
-            cond2= sameMetricArray[i+1];
-            if(cond1.classification.equals(cond2.classification))
+            if(classifications.get(order[i]).equals(classifications.get(order[i+1])))
                 continue; //no shift occured.
-            v1= Double.parseDouble(cond1.value);
-            v2= Double.parseDouble(cond2.value);
+            v1= Double.parseDouble(sameMetricConditions.get(order[i]).value);
+            v2= Double.parseDouble(sameMetricConditions.get(order[i+1]).value);
             cp= (v1+v2)/2.0;
             if(!cutpoints.contains(cp))
                 cutpoints.add(cp);
@@ -1198,23 +2374,15 @@ public class RuleSet implements java.io.Serializable
       */
      public LinkedList<Double> getValueList(String metric)
      {  
-        LinkedList<Condition> sameMetricConditions= new LinkedList<Condition>();
-        Condition cond;
-        for(Rule rule: this.list)
-        {
-            cond= rule.getCondition(metric);
-            if(cond!=null)
-            {
-                cond.classification= rule.getStringClassification();
-                sameMetricConditions.add(cond);
-            }    
-        }
-        
         LinkedList<Double> values= new LinkedList<Double>();
+        Condition cond;
         double value;
-        for(int i=0; i<sameMetricConditions.size(); i++)
+        for(Rule rule: this.list)
         {
-            value= Double.parseDouble(sameMetricConditions.get(i).value);
+            cond= rule.conditionOf(metric);
+            if(cond==null)
+                continue;
+            value= Double.parseDouble(cond.value);
             if(!values.contains(value))
                 values.add(value);
         }
@@ -1253,13 +2421,14 @@ public class RuleSet implements java.io.Serializable
          reader.open(new FileInputStream(dataset));
          int[] unclassifiedClasses= new int[StartUp.getClassList(sp).size()];
         
-         DataSetLine line;
+         DataSetLine line, buffer= null;
          boolean matched;
          while(reader.hasNext())
          {
-             line= reader.getNext();
+             line= reader.getNext(buffer);
              if(line==null)
                  continue;
+             buffer= line;
              matched= false;
              for(Rule r: list)
                  if(r.test(line))
@@ -1269,7 +2438,7 @@ public class RuleSet implements java.io.Serializable
                  }
              if(matched)
                  continue;
-              unclassifiedClasses[StartUp.getClassList().indexOf(line.getClassification())]++;
+              unclassifiedClasses[classIndex(line)]++;
          }
          try
          {
@@ -1313,7 +2482,7 @@ public class RuleSet implements java.io.Serializable
                  }
              if(matched)
                  continue;
-              unclassifiedClasses[StartUp.getClassList().indexOf(line.getClassification())]++;
+              unclassifiedClasses[classIndex(line)]++;
          }
          int max_index= 0;
          for(int i=1; i< unclassifiedClasses.length; i++)
@@ -1324,45 +2493,17 @@ public class RuleSet implements java.io.Serializable
      }
      
      
-    private static volatile int temp_count = 0;
-
-    private synchronized int getTempID() 
-    {
-        return temp_count++;
-    }
-
+    /**
+     * Create a copy of this RuleSet, measurements included. Rules are copied
+     * and share their Conditions with the Rules of this RuleSet until either 
+     * Rule accesses them for modification.
+     * @return Copy of this RuleSet.
+     * @see Rule#copy() 
+     */
     @Override
     public RuleSet clone() 
     {
-        try 
-        {
-            String name = sp.home_dir + "/" + this.getParent().getName() + list.size() + "" + getTempID();
-            File file = new File(name);
-            file.deleteOnExit();
-            FileOutputStream fos = new FileOutputStream(file);
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
-            oos.writeObject(this);
-            oos.flush();
-            oos.close();
-            fos.close();
-
-            FileInputStream fis = new FileInputStream(file);
-            ObjectInputStream ois = new ObjectInputStream(fis);
-            RuleSet rs = (RuleSet) ois.readObject();
-            ois.close();
-            fis.close();
-            if (!file.delete())
-                file.deleteOnExit();
-            
-            return rs;
-        } 
-        catch (Exception e) 
-        {
-            Debugger.printlnError(e);
-            Debugger.printlnWarning("RuleSet copying failed!");
-            return null;
-        }
-
+        return new RuleSet(this);
     }
   
     
@@ -1379,7 +2520,7 @@ public class RuleSet implements java.io.Serializable
         {
             i++;
             sb.append("Rule ").append(i).append(": \n");
-            for(Condition cond: r.getConditions(false))
+            for(Condition cond: r.conditions())
                 sb.append(cond.metric).append(" ").append(cond.operator).append(" ").append(cond.value).append("\n");
      
             sb.append("->  class ").append(list.get(i).getStringClassification()).append("  [100.0%]\n");
@@ -1408,6 +2549,33 @@ public class RuleSet implements java.io.Serializable
      * @since 2.0
      */
     private static TestingMode testMode= TestingMode.SEQUENTIAL; 
+    
+    /**
+     * Evaluation strategies.<br/>
+     * {@link EvaluationStrategy#ROW} is default strategy. DataSet cases are tested
+     * one at a time on each Rule.<br/>
+     * {@link EvaluationStrategy#BITSET} tests ColumnarDataSets one metric column 
+     * at a time using {@link BitSetEvaluator}. Other DataSets, and runs that need
+     * Rule fired information, are tested case by case.<br/>
+     * {@link EvaluationStrategy#DAG} tests DataSets in {@link TestingMode#SEQUENTIAL} mode
+     * on a {@link DecisionDag} compiled from the Rules. {@link TestingMode#VOTING} mode,
+     * and runs that need Rule fired information, are tested case by case. RuleSets 
+     * whose graph is too large to build are tested as with {@link EvaluationStrategy#ROW}.<br/>
+     * {@link EvaluationStrategy#COMPILED} tests DataSet lines in both testing modes
+     * on a {@link CompiledRuleSet} generated from the Rules. ColumnarDataSets are
+     * tested as with {@link EvaluationStrategy#ROW}.
+     * @since 4.1
+     */
+    public enum EvaluationStrategy
+    {
+        ROW, BITSET, DAG, COMPILED;
+    }
+    
+    /**
+     * Evaluation strategy used to run experiments.
+     * @since 4.1
+     */
+    private static EvaluationStrategy evaluation= EvaluationStrategy.ROW;
      
     /**
      * Flag to indicate whether Rules match classifications within a range { a-Range, a, a+Range }.
@@ -1445,6 +2613,24 @@ public class RuleSet implements java.io.Serializable
         if(testMode== TestingMode.VOTING)
             needRuleFiredInfo= false;
     }
+    /**
+     * Get the evaluation strategy used on DataSets.
+     * @return EvaluationStrategy used.
+     * @since 4.1
+     */
+    public static EvaluationStrategy getEvaluationStrategy()
+    {
+        return evaluation;
+    }
+    /**
+     * Set the evaluation strategy used on DataSets.
+     * @param strategy Evaluation strategy to use, null for {@link EvaluationStrategy#ROW}.
+     * @since 4.1
+     */
+    public static void setEvaluationStrategy(EvaluationStrategy strategy)
+    {
+        evaluation= strategy== null? EvaluationStrategy.ROW: strategy;
+    }
     /**
      * Check if Rules match classifications within a range { a-Range, a, a+Range }.
      * @return True if matching is done within range, false otherwise.
@@ -33,7 +33,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 /**
@@ -134,6 +134,31 @@ public class RuleSetFactory
         return fastExtractRuleSets(new File(sp.input_ruleset_dir), executor);
     }
     
+    /**
+     * Open the RuleSets of the default directory, to read them lazily one at a 
+     * time or in bounded batches.
+     * @return RuleSetSource Object reading RuleSets.
+     * @throws FileNotFoundException Unable to locate Input File.
+     * @since 4.1
+     */
+    public RuleSetSource openRuleSets() throws FileNotFoundException
+    {
+        return new RuleSetSource(sp);
+    }
+    
+    /**
+     * Open the RuleSets of a directory, to read them lazily one at a time or in
+     * bounded batches.
+     * @param dir File or Directory containing all the RuleSets.
+     * @return RuleSetSource Object reading RuleSets.
+     * @throws FileNotFoundException Unable to locate Input File.
+     * @since 4.1
+     */
+    public RuleSetSource openRuleSets(File dir) throws FileNotFoundException
+    {
+        return new RuleSetSource(sp, dir);
+    }
+    
     
     /**
      * Extract RuleSets from input directory.
@@ -146,6 +171,22 @@ public class RuleSetFactory
      * @since 3.0
      */
     public List<RuleSet> extractRuleSets(File dir, int start, int forward) throws FileNotFoundException, InputParseException
+    {
+        return extractRuleSets(dir, start, forward, null);
+    }
+    
+    /**
+     * Extract RuleSets from input directory.
+     * @param dir File or Directory containing all the RuleSets.
+     * @param start starting index of File[] array.
+     * @param forward increment value for File[] array traversal.
+     * @param executor ForkJoinPool Object to parse each File in parallel, or null to parse sequentially.
+     * @return LinkedList object containing RuleSet objects.
+     * @throws FileNotFoundException Unable to locate Input File.
+     * @throws InputParseException  RuleSet input is not supported.
+     * @since 4.1
+     */
+    private List<RuleSet> extractRuleSets(File dir, int start, int forward, ForkJoinPool executor) throws FileNotFoundException, InputParseException
     {
         if(!dir.exists())
             throw new FileNotFoundException(dir.getName()+" doesn't exist.");
@@ -161,6 +202,7 @@ public class RuleSetFactory
         LinkedList<RuleSet> mainList= new LinkedList<RuleSet>();
         LinkedList<RuleSet> parsedList;
         RuleSetParser parser= (RuleSetParser) sp.ruleset_parser.newInstance();
+        parser.setExecutor(executor);
         int id;
         for(int i=start; i<list.length; i+=forward)
         {
@@ -219,11 +261,17 @@ public class RuleSetFactory
         if(!dir.exists())
             throw new FileNotFoundException(dir.getName()+" doesn't exist.");
      
-        if(!dir.isDirectory())
-            return extractRuleSets(dir);
-           
-        final File[] list= dir.listFiles();
+        final File[] list;
+        if(dir.isDirectory())
+            list= dir.listFiles();
+        else
+            list= new File[]{dir};
         
+        boolean shutdown= executor==null;
+        if(shutdown)
+            executor= new ForkJoinPool();
+        //RuleSets of a File are parsed in parallel as well on a ForkJoinPool.
+        final ForkJoinPool pool= executor instanceof ForkJoinPool? (ForkJoinPool) executor: null;
         
         List<Callable<List<RuleSet>>> partitions= new LinkedList<Callable<List<RuleSet>>>();
  
@@ -235,13 +283,10 @@ public class RuleSetFactory
                  @Override
                  public List<RuleSet> call() throws FileNotFoundException, IOException, InputParseException 
                  {
-                     return extractRuleSets(rsFile);
+                     return extractRuleSets(rsFile, 0, 1, pool);
                  } 
              });
          }  
-         boolean shutdown= executor==null;
-         if(shutdown)
-            executor= Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
          List<Future<List<RuleSet>>> results= executor.invokeAll(partitions);
          if(shutdown)
             executor.shutdown();
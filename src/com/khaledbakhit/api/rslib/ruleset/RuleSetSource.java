@@ -0,0 +1,259 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.exceptions.InputParseException;
+import com.khaledbakhit.api.rslib.exceptions.InvalidInputException;
+import com.khaledbakhit.api.rslib.exceptions.SetupNotConfiguredException;
+import com.khaledbakhit.api.rslib.parsers.RuleSetParser;
+import com.khaledbakhit.api.rslib.utils.Debugger;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * RuleSetSource reads the RuleSets of a directory lazily.<br/>
+ * 
+ * RuleSet Files are opened one at a time, and each RuleSet is decoded only when
+ * it is requested, either one by one as an Iterator or in batches with 
+ * {@link #next(int)}. RuleSets are not referenced once returned, so memory use
+ * is bounded by the batches held by the caller rather than by the number of 
+ * RuleSets, as long as the RuleSetParser can locate RuleSets without decoding 
+ * them. Parents and IDs of RuleSets are set as {@link RuleSetFactory} does.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class RuleSetSource implements Iterator<RuleSet>, Closeable
+{
+    /**
+     * Minimum number of RuleSets decoded by a single task.
+     */
+    private static final int MIN_TASK_RULESETS= 64;
+    /**
+     * RuleSet Files to read.
+     */
+    private final File[] files;
+    /**
+     * RuleSetParser Object reading the File opened.
+     */
+    private final RuleSetParser parser;
+    /**
+     * ForkJoinPool Object decoding batches in parallel, or null to decode sequentially.
+     */
+    private ForkJoinPool executor;
+    /**
+     * Index of the File opened, -1 if none.
+     */
+    private int file;
+    /**
+     * Index of the next RuleSet of the File opened.
+     */
+    private int index;
+    /**
+     * Number of RuleSets of the File opened.
+     */
+    private int count;
+    
+    /**
+     * RuleSetSource constructor. Reads the RuleSets of the default directory.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @throws FileNotFoundException Unable to locate RuleSet directory.
+     */
+    public RuleSetSource(LaunchSetup sp) throws FileNotFoundException
+    {
+        this(sp, new File(sp.input_ruleset_dir));
+    }
+    
+    /**
+     * RuleSetSource constructor.
+     * @param sp LaunchSetup Object containing input configuration.
+     * @param dir File or Directory containing the RuleSets.
+     * @throws FileNotFoundException Unable to locate RuleSet directory.
+     */
+    public RuleSetSource(LaunchSetup sp, File dir) throws FileNotFoundException
+    {
+        if(!dir.exists())
+            throw new FileNotFoundException(dir.getName()+" doesn't exist.");
+        if(sp.ruleset_parser==null)
+            SetupNotConfiguredException.occur("ruleset_parser");
+        if(dir.isDirectory())
+            files= dir.listFiles();
+        else
+            files= new File[]{dir};
+        parser= (RuleSetParser) sp.ruleset_parser.newInstance();
+        file= -1;
+    }
+    
+    /**
+     * Set the ForkJoinPool Object used to decode batches in parallel.
+     * @param executor ForkJoinPool Object or null to decode sequentially.
+     */
+    public void setExecutor(ForkJoinPool executor)
+    {
+        this.executor= executor;
+        parser.setExecutor(executor);
+    }
+    
+    /**
+     * Open the next File holding RuleSets if the File opened has none left.
+     * @return True if a RuleSet is left, false otherwise.
+     * @throws InputParseException RuleSet input is not supported.
+     * @throws IOException Unable to read RuleSet File.
+     */
+    private boolean advance() throws InputParseException, IOException
+    {
+        while(index>= count)
+        {
+            if(file>= 0)
+                parser.close();
+            if(file+1>= files.length)
+            {
+                file= files.length;
+                return false;
+            }
+            parser.open(new FileInputStream(files[++file]));
+            index= 0;
+            count= parser.getRuleSetCount();
+        }
+        return true;
+    }
+    
+    /**
+     * Decode a RuleSet of the File opened and set its parent and ID.
+     * @param i Index of RuleSet in File opened.
+     * @return RuleSet decoded.
+     * @throws InvalidInputException RuleSet input is invalid.
+     */
+    private RuleSet decode(int i) throws InvalidInputException
+    {
+        RuleSet rs= parser.getRuleSet(i);
+        rs.setParent(files[file]);
+        rs.setID(count== 1? -1: i);
+        return rs;
+    }
+
+    @Override
+    public boolean hasNext() 
+    {
+        try
+        {
+            return advance();
+        }
+        catch(Exception ex)
+        {
+            Debugger.printlnError("Unable to read RuleSet input!");
+            Debugger.printlnError(ex);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public RuleSet next() 
+    {
+        if(!hasNext())
+            throw new NoSuchElementException();
+        try
+        {
+            return decode(index++);
+        }
+        catch(InvalidInputException ex)
+        {
+            Debugger.printlnError("Unable to read RuleSet input!");
+            Debugger.printlnError(ex);
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+    
+    /**
+     * Get the next batch of RuleSets, which may span several Files. RuleSets of
+     * a File are decoded in parallel when an executor is set.
+     * @param size Maximum number of RuleSets of batch.
+     * @return List of at most size RuleSets, or null if none is left.
+     * @throws InvalidInputException RuleSet input is not supported.
+     * @throws IOException Unable to read RuleSet File.
+     * @throws InterruptedException Execution interrupted.
+     * @throws ExecutionException Error occurred during execution.
+     */
+    public List<RuleSet> next(int size) throws InvalidInputException, IOException, InterruptedException, ExecutionException
+    {
+        List<RuleSet> batch= new ArrayList<RuleSet>(size);
+        while(batch.size()< size && advance())
+        {
+            int to= Math.min(count, index + size - batch.size());
+            if(executor== null || to - index< 2*MIN_TASK_RULESETS)
+            {
+                while(index< to)
+                    batch.add(decode(index++));
+                continue;
+            }
+            int length= Math.max(MIN_TASK_RULESETS, (to - index) / (executor.getParallelism() * 4) + 1);
+            List<Callable<List<RuleSet>>> tasks= new ArrayList<Callable<List<RuleSet>>>();
+            for(int from= index; from< to; from+= length)
+            {
+                final int FROM= from, TO= Math.min(to, from + length);
+                tasks.add(new Callable<List<RuleSet>>()
+                {
+                    @Override
+                    public List<RuleSet> call() throws InvalidInputException 
+                    {
+                        List<RuleSet> decoded= new ArrayList<RuleSet>(TO - FROM);
+                        for(int i=FROM; i<TO; i++)
+                            decoded.add(decode(i));
+                        return decoded;
+                    }
+                });
+            }
+            for(Future<List<RuleSet>> result: executor.invokeAll(tasks))
+                batch.addAll(result.get());
+            index= to;
+        }
+        return batch.isEmpty()? null: batch;
+    }
+
+    /**
+     * Not supported, RuleSet Files are read only.
+     */
+    @Override
+    public void remove() 
+    {
+        throw new UnsupportedOperationException("RuleSet Files are read only.");
+    }
+
+    @Override
+    public void close() throws IOException 
+    {
+        parser.close();
+        file= files.length;
+        index= count= 0;
+    }
+}
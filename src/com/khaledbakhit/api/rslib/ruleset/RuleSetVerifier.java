@@ -234,6 +234,7 @@ public abstract class RuleSetVerifier
             for(Condition cond: conditions)
                 verify(cond);
         }
+        rs.compile();
     }
     /**
      * Verify given Condition Object.
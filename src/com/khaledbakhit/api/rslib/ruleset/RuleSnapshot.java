@@ -0,0 +1,96 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.ruleset.Condition.Operator;
+
+/**
+ * RuleSnapshot holds the bound Conditions of a Rule as they were when taken,
+ * to detect Conditions modified afterwards, for instance by {@link Condition#perturb()}.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+final class RuleSnapshot 
+{
+    /**
+     * Rule taken.
+     */
+    final Rule rule;
+    /**
+     * Metric columns of Rule.
+     */
+    final int[] columns;
+    /**
+     * Conditions of Rule.
+     */
+    final Condition[] conditions;
+    /**
+     * Operators of Conditions.
+     */
+    final Operator[] operators;
+    /**
+     * Values of Conditions.
+     */
+    final String[] values;
+    /**
+     * Numeric values of Conditions, NaN if not numeric.
+     */
+    final double[] numbers;
+    
+    /**
+     * Take a snapshot of a Rule.
+     * @param rule Rule to take.
+     */
+    RuleSnapshot(Rule rule)
+    {
+        this.rule= rule;
+        columns= rule.getBoundColumns();
+        conditions= rule.getBoundConditions();
+        operators= new Operator[conditions.length];
+        values= new String[conditions.length];
+        numbers= new double[conditions.length];
+        for(int k=0; k<conditions.length; k++)
+        {
+            operators[k]= conditions[k].getOperator();
+            values[k]= conditions[k].value;
+            numbers[k]= conditions[k].isNumeric? conditions[k].numeric_value: Double.NaN;
+        }
+    }
+    
+    /**
+     * Check if the Conditions of the Rule are unchanged since this snapshot was taken.
+     * @return true if unchanged, false otherwise.
+     */
+    boolean isCurrent()
+    {
+        if(rule.getBoundConditions()!= conditions || rule.getBoundColumns()!= columns)
+            return false;
+        for(int k=0; k<conditions.length; k++)
+        {
+            if(conditions[k].getOperator()!= operators[k] || !conditions[k].value.equals(values[k]))
+                return false;
+            if(conditions[k].isNumeric? Double.compare(conditions[k].numeric_value, numbers[k])!= 0: !Double.isNaN(numbers[k]))
+                return false;
+        }
+        return true;
+    }
+}
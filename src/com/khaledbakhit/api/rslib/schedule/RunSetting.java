@@ -55,6 +55,20 @@ public class RunSetting implements java.io.Serializable
    * Testing Mode of the run.
    */
   public RuleSet.TestingMode testingMode;
+  /**
+   * Evaluation strategy of the run. {@link RuleSet.EvaluationStrategy#COMPILED} tests
+   * DataSet lines on a classifier generated and compiled per RuleSet, which requires
+   * a Java compiler at run time; Rules are interpreted without one.
+   * @since 4.1
+   */
+  public RuleSet.EvaluationStrategy evaluationStrategy;
+  /**
+   * Memory in megabytes used to share Condition evaluations among RuleSets, 0 to disable.
+   * Requires {@link #store_dataset_columnar}<code> = true</code> and 
+   * {@link #evaluationStrategy}<code> = BITSET</code>
+   * @since 4.1
+   */
+  public int condition_cache_memory;
   /**
    * Flag indicating if run is matching within range.
    */
@@ -67,6 +81,90 @@ public class RunSetting implements java.io.Serializable
    * Flag indicating whether to store DataSet in main memory or not.
    */
   public boolean store_dataset_in_memory;
+  /**
+   * Flag indicating whether DataSets stored in main memory use the compact columnar form.
+   * Cases with non-numeric metric values or unknown classifications cannot be
+   * stored in columnar form and are dropped, so it is only enabled on request.
+   * Requires {@link #store_dataset_in_memory}<code> = true</code>
+   * @since 4.1
+   */
+  public boolean store_dataset_columnar;
+  /**
+   * Flag indicating whether metric columns of DataSets stored in columnar form are
+   * held off the Java heap, so DataSets larger than the heap can be stored.
+   * Requires {@link #store_dataset_columnar}<code> = true</code>
+   * @since 4.1
+   */
+  public boolean store_dataset_offheap;
+  /**
+   * Flag indicating whether off-heap metric columns are mapped from scratch files
+   * in the program data directory, so they can be paged out to disk.
+   * Requires {@link #store_dataset_offheap}<code> = true</code>
+   * @since 4.1
+   */
+  public boolean store_dataset_mapped;
+  /**
+   * Flag indicating whether each metric column of DataSets stored in columnar form
+   * is encoded in the smallest representation holding its values.
+   * Requires {@link #store_dataset_columnar}<code> = true</code> and 
+   * {@link #store_dataset_offheap}<code> = false</code>
+   * @since 4.1
+   */
+  public boolean store_dataset_encoded;
+  /**
+   * Flag indicating whether DataSets stored in main memory are indexed by metric value.
+   * DataSets stored off heap or encoded are not indexed, to avoid copying them onto the heap.
+   * Requires {@link #store_dataset_columnar}<code> = true</code> and {@link #evaluationStrategy}<code> = BITSET</code>
+   * @since 4.1
+   */
+  public boolean dataset_sorted_index;
+  /**
+   * Flag indicating whether DataSets stored in columnar form are cached in binary
+   * form, so later runs load them without parsing DataSet files again.
+   * Requires {@link #store_dataset_columnar}<code> = true</code>
+   * @since 4.1
+   */
+  public boolean dataset_cache;
+  /**
+   * Flag indicating whether large DataSet Files stored in main memory are split
+   * in ranges of lines extracted in parallel, rather than extracted as a whole.
+   * Requires {@link #store_dataset_in_memory}<code> = true</code>
+   * @since 4.1
+   */
+  public boolean dataset_split_files;
+  /**
+   * Flag indicating whether each DataSet File is read once and tested on all RuleSets together.
+   * Requires {@link #store_dataset_in_memory}<code> = false</code>
+   * @since 4.1
+   */
+  public boolean dataset_shared_scan;
+  /**
+   * Flag indicating whether streamed DataSet cases are read through a reusable 
+   * cursor into primitive buffers, without creating an Object per case.
+   * Cases with non-numeric metric values or unknown classifications are skipped.
+   * Requires {@link #store_dataset_in_memory}<code> = false</code>
+   * @since 4.1
+   */
+  public boolean dataset_cursor;
+  /**
+   * Flag indicating whether DataSet Files are read ahead by reader threads into a
+   * bounded queue of parsed batches, tested on all RuleSets as they are read.
+   * Requires {@link #store_dataset_in_memory}<code> = false</code>
+   * @since 4.1
+   */
+  public boolean dataset_pipeline;
+  /**
+   * Maximum number of parsed batches held by the DataSet pipeline, 0 for two per thread.
+   * Requires {@link #dataset_pipeline}<code> = true</code>
+   * @since 4.1
+   */
+  public int dataset_pipeline_depth;
+  /**
+   * Number of threads reading DataSet Files for the DataSet pipeline, 0 for one per four threads.
+   * Requires {@link #dataset_pipeline}<code> = true</code>
+   * @since 4.1
+   */
+  public int dataset_pipeline_readers;
   //DataSet
   /**
    * Flag indicating whether cleaning of DataSets is required or not.
@@ -127,6 +225,11 @@ public class RunSetting implements java.io.Serializable
    * Requires {@link #ruleset_verify}<code> = true</code> 
    */
   public boolean ruleset_autoCorrect;
+  /**
+   * Number of RuleSets read, tested and released at a time, 0 to read all RuleSets at once.
+   * @since 4.1
+   */
+  public int ruleset_batch_size;
   
   //State Analyzer 2.0
   /**
@@ -182,12 +285,26 @@ public class RunSetting implements java.io.Serializable
       output.println();
       output.println("The setting are the following:");
       output.println("store DataSet in memory: "+store_dataset_in_memory);
+      output.println("store DataSet in columnar form: "+store_dataset_columnar);
+      output.println("store DataSet off heap: "+store_dataset_offheap);
+      output.println("store DataSet in mapped scratch files: "+store_dataset_mapped);
+      output.println("store DataSet in encoded columns: "+store_dataset_encoded);
+      output.println("DataSet sorted index on: "+dataset_sorted_index);
+      output.println("DataSet cache on: "+dataset_cache);
+      output.println("DataSet split files on: "+dataset_split_files);
+      output.println("DataSet shared scan on: "+dataset_shared_scan);
+      output.println("DataSet cursor on: "+dataset_cursor);
+      output.println("DataSet pipeline on: "+dataset_pipeline);
+      output.println("DataSet pipeline depth: "+dataset_pipeline_depth);
+      output.println("DataSet pipeline readers: "+dataset_pipeline_readers);
       output.println("dataset cleaning on: "+this.dataset_clean);
       output.println("dataset log on: "+this.dataset_log);
       output.println("dataset re-organization on: "+this.dataset_organize);
       output.println("dataset re-organization output type: "+this.dataset_organizeType);
       
       output.println("rule testing mode: "+ testingMode);
+      output.println("rule evaluation strategy: "+ evaluationStrategy);
+      output.println("condition cache memory (MB): "+ condition_cache_memory);
       output.println("is matching within range: "+ is_matching_within_range);
       output.println("range value: "+ matching_range);
       output.println("rule tracking on: "+this.rule_track);
@@ -199,6 +316,7 @@ public class RunSetting implements java.io.Serializable
       output.println("ruleset confusion matrix output type: "+ this.ruleset_matrixType);
       output.println("rulset indi. results output production on: "+this.ruleset_indiresult);
       output.println("ruleset indi. results output type: "+ this.ruleset_resultType);
+      output.println("ruleset batch size: "+ this.ruleset_batch_size);
       
    
       output.println("State Analyzer 2.0 output production on: "+this.sa_output_enable);
@@ -229,6 +347,7 @@ public class RunSetting implements java.io.Serializable
     "CVS and State Analyzer 2.0 output type as text. Disables debugging.";
       
       rn.testingMode= RuleSet.TestingMode.SEQUENTIAL;
+      rn.evaluationStrategy= RuleSet.EvaluationStrategy.ROW;
       rn.is_matching_within_range= false;
       rn.matching_range= 0;      
       rn.store_dataset_in_memory= true;
@@ -267,6 +386,7 @@ public class RunSetting implements java.io.Serializable
       "professional way as CVS format. State Analyzer 2.0 output type is xls. "+
       "Disables debugging.";
       rn.testingMode= RuleSet.TestingMode.SEQUENTIAL;
+      rn.evaluationStrategy= RuleSet.EvaluationStrategy.ROW;
       rn.is_matching_within_range= false;
       rn.matching_range= 0;   
       rn.store_dataset_in_memory= true;
@@ -306,6 +426,7 @@ public class RunSetting implements java.io.Serializable
       +"professional way as XLS format. State Analyzer 2.0 output type is xls. "
       +"Enables debugging.";
       rn.testingMode= RuleSet.TestingMode.SEQUENTIAL;
+      rn.evaluationStrategy= RuleSet.EvaluationStrategy.ROW;
       rn.is_matching_within_range= false;
       rn.matching_range= 0;   
       rn.store_dataset_in_memory= true;
@@ -391,9 +512,23 @@ public class RunSetting implements java.io.Serializable
       this.name= rn.name;
       this.description= rn.description;
       this.testingMode= rn.testingMode;
+      this.evaluationStrategy= rn.evaluationStrategy;
+      this.condition_cache_memory= rn.condition_cache_memory;
       this.is_matching_within_range= rn.is_matching_within_range;
       this.matching_range= rn.matching_range;   
       this.store_dataset_in_memory= rn.store_dataset_in_memory;
+      this.store_dataset_columnar= rn.store_dataset_columnar;
+      this.store_dataset_offheap= rn.store_dataset_offheap;
+      this.store_dataset_mapped= rn.store_dataset_mapped;
+      this.store_dataset_encoded= rn.store_dataset_encoded;
+      this.dataset_sorted_index= rn.dataset_sorted_index;
+      this.dataset_cache= rn.dataset_cache;
+      this.dataset_split_files= rn.dataset_split_files;
+      this.dataset_shared_scan= rn.dataset_shared_scan;
+      this.dataset_cursor= rn.dataset_cursor;
+      this.dataset_pipeline= rn.dataset_pipeline;
+      this.dataset_pipeline_depth= rn.dataset_pipeline_depth;
+      this.dataset_pipeline_readers= rn.dataset_pipeline_readers;
       this.dataset_clean=rn.dataset_clean;
       this.dataset_log= rn.dataset_log;
       this.dataset_organize=rn.dataset_organize;
@@ -413,6 +548,7 @@ public class RunSetting implements java.io.Serializable
       this.ruleset_indiresult= rn.ruleset_indiresult;
       this.ruleset_verify=rn.ruleset_verify;
       this.ruleset_autoCorrect= rn.ruleset_autoCorrect;
+      this.ruleset_batch_size= rn.ruleset_batch_size;
       this.rule_track= rn.rule_track;
   }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.dataset.DataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSetLine;
+import com.khaledbakhit.api.rslib.dataset.DataSetReader;
+import com.khaledbakhit.api.rslib.parsers.ClassificationsParser;
+import com.khaledbakhit.api.rslib.parsers.MetricsParser;
+import com.khaledbakhit.api.rslib.parsers.RuleSetParser;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.EvaluationStrategy;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.ToolProvider;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * CompiledRuleSetTest checks that a {@link CompiledRuleSet} of each RuleSet of
+ * the sample input predicts the classification of every sample DataSet line as
+ * {@link RuleSet#test(DataSetLine, TestingMode)} does, and that evaluating lines with
+ * {@link EvaluationStrategy#COMPILED} records the same confusion matrix and Rule
+ * measurements, line by line, in both testing modes.<br/>
+ * 
+ * Sample input directory is read from system property <code>rslib.sample_input</code>,
+ * default <code>sample_input</code>.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class CompiledRuleSetTest
+{
+    /**
+     * Sample input directory.
+     */
+    private static final String INPUT= System.getProperty("rslib.sample_input", "sample_input") + "/Input";
+    
+    /**
+     * LaunchSetup Object containing input configuration.
+     */
+    private LaunchSetup sp;
+    
+    /**
+     * Configure the sample input.
+     */
+    @Before
+    public void setUp()
+    {
+        sp= new LaunchSetup()
+        {
+            @Override
+            public void init()
+            {
+                input_dir= INPUT;
+                input_metric_file= INPUT + "/metrics.txt";
+                input_class_file= INPUT + "/classes.txt";
+                input_ruleset_dir= INPUT + "/RuleSet";
+                input_dataset_dir= INPUT + "/DataSet";
+                classification_parser= ClassificationsParser.getDefaultClassificationsParser();
+                metrics_parser= MetricsParser.getDefaultMetricsParser();
+                ruleset_parser= RuleSetParser.getDefaultRuleSetParser(this);
+                dataset_reader= DataSetReader.getDefaultDataSetReader(this);
+            }
+        };
+        sp.init();
+    }
+    
+    /**
+     * Sample RuleSets tested in {@link TestingMode#SEQUENTIAL} mode.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void sequentialTestingMatchesRuleSet() throws Exception
+    {
+        crossCheck(TestingMode.SEQUENTIAL);
+    }
+    
+    /**
+     * Sample RuleSets tested in {@link TestingMode#VOTING} mode.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void votingTestingMatchesRuleSet() throws Exception
+    {
+        crossCheck(TestingMode.VOTING);
+    }
+    
+    /**
+     * Classifiers are generated when a Java compiler is available, reused
+     * while Rules are unchanged and generated again once a Rule is modified.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void classifiersAreGeneratedOncePerRules() throws Exception
+    {
+        RuleSet rs= rulesets().get(0);
+        CompiledRuleSet compiled= rs.getCompiledRuleSet();
+        assertEquals(ToolProvider.getSystemJavaCompiler()!= null, compiled.isGenerated());
+        assertEquals(rs.getNumberofRules(), compiled.getNumberofRules());
+        assertSame(compiled, rs.getCompiledRuleSet());
+        Rule rule= rs.getRules().get(0);
+        Condition cond= rule.getBoundConditions()[0];
+        rule.updateCondition(new Condition(cond.metric, "!=", cond.value));
+        assertNotSame(compiled, rs.getCompiledRuleSet());
+    }
+    
+    /**
+     * Test every sample DataSet line on every sample RuleSet both interpreted and compiled.
+     * @param mode Testing mode to perform.
+     * @throws Exception Test failed to run.
+     */
+    private void crossCheck(TestingMode mode) throws Exception
+    {
+        File[] files= new File(sp.input_dataset_dir).listFiles();
+        assertTrue(files!= null && files.length> 0);
+        EvaluationContext context= new EvaluationContext(mode, EvaluationStrategy.COMPILED, false, 0, false);
+        for(RuleSet rs: rulesets())
+        {
+            CompiledRuleSet compiled= rs.getCompiledRuleSet();
+            List<Rule> rules= rs.getRules();
+            for(File file: files)
+            {
+                rs.clearMeasurements();
+                int[][] base= measurements(rules);
+                EvaluationResult result= new EvaluationResult(rs, context);
+                int n= 0;
+                for(DataSetLine line: new DataSet(file, sp).getDataSetLines())
+                {
+                    String where= rs.getParent().getName()+" on line "+(n++)+" of "+file.getName()+" in "+mode+" mode";
+                    String expected= rs.test(line, mode);
+                    assertEquals("class of "+where, expected, compiled.test(line, mode));
+                    rs.evaluate(Collections.singletonList(line).iterator(), result);
+    
+                    int[][] e= rs.getMatrix(), a= result.getMatrix();
+                    for(int i=0; i<e.length; i++)
+                        assertArrayEquals("matrix of "+where, e[i], a[i]);
+                    int[][] tested= measurements(rules);
+                    for(int r=0; r<rules.size(); r++)
+                    {
+                        assertEquals("correct of Rule "+r+" of "+where, tested[r][0] - base[r][0], result.getCorrect(r));
+                        assertEquals("wrong of Rule "+r+" of "+where, tested[r][1] - base[r][1], result.getWrong(r));
+                        assertEquals("failed of Rule "+r+" of "+where, tested[r][2] - base[r][2], result.getFailed(r));
+                    }
+                }
+                assertTrue(n> 0);
+            }
+        }
+    }
+    
+    /**
+     * Read the RuleSets of the sample input.
+     * @return Sample RuleSets.
+     * @throws Exception Unable to read RuleSets.
+     */
+    private List<RuleSet> rulesets() throws Exception
+    {
+        List<RuleSet> rulesets= new RuleSetFactory(sp).extractRuleSets(new File(sp.input_ruleset_dir));
+        assertFalse(rulesets.isEmpty());
+        return rulesets;
+    }
+    
+    /**
+     * Get the measurements recorded on Rules.
+     * @param rules Rules to read.
+     * @return Correct, wrong and failed classifications of each Rule.
+     */
+    private static int[][] measurements(List<Rule> rules)
+    {
+        int[][] measurements= new int[rules.size()][];
+        for(int r=0; r<rules.size(); r++)
+            measurements[r]= new int[]{ rules.get(r).getCorrect(), rules.get(r).getWrong(), rules.get(r).getFailed() };
+        return measurements;
+    }
+}
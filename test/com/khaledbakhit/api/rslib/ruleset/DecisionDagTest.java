@@ -0,0 +1,364 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSet;
+import com.khaledbakhit.api.rslib.dataset.DataSetLine;
+import com.khaledbakhit.api.rslib.dataset.DataSetReader;
+import com.khaledbakhit.api.rslib.parsers.ClassificationsParser;
+import com.khaledbakhit.api.rslib.parsers.MetricsParser;
+import com.khaledbakhit.api.rslib.parsers.RuleSetParser;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.EvaluationStrategy;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * DecisionDagTest checks {@link DecisionDag} against testing Rules one by one 
+ * on generated RuleSets and DataSets holding NaN, infinite and signed zero values, 
+ * with such values as Condition thresholds too, and checks that the RuleSets of 
+ * the sample input are compiled to a graph used by {@link EvaluationStrategy#DAG}.<br/>
+ * 
+ * Sample input directory is read from system property <code>rslib.sample_input</code>,
+ * default <code>sample_input</code>.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class DecisionDagTest 
+{
+    /**
+     * Operators of generated Conditions.
+     */
+    private static final String[] OPERATORS= {"<", "<=", ">", ">=", "==", "!="};
+    /**
+     * Thresholds of generated Conditions.
+     */
+    private static final String[] THRESHOLDS= {"Infinity", "-Infinity", "NaN", "-0", "0", "1", "2"};
+    /**
+     * Metric values of generated cases.
+     */
+    private static final double[] VALUES= {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -0.0, 0.0, 1, 2, 3};
+    /**
+     * Sample input directory.
+     */
+    private static final String INPUT= System.getProperty("rslib.sample_input", "sample_input") + "/Input";
+    
+    /**
+     * Random generator, seeded for repeatable runs.
+     */
+    private Random random;
+    /**
+     * LaunchSetup Object containing input configuration.
+     */
+    private LaunchSetup sp;
+    /**
+     * Metric names.
+     */
+    private List<String> metrics;
+    /**
+     * Classifications.
+     */
+    private List<String> classes;
+    
+    /**
+     * Read metrics and classifications of the sample input.
+     * @throws Exception Unable to read metrics or classifications.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        random= new Random(17);
+        sp= new LaunchSetup()
+        {
+            @Override
+            public void init()
+            {
+                input_dir= INPUT;
+                input_metric_file= INPUT + "/metrics.txt";
+                input_class_file= INPUT + "/classes.txt";
+                input_ruleset_dir= INPUT + "/RuleSet";
+                input_dataset_dir= INPUT + "/DataSet";
+                classification_parser= ClassificationsParser.getDefaultClassificationsParser();
+                metrics_parser= MetricsParser.getDefaultMetricsParser();
+                ruleset_parser= RuleSetParser.getDefaultRuleSetParser(this);
+                dataset_reader= DataSetReader.getDefaultDataSetReader(this);
+            }
+        };
+        sp.init();
+        metrics= StartUp.getMetricList(sp);
+        classes= StartUp.getClassList(sp);
+    }
+    
+    /**
+     * Generated tree RuleSets decide every case like testing Rules one by one.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void treeRuleSetsMatchLinearTesting() throws Exception
+    {
+        for(int i=0; i< 100; i++)
+        {
+            List<Rule> rules= new ArrayList<Rule>();
+            tree(rules, new ArrayList<String[]>(), 0);
+            crossCheck(new DecisionDag(rules));
+        }
+    }
+    
+    /**
+     * Generated flat RuleSets decide every case like testing Rules one by one.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void flatRuleSetsMatchLinearTesting() throws Exception
+    {
+        for(int i=0; i< 100; i++)
+        {
+            List<Rule> rules= new ArrayList<Rule>();
+            for(int r=0; r< 2 + random.nextInt(10); r++)
+            {
+                List<String[]> conditions= new ArrayList<String[]>();
+                for(int k=0; k< 1 + random.nextInt(4); k++)
+                    conditions.add(condition());
+                rules.add(rule(conditions));
+            }
+            crossCheck(new DecisionDag(rules));
+        }
+    }
+    
+    /**
+     * Generated tree RuleSets are compiled to a graph.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void treeRuleSetsAreBuilt() throws Exception
+    {
+        for(int i=0; i< 20; i++)
+        {
+            List<Rule> rules= new ArrayList<Rule>();
+            tree(rules, new ArrayList<String[]>(), 0);
+            DecisionDag dag= new DecisionDag(rules);
+            assertTrue("graph of "+rules.size()+" tree Rules not built", dag.isBuilt());
+            assertTrue(dag.getNodeCount() > 0);
+        }
+    }
+    
+    /**
+     * RuleSets of the sample input are compiled to a graph which decides every
+     * case of the sample DataSets, and evaluating them with {@link EvaluationStrategy#DAG}
+     * produces the same measurements as {@link EvaluationStrategy#ROW}.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void sampleRuleSetsAreBuiltAndUsed() throws Exception
+    {
+        List<RuleSet> rulesets= new RuleSetFactory(sp).extractRuleSets(new File(sp.input_ruleset_dir));
+        File[] datasets= new File(sp.input_dataset_dir).listFiles();
+        assertFalse(rulesets.isEmpty());
+        assertTrue(datasets!= null && datasets.length> 0);
+        EvaluationContext row= new EvaluationContext(TestingMode.SEQUENTIAL, EvaluationStrategy.ROW, false, 0, false);
+        EvaluationContext dag= new EvaluationContext(TestingMode.SEQUENTIAL, EvaluationStrategy.DAG, false, 0, false);
+        for(RuleSet rs: rulesets)
+        {
+            DecisionDag graph= rs.getDecisionDag();
+            assertTrue("graph of "+rs.getParent()+" not built", graph.isBuilt());
+            for(File file: datasets)
+            {
+                ColumnarDataSet dataset= new ColumnarDataSet(file, sp);
+                for(int r=0; r<dataset.size(); r++)
+                    assertTrue("case "+r+" of "+file+" left undecided", graph.match(dataset, r)!= DecisionDag.UNDECIDED);
+                assertMatrixEquals(rs.evaluate(dataset, row), rs.evaluate(dataset, dag));
+                assertSame(graph, rs.getDecisionDag());
+            }
+        }
+    }
+    
+    /**
+     * Large flat RuleSets give up building quickly and are evaluated Rule by Rule.
+     * @throws Exception Test failed to run.
+     */
+    @Test(timeout= 20000)
+    public void largeFlatRuleSetsAreNotBuilt() throws Exception
+    {
+        String[] operators= {"<", "<=", ">", ">="};
+        RuleSet rs= new RuleSet(null, sp);
+        for(int r=0; r< 1000; r++)
+        {
+            List<String[]> conditions= new ArrayList<String[]>();
+            for(int k=0; k< 3; k++)
+                conditions.add(new String[]{ metrics.get(random.nextInt(metrics.size())), 
+                    operators[random.nextInt(operators.length)], Integer.toString(random.nextInt(50)) });
+            rs.addRule(rule(conditions));
+        }
+        rs.setDefaultCond(classes.get(0));
+        assertFalse(rs.getDecisionDag().isBuilt());
+        ColumnarDataSet dataset= columnar();
+        assertMatrixEquals(
+                rs.evaluate(dataset, new EvaluationContext(TestingMode.SEQUENTIAL, EvaluationStrategy.ROW, false, 0, false)),
+                rs.evaluate(dataset, new EvaluationContext(TestingMode.SEQUENTIAL, EvaluationStrategy.DAG, false, 0, false)));
+    }
+    
+    /**
+     * Assert a DecisionDag decides cases of generated DataSets like testing Rules one by one.
+     * @param dag DecisionDag to check.
+     * @throws Exception Test failed to run.
+     */
+    private void crossCheck(DecisionDag dag) throws Exception
+    {
+        assertEquals("cases of ColumnarDataSet decided differently", 0, dag.crossCheck(columnar()));
+        assertEquals("DataSet lines decided differently", 0, dag.crossCheck(lines()));
+    }
+    
+    /**
+     * Assert two evaluations produced the same measurements.
+     * @param expected Expected EvaluationResult.
+     * @param actual Actual EvaluationResult.
+     */
+    private static void assertMatrixEquals(EvaluationResult expected, EvaluationResult actual)
+    {
+        int[][] e= expected.getMatrix(), a= actual.getMatrix();
+        assertEquals(e.length, a.length);
+        for(int i=0; i<e.length; i++)
+            assertArrayEquals(e[i], a[i]);
+        for(int r=0; r<expected.getNumberofRules(); r++)
+        {
+            assertEquals(expected.getCorrect(r), actual.getCorrect(r));
+            assertEquals(expected.getWrong(r), actual.getWrong(r));
+            assertEquals(expected.getFailed(r), actual.getFailed(r));
+        }
+    }
+    
+    /**
+     * Generate the Rules of a tree, each Condition followed by its negation.
+     * @param rules List receiving Rules.
+     * @param path Conditions leading to the current node.
+     * @param depth Depth of the current node.
+     * @throws Exception Invalid Rule generated.
+     */
+    private void tree(List<Rule> rules, List<String[]> path, int depth) throws Exception
+    {
+        if(depth== 5 || (depth> 0 && random.nextInt(4)== 0))
+        {
+            rules.add(rule(path));
+            return;
+        }
+        String[] c= condition();
+        String[] negation= {c[0], OPERATORS[negate(c[1])], c[2]};
+        List<String[]> onTrue= new ArrayList<String[]>(path);
+        onTrue.add(c);
+        tree(rules, onTrue, depth+1);
+        List<String[]> onFalse= new ArrayList<String[]>(path);
+        onFalse.add(negation);
+        tree(rules, onFalse, depth+1);
+    }
+    
+    /**
+     * Get the index of the negation of an operator.
+     * @param operator Operator to negate.
+     * @return Index of negated operator in {@link #OPERATORS}.
+     */
+    private static int negate(String operator)
+    {
+        switch(Condition.Operator.parse(operator))
+        {
+            case LESS: return 3;
+            case LESS_EQUAL: return 2;
+            case GREATER: return 1;
+            case GREATER_EQUAL: return 0;
+            case EQUAL: return 5;
+            default: return 4;
+        }
+    }
+    
+    /**
+     * Generate a Condition.
+     * @return Metric name, operator and threshold.
+     */
+    private String[] condition()
+    {
+        return new String[]{ metrics.get(random.nextInt(metrics.size())), 
+            OPERATORS[random.nextInt(OPERATORS.length)], THRESHOLDS[random.nextInt(THRESHOLDS.length)] };
+    }
+    
+    /**
+     * Create a Rule.
+     * @param conditions Metric name, operator and threshold of each Condition.
+     * @return Rule created.
+     * @throws Exception Invalid Rule.
+     */
+    private Rule rule(List<String[]> conditions) throws Exception
+    {
+        Rule r= new Rule(classes.get(random.nextInt(classes.size())), sp);
+        for(String[] c: conditions)
+            r.addCondition(c[0], c[1], c[2]);
+        return r;
+    }
+    
+    /**
+     * Generate metric values of a case.
+     * @return Metric values.
+     */
+    private double[] values()
+    {
+        double[] values= new double[metrics.size()];
+        for(int m=0; m< values.length; m++)
+            values[m]= VALUES[random.nextInt(VALUES.length)];
+        return values;
+    }
+    
+    /**
+     * Generate a ColumnarDataSet.
+     * @return ColumnarDataSet of generated cases.
+     */
+    private ColumnarDataSet columnar()
+    {
+        ColumnarDataSet dataset= new ColumnarDataSet(metrics.size(), classes);
+        for(int row=0; row< 300; row++)
+            dataset.addCase(values(), random.nextInt(classes.size()));
+        return dataset;
+    }
+    
+    /**
+     * Generate a DataSet of lines.
+     * @return DataSet of generated lines.
+     */
+    private DataSet lines()
+    {
+        DataSet dataset= new DataSet();
+        for(int row=0; row< 300; row++)
+        {
+            double[] values= values();
+            String[] line= new String[values.length];
+            for(int m=0; m< values.length; m++)
+                line[m]= Double.toString(values[m]);
+            dataset.addDataSetLine(new DataSetLine(classes.get(random.nextInt(classes.size())), line));
+        }
+        return dataset;
+    }
+}
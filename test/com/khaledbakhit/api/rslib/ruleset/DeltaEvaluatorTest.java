@@ -0,0 +1,259 @@
+/**
+ * RuleSet Library
+ * Copyright (C) 2013  Khaled Bakhit
+ * 
+ * This file is part of RuleSet Library.
+ * 
+ * RuleSet Library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * RuleSet Library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with RuleSet Library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.khaledbakhit.api.rslib.ruleset;
+
+import com.khaledbakhit.api.rslib.LaunchSetup;
+import com.khaledbakhit.api.rslib.StartUp;
+import com.khaledbakhit.api.rslib.dataset.ColumnarDataSet;
+import com.khaledbakhit.api.rslib.parsers.ClassificationsParser;
+import com.khaledbakhit.api.rslib.parsers.MetricsParser;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.EvaluationStrategy;
+import com.khaledbakhit.api.rslib.ruleset.RuleSet.TestingMode;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * DeltaEvaluatorTest checks that the measurements {@link DeltaEvaluator} keeps
+ * on a RuleSet, after Rules are modified, relabeled or removed, equal a full
+ * evaluation of the same RuleSet.<br/>
+ * 
+ * Sample input directory is read from system property <code>rslib.sample_input</code>,
+ * default <code>sample_input</code>.
+ * 
+ * @author Khaled Bakhit
+ * @since 4.1
+ * @version 17/10/2026
+ */
+public class DeltaEvaluatorTest
+{
+    /**
+     * Operators of generated Conditions.
+     */
+    private static final String[] OPERATORS= {"<", "<=", ">", ">=", "==", "!="};
+    /**
+     * Number of generated cases, not a multiple of a bitset word.
+     */
+    private static final int CASES= 1000;
+    /**
+     * Sample input directory.
+     */
+    private static final String INPUT= System.getProperty("rslib.sample_input", "sample_input") + "/Input";
+    
+    /**
+     * Random generator, seeded for repeatable runs.
+     */
+    private Random random;
+    /**
+     * LaunchSetup Object containing input configuration.
+     */
+    private LaunchSetup sp;
+    /**
+     * Metric names.
+     */
+    private List<String> metrics;
+    /**
+     * Classifications.
+     */
+    private List<String> classes;
+    /**
+     * Generated DataSet.
+     */
+    private ColumnarDataSet dataset;
+    /**
+     * Context of evaluation.
+     */
+    private EvaluationContext context;
+    
+    /**
+     * Read metrics and classifications of the sample input and generate a DataSet.
+     * @throws Exception Unable to read metrics or classifications.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        random= new Random(11);
+        sp= new LaunchSetup()
+        {
+            @Override
+            public void init()
+            {
+                input_dir= INPUT;
+                input_metric_file= INPUT + "/metrics.txt";
+                input_class_file= INPUT + "/classes.txt";
+                classification_parser= ClassificationsParser.getDefaultClassificationsParser();
+                metrics_parser= MetricsParser.getDefaultMetricsParser();
+            }
+        };
+        sp.init();
+        metrics= StartUp.getMetricList(sp);
+        classes= StartUp.getClassList(sp);
+        dataset= new ColumnarDataSet(metrics.size(), classes);
+        for(int row=0; row< CASES; row++)
+        {
+            double[] values= new double[metrics.size()];
+            for(int m=0; m< values.length; m++)
+                values[m]= random.nextInt(6);
+            dataset.addCase(values, random.nextInt(classes.size()));
+        }
+        context= new EvaluationContext(TestingMode.SEQUENTIAL, EvaluationStrategy.BITSET, false, 0, false);
+    }
+    
+    /**
+     * Updates after modifying Conditions move cases between Rules as a full evaluation does.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void modifiedRulesMatchFullEvaluation() throws Exception
+    {
+        RuleSet rs= ruleset();
+        DeltaEvaluator delta= new DeltaEvaluator(rs, new BitSetEvaluator(dataset), context);
+        delta.test();
+        assertMeasurements(rs);
+        for(int i=0; i< 40; i++)
+        {
+            Rule rule= rs.getRules().get(random.nextInt(rs.getNumberofRules()));
+            modify(rule);
+            if(i % 2== 0)
+                delta.update(rule);
+            else
+                delta.update();
+            assertTrue(delta.getVisitedCases()<= CASES);
+            assertMeasurements(rs);
+        }
+    }
+    
+    /**
+     * Updates after relabeling Rules and the default classification record
+     * their cases again as a full evaluation does.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void relabeledRulesMatchFullEvaluation() throws Exception
+    {
+        RuleSet rs= ruleset();
+        DeltaEvaluator delta= new DeltaEvaluator(rs, new BitSetEvaluator(dataset), context);
+        delta.test();
+        for(int i=0; i< 20; i++)
+        {
+            Rule rule= rs.getRules().get(random.nextInt(rs.getNumberofRules()));
+            rule.updateCondition(new Condition(otherClass(rule.getStringClassification())));
+            if(i % 3== 0)
+                rs.setDefaultCond(otherClass(rs.getDefaultStringCond()));
+            if(i % 4== 0)
+                modify(rule);
+            delta.update(rule);
+            assertMeasurements(rs);
+        }
+    }
+    
+    /**
+     * Updates after removing Rules retract the measurements of the removed Rules
+     * and test the remaining Rules as a full evaluation does.
+     * @throws Exception Test failed to run.
+     */
+    @Test
+    public void removedRulesMatchFullEvaluation() throws Exception
+    {
+        RuleSet rs= ruleset();
+        DeltaEvaluator delta= new DeltaEvaluator(rs, new BitSetEvaluator(dataset), context);
+        delta.test();
+        while(rs.getNumberofRules()> 1)
+        {
+            Rule removed= rs.getRules().remove(random.nextInt(rs.getNumberofRules()));
+            modify(rs.getRules().get(0));
+            delta.update();
+            assertEquals(0, removed.getCorrect());
+            assertEquals(0, removed.getWrong());
+            assertEquals(0, removed.getFailed());
+            assertMeasurements(rs);
+        }
+    }
+    
+    /**
+     * Assert the measurements recorded on a RuleSet and its Rules equal a full evaluation.
+     * @param rs RuleSet to check.
+     * @throws Exception Test failed to run.
+     */
+    private void assertMeasurements(RuleSet rs) throws Exception
+    {
+        EvaluationResult expected= rs.evaluate(dataset,
+                new EvaluationContext(TestingMode.SEQUENTIAL, EvaluationStrategy.ROW, false, 0, false));
+        int[][] e= expected.getMatrix(), a= rs.getMatrix();
+        assertEquals(e.length, a.length);
+        for(int i=0; i<e.length; i++)
+            assertArrayEquals(e[i], a[i]);
+        List<Rule> rules= rs.getRules();
+        for(int r=0; r<rules.size(); r++)
+        {
+            assertEquals("correct of Rule "+r, expected.getCorrect(r), rules.get(r).getCorrect());
+            assertEquals("wrong of Rule "+r, expected.getWrong(r), rules.get(r).getWrong());
+            assertEquals("failed of Rule "+r, expected.getFailed(r), rules.get(r).getFailed());
+        }
+    }
+    
+    /**
+     * Generate a RuleSet.
+     * @return RuleSet generated.
+     * @throws Exception Invalid Rule generated.
+     */
+    private RuleSet ruleset() throws Exception
+    {
+        RuleSet rs= new RuleSet(null, sp);
+        for(int r=0; r< 10; r++)
+        {
+            Rule rule= new Rule(classes.get(random.nextInt(classes.size())), sp);
+            for(int k=0; k< 1 + random.nextInt(3); k++)
+                rule.addCondition(metrics.get(random.nextInt(metrics.size())),
+                        OPERATORS[random.nextInt(OPERATORS.length)], Integer.toString(random.nextInt(6)));
+            rs.addRule(rule);
+        }
+        rs.setDefaultCond(classes.get(random.nextInt(classes.size())));
+        return rs;
+    }
+    
+    /**
+     * Replace a Condition of a Rule by a generated Condition on the same metric.
+     * @param rule Rule to modify.
+     */
+    private void modify(Rule rule)
+    {
+        Condition[] conditions= rule.getBoundConditions();
+        String metric= conditions[random.nextInt(conditions.length)].metric;
+        rule.updateCondition(new Condition(metric,
+                OPERATORS[random.nextInt(OPERATORS.length)], Integer.toString(random.nextInt(6))));
+    }
+    
+    /**
+     * Get a classification other than a given one.
+     * @param classification Classification to replace.
+     * @return Another classification.
+     */
+    private String otherClass(String classification)
+    {
+        String other;
+        do
+            other= classes.get(random.nextInt(classes.size()));
+        while(other.equals(classification));
+        return other;
+    }
+}